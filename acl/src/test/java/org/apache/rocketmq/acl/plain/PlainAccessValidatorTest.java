@@ -30,7 +30,9 @@ import org.apache.rocketmq.acl.common.AclException;
 import org.apache.rocketmq.acl.common.AclUtils;
 import org.apache.rocketmq.acl.common.SessionCredentials;
 import org.apache.rocketmq.common.PlainAccessConfig;
+import org.apache.rocketmq.common.message.MessageQueue;
 import org.apache.rocketmq.common.protocol.RequestCode;
+import org.apache.rocketmq.common.protocol.body.UpdateConsumerOffsetBatchRequestBody;
 import org.apache.rocketmq.common.protocol.header.*;
 import org.apache.rocketmq.common.protocol.heartbeat.ConsumerData;
 import org.apache.rocketmq.common.protocol.heartbeat.HeartbeatData;
@@ -253,6 +255,42 @@ public class PlainAccessValidatorTest {
         plainAccessValidator.validate(accessResource);
     }
 
+    @Test
+    public void validateUpdateConsumerOffsetBatchTest() {
+        UpdateConsumerOffsetBatchRequestBody requestBody = new UpdateConsumerOffsetBatchRequestBody();
+        requestBody.setConsumerGroup("groupB");
+        requestBody.getOffsetTable().put(new MessageQueue("topicB", "broker-a", 0), 100L);
+        requestBody.getOffsetTable().put(new MessageQueue("topicC", "broker-a", 1), 200L);
+        RemotingCommand remotingCommand = RemotingCommand.createRequestCommand(RequestCode.UPDATE_CONSUMER_OFFSET_BATCH, null);
+        remotingCommand.setBody(requestBody.encode());
+        aclClient.doBeforeRequest("", remotingCommand);
+        ByteBuffer buf = remotingCommand.encode();
+        buf.getInt();
+        buf = ByteBuffer.allocate(buf.limit() - buf.position()).put(buf);
+        buf.position(0);
+        PlainAccessResource accessResource = (PlainAccessResource) plainAccessValidator.parse(RemotingCommand.decode(buf), "192.168.1.1");
+        Assert.assertEquals(3, accessResource.getResourcePermMap().size());
+        Assert.assertTrue(accessResource.getResourcePermMap().containsKey(PlainAccessResource.getRetryTopic("groupB")));
+        plainAccessValidator.validate(accessResource);
+    }
+
+    @Test(expected = AclException.class)
+    public void validateUpdateConsumerOffsetBatchDeniedTest() {
+        UpdateConsumerOffsetBatchRequestBody requestBody = new UpdateConsumerOffsetBatchRequestBody();
+        requestBody.setConsumerGroup("groupB");
+        requestBody.getOffsetTable().put(new MessageQueue("topicB", "broker-a", 0), 100L);
+        requestBody.getOffsetTable().put(new MessageQueue("topicA", "broker-a", 0), 100L);
+        RemotingCommand remotingCommand = RemotingCommand.createRequestCommand(RequestCode.UPDATE_CONSUMER_OFFSET_BATCH, null);
+        remotingCommand.setBody(requestBody.encode());
+        aclClient.doBeforeRequest("", remotingCommand);
+        ByteBuffer buf = remotingCommand.encode();
+        buf.getInt();
+        buf = ByteBuffer.allocate(buf.limit() - buf.position()).put(buf);
+        buf.position(0);
+        PlainAccessResource accessResource = (PlainAccessResource) plainAccessValidator.parse(RemotingCommand.decode(buf), "192.168.1.1");
+        plainAccessValidator.validate(accessResource);
+    }
+
     @Test(expected = AclException.class)
     public void validateNullAccessKeyTest() {
         SessionCredentials sessionCredentials=new SessionCredentials();
@@ -47,12 +47,15 @@ import org.apache.rocketmq.broker.filter.ConsumerFilterManager;
 import org.apache.rocketmq.broker.filtersrv.FilterServerManager;
 import org.apache.rocketmq.broker.latency.BrokerFastFailure;
 import org.apache.rocketmq.broker.latency.BrokerFixedThreadPoolExecutor;
+import org.apache.rocketmq.broker.latency.BrokerRequestClassifier;
+import org.apache.rocketmq.broker.latency.WeightedFairRequestQueue;
 import org.apache.rocketmq.broker.longpolling.NotifyMessageArrivingListener;
 import org.apache.rocketmq.broker.longpolling.PullRequestHoldService;
 import org.apache.rocketmq.broker.mqtrace.ConsumeMessageHook;
 import org.apache.rocketmq.broker.mqtrace.SendMessageHook;
 import org.apache.rocketmq.broker.offset.ConsumerOffsetManager;
 import org.apache.rocketmq.broker.out.BrokerOuterAPI;
+import org.apache.rocketmq.broker.out.TopicConfigDeltaBuilder;
 import org.apache.rocketmq.broker.plugin.MessageStoreFactory;
 import org.apache.rocketmq.broker.plugin.MessageStorePluginContext;
 import org.apache.rocketmq.broker.processor.AdminBrokerProcessor;
@@ -62,6 +65,7 @@ import org.apache.rocketmq.broker.processor.EndTransactionProcessor;
 import org.apache.rocketmq.broker.processor.PullMessageProcessor;
 import org.apache.rocketmq.broker.processor.QueryMessageProcessor;
 import org.apache.rocketmq.broker.processor.SendMessageProcessor;
+import org.apache.rocketmq.broker.quota.QuotaManager;
 import org.apache.rocketmq.broker.slave.SlaveSynchronize;
 import org.apache.rocketmq.broker.subscription.SubscriptionGroupManager;
 import org.apache.rocketmq.broker.topic.TopicConfigManager;
@@ -82,12 +86,14 @@ import org.apache.rocketmq.common.constant.LoggerName;
 import org.apache.rocketmq.common.constant.PermName;
 import org.apache.rocketmq.common.namesrv.RegisterBrokerResult;
 import org.apache.rocketmq.common.protocol.RequestCode;
+import org.apache.rocketmq.common.protocol.body.RegisterBrokerDeltaBody;
 import org.apache.rocketmq.common.protocol.body.TopicConfigSerializeWrapper;
 import org.apache.rocketmq.common.stats.MomentStatsItem;
 import org.apache.rocketmq.logging.InternalLogger;
 import org.apache.rocketmq.logging.InternalLoggerFactory;
 import org.apache.rocketmq.remoting.RPCHook;
 import org.apache.rocketmq.remoting.RemotingServer;
+import org.apache.rocketmq.remoting.common.Pair;
 import org.apache.rocketmq.remoting.common.TlsMode;
 import org.apache.rocketmq.remoting.netty.NettyClientConfig;
 import org.apache.rocketmq.remoting.netty.NettyRemotingServer;
@@ -124,6 +130,7 @@ public class BrokerController {
     private final MessageArrivingListener messageArrivingListener;
     private final Broker2Client broker2Client;
     private final SubscriptionGroupManager subscriptionGroupManager;
+    private final QuotaManager quotaManager;
     private final ConsumerIdsChangeListener consumerIdsChangeListener;
     private final RebalanceLockManager rebalanceLockManager = new RebalanceLockManager();
     private final BrokerOuterAPI brokerOuterAPI;
@@ -132,6 +139,7 @@ public class BrokerController {
     private final SlaveSynchronize slaveSynchronize;
     private final BlockingQueue<Runnable> sendThreadPoolQueue;
     private final BlockingQueue<Runnable> pullThreadPoolQueue;
+    private final BrokerRequestClassifier.PullRequestClassifier pullRequestClassifier;
     private final BlockingQueue<Runnable> queryThreadPoolQueue;
     private final BlockingQueue<Runnable> clientManagerThreadPoolQueue;
     private final BlockingQueue<Runnable> heartbeatThreadPoolQueue;
@@ -187,13 +195,20 @@ public class BrokerController {
         this.clientHousekeepingService = new ClientHousekeepingService(this);
         this.broker2Client = new Broker2Client(this);
         this.subscriptionGroupManager = new SubscriptionGroupManager(this);
+        this.quotaManager = new QuotaManager(this);
         this.brokerOuterAPI = new BrokerOuterAPI(nettyClientConfig);
         this.filterServerManager = new FilterServerManager(this);
 
         this.slaveSynchronize = new SlaveSynchronize(this);
 
-        this.sendThreadPoolQueue = new LinkedBlockingQueue<Runnable>(this.brokerConfig.getSendThreadPoolQueueCapacity());
-        this.pullThreadPoolQueue = new LinkedBlockingQueue<Runnable>(this.brokerConfig.getPullThreadPoolQueueCapacity());
+        this.pullRequestClassifier = BrokerRequestClassifier.forPull(this);
+        if (this.brokerConfig.isRequestSchedulingEnable()) {
+            this.sendThreadPoolQueue = new WeightedFairRequestQueue(this.brokerConfig.getSendThreadPoolQueueCapacity(), BrokerRequestClassifier.forSend(this));
+            this.pullThreadPoolQueue = new WeightedFairRequestQueue(this.brokerConfig.getPullThreadPoolQueueCapacity(), this.pullRequestClassifier);
+        } else {
+            this.sendThreadPoolQueue = new LinkedBlockingQueue<Runnable>(this.brokerConfig.getSendThreadPoolQueueCapacity());
+            this.pullThreadPoolQueue = new LinkedBlockingQueue<Runnable>(this.brokerConfig.getPullThreadPoolQueueCapacity());
+        }
         this.queryThreadPoolQueue = new LinkedBlockingQueue<Runnable>(this.brokerConfig.getQueryThreadPoolQueueCapacity());
         this.clientManagerThreadPoolQueue = new LinkedBlockingQueue<Runnable>(this.brokerConfig.getClientManagerThreadPoolQueueCapacity());
         this.consumerManagerThreadPoolQueue = new LinkedBlockingQueue<Runnable>(this.brokerConfig.getConsumerManagerThreadPoolQueueCapacity());
@@ -223,6 +238,10 @@ public class BrokerController {
         return pullThreadPoolQueue;
     }
 
+    public BrokerRequestClassifier.PullRequestClassifier getPullRequestClassifier() {
+        return pullRequestClassifier;
+    }
+
     public BlockingQueue<Runnable> getQueryThreadPoolQueue() {
         return queryThreadPoolQueue;
     }
@@ -232,6 +251,7 @@ public class BrokerController {
 
         result = result && this.consumerOffsetManager.load();
         result = result && this.subscriptionGroupManager.load();
+        result = result && this.quotaManager.load();
         result = result && this.consumerFilterManager.load();
 
         if (result) {
@@ -486,6 +506,7 @@ public class BrokerController {
             log.warn("Load default discard message hook service: {}", DefaultTransactionalMessageCheckListener.class.getSimpleName());
         }
         this.transactionalMessageCheckListener.setBrokerController(this);
+        this.transactionalMessageService.open();
         this.transactionalMessageCheckService = new TransactionalMessageCheckService(this);
     }
 
@@ -581,10 +602,12 @@ public class BrokerController {
         ConsumerManageProcessor consumerManageProcessor = new ConsumerManageProcessor(this);
         this.remotingServer.registerProcessor(RequestCode.GET_CONSUMER_LIST_BY_GROUP, consumerManageProcessor, this.consumerManageExecutor);
         this.remotingServer.registerProcessor(RequestCode.UPDATE_CONSUMER_OFFSET, consumerManageProcessor, this.consumerManageExecutor);
+        this.remotingServer.registerProcessor(RequestCode.UPDATE_CONSUMER_OFFSET_BATCH, consumerManageProcessor, this.consumerManageExecutor);
         this.remotingServer.registerProcessor(RequestCode.QUERY_CONSUMER_OFFSET, consumerManageProcessor, this.consumerManageExecutor);
 
         this.fastRemotingServer.registerProcessor(RequestCode.GET_CONSUMER_LIST_BY_GROUP, consumerManageProcessor, this.consumerManageExecutor);
         this.fastRemotingServer.registerProcessor(RequestCode.UPDATE_CONSUMER_OFFSET, consumerManageProcessor, this.consumerManageExecutor);
+        this.fastRemotingServer.registerProcessor(RequestCode.UPDATE_CONSUMER_OFFSET_BATCH, consumerManageProcessor, this.consumerManageExecutor);
         this.fastRemotingServer.registerProcessor(RequestCode.QUERY_CONSUMER_OFFSET, consumerManageProcessor, this.consumerManageExecutor);
 
         /**
@@ -592,6 +615,8 @@ public class BrokerController {
          */
         this.remotingServer.registerProcessor(RequestCode.END_TRANSACTION, new EndTransactionProcessor(this), this.endTransactionExecutor);
         this.fastRemotingServer.registerProcessor(RequestCode.END_TRANSACTION, new EndTransactionProcessor(this), this.endTransactionExecutor);
+        this.remotingServer.registerProcessor(RequestCode.END_TRANSACTION_BATCH, new EndTransactionProcessor(this), this.endTransactionExecutor);
+        this.fastRemotingServer.registerProcessor(RequestCode.END_TRANSACTION_BATCH, new EndTransactionProcessor(this), this.endTransactionExecutor);
 
         /**
          * Default
@@ -658,7 +683,13 @@ public class BrokerController {
 
     public void printWaterMark() {
         LOG_WATER_MARK.info("[WATERMARK] Send Queue Size: {} SlowTimeMills: {}", this.sendThreadPoolQueue.size(), headSlowTimeMills4SendThreadPoolQueue());
+        if (this.sendThreadPoolQueue instanceof WeightedFairRequestQueue) {
+            ((WeightedFairRequestQueue) this.sendThreadPoolQueue).printWaterMark(LOG_WATER_MARK, "Send");
+        }
         LOG_WATER_MARK.info("[WATERMARK] Pull Queue Size: {} SlowTimeMills: {}", this.pullThreadPoolQueue.size(), headSlowTimeMills4PullThreadPoolQueue());
+        if (this.pullThreadPoolQueue instanceof WeightedFairRequestQueue) {
+            ((WeightedFairRequestQueue) this.pullThreadPoolQueue).printWaterMark(LOG_WATER_MARK, "Pull");
+        }
         LOG_WATER_MARK.info("[WATERMARK] Query Queue Size: {} SlowTimeMills: {}", this.queryThreadPoolQueue.size(), headSlowTimeMills4QueryThreadPoolQueue());
         LOG_WATER_MARK.info("[WATERMARK] Transaction Queue Size: {} SlowTimeMills: {}", this.endTransactionThreadPoolQueue.size(), headSlowTimeMills4EndTransactionThreadPoolQueue());
     }
@@ -702,6 +733,10 @@ public class BrokerController {
         return producerManager;
     }
 
+    public RemotingServer getFastRemotingServer() {
+        return fastRemotingServer;
+    }
+
     public void setFastRemotingServer(RemotingServer fastRemotingServer) {
         this.fastRemotingServer = fastRemotingServer;
     }
@@ -718,6 +753,14 @@ public class BrokerController {
         return subscriptionGroupManager;
     }
 
+    public ConsumerIdsChangeListener getConsumerIdsChangeListener() {
+        return consumerIdsChangeListener;
+    }
+
+    public QuotaManager getQuotaManager() {
+        return quotaManager;
+    }
+
     public void shutdown() {
         if (this.brokerStatsManager != null) {
             this.brokerStatsManager.shutdown();
@@ -727,6 +770,8 @@ public class BrokerController {
             this.clientHousekeepingService.shutdown();
         }
 
+        this.consumerIdsChangeListener.shutdown();
+
         if (this.pullRequestHoldService != null) {
             this.pullRequestHoldService.shutdown();
         }
@@ -804,6 +849,10 @@ public class BrokerController {
             this.transactionalMessageCheckService.shutdown(false);
         }
 
+        if (this.transactionalMessageService != null) {
+            this.transactionalMessageService.close();
+        }
+
         if (this.endTransactionExecutor != null) {
             this.endTransactionExecutor.shutdown();
         }
@@ -887,6 +936,11 @@ public class BrokerController {
     }
 
     public synchronized void registerIncrementBrokerData(TopicConfig topicConfig, DataVersion dataVersion) {
+        if (this.brokerConfig.isRegisterBrokerDeltaEnable()) {
+            // the delta since the registered data version carries this topic config
+            this.registerBrokerAll(true, false, true);
+            return;
+        }
         TopicConfig registerTopicConfig = topicConfig;
         if (!PermName.isWriteable(this.getBrokerConfig().getBrokerPermission())
             || !PermName.isReadable(this.getBrokerConfig().getBrokerPermission())) {
@@ -931,6 +985,15 @@ public class BrokerController {
 
     private void doRegisterBrokerAll(boolean checkOrderConfig, boolean oneway,
         TopicConfigSerializeWrapper topicConfigWrapper) {
+        TopicConfigDeltaBuilder topicConfigDeltaBuilder = null;
+        if (this.brokerConfig.isRegisterBrokerDeltaEnable()) {
+            topicConfigDeltaBuilder = new TopicConfigDeltaBuilder() {
+                @Override
+                public RegisterBrokerDeltaBody build(final DataVersion baseDataVersion) {
+                    return buildTopicConfigDelta(baseDataVersion);
+                }
+            };
+        }
         //向所有的broker注册
         List<RegisterBrokerResult> registerBrokerResultList = this.brokerOuterAPI.registerBrokerAll(
             this.brokerConfig.getBrokerClusterName(),
@@ -944,7 +1007,8 @@ public class BrokerController {
             //单途
             oneway,
             this.brokerConfig.getRegisterBrokerTimeoutMills(),
-            this.brokerConfig.isCompressedRegister());
+            this.brokerConfig.isCompressedRegister(),
+            topicConfigDeltaBuilder);
 
         if (registerBrokerResultList.size() > 0) {
             RegisterBrokerResult registerBrokerResult = registerBrokerResultList.get(0);
@@ -964,6 +1028,23 @@ public class BrokerController {
         }
     }
 
+    private RegisterBrokerDeltaBody buildTopicConfigDelta(final DataVersion baseDataVersion) {
+        RegisterBrokerDeltaBody deltaBody = this.getTopicConfigManager().buildTopicConfigDelta(baseDataVersion);
+        if (deltaBody != null
+            && (!PermName.isWriteable(this.getBrokerConfig().getBrokerPermission())
+            || !PermName.isReadable(this.getBrokerConfig().getBrokerPermission()))) {
+            Map<String, TopicConfig> topicConfigTable = new HashMap<String, TopicConfig>();
+            for (TopicConfig topicConfig : deltaBody.getTopicConfigTable().values()) {
+                TopicConfig tmp =
+                    new TopicConfig(topicConfig.getTopicName(), topicConfig.getReadQueueNums(), topicConfig.getWriteQueueNums(),
+                        this.brokerConfig.getBrokerPermission());
+                topicConfigTable.put(topicConfig.getTopicName(), tmp);
+            }
+            deltaBody.setTopicConfigTable(topicConfigTable);
+        }
+        return deltaBody;
+    }
+
     private boolean needRegister(final String clusterName,
         final String brokerAddr,
         final String brokerName,
@@ -1004,6 +1085,32 @@ public class BrokerController {
         return slaveSynchronize;
     }
 
+    /**
+     * @return name of the thread pool the requests of the given code are processed in
+     */
+    public String getProcessorPoolName(final int requestCode) {
+        Pair<NettyRequestProcessor, ExecutorService> pair = this.remotingServer.getProcessorPair(requestCode);
+        ExecutorService executor = null == pair ? this.adminBrokerExecutor : pair.getObject2();
+        if (executor == this.sendMessageExecutor) {
+            return "SendMessage";
+        } else if (executor == this.pullMessageExecutor) {
+            return "PullMessage";
+        } else if (executor == this.queryMessageExecutor) {
+            return "QueryMessage";
+        } else if (executor == this.adminBrokerExecutor) {
+            return "AdminBroker";
+        } else if (executor == this.clientManageExecutor) {
+            return "ClientManage";
+        } else if (executor == this.heartbeatExecutor) {
+            return "Heartbeat";
+        } else if (executor == this.consumerManageExecutor) {
+            return "ConsumerManage";
+        } else if (executor == this.endTransactionExecutor) {
+            return "EndTransaction";
+        }
+        return "Other";
+    }
+
     public ExecutorService getPullMessageExecutor() {
         return pullMessageExecutor;
     }
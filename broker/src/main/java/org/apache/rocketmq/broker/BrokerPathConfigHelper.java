@@ -39,6 +39,14 @@ public class BrokerPathConfigHelper {
         return rootDir + File.separator + "config" + File.separator + "consumerOffset.json";
     }
 
+    public static String getConsumerOffsetSnapshotPath(final String rootDir) {
+        return rootDir + File.separator + "config" + File.separator + "consumerOffset.snapshot";
+    }
+
+    public static String getConsumerOffsetLogPath(final String rootDir) {
+        return rootDir + File.separator + "config" + File.separator + "consumerOffset.log";
+    }
+
     public static String getSubscriptionGroupPath(final String rootDir) {
         return rootDir + File.separator + "config" + File.separator + "subscriptionGroup.json";
     }
@@ -46,4 +54,12 @@ public class BrokerPathConfigHelper {
     public static String getConsumerFilterPath(final String rootDir) {
         return rootDir + File.separator + "config" + File.separator + "consumerFilter.json";
     }
+
+    public static String getQuotaPath(final String rootDir) {
+        return rootDir + File.separator + "config" + File.separator + "quota.json";
+    }
+
+    public static String getTransactionOpIndexPath(final String rootDir) {
+        return rootDir + File.separator + "config" + File.separator + "transactionOpIndex";
+    }
 }
@@ -30,6 +30,8 @@ public class ClientChannelInfo {
     private final int version;
     //最后更新时间
     private volatile long lastUpdateTimestamp = System.currentTimeMillis();
+    //是否支持批量事务回查
+    private volatile boolean transactionCheckBatchSupported = false;
 
     public ClientChannelInfo(Channel channel) {
         this(channel, null, null, 0);
@@ -66,6 +68,14 @@ public class ClientChannelInfo {
         this.lastUpdateTimestamp = lastUpdateTimestamp;
     }
 
+    public boolean isTransactionCheckBatchSupported() {
+        return transactionCheckBatchSupported;
+    }
+
+    public void setTransactionCheckBatchSupported(boolean transactionCheckBatchSupported) {
+        this.transactionCheckBatchSupported = transactionCheckBatchSupported;
+    }
+
     @Override
     public int hashCode() {
         final int prime = 31;
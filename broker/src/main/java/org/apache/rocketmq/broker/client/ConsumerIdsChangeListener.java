@@ -19,4 +19,6 @@ package org.apache.rocketmq.broker.client;
 public interface ConsumerIdsChangeListener {
 
     void handle(ConsumerGroupEvent event, String group, Object... args);
+
+    void shutdown();
 }
@@ -20,12 +20,32 @@ import io.netty.channel.Channel;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.rocketmq.broker.BrokerController;
+import org.apache.rocketmq.common.ThreadFactoryImpl;
+import org.apache.rocketmq.common.constant.LoggerName;
 import org.apache.rocketmq.common.protocol.heartbeat.SubscriptionData;
+import org.apache.rocketmq.logging.InternalLogger;
+import org.apache.rocketmq.logging.InternalLoggerFactory;
 
 public class DefaultConsumerIdsChangeListener implements ConsumerIdsChangeListener {
+    private static final InternalLogger log = InternalLoggerFactory.getLogger(LoggerName.BROKER_LOGGER_NAME);
     private final BrokerController brokerController;
+    /**
+     * The latest channels of the groups changed within their debounce window, they are notified once when it ends.
+     */
+    private final ConcurrentMap<String/* group */, List<Channel>> pendingNotifyTable =
+        new ConcurrentHashMap<String, List<Channel>>();
+    private final ScheduledExecutorService notifyExecutor = Executors.newSingleThreadScheduledExecutor(
+        new ThreadFactoryImpl("ConsumerIdsChangeNotifyThread_", true));
+    private final AtomicLong coalescedChangeCount = new AtomicLong(0);
+    private final AtomicLong suppressedNotifyCount = new AtomicLong(0);
 
     public DefaultConsumerIdsChangeListener(BrokerController brokerController) {
         this.brokerController = brokerController;
@@ -43,8 +63,11 @@ public class DefaultConsumerIdsChangeListener implements ConsumerIdsChangeListen
                 }
                 List<Channel> channels = (List<Channel>) args[0];
                 if (channels != null && brokerController.getBrokerConfig().isNotifyConsumerIdsChangedEnable()) {
-                    for (Channel chl : channels) {
-                        this.brokerController.getBroker2Client().notifyConsumerIdsChanged(chl, group);
+                    long debounceMillis = brokerController.getBrokerConfig().getNotifyConsumerIdsChangedDebounceMillis();
+                    if (debounceMillis > 0) {
+                        this.delayNotify(group, channels, debounceMillis);
+                    } else {
+                        this.notifyConsumerIdsChanged(group, channels);
                     }
                 }
                 break;
@@ -62,4 +85,51 @@ public class DefaultConsumerIdsChangeListener implements ConsumerIdsChangeListen
                 throw new RuntimeException("Unknown event " + event);
         }
     }
+
+    private void delayNotify(final String group, final List<Channel> channels, final long debounceMillis) {
+        List<Channel> prev = this.pendingNotifyTable.put(group, channels);
+        if (prev != null) {
+            // the window of the group is open, its end notifies the latest channels
+            this.coalescedChangeCount.incrementAndGet();
+            this.suppressedNotifyCount.addAndGet(prev.size());
+            return;
+        }
+
+        this.notifyExecutor.schedule(new Runnable() {
+            @Override
+            public void run() {
+                List<Channel> latest = pendingNotifyTable.remove(group);
+                if (latest != null) {
+                    notifyConsumerIdsChanged(group, latest);
+                }
+            }
+        }, debounceMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void notifyConsumerIdsChanged(final String group, final List<Channel> channels) {
+        for (Channel chl : channels) {
+            this.brokerController.getBroker2Client().notifyConsumerIdsChanged(chl, group);
+        }
+    }
+
+    /**
+     * @return how many changes were merged into a pending notification of their group
+     */
+    public long getCoalescedChangeCount() {
+        return coalescedChangeCount.get();
+    }
+
+    /**
+     * @return how many channel notifications the merged changes did not send
+     */
+    public long getSuppressedNotifyCount() {
+        return suppressedNotifyCount.get();
+    }
+
+    @Override
+    public void shutdown() {
+        this.notifyExecutor.shutdown();
+        log.info("consumer ids change notify shutdown, coalesced changes {}, suppressed notifications {}",
+            this.coalescedChangeCount.get(), this.suppressedNotifyCount.get());
+    }
 }
@@ -24,6 +24,8 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -40,117 +42,102 @@ public class ProducerManager {
     private static final long LOCK_TIMEOUT_MILLIS = 3000;
     private static final long CHANNEL_EXPIRED_TIMEOUT = 1000 * 120;
     private static final int GET_AVALIABLE_CHANNEL_RETRY_COUNT = 3;
-    private final Lock groupChannelLock = new ReentrantLock();
-    private final HashMap<String /* group name */, HashMap<Channel, ClientChannelInfo>> groupChannelTable =
-        new HashMap<String, HashMap<Channel, ClientChannelInfo>>();
+    private static final int GROUP_LOCK_STRIPES = 64;
+    /**
+     * Adding a channel table and removing an empty one are done under the lock of the group's stripe, heartbeats of
+     * registered producers and channel removals only touch the concurrent tables.
+     */
+    private final Lock[] groupChannelLocks = new Lock[GROUP_LOCK_STRIPES];
+    private final ConcurrentMap<String /* group name */, ConcurrentMap<Channel, ClientChannelInfo>> groupChannelTable =
+        new ConcurrentHashMap<String, ConcurrentMap<Channel, ClientChannelInfo>>();
     private PositiveAtomicCounter positiveAtomicCounter = new PositiveAtomicCounter();
     public ProducerManager() {
+        for (int i = 0; i < this.groupChannelLocks.length; i++) {
+            this.groupChannelLocks[i] = new ReentrantLock();
+        }
     }
 
     public HashMap<String, HashMap<Channel, ClientChannelInfo>> getGroupChannelTable() {
         HashMap<String /* group name */, HashMap<Channel, ClientChannelInfo>> newGroupChannelTable =
             new HashMap<String, HashMap<Channel, ClientChannelInfo>>();
-        try {
-            if (this.groupChannelLock.tryLock(LOCK_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
-                try {
-                    newGroupChannelTable.putAll(groupChannelTable);
-                } finally {
-                    groupChannelLock.unlock();
-                }
-            }
-        } catch (InterruptedException e) {
-            log.error("", e);
+        for (Map.Entry<String, ConcurrentMap<Channel, ClientChannelInfo>> entry : this.groupChannelTable.entrySet()) {
+            newGroupChannelTable.put(entry.getKey(), new HashMap<Channel, ClientChannelInfo>(entry.getValue()));
         }
         return newGroupChannelTable;
     }
 
     public void scanNotActiveChannel() {
-        try {
-            if (this.groupChannelLock.tryLock(LOCK_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
-                try {
-                    for (final Map.Entry<String, HashMap<Channel, ClientChannelInfo>> entry : this.groupChannelTable
-                        .entrySet()) {
-                        final String group = entry.getKey();
-                        final HashMap<Channel, ClientChannelInfo> chlMap = entry.getValue();
-
-                        Iterator<Entry<Channel, ClientChannelInfo>> it = chlMap.entrySet().iterator();
-                        while (it.hasNext()) {
-                            Entry<Channel, ClientChannelInfo> item = it.next();
-                            // final Integer id = item.getKey();
-                            final ClientChannelInfo info = item.getValue();
-
-                            long diff = System.currentTimeMillis() - info.getLastUpdateTimestamp();
-                            if (diff > CHANNEL_EXPIRED_TIMEOUT) {
-                                it.remove();
-                                log.warn(
-                                    "SCAN: remove expired channel[{}] from ProducerManager groupChannelTable, producer group name: {}",
-                                    RemotingHelper.parseChannelRemoteAddr(info.getChannel()), group);
-                                RemotingUtil.closeChannel(info.getChannel());
-                            }
-                        }
-                    }
-                } finally {
-                    this.groupChannelLock.unlock();
+        for (final Map.Entry<String, ConcurrentMap<Channel, ClientChannelInfo>> entry : this.groupChannelTable
+            .entrySet()) {
+            final String group = entry.getKey();
+            final ConcurrentMap<Channel, ClientChannelInfo> chlMap = entry.getValue();
+
+            Iterator<Entry<Channel, ClientChannelInfo>> it = chlMap.entrySet().iterator();
+            while (it.hasNext()) {
+                Entry<Channel, ClientChannelInfo> item = it.next();
+                // final Integer id = item.getKey();
+                final ClientChannelInfo info = item.getValue();
+
+                long diff = System.currentTimeMillis() - info.getLastUpdateTimestamp();
+                if (diff > CHANNEL_EXPIRED_TIMEOUT) {
+                    it.remove();
+                    log.warn(
+                        "SCAN: remove expired channel[{}] from ProducerManager groupChannelTable, producer group name: {}",
+                        RemotingHelper.parseChannelRemoteAddr(info.getChannel()), group);
+                    RemotingUtil.closeChannel(info.getChannel());
                 }
-            } else {
-                log.warn("ProducerManager scanNotActiveChannel lock timeout");
             }
-        } catch (InterruptedException e) {
-            log.error("", e);
         }
     }
 
     public void doChannelCloseEvent(final String remoteAddr, final Channel channel) {
         if (channel != null) {
-            try {
-                if (this.groupChannelLock.tryLock(LOCK_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
-                    try {
-                        for (final Map.Entry<String, HashMap<Channel, ClientChannelInfo>> entry : this.groupChannelTable
-                            .entrySet()) {
-                            final String group = entry.getKey();
-                            final HashMap<Channel, ClientChannelInfo> clientChannelInfoTable =
-                                entry.getValue();
-                            final ClientChannelInfo clientChannelInfo =
-                                clientChannelInfoTable.remove(channel);
-                            if (clientChannelInfo != null) {
-                                log.info(
-                                    "NETTY EVENT: remove channel[{}][{}] from ProducerManager groupChannelTable, producer group: {}",
-                                    clientChannelInfo.toString(), remoteAddr, group);
-                            }
-
-                        }
-                    } finally {
-                        this.groupChannelLock.unlock();
-                    }
-                } else {
-                    log.warn("ProducerManager doChannelCloseEvent lock timeout");
+            for (final Map.Entry<String, ConcurrentMap<Channel, ClientChannelInfo>> entry : this.groupChannelTable
+                .entrySet()) {
+                final String group = entry.getKey();
+                final ConcurrentMap<Channel, ClientChannelInfo> clientChannelInfoTable =
+                    entry.getValue();
+                final ClientChannelInfo clientChannelInfo =
+                    clientChannelInfoTable.remove(channel);
+                if (clientChannelInfo != null) {
+                    log.info(
+                        "NETTY EVENT: remove channel[{}][{}] from ProducerManager groupChannelTable, producer group: {}",
+                        clientChannelInfo.toString(), remoteAddr, group);
                 }
-            } catch (InterruptedException e) {
-                log.error("", e);
+
             }
         }
     }
 
     public void registerProducer(final String group, final ClientChannelInfo clientChannelInfo) {
+        ConcurrentMap<Channel, ClientChannelInfo> channelTable = this.groupChannelTable.get(group);
+        if (channelTable != null) {
+            ClientChannelInfo clientChannelInfoFound = channelTable.get(clientChannelInfo.getChannel());
+            if (clientChannelInfoFound != null) {
+                clientChannelInfoFound.setLastUpdateTimestamp(System.currentTimeMillis());
+                return;
+            }
+        }
+
         try {
             ClientChannelInfo clientChannelInfoFound = null;
 
-            if (this.groupChannelLock.tryLock(LOCK_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+            Lock groupChannelLock = this.lockOf(group);
+            if (groupChannelLock.tryLock(LOCK_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
                 try {
-                    HashMap<Channel, ClientChannelInfo> channelTable = this.groupChannelTable.get(group);
+                    channelTable = this.groupChannelTable.get(group);
                     if (null == channelTable) {
-                        channelTable = new HashMap<>();
+                        channelTable = new ConcurrentHashMap<>();
                         this.groupChannelTable.put(group, channelTable);
                     }
 
-                    clientChannelInfoFound = channelTable.get(clientChannelInfo.getChannel());
+                    clientChannelInfoFound = channelTable.putIfAbsent(clientChannelInfo.getChannel(), clientChannelInfo);
                     if (null == clientChannelInfoFound) {
-                        channelTable.put(clientChannelInfo.getChannel(), clientChannelInfo);
                         log.info("new producer connected, group: {} channel: {}", group,
                             clientChannelInfo.toString());
                     }
                 } finally {
-                    this.groupChannelLock.unlock();
+                    groupChannelLock.unlock();
                 }
 
                 if (clientChannelInfoFound != null) {
@@ -166,9 +153,10 @@ public class ProducerManager {
 
     public void unregisterProducer(final String group, final ClientChannelInfo clientChannelInfo) {
         try {
-            if (this.groupChannelLock.tryLock(LOCK_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+            Lock groupChannelLock = this.lockOf(group);
+            if (groupChannelLock.tryLock(LOCK_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
                 try {
-                    HashMap<Channel, ClientChannelInfo> channelTable = this.groupChannelTable.get(group);
+                    ConcurrentMap<Channel, ClientChannelInfo> channelTable = this.groupChannelTable.get(group);
                     if (null != channelTable && !channelTable.isEmpty()) {
                         ClientChannelInfo old = channelTable.remove(clientChannelInfo.getChannel());
                         if (old != null) {
@@ -182,7 +170,7 @@ public class ProducerManager {
                         }
                     }
                 } finally {
-                    this.groupChannelLock.unlock();
+                    groupChannelLock.unlock();
                 }
             } else {
                 log.warn("ProducerManager unregisterProducer lock timeout");
@@ -192,8 +180,17 @@ public class ProducerManager {
         }
     }
 
+    private ConcurrentMap<Channel, ClientChannelInfo> findChannelTable(final String group) {
+        // the group of a half message may be missing
+        return group != null ? this.groupChannelTable.get(group) : null;
+    }
+
+    private Lock lockOf(final String group) {
+        return this.groupChannelLocks[(group.hashCode() & Integer.MAX_VALUE) % this.groupChannelLocks.length];
+    }
+
     public Channel getAvaliableChannel(String groupId) {
-        HashMap<Channel, ClientChannelInfo> channelClientChannelInfoHashMap = groupChannelTable.get(groupId);
+        ConcurrentMap<Channel, ClientChannelInfo> channelClientChannelInfoHashMap = findChannelTable(groupId);
         List<Channel> channelList = new ArrayList<Channel>();
         if (channelClientChannelInfoHashMap != null) {
             for (Channel channel : channelClientChannelInfoHashMap.keySet()) {
@@ -223,4 +220,13 @@ public class ProducerManager {
         }
         return null;
     }
+
+    public boolean isTransactionCheckBatchSupported(String groupId, Channel channel) {
+        ConcurrentMap<Channel, ClientChannelInfo> channelClientChannelInfoHashMap = findChannelTable(groupId);
+        if (channelClientChannelInfoHashMap != null) {
+            ClientChannelInfo clientChannelInfo = channelClientChannelInfoHashMap.get(channel);
+            return clientChannelInfo != null && clientChannelInfo.isTransactionCheckBatchSupported();
+        }
+        return false;
+    }
 }
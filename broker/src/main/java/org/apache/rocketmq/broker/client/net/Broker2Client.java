@@ -44,6 +44,7 @@ import org.apache.rocketmq.remoting.exception.RemotingSendRequestException;
 import org.apache.rocketmq.remoting.exception.RemotingTimeoutException;
 import org.apache.rocketmq.remoting.protocol.RemotingCommand;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -74,6 +75,52 @@ public class Broker2Client {
         }
     }
 
+    /**
+     * The half messages are split into requests of at most transactionCheckBatchMaxBytes, so that a batch of large
+     * messages does not exceed the frame limit of the producer.
+     */
+    public void checkProducerTransactionStateBatch(
+        final String group,
+        final Channel channel,
+        final List<MessageExt> messageExtList) throws Exception {
+        final int maxBytes = this.brokerController.getBrokerConfig().getTransactionCheckBatchMaxBytes();
+        List<byte[]> encodedList = new ArrayList<byte[]>(messageExtList.size());
+        int bodyLength = 0;
+        for (MessageExt messageExt : messageExtList) {
+            byte[] encoded = MessageDecoder.encode(messageExt, false);
+            if (!encodedList.isEmpty() && bodyLength + encoded.length > maxBytes) {
+                this.checkProducerTransactionStateBatch(group, channel, encodedList, bodyLength);
+                encodedList = new ArrayList<byte[]>();
+                bodyLength = 0;
+            }
+            encodedList.add(encoded);
+            bodyLength += encoded.length;
+        }
+        if (!encodedList.isEmpty()) {
+            this.checkProducerTransactionStateBatch(group, channel, encodedList, bodyLength);
+        }
+    }
+
+    private void checkProducerTransactionStateBatch(
+        final String group,
+        final Channel channel,
+        final List<byte[]> encodedList,
+        final int bodyLength) {
+        ByteBuffer body = ByteBuffer.allocate(bodyLength);
+        for (byte[] encoded : encodedList) {
+            body.put(encoded);
+        }
+
+        RemotingCommand request =
+            RemotingCommand.createRequestCommand(RequestCode.CHECK_TRANSACTION_STATE_BATCH, null);
+        request.setBody(body.array());
+        try {
+            this.brokerController.getRemotingServer().invokeOneway(channel, request, 10);
+        } catch (Exception e) {
+            log.error("Check transaction batch failed because invoke producer exception. group={}, size={}", group, encodedList.size(), e);
+        }
+    }
+
     public RemotingCommand callClient(final Channel channel,
                                       final RemotingCommand request
     ) throws RemotingSendRequestException, RemotingTimeoutException, InterruptedException {
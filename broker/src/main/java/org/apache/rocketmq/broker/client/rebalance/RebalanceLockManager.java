@@ -31,15 +31,27 @@ public class RebalanceLockManager {
     private static final InternalLogger log = InternalLoggerFactory.getLogger(LoggerName.REBALANCE_LOCK_LOGGER_NAME);
     private final static long REBALANCE_LOCK_MAX_LIVE_TIME = Long.parseLong(System.getProperty(
         "rocketmq.broker.rebalance.lockMaxLiveTime", "60000"));
-    private final Lock lock = new ReentrantLock();
+    private static final int GROUP_LOCK_STRIPES = 64;
+    /**
+     * Lock entries of a group are only changed under the lock of the group's stripe, so groups hashed to different
+     * stripes rebalance in parallel.
+     */
+    private final Lock[] groupLocks = new Lock[GROUP_LOCK_STRIPES];
     private final ConcurrentMap<String/* group */, ConcurrentHashMap<MessageQueue, LockEntry>> mqLockTable =
         new ConcurrentHashMap<String, ConcurrentHashMap<MessageQueue, LockEntry>>(1024);
 
+    public RebalanceLockManager() {
+        for (int i = 0; i < this.groupLocks.length; i++) {
+            this.groupLocks[i] = new ReentrantLock();
+        }
+    }
+
     public boolean tryLock(final String group, final MessageQueue mq, final String clientId) {
 
         if (!this.isLocked(group, mq, clientId)) {
+            Lock lock = this.lockOf(group);
             try {
-                this.lock.lockInterruptibly();
+                lock.lockInterruptibly();
                 try {
                     ConcurrentHashMap<MessageQueue, LockEntry> groupValue = this.mqLockTable.get(group);
                     if (null == groupValue) {
@@ -85,7 +97,7 @@ public class RebalanceLockManager {
                         mq);
                     return false;
                 } finally {
-                    this.lock.unlock();
+                    lock.unlock();
                 }
             } catch (InterruptedException e) {
                 log.error("putMessage exception", e);
@@ -132,8 +144,9 @@ public class RebalanceLockManager {
         }
 
         if (!notLockedMqs.isEmpty()) {
+            Lock lock = this.lockOf(group);
             try {
-                this.lock.lockInterruptibly();
+                lock.lockInterruptibly();
                 try {
                     ConcurrentHashMap<MessageQueue, LockEntry> groupValue = this.mqLockTable.get(group);
                     //如果消息队列没有锁
@@ -186,7 +199,7 @@ public class RebalanceLockManager {
                             mq);
                     }
                 } finally {
-                    this.lock.unlock();
+                    lock.unlock();
                 }
             } catch (InterruptedException e) {
                 log.error("putMessage exception", e);
@@ -197,8 +210,9 @@ public class RebalanceLockManager {
     }
 
     public void unlockBatch(final String group, final Set<MessageQueue> mqs, final String clientId) {
+        Lock lock = this.lockOf(group);
         try {
-            this.lock.lockInterruptibly();
+            lock.lockInterruptibly();
             try {
                 //从缓存中获取消息队列
                 ConcurrentHashMap<MessageQueue, LockEntry> groupValue = this.mqLockTable.get(group);
@@ -234,13 +248,17 @@ public class RebalanceLockManager {
                         clientId);
                 }
             } finally {
-                this.lock.unlock();
+                lock.unlock();
             }
         } catch (InterruptedException e) {
             log.error("putMessage exception", e);
         }
     }
 
+    private Lock lockOf(final String group) {
+        return this.groupLocks[(group.hashCode() & Integer.MAX_VALUE) % this.groupLocks.length];
+    }
+
     static class LockEntry {
         private String clientId;
         private volatile long lastUpdateTimestamp = System.currentTimeMillis();
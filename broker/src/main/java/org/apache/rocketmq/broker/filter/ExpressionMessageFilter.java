@@ -30,6 +30,7 @@ import org.apache.rocketmq.store.MessageFilter;
 
 import java.nio.ByteBuffer;
 import java.util.Map;
+import java.util.Set;
 
 public class ExpressionMessageFilter implements MessageFilter {
 
@@ -159,4 +160,14 @@ public class ExpressionMessageFilter implements MessageFilter {
         return (Boolean) ret;
     }
 
+    @Override
+    public Set<Integer> getTagsCodeSet() {
+        if (null == subscriptionData || subscriptionData.isClassFilterMode()
+            || !ExpressionType.isTagType(subscriptionData.getExpressionType())
+            || subscriptionData.getSubString().equals(SubscriptionData.SUB_ALL)) {
+            return null;
+        }
+
+        return subscriptionData.getCodeSet();
+    }
 }
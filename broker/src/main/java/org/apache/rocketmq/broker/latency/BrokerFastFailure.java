@@ -94,6 +94,11 @@ public class BrokerFastFailure {
     }
 
     void cleanExpiredRequestInQueue(final BlockingQueue<Runnable> blockingQueue, final long maxWaitTimeMillsInQueue) {
+        if (blockingQueue instanceof WeightedFairRequestQueue) {
+            ((WeightedFairRequestQueue) blockingQueue).cleanExpiredRequest();
+            return;
+        }
+
         while (true) {
             try {
                 if (!blockingQueue.isEmpty()) {
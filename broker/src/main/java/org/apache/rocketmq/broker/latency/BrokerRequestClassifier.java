@@ -0,0 +1,167 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.broker.latency;
+
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.apache.rocketmq.broker.BrokerController;
+import org.apache.rocketmq.common.BrokerConfig;
+import org.apache.rocketmq.common.MixAll;
+import org.apache.rocketmq.common.protocol.RequestCode;
+import org.apache.rocketmq.remoting.netty.RequestTask;
+import org.apache.rocketmq.remoting.protocol.RemotingCommand;
+
+/**
+ * Request classes of the send and pull thread pool queues. Tasks which are not requests go to the first class.
+ */
+public abstract class BrokerRequestClassifier implements RequestClassifier {
+    protected final BrokerController brokerController;
+
+    protected BrokerRequestClassifier(final BrokerController brokerController) {
+        this.brokerController = brokerController;
+    }
+
+    public static RequestClassifier forSend(final BrokerController brokerController) {
+        return new SendRequestClassifier(brokerController);
+    }
+
+    public static PullRequestClassifier forPull(final BrokerController brokerController) {
+        return new PullRequestClassifier(brokerController);
+    }
+
+    @Override
+    public int classify(final Runnable runnable) {
+        RequestTask rt = BrokerFastFailure.castRunnable(runnable);
+        if (null == rt || null == rt.getRequest()) {
+            return 0;
+        }
+        return this.classify(rt.getRequest());
+    }
+
+    protected abstract int classify(final RemotingCommand request);
+
+    /**
+     * SEND: request-response sends, SEND_ONEWAY: oneway sends, SEND_BACK: consumer send back and retry topics.
+     */
+    static class SendRequestClassifier extends BrokerRequestClassifier {
+        static final int SEND = 0;
+        static final int SEND_ONEWAY = 1;
+        static final int SEND_BACK = 2;
+
+        SendRequestClassifier(final BrokerController brokerController) {
+            super(brokerController);
+        }
+
+        @Override
+        public String[] classNames() {
+            return new String[] {"SEND", "SEND_ONEWAY", "SEND_BACK"};
+        }
+
+        @Override
+        public int[] weights() {
+            BrokerConfig config = this.brokerController.getBrokerConfig();
+            return new int[] {config.getSendRequestWeight(), config.getSendOnewayRequestWeight(), config.getSendBackRequestWeight()};
+        }
+
+        @Override
+        protected int classify(final RemotingCommand request) {
+            if (request.getCode() == RequestCode.CONSUMER_SEND_MSG_BACK) {
+                return SEND_BACK;
+            }
+            HashMap<String, String> extFields = request.getExtFields();
+            if (extFields != null) {
+                String topic = request.getCode() == RequestCode.SEND_MESSAGE_V2 || request.getCode() == RequestCode.SEND_BATCH_MESSAGE
+                    ? extFields.get("b") : extFields.get("topic");
+                if (topic != null && topic.startsWith(MixAll.RETRY_GROUP_TOPIC_PREFIX)) {
+                    return SEND_BACK;
+                }
+            }
+            return request.isOnewayRPC() ? SEND_ONEWAY : SEND;
+        }
+
+        @Override
+        public long maxWaitTimeMillis(final int classIndex) {
+            BrokerConfig config = this.brokerController.getBrokerConfig();
+            return classIndex == SEND_BACK ? config.getWaitTimeMillsInSendBackQueue() : config.getWaitTimeMillsInSendQueue();
+        }
+    }
+
+    /**
+     * PULL: consumers near the tail of the queue, PULL_BACKLOG: consumers more than pullBacklogThreshold behind.
+     * <p>
+     * Requests are classified in the IO threads, so the max offsets of the queues are not read from the store but
+     * recorded by the pull processor, a queue not pulled yet is not a backlog.
+     */
+    public static class PullRequestClassifier extends BrokerRequestClassifier {
+        static final int PULL = 0;
+        static final int PULL_BACKLOG = 1;
+        private static final String TOPIC_QUEUE_SEPARATOR = "@";
+
+        private final ConcurrentMap<String/* topic@queueId */, Long> maxOffsetTable =
+            new ConcurrentHashMap<String, Long>(1024);
+
+        PullRequestClassifier(final BrokerController brokerController) {
+            super(brokerController);
+        }
+
+        @Override
+        public String[] classNames() {
+            return new String[] {"PULL", "PULL_BACKLOG"};
+        }
+
+        @Override
+        public int[] weights() {
+            BrokerConfig config = this.brokerController.getBrokerConfig();
+            return new int[] {config.getPullRequestWeight(), config.getPullBacklogRequestWeight()};
+        }
+
+        public void updateMaxOffset(final String topic, final int queueId, final long maxOffset) {
+            this.maxOffsetTable.put(topic + TOPIC_QUEUE_SEPARATOR + queueId, maxOffset);
+        }
+
+        @Override
+        protected int classify(final RemotingCommand request) {
+            HashMap<String, String> extFields = request.getExtFields();
+            if (null == extFields) {
+                return PULL;
+            }
+            String topic = extFields.get("topic");
+            String queueId = extFields.get("queueId");
+            String queueOffset = extFields.get("queueOffset");
+            if (null == topic || null == queueId || null == queueOffset) {
+                return PULL;
+            }
+            Long maxOffset = this.maxOffsetTable.get(topic + TOPIC_QUEUE_SEPARATOR + queueId);
+            if (null == maxOffset) {
+                return PULL;
+            }
+            try {
+                long backlog = maxOffset - Long.parseLong(queueOffset);
+                return backlog > this.brokerController.getBrokerConfig().getPullBacklogThreshold() ? PULL_BACKLOG : PULL;
+            } catch (NumberFormatException e) {
+                return PULL;
+            }
+        }
+
+        @Override
+        public long maxWaitTimeMillis(final int classIndex) {
+            BrokerConfig config = this.brokerController.getBrokerConfig();
+            return classIndex == PULL_BACKLOG ? config.getWaitTimeMillsInPullBacklogQueue() : config.getWaitTimeMillsInPullQueue();
+        }
+    }
+}
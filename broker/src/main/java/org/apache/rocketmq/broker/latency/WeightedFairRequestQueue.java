@@ -0,0 +1,500 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.broker.latency;
+
+import java.util.AbstractQueue;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import org.apache.rocketmq.logging.InternalLogger;
+import org.apache.rocketmq.remoting.netty.RequestTask;
+import org.apache.rocketmq.remoting.protocol.RemotingSysResponseCode;
+
+/**
+ * Thread pool work queue holding one FIFO per request class, dequeued by smooth weighted round robin so a busy class
+ * only gets its share of the threads while the others have tasks waiting.
+ * <p>
+ * Half of the capacity is reserved to the classes by weight and the other half is shared, so a burst of one class
+ * can't fill the queue and reject the others.
+ * <p>
+ * Tasks waiting longer than the max wait time of their class are rejected by {@link #cleanExpiredRequest()}. Wait
+ * time and queue depth histograms are kept per class and reset by {@link #printWaterMark(InternalLogger, String)}.
+ */
+public class WeightedFairRequestQueue extends AbstractQueue<Runnable> implements BlockingQueue<Runnable> {
+    static final long[] WAIT_TIME_BUCKETS = {1, 5, 10, 50, 100, 500, 1000, 5000};
+    static final long[] DEPTH_BUCKETS = {1, 10, 100, 1000, 10000};
+
+    private final RequestClassifier classifier;
+    private final String[] classNames;
+    private final int[] weights;
+    private final int capacity;
+    private final int[] reservedCapacities;
+    private final ArrayDeque<Node>[] queues;
+    private final int[] currentWeights;
+    private final long[][] waitTimeHistograms;
+    private final long[][] depthHistograms;
+    private int count = 0;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+
+    @SuppressWarnings("unchecked")
+    public WeightedFairRequestQueue(final int capacity, final RequestClassifier classifier) {
+        this.classifier = classifier;
+        this.classNames = classifier.classNames();
+        this.weights = classifier.weights();
+        if (this.classNames.length == 0 || this.classNames.length != this.weights.length) {
+            throw new IllegalArgumentException("class names and weights not match");
+        }
+        for (int i = 0; i < this.weights.length; i++) {
+            this.weights[i] = Math.max(1, this.weights[i]);
+        }
+        this.capacity = capacity;
+        long weightSum = 0;
+        for (int weight : this.weights) {
+            weightSum += weight;
+        }
+        this.reservedCapacities = new int[this.weights.length];
+        for (int i = 0; i < this.weights.length; i++) {
+            this.reservedCapacities[i] = (int) ((long) capacity / 2 * this.weights[i] / weightSum);
+        }
+        this.queues = new ArrayDeque[this.classNames.length];
+        for (int i = 0; i < this.queues.length; i++) {
+            this.queues[i] = new ArrayDeque<Node>();
+        }
+        this.currentWeights = new int[this.classNames.length];
+        this.waitTimeHistograms = new long[this.classNames.length][WAIT_TIME_BUCKETS.length + 1];
+        this.depthHistograms = new long[this.classNames.length][DEPTH_BUCKETS.length + 1];
+    }
+
+    @Override
+    public boolean offer(final Runnable runnable) {
+        if (null == runnable) {
+            throw new NullPointerException();
+        }
+        final int classIndex = this.classIndex(runnable);
+        this.lock.lock();
+        try {
+            if (this.isFull(classIndex)) {
+                return false;
+            }
+            this.enqueue(classIndex, runnable);
+            return true;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean offer(final Runnable runnable, final long timeout, final TimeUnit unit) throws InterruptedException {
+        if (null == runnable) {
+            throw new NullPointerException();
+        }
+        final int classIndex = this.classIndex(runnable);
+        long nanos = unit.toNanos(timeout);
+        this.lock.lockInterruptibly();
+        try {
+            while (this.isFull(classIndex)) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = this.notFull.awaitNanos(nanos);
+            }
+            this.enqueue(classIndex, runnable);
+            return true;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public void put(final Runnable runnable) throws InterruptedException {
+        if (null == runnable) {
+            throw new NullPointerException();
+        }
+        final int classIndex = this.classIndex(runnable);
+        this.lock.lockInterruptibly();
+        try {
+            while (this.isFull(classIndex)) {
+                this.notFull.await();
+            }
+            this.enqueue(classIndex, runnable);
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable poll() {
+        this.lock.lock();
+        try {
+            return this.count == 0 ? null : this.dequeue();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable poll(final long timeout, final TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        this.lock.lockInterruptibly();
+        try {
+            while (this.count == 0) {
+                if (nanos <= 0) {
+                    return null;
+                }
+                nanos = this.notEmpty.awaitNanos(nanos);
+            }
+            return this.dequeue();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable take() throws InterruptedException {
+        this.lock.lockInterruptibly();
+        try {
+            while (this.count == 0) {
+                this.notEmpty.await();
+            }
+            return this.dequeue();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * @return the task the next poll would return, without moving the round robin forward
+     */
+    @Override
+    public Runnable peek() {
+        this.lock.lock();
+        try {
+            if (this.count == 0) {
+                return null;
+            }
+            return this.queues[this.pickClass(false)].peekFirst().runnable;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(final Object o) {
+        if (null == o) {
+            return false;
+        }
+        this.lock.lock();
+        try {
+            for (ArrayDeque<Node> queue : this.queues) {
+                Iterator<Node> it = queue.iterator();
+                while (it.hasNext()) {
+                    if (o.equals(it.next().runnable)) {
+                        it.remove();
+                        this.count--;
+                        this.notFull.signalAll();
+                        return true;
+                    }
+                }
+            }
+            return false;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        this.lock.lock();
+        try {
+            return this.count;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    public int size(final int classIndex) {
+        this.lock.lock();
+        try {
+            return this.queues[classIndex].size();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public int remainingCapacity() {
+        this.lock.lock();
+        try {
+            return this.capacity - this.count;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public int drainTo(final Collection<? super Runnable> c) {
+        return this.drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(final Collection<? super Runnable> c, final int maxElements) {
+        if (c == this) {
+            throw new IllegalArgumentException();
+        }
+        this.lock.lock();
+        try {
+            int n = 0;
+            while (n < maxElements && this.count > 0) {
+                c.add(this.dequeue());
+                n++;
+            }
+            return n;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * A snapshot, removing through it removes from the queue.
+     */
+    @Override
+    public Iterator<Runnable> iterator() {
+        final List<Runnable> snapshot = new ArrayList<Runnable>();
+        this.lock.lock();
+        try {
+            for (ArrayDeque<Node> queue : this.queues) {
+                for (Node node : queue) {
+                    snapshot.add(node.runnable);
+                }
+            }
+        } finally {
+            this.lock.unlock();
+        }
+
+        final Iterator<Runnable> it = snapshot.iterator();
+        return new Iterator<Runnable>() {
+            private Runnable last;
+
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public Runnable next() {
+                this.last = it.next();
+                return this.last;
+            }
+
+            @Override
+            public void remove() {
+                if (null == this.last) {
+                    throw new IllegalStateException();
+                }
+                WeightedFairRequestQueue.this.remove(this.last);
+                this.last = null;
+            }
+        };
+    }
+
+    /**
+     * Reject the requests which have waited longer than the max wait time of their class.
+     */
+    public void cleanExpiredRequest() {
+        final long now = System.currentTimeMillis();
+        List<Node> expiredList = null;
+        this.lock.lock();
+        try {
+            for (int i = 0; i < this.queues.length; i++) {
+                final long maxWaitTimeMillis = this.classifier.maxWaitTimeMillis(i);
+                ArrayDeque<Node> queue = this.queues[i];
+                while (!queue.isEmpty()) {
+                    Node node = queue.peekFirst();
+                    RequestTask rt = BrokerFastFailure.castRunnable(node.runnable);
+                    if (null == rt || rt.isStopRun() || now - node.enqueueTimestamp < maxWaitTimeMillis) {
+                        break;
+                    }
+                    queue.pollFirst();
+                    this.count--;
+                    this.notFull.signalAll();
+                    if (null == expiredList) {
+                        expiredList = new ArrayList<Node>();
+                    }
+                    expiredList.add(node);
+                }
+            }
+        } finally {
+            this.lock.unlock();
+        }
+
+        if (expiredList != null) {
+            for (Node node : expiredList) {
+                RequestTask rt = BrokerFastFailure.castRunnable(node.runnable);
+                rt.setStopRun(true);
+                try {
+                    rt.returnResponse(RemotingSysResponseCode.SYSTEM_BUSY, String.format("[TIMEOUT_CLEAN_QUEUE]broker busy, start flow control for a while, period in queue: %sms, size of queue: %d, request class: %s",
+                        now - node.enqueueTimestamp, this.size(), this.classNames[node.classIndex]));
+                } catch (Throwable ignored) {
+                }
+            }
+        }
+    }
+
+    public void printWaterMark(final InternalLogger logger, final String queueName) {
+        final long now = System.currentTimeMillis();
+        this.lock.lock();
+        try {
+            for (int i = 0; i < this.queues.length; i++) {
+                Node head = this.queues[i].peekFirst();
+                logger.info("[WATERMARK] {} Queue {} Size: {} SlowTimeMills: {} WaitTimeHistogram: {} DepthHistogram: {}",
+                    queueName, this.classNames[i], this.queues[i].size(), head == null ? 0 : now - head.enqueueTimestamp,
+                    Arrays.toString(this.waitTimeHistograms[i]), Arrays.toString(this.depthHistograms[i]));
+                Arrays.fill(this.waitTimeHistograms[i], 0);
+                Arrays.fill(this.depthHistograms[i], 0);
+            }
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    public String[] getClassNames() {
+        return classNames;
+    }
+
+    long[] getWaitTimeHistogram(final int classIndex) {
+        this.lock.lock();
+        try {
+            return this.waitTimeHistograms[classIndex].clone();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    long[] getDepthHistogram(final int classIndex) {
+        this.lock.lock();
+        try {
+            return this.depthHistograms[classIndex].clone();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    private int classIndex(final Runnable runnable) {
+        int classIndex = this.classifier.classify(runnable);
+        if (classIndex < 0 || classIndex >= this.queues.length) {
+            classIndex = 0;
+        }
+        return classIndex;
+    }
+
+    /**
+     * A class below its reserved share is never full, beyond it only the slots not reserved by the others can be used.
+     */
+    private boolean isFull(final int classIndex) {
+        if (this.count >= this.capacity) {
+            return true;
+        }
+        if (this.queues[classIndex].size() < this.reservedCapacities[classIndex]) {
+            return false;
+        }
+        int unusedReserved = 0;
+        for (int i = 0; i < this.queues.length; i++) {
+            if (i != classIndex) {
+                unusedReserved += Math.max(0, this.reservedCapacities[i] - this.queues[i].size());
+            }
+        }
+        return this.count + unusedReserved >= this.capacity;
+    }
+
+    private void enqueue(final int classIndex, final Runnable runnable) {
+        ArrayDeque<Node> queue = this.queues[classIndex];
+        queue.addLast(new Node(runnable, classIndex, System.currentTimeMillis()));
+        this.count++;
+        this.depthHistograms[classIndex][bucket(DEPTH_BUCKETS, queue.size())]++;
+        this.notEmpty.signal();
+    }
+
+    private Runnable dequeue() {
+        final int classIndex = this.pickClass(true);
+        Node node = this.queues[classIndex].pollFirst();
+        this.count--;
+        this.waitTimeHistograms[classIndex][bucket(WAIT_TIME_BUCKETS, System.currentTimeMillis() - node.enqueueTimestamp)]++;
+        this.notFull.signalAll();
+        return node.runnable;
+    }
+
+    /**
+     * Smooth weighted round robin over the non empty classes, must hold the lock and count must be positive.
+     */
+    private int pickClass(final boolean advance) {
+        int picked = -1;
+        int pickedWeight = 0;
+        int activeWeight = 0;
+        for (int i = 0; i < this.queues.length; i++) {
+            if (this.queues[i].isEmpty()) {
+                continue;
+            }
+            activeWeight += this.weights[i];
+            int weight = this.currentWeights[i] + this.weights[i];
+            if (picked < 0 || weight > pickedWeight) {
+                picked = i;
+                pickedWeight = weight;
+            }
+        }
+
+        if (advance) {
+            for (int i = 0; i < this.queues.length; i++) {
+                if (!this.queues[i].isEmpty()) {
+                    this.currentWeights[i] += this.weights[i];
+                }
+            }
+            this.currentWeights[picked] -= activeWeight;
+        }
+        return picked;
+    }
+
+    private static int bucket(final long[] buckets, final long value) {
+        for (int i = 0; i < buckets.length; i++) {
+            if (value < buckets[i]) {
+                return i;
+            }
+        }
+        return buckets.length;
+    }
+
+    static class Node {
+        private final Runnable runnable;
+        private final int classIndex;
+        private final long enqueueTimestamp;
+
+        Node(final Runnable runnable, final int classIndex, final long enqueueTimestamp) {
+            this.runnable = runnable;
+            this.classIndex = classIndex;
+            this.enqueueTimestamp = enqueueTimestamp;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.broker.longpolling;
+
+import java.util.Map;
+
+/**
+ * What the held pull requests need to know about an arrived message, null tagsCode matches every request.
+ */
+public class ArrivingMessage {
+    private final long offset;
+    private final Long tagsCode;
+    private final long msgStoreTime;
+    private final byte[] filterBitMap;
+    private final Map<String, String> properties;
+
+    public ArrivingMessage(long offset, Long tagsCode, long msgStoreTime, byte[] filterBitMap,
+        Map<String, String> properties) {
+        this.offset = offset;
+        this.tagsCode = tagsCode;
+        this.msgStoreTime = msgStoreTime;
+        this.filterBitMap = filterBitMap;
+        this.properties = properties;
+    }
+
+    /**
+     * @return the max offset of the queue once the message is dispatched
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    public Long getTagsCode() {
+        return tagsCode;
+    }
+
+    public long getMsgStoreTime() {
+        return msgStoreTime;
+    }
+
+    public byte[] getFilterBitMap() {
+        return filterBitMap;
+    }
+
+    public Map<String, String> getProperties() {
+        return properties;
+    }
+}
@@ -17,26 +17,122 @@
 package org.apache.rocketmq.broker.longpolling;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Held pull requests and not yet notified arrived messages of one queue, lock free.
+ * <p>
+ * Notifications of one queue are serialized by {@link #tryStartNotify()}, so a request taken out by one notification
+ * can't be missed by another.
+ */
 public class ManyPullRequest {
-    private final ArrayList<PullRequest> pullRequestList = new ArrayList<>();
+    private static final int MIN_PURGE_THRESHOLD = 16;
+    private final ConcurrentLinkedQueue<PullRequest> pullRequestQueue = new ConcurrentLinkedQueue<PullRequest>();
+    private final AtomicInteger pullRequestCount = new AtomicInteger(0);
+    private volatile int purgeThreshold = MIN_PURGE_THRESHOLD;
+    private final ConcurrentLinkedQueue<ArrivingMessage> arrivingQueue = new ConcurrentLinkedQueue<ArrivingMessage>();
+    private final AtomicBoolean notifying = new AtomicBoolean(false);
+
+    public void addPullRequest(final PullRequest pullRequest) {
+        this.pullRequestQueue.offer(pullRequest);
+        if (this.pullRequestCount.incrementAndGet() >= this.purgeThreshold) {
+            this.purgeCompleted();
+        }
+    }
+
+    public void addPullRequest(final List<PullRequest> many) {
+        this.pullRequestQueue.addAll(many);
+        this.pullRequestCount.addAndGet(many.size());
+    }
+
+    public List<PullRequest> cloneListAndClear() {
+        if (this.pullRequestQueue.isEmpty()) {
+            return null;
+        }
+
+        List<PullRequest> result = new ArrayList<PullRequest>();
+        PullRequest pullRequest;
+        while ((pullRequest = this.pullRequestQueue.poll()) != null) {
+            result.add(pullRequest);
+        }
+        this.pullRequestCount.addAndGet(-result.size());
+        return result;
+    }
+
+    public boolean isEmpty() {
+        return this.pullRequestQueue.isEmpty();
+    }
+
+    public void addArriving(final ArrivingMessage arrivingMessage) {
+        this.arrivingQueue.offer(arrivingMessage);
+    }
 
-    public synchronized void addPullRequest(final PullRequest pullRequest) {
-        this.pullRequestList.add(pullRequest);
+    /**
+     * Hand messages arrived in a reput batch to the held requests, they are dropped if no request is held and no
+     * notification is running, a request held afterwards checks the max offset by itself.
+     *
+     * @return true if the messages are taken
+     */
+    public boolean addArrivingIfHeld(final Collection<ArrivingMessage> arrivingMessages) {
+        if (!this.tryStartNotify()) {
+            // the running notification may have taken the requests out, it takes these messages as well
+            this.arrivingQueue.addAll(arrivingMessages);
+            return true;
+        }
+
+        try {
+            if (this.pullRequestQueue.isEmpty()) {
+                return false;
+            }
+            this.arrivingQueue.addAll(arrivingMessages);
+            return true;
+        } finally {
+            this.endNotify();
+        }
     }
 
-    public synchronized void addPullRequest(final List<PullRequest> many) {
-        this.pullRequestList.addAll(many);
+    public boolean hasArriving() {
+        return !this.arrivingQueue.isEmpty();
     }
 
-    public synchronized List<PullRequest> cloneListAndClear() {
-        if (!this.pullRequestList.isEmpty()) {
-            List<PullRequest> result = (ArrayList<PullRequest>) this.pullRequestList.clone();
-            this.pullRequestList.clear();
-            return result;
+    public List<ArrivingMessage> drainArriving() {
+        List<ArrivingMessage> result = new ArrayList<ArrivingMessage>();
+        ArrivingMessage arrivingMessage;
+        while ((arrivingMessage = this.arrivingQueue.poll()) != null) {
+            result.add(arrivingMessage);
         }
+        return result;
+    }
+
+    /**
+     * @return true if the caller becomes the only one notifying the requests of this queue
+     */
+    public boolean tryStartNotify() {
+        return this.notifying.compareAndSet(false, true);
+    }
 
-        return null;
+    public void endNotify() {
+        this.notifying.set(false);
+    }
+
+    /**
+     * Requests woken up by timeout stay here until the next message arriving, drop them once the queue doubles.
+     */
+    private void purgeCompleted() {
+        int removed = 0;
+        Iterator<PullRequest> it = this.pullRequestQueue.iterator();
+        while (it.hasNext()) {
+            if (it.next().isCompleted()) {
+                it.remove();
+                removed++;
+            }
+        }
+        int count = this.pullRequestCount.addAndGet(-removed);
+        this.purgeThreshold = Math.max(MIN_PURGE_THRESHOLD, count * 2);
     }
 }
@@ -17,11 +17,11 @@
 
 package org.apache.rocketmq.broker.longpolling;
 
-import org.apache.rocketmq.store.MessageArrivingListener;
+import org.apache.rocketmq.store.MessageArrivingBatchListener;
 
 import java.util.Map;
 
-public class NotifyMessageArrivingListener implements MessageArrivingListener {
+public class NotifyMessageArrivingListener implements MessageArrivingBatchListener {
     private final PullRequestHoldService pullRequestHoldService;
 
     public NotifyMessageArrivingListener(final PullRequestHoldService pullRequestHoldService) {
@@ -31,7 +31,12 @@ public class NotifyMessageArrivingListener implements MessageArrivingListener {
     @Override
     public void arriving(String topic, int queueId, long logicOffset, long tagsCode,
         long msgStoreTime, byte[] filterBitMap, Map<String, String> properties) {
-        this.pullRequestHoldService.notifyMessageArriving(topic, queueId, logicOffset, tagsCode,
+        this.pullRequestHoldService.messageArriving(topic, queueId, logicOffset, tagsCode,
             msgStoreTime, filterBitMap, properties);
     }
+
+    @Override
+    public void arrivingBatchEnd() {
+        this.pullRequestHoldService.messageArrivingBatchEnd();
+    }
 }
@@ -17,6 +17,7 @@
 package org.apache.rocketmq.broker.longpolling;
 
 import io.netty.channel.Channel;
+import java.util.concurrent.atomic.AtomicBoolean;
 import org.apache.rocketmq.common.protocol.heartbeat.SubscriptionData;
 import org.apache.rocketmq.remoting.protocol.RemotingCommand;
 import org.apache.rocketmq.store.MessageFilter;
@@ -29,6 +30,7 @@ public class PullRequest {
     private final long pullFromThisOffset;
     private final SubscriptionData subscriptionData;
     private final MessageFilter messageFilter;
+    private final AtomicBoolean completed = new AtomicBoolean(false);
 
     public PullRequest(RemotingCommand requestCommand, Channel clientChannel, long timeoutMillis, long suspendTimestamp,
         long pullFromThisOffset, SubscriptionData subscriptionData,
@@ -69,4 +71,19 @@ public class PullRequest {
     public MessageFilter getMessageFilter() {
         return messageFilter;
     }
+
+    public long getDeadline() {
+        return suspendTimestamp + timeoutMillis;
+    }
+
+    /**
+     * A held request is woken up either by message arriving or by timeout, only the first caller gets true.
+     */
+    public boolean complete() {
+        return this.completed.compareAndSet(false, true);
+    }
+
+    public boolean isCompleted() {
+        return this.completed.get();
+    }
 }
@@ -16,33 +16,58 @@
  */
 package org.apache.rocketmq.broker.longpolling;
 
+import io.netty.channel.Channel;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
 import org.apache.rocketmq.broker.BrokerController;
+import org.apache.rocketmq.common.BrokerConfig;
 import org.apache.rocketmq.common.ServiceThread;
 import org.apache.rocketmq.common.SystemClock;
 import org.apache.rocketmq.common.constant.LoggerName;
 import org.apache.rocketmq.logging.InternalLogger;
 import org.apache.rocketmq.logging.InternalLoggerFactory;
 import org.apache.rocketmq.store.ConsumeQueueExt;
+import org.apache.rocketmq.store.config.BrokerRole;
+import org.apache.rocketmq.store.stats.BrokerStatsManager;
 
 public class PullRequestHoldService extends ServiceThread {
     private static final InternalLogger log = InternalLoggerFactory.getLogger(LoggerName.BROKER_LOGGER_NAME);
-    private static final String TOPIC_QUEUEID_SEPARATOR = "@";
+    private static final int TIMING_WHEEL_SIZE = 512;
+    static final String WAKEUP_BY_ARRIVING = "ARRIVING";
+    static final String WAKEUP_BY_TIMEOUT = "TIMEOUT";
     private final BrokerController brokerController;
     private final SystemClock systemClock = new SystemClock();
-    private ConcurrentMap<String/* topic@queueId */, ManyPullRequest> pullRequestTable =
-        new ConcurrentHashMap<String, ManyPullRequest>(1024);
+    private final long tickMillis;
+    private final PullRequestTimingWheel timingWheel;
+    private final AtomicLong holdingRequestCount = new AtomicLong(0);
+    // pulls of consumers whose channel is not writable, see pausePullRequest
+    private final ConcurrentLinkedQueue<PullRequest> pausedRequestQueue = new ConcurrentLinkedQueue<PullRequest>();
+    private final AtomicLong pausedRequestCount = new AtomicLong(0);
+    private long lastCheckHoldTimestamp = 0;
+    private ConcurrentMap<TopicQueueKey, ManyPullRequest> pullRequestTable =
+        new ConcurrentHashMap<TopicQueueKey, ManyPullRequest>(1024);
+    // queues with messages arrived in the current reput batch, only accessed by the reput thread
+    private final HashMap<TopicQueueKey, LinkedHashMap<Long, ArrivingMessage>> arrivingTable =
+        new HashMap<TopicQueueKey, LinkedHashMap<Long, ArrivingMessage>>();
 
     public PullRequestHoldService(final BrokerController brokerController) {
         this.brokerController = brokerController;
+        this.tickMillis = brokerController.getBrokerConfig().getPullRequestHoldTickMills();
+        this.timingWheel = new PullRequestTimingWheel(TIMING_WHEEL_SIZE, this.tickMillis);
     }
 
     public void suspendPullRequest(final String topic, final int queueId, final PullRequest pullRequest) {
-        String key = this.buildKey(topic, queueId);
+        TopicQueueKey key = new TopicQueueKey(topic, queueId);
         ManyPullRequest mpr = this.pullRequestTable.get(key);
         if (null == mpr) {
             mpr = new ManyPullRequest();
@@ -52,15 +77,22 @@ public class PullRequestHoldService extends ServiceThread {
             }
         }
 
+        this.holdingRequestCount.incrementAndGet();
         mpr.addPullRequest(pullRequest);
+        this.timingWheel.add(pullRequest);
     }
 
-    private String buildKey(final String topic, final int queueId) {
-        StringBuilder sb = new StringBuilder();
-        sb.append(topic);
-        sb.append(TOPIC_QUEUEID_SEPARATOR);
-        sb.append(queueId);
-        return sb.toString();
+    /**
+     * @param maxOffset max offset of the queue seen by the pull, messages arrived after it but before the request is
+     * held would not be notified otherwise
+     */
+    public void suspendPullRequest(final String topic, final int queueId, final PullRequest pullRequest,
+        final long maxOffset) {
+        this.suspendPullRequest(topic, queueId, pullRequest);
+        final long offset = this.brokerController.getMessageStore().getMaxOffsetInQueue(topic, queueId);
+        if (offset > maxOffset) {
+            this.notifyMessageArriving(topic, queueId, offset);
+        }
     }
 
     @Override
@@ -68,14 +100,12 @@ public class PullRequestHoldService extends ServiceThread {
         log.info("{} service started", this.getServiceName());
         while (!this.isStopped()) {
             try {
-                if (this.brokerController.getBrokerConfig().isLongPollingEnable()) {
-                    this.waitForRunning(5 * 1000);
-                } else {
-                    this.waitForRunning(this.brokerController.getBrokerConfig().getShortPollingTimeMills());
-                }
+                this.waitForRunning(this.tickMillis);
 
                 long beginLockTimestamp = this.systemClock.now();
-                this.checkHoldRequest();
+                this.checkTimeout(beginLockTimestamp);
+                this.checkPaused(beginLockTimestamp);
+                this.checkHoldRequest(beginLockTimestamp);
                 long costTime = this.systemClock.now() - beginLockTimestamp;
                 if (costTime > 5 * 1000) {
                     log.info("[NOTIFYME] check hold request cost {} ms.", costTime);
@@ -93,77 +123,250 @@ public class PullRequestHoldService extends ServiceThread {
         return PullRequestHoldService.class.getSimpleName();
     }
 
-    private void checkHoldRequest() {
-        for (String key : this.pullRequestTable.keySet()) {
-            String[] kArray = key.split(TOPIC_QUEUEID_SEPARATOR);
-            if (2 == kArray.length) {
-                String topic = kArray[0];
-                int queueId = Integer.parseInt(kArray[1]);
+    void checkTimeout(final long now) {
+        for (PullRequest request : this.timingWheel.advance(now)) {
+            this.wakeup(request, WAKEUP_BY_TIMEOUT, now - request.getDeadline());
+        }
+
+        BrokerStatsManager brokerStatsManager = this.brokerController.getBrokerStatsManager();
+        if (brokerStatsManager != null) {
+            brokerStatsManager.recordPullHoldNums(this.holdingRequestCount.get());
+        }
+    }
+
+    /**
+     * Arriving messages are not notified on a slave or when long polling is disabled, the max offsets of the held
+     * queues are checked every 5 seconds, or every short polling time, instead.
+     */
+    void checkHoldRequest(final long now) {
+        BrokerConfig brokerConfig = this.brokerController.getBrokerConfig();
+        boolean notified = brokerConfig.isLongPollingEnable()
+            && BrokerRole.SLAVE != this.brokerController.getMessageStoreConfig().getBrokerRole();
+        long interval = brokerConfig.isLongPollingEnable() ? 5 * 1000 : brokerConfig.getShortPollingTimeMills();
+        if (notified || now - this.lastCheckHoldTimestamp < interval) {
+            return;
+        }
+        this.lastCheckHoldTimestamp = now;
+
+        for (Map.Entry<TopicQueueKey, ManyPullRequest> entry : this.pullRequestTable.entrySet()) {
+            if (entry.getValue().isEmpty()) {
+                continue;
+            }
+            String topic = entry.getKey().getTopic();
+            int queueId = entry.getKey().getQueueId();
+            try {
                 final long offset = this.brokerController.getMessageStore().getMaxOffsetInQueue(topic, queueId);
-                try {
-                    this.notifyMessageArriving(topic, queueId, offset);
-                } catch (Throwable e) {
-                    log.error("check hold request failed. topic={}, queueId={}", topic, queueId, e);
-                }
+                this.notifyMessageArriving(topic, queueId, offset);
+            } catch (Throwable e) {
+                log.error("check hold request failed. topic={}, queueId={}", topic, queueId, e);
+            }
+        }
+    }
+
+    /**
+     * Hold a pull until the channel of its consumer is writable again or the pull deadline passes, so that no more
+     * messages are read for a consumer which does not take the ones already sent.
+     */
+    public void pausePullRequest(final PullRequest pullRequest) {
+        this.pausedRequestCount.incrementAndGet();
+        this.pausedRequestQueue.add(pullRequest);
+    }
+
+    void checkPaused(final long now) {
+        Iterator<PullRequest> it = this.pausedRequestQueue.iterator();
+        while (it.hasNext()) {
+            PullRequest request = it.next();
+            Channel channel = request.getClientChannel();
+            if (channel.isActive() && !channel.isWritable() && now < request.getDeadline()) {
+                continue;
+            }
+
+            it.remove();
+            this.pausedRequestCount.decrementAndGet();
+            if (!channel.isActive()) {
+                // nobody to answer
+                continue;
+            }
+            try {
+                this.brokerController.getPullMessageProcessor().executeRequestWhenWakeup(channel,
+                    request.getRequestCommand());
+            } catch (Throwable e) {
+                log.error("execute request when resumed failed.", e);
             }
         }
     }
 
+    /**
+     * Called by the reput thread for every dispatched message, the held requests are notified once the batch ends.
+     * Messages of a queue with the same tags code are reduced to the one with the max offset.
+     */
+    public void messageArriving(final String topic, final int queueId, final long maxOffset, final Long tagsCode,
+        long msgStoreTime, byte[] filterBitMap, Map<String, String> properties) {
+        TopicQueueKey key = new TopicQueueKey(topic, queueId);
+        LinkedHashMap<Long, ArrivingMessage> arrivingMap = this.arrivingTable.get(key);
+        if (null == arrivingMap) {
+            arrivingMap = new LinkedHashMap<Long, ArrivingMessage>();
+            this.arrivingTable.put(key, arrivingMap);
+        }
+
+        if (arrivingMap.containsKey(tagsCode)) {
+            // the bit map and properties of one message can't stand for the others, match them by tags code only
+            arrivingMap.put(tagsCode, new ArrivingMessage(maxOffset, tagsCode, msgStoreTime, null, null));
+        } else {
+            arrivingMap.put(tagsCode, new ArrivingMessage(maxOffset, tagsCode, msgStoreTime, filterBitMap, properties));
+        }
+    }
+
+    /**
+     * Called by the reput thread once the messages of a batch are dispatched.
+     */
+    public void messageArrivingBatchEnd() {
+        if (this.arrivingTable.isEmpty()) {
+            return;
+        }
+        for (Map.Entry<TopicQueueKey, LinkedHashMap<Long, ArrivingMessage>> entry : this.arrivingTable.entrySet()) {
+            // a request held meanwhile checks the max offset by itself after suspending
+            ManyPullRequest mpr = this.pullRequestTable.get(entry.getKey());
+            if (mpr == null) {
+                continue;
+            }
+            if (mpr.addArrivingIfHeld(entry.getValue().values()) || mpr.hasArriving()) {
+                this.scheduleNotify(mpr);
+            }
+        }
+        this.arrivingTable.clear();
+    }
+
     public void notifyMessageArriving(final String topic, final int queueId, final long maxOffset) {
         notifyMessageArriving(topic, queueId, maxOffset, null, 0, null, null);
     }
 
     public void notifyMessageArriving(final String topic, final int queueId, final long maxOffset, final Long tagsCode,
         long msgStoreTime, byte[] filterBitMap, Map<String, String> properties) {
-        String key = this.buildKey(topic, queueId);
-        ManyPullRequest mpr = this.pullRequestTable.get(key);
+        ManyPullRequest mpr = this.pullRequestTable.get(new TopicQueueKey(topic, queueId));
         if (mpr != null) {
-            List<PullRequest> requestList = mpr.cloneListAndClear();
-            if (requestList != null) {
-                List<PullRequest> replayList = new ArrayList<PullRequest>();
-
-                for (PullRequest request : requestList) {
-                    long newestOffset = maxOffset;
-                    if (newestOffset <= request.getPullFromThisOffset()) {
-                        newestOffset = this.brokerController.getMessageStore().getMaxOffsetInQueue(topic, queueId);
-                    }
+            mpr.addArriving(new ArrivingMessage(maxOffset, tagsCode, msgStoreTime, filterBitMap, properties));
+            this.scheduleNotify(mpr);
+        }
+    }
 
-                    if (newestOffset > request.getPullFromThisOffset()) {
-                        boolean match = request.getMessageFilter().isMatchedByConsumeQueue(tagsCode,
-                            new ConsumeQueueExt.CqExtUnit(tagsCode, msgStoreTime, filterBitMap));
-                        // match by bit map, need eval again when properties is not null.
-                        if (match && properties != null) {
-                            match = request.getMessageFilter().isMatchedByCommitLog(null, properties);
-                        }
+    /**
+     * Notify the requests of a queue in the pull executor, at most one notification of a queue runs at a time, the
+     * running one takes the messages arrived meanwhile.
+     */
+    private void scheduleNotify(final ManyPullRequest mpr) {
+        if (!mpr.tryStartNotify()) {
+            return;
+        }
 
-                        if (match) {
-                            try {
-                                this.brokerController.getPullMessageProcessor().executeRequestWhenWakeup(request.getClientChannel(),
-                                    request.getRequestCommand());
-                            } catch (Throwable e) {
-                                log.error("execute request when wakeup failed.", e);
-                            }
-                            continue;
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                do {
+                    try {
+                        List<ArrivingMessage> arrivingList = mpr.drainArriving();
+                        if (!arrivingList.isEmpty()) {
+                            notifyMessageArriving(mpr, arrivingList);
                         }
+                    } catch (Throwable e) {
+                        log.error("notify message arriving failed.", e);
+                    } finally {
+                        mpr.endNotify();
                     }
+                }
+                while (mpr.hasArriving() && mpr.tryStartNotify());
+            }
+        };
 
-                    if (System.currentTimeMillis() >= (request.getSuspendTimestamp() + request.getTimeoutMillis())) {
-                        try {
-                            this.brokerController.getPullMessageProcessor().executeRequestWhenWakeup(request.getClientChannel(),
-                                request.getRequestCommand());
-                        } catch (Throwable e) {
-                            log.error("execute request when wakeup failed.", e);
-                        }
-                        continue;
-                    }
+        ExecutorService executor = this.brokerController.getPullMessageExecutor();
+        if (executor == null) {
+            task.run();
+            return;
+        }
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            log.warn("pull message executor is busy, notify message arriving in the caller thread");
+            task.run();
+        }
+    }
 
-                    replayList.add(request);
-                }
+    private void notifyMessageArriving(final ManyPullRequest mpr, final List<ArrivingMessage> arrivingList) {
+        List<PullRequest> requestList = mpr.cloneListAndClear();
+        if (requestList == null) {
+            return;
+        }
 
-                if (!replayList.isEmpty()) {
-                    mpr.addPullRequest(replayList);
-                }
+        List<PullRequest> replayList = new ArrayList<PullRequest>();
+        final long now = System.currentTimeMillis();
+        for (PullRequest request : requestList) {
+            if (request.isCompleted()) {
+                continue;
+            }
+
+            ArrivingMessage matched = this.findMatched(request, arrivingList);
+            if (matched != null) {
+                long msgStoreTime = matched.getMsgStoreTime();
+                this.wakeup(request, WAKEUP_BY_ARRIVING, msgStoreTime > 0 ? now - msgStoreTime : 0);
+                continue;
+            }
+
+            if (now >= request.getDeadline()) {
+                this.wakeup(request, WAKEUP_BY_TIMEOUT, now - request.getDeadline());
+                continue;
+            }
+
+            replayList.add(request);
+        }
+
+        if (!replayList.isEmpty()) {
+            mpr.addPullRequest(replayList);
+        }
+    }
+
+    private ArrivingMessage findMatched(final PullRequest request, final List<ArrivingMessage> arrivingList) {
+        for (ArrivingMessage arriving : arrivingList) {
+            if (arriving.getOffset() <= request.getPullFromThisOffset()) {
+                continue;
+            }
+
+            Long tagsCode = arriving.getTagsCode();
+            boolean match = request.getMessageFilter().isMatchedByConsumeQueue(tagsCode,
+                new ConsumeQueueExt.CqExtUnit(tagsCode, arriving.getMsgStoreTime(), arriving.getFilterBitMap()));
+            // match by bit map, need eval again when properties is not null.
+            if (match && arriving.getProperties() != null) {
+                match = request.getMessageFilter().isMatchedByCommitLog(null, arriving.getProperties());
             }
+            if (match) {
+                return arriving;
+            }
+        }
+        return null;
+    }
+
+    public long getHoldingRequestCount() {
+        return this.holdingRequestCount.get();
+    }
+
+    public long getPausedRequestCount() {
+        return this.pausedRequestCount.get();
+    }
+
+    private void wakeup(final PullRequest request, final String wakeupType, final long latency) {
+        if (!request.complete()) {
+            return;
+        }
+        this.holdingRequestCount.decrementAndGet();
+        BrokerStatsManager brokerStatsManager = this.brokerController.getBrokerStatsManager();
+        if (brokerStatsManager != null) {
+            brokerStatsManager.incPullWakeupLatency(wakeupType, (int) Math.max(0, latency));
+        }
+
+        try {
+            this.brokerController.getPullMessageProcessor().executeRequestWhenWakeup(request.getClientChannel(),
+                request.getRequestCommand());
+        } catch (Throwable e) {
+            log.error("execute request when wakeup failed.", e);
         }
     }
 }
@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.broker.longpolling;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Hashed timing wheel of held pull requests, indexed by deadline tick.
+ * <p>
+ * Requests may be added from any thread, {@link #advance(long)} must only be called by a single thread. Requests
+ * already woken up by message arriving are dropped lazily when their bucket is visited.
+ */
+public class PullRequestTimingWheel {
+    private final long tickMillis;
+    private final int mask;
+    private final List<PullRequest>[] buckets;
+    private final ConcurrentLinkedQueue<PullRequest> pendingQueue = new ConcurrentLinkedQueue<PullRequest>();
+    private long currentTick = -1;
+
+    @SuppressWarnings("unchecked")
+    public PullRequestTimingWheel(final int wheelSize, final long tickMillis) {
+        if (Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("wheelSize must be a power of 2: " + wheelSize);
+        }
+        this.tickMillis = Math.max(1, tickMillis);
+        this.mask = wheelSize - 1;
+        this.buckets = new List[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            this.buckets[i] = new ArrayList<PullRequest>();
+        }
+    }
+
+    public void add(final PullRequest pullRequest) {
+        this.pendingQueue.offer(pullRequest);
+    }
+
+    /**
+     * @return the requests, not completed yet, whose deadline is not after now
+     */
+    public List<PullRequest> advance(final long now) {
+        final long nowTick = now / this.tickMillis;
+        if (this.currentTick < 0) {
+            this.currentTick = nowTick - 1;
+        }
+
+        List<PullRequest> expired = new ArrayList<PullRequest>();
+        this.transferPending(nowTick, expired);
+
+        // one full turn visits every bucket, no need to go further after a long pause
+        long fromTick = Math.max(this.currentTick + 1, nowTick - this.mask);
+        for (long tick = fromTick; tick <= nowTick; tick++) {
+            this.expireBucket(this.buckets[(int) (tick & this.mask)], now, expired);
+        }
+        this.currentTick = Math.max(this.currentTick, nowTick);
+        return expired;
+    }
+
+    private void transferPending(final long nowTick, final List<PullRequest> expired) {
+        PullRequest pullRequest;
+        while ((pullRequest = this.pendingQueue.poll()) != null) {
+            if (pullRequest.isCompleted()) {
+                continue;
+            }
+            // round up, so a request is never visited before its deadline
+            long deadlineTick = (pullRequest.getDeadline() + this.tickMillis - 1) / this.tickMillis;
+            if (deadlineTick <= nowTick) {
+                expired.add(pullRequest);
+            } else {
+                this.buckets[(int) (deadlineTick & this.mask)].add(pullRequest);
+            }
+        }
+    }
+
+    private void expireBucket(final List<PullRequest> bucket, final long now, final List<PullRequest> expired) {
+        int kept = 0;
+        for (int i = 0; i < bucket.size(); i++) {
+            PullRequest pullRequest = bucket.get(i);
+            if (pullRequest.isCompleted()) {
+                continue;
+            }
+            if (pullRequest.getDeadline() <= now) {
+                expired.add(pullRequest);
+                continue;
+            }
+            // deadline more than one turn away
+            bucket.set(kept++, pullRequest);
+        }
+        bucket.subList(kept, bucket.size()).clear();
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.broker.longpolling;
+
+/**
+ * Key of the held pull requests of one consume queue, avoids building and splitting "topic@queueId" strings.
+ */
+public class TopicQueueKey {
+    private final String topic;
+    private final int queueId;
+    private final int hash;
+
+    public TopicQueueKey(final String topic, final int queueId) {
+        this.topic = topic;
+        this.queueId = queueId;
+        this.hash = 31 * topic.hashCode() + queueId;
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+
+    public int getQueueId() {
+        return queueId;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof TopicQueueKey)) {
+            return false;
+        }
+        TopicQueueKey other = (TopicQueueKey) obj;
+        return queueId == other.queueId && topic.equals(other.topic);
+    }
+
+    @Override
+    public String toString() {
+        return topic + "@" + queueId;
+    }
+}
@@ -16,6 +16,7 @@
  */
 package org.apache.rocketmq.broker.offset;
 
+import java.io.File;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -29,6 +30,7 @@ import org.apache.rocketmq.broker.BrokerPathConfigHelper;
 import org.apache.rocketmq.common.ConfigManager;
 import org.apache.rocketmq.common.UtilAll;
 import org.apache.rocketmq.common.constant.LoggerName;
+import org.apache.rocketmq.common.message.MessageQueue;
 import org.apache.rocketmq.logging.InternalLogger;
 import org.apache.rocketmq.logging.InternalLoggerFactory;
 import org.apache.rocketmq.remoting.protocol.RemotingSerializable;
@@ -46,6 +48,8 @@ public class ConsumerOffsetManager extends ConfigManager {
 
     private transient BrokerController brokerController;
 
+    private transient ConsumerOffsetStore offsetStore;
+
     public ConsumerOffsetManager() {
     }
 
@@ -129,6 +133,29 @@ public class ConsumerOffsetManager extends ConfigManager {
         this.commitOffset(clientHost, key, queueId, offset);
     }
 
+    /**
+     * Commit the offsets of many queues of one group, looking up the offset map once per topic.
+     */
+    public void commitOffsets(final String clientHost, final String group, final Map<MessageQueue, Long> offsets) {
+        HashMap<String/* topic */, ConcurrentMap<Integer, Long>> topicMaps = new HashMap<String, ConcurrentMap<Integer, Long>>();
+        for (Map.Entry<MessageQueue, Long> entry : offsets.entrySet()) {
+            MessageQueue mq = entry.getKey();
+            if (null == mq || null == mq.getTopic() || null == entry.getValue()) {
+                continue;
+            }
+            ConcurrentMap<Integer, Long> map = topicMaps.get(mq.getTopic());
+            if (null == map) {
+                map = this.findOrCreateOffsetMap(mq.getTopic() + TOPIC_GROUP_SEPARATOR + group);
+                topicMaps.put(mq.getTopic(), map);
+            }
+            Long storeOffset = map.put(mq.getQueueId(), entry.getValue());
+            if (storeOffset != null && entry.getValue() < storeOffset) {
+                log.warn("[NOTIFYME]update consumer offset less than store. clientHost={}, key={}, queueId={}, requestOffset={}, storeOffset={}",
+                    clientHost, mq.getTopic() + TOPIC_GROUP_SEPARATOR + group, mq.getQueueId(), entry.getValue(), storeOffset);
+            }
+        }
+    }
+
     private void commitOffset(final String clientHost, final String key, final int queueId, final long offset) {
         ConcurrentMap<Integer, Long> map = this.offsetTable.get(key);
         if (null == map) {
@@ -143,6 +170,18 @@ public class ConsumerOffsetManager extends ConfigManager {
         }
     }
 
+    private ConcurrentMap<Integer, Long> findOrCreateOffsetMap(final String key) {
+        ConcurrentMap<Integer, Long> map = this.offsetTable.get(key);
+        if (null == map) {
+            map = new ConcurrentHashMap<Integer, Long>(32);
+            ConcurrentMap<Integer, Long> prev = this.offsetTable.putIfAbsent(key, map);
+            if (prev != null) {
+                map = prev;
+            }
+        }
+        return map;
+    }
+
     public long queryOffset(final String group, final String topic, final int queueId) {
         // topic@group 查询offset
         String key = topic + TOPIC_GROUP_SEPARATOR + group;
@@ -160,6 +199,52 @@ public class ConsumerOffsetManager extends ConfigManager {
         return this.encode(false);
     }
 
+    /**
+     * Load the newer of the binary store and the json file whatever consumerOffsetBinaryStoreEnable says, so that
+     * offsets do not go back when the switch is turned on or off between restarts.
+     */
+    @Override
+    public boolean load() {
+        ConsumerOffsetStore store = this.getOffsetStore();
+        if (store.exists()) {
+            long storeModified = store.lastModified();
+            long jsonModified = new File(this.configFilePath()).lastModified();
+            if (storeModified > jsonModified || storeModified == jsonModified && this.isBinaryStoreEnable()) {
+                log.info("load consumer offset binary store, binary store enable: {}", this.isBinaryStoreEnable());
+                return store.load(this.offsetTable);
+            }
+            if (this.isBinaryStoreEnable()) {
+                log.info("consumer offset binary store is older than {}, load it instead", this.configFilePath());
+                store.reset();
+            }
+        } else if (this.isBinaryStoreEnable()) {
+            log.info("consumer offset binary store not exist, load {} instead", this.configFilePath());
+        }
+        return super.load();
+    }
+
+    @Override
+    public synchronized void persist() {
+        if (this.isBinaryStoreEnable()) {
+            this.getOffsetStore().flush(this.offsetTable);
+            return;
+        }
+        super.persist();
+    }
+
+    private boolean isBinaryStoreEnable() {
+        return this.brokerController != null && this.brokerController.getBrokerConfig().isConsumerOffsetBinaryStoreEnable();
+    }
+
+    private synchronized ConsumerOffsetStore getOffsetStore() {
+        if (null == this.offsetStore) {
+            String rootDir = this.brokerController.getMessageStoreConfig().getStorePathRootDir();
+            this.offsetStore = new ConsumerOffsetStore(BrokerPathConfigHelper.getConsumerOffsetSnapshotPath(rootDir),
+                BrokerPathConfigHelper.getConsumerOffsetLogPath(rootDir));
+        }
+        return this.offsetStore;
+    }
+
     @Override
     public String configFilePath() {
         return BrokerPathConfigHelper.getConsumerOffsetPath(this.brokerController.getMessageStoreConfig().getStorePathRootDir());
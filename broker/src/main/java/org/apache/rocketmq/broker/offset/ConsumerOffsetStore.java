@@ -0,0 +1,504 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.broker.offset;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.CRC32;
+import org.apache.rocketmq.common.constant.LoggerName;
+import org.apache.rocketmq.logging.InternalLogger;
+import org.apache.rocketmq.logging.InternalLoggerFactory;
+
+/**
+ * Binary consumer offset store: a compacted snapshot plus an append-only log of the offsets changed since.
+ * <p>
+ * Every flush diffs the offset table against the last flushed state and appends only the changed offsets as one
+ * checksummed batch. When the log outgrows the snapshot a new snapshot is written and the log restarts. Snapshot and
+ * log carry a generation, a log left over from before the latest snapshot is ignored on load.
+ */
+public class ConsumerOffsetStore {
+    private static final InternalLogger log = InternalLoggerFactory.getLogger(LoggerName.BROKER_LOGGER_NAME);
+
+    private static final int SNAPSHOT_MAGIC_CODE = 0x434f5353;
+    private static final int LOG_MAGIC_CODE = 0x434f4c47;
+    private static final int BATCH_MAGIC_CODE = 0x42415443;
+    private static final int VERSION = 1;
+    private static final int LOG_HEADER_SIZE = 4 + 4 + 8;
+    private static final int BATCH_HEADER_SIZE = 4 + 4 + 8;
+    private static final long MIN_COMPACT_LOG_SIZE = 1024 * 1024;
+
+    private static final byte RECORD_PUT = 1;
+    private static final byte RECORD_REMOVE_QUEUE = 2;
+    private static final byte RECORD_REMOVE_KEY = 3;
+
+    private static final long NONE = Long.MIN_VALUE;
+
+    private final String snapshotFileName;
+    private final String logFileName;
+
+    /**
+     * Offsets as they are on disk, indexed by queue id
+     */
+    private final HashMap<String/* topic@group */, long[]> flushedTable = new HashMap<String, long[]>();
+    private long generation = 0;
+    private long logSize = 0;
+    private long snapshotSize = 0;
+    /**
+     * Set when a write failed, the flushed table is then ahead of the disk until the next snapshot
+     */
+    private boolean compactRequired = false;
+
+    public ConsumerOffsetStore(final String snapshotFileName, final String logFileName) {
+        this.snapshotFileName = snapshotFileName;
+        this.logFileName = logFileName;
+    }
+
+    public boolean exists() {
+        return new File(this.snapshotFileName).exists() || new File(this.logFileName).exists();
+    }
+
+    /**
+     * @return the last time the snapshot or the log was written, 0 if neither exists
+     */
+    public long lastModified() {
+        return Math.max(new File(this.snapshotFileName).lastModified(), new File(this.logFileName).lastModified());
+    }
+
+    /**
+     * Drop the offsets on disk when the table is loaded from elsewhere, the next flush writes a snapshot of the whole
+     * table.
+     */
+    public synchronized void reset() {
+        this.flushedTable.clear();
+        this.logSize = 0;
+        this.snapshotSize = 0;
+        this.compactRequired = true;
+        File file = new File(this.logFileName);
+        if (file.exists() && !file.delete()) {
+            log.warn("Delete consumer offset log {} failed", this.logFileName);
+        }
+    }
+
+    public synchronized boolean load(final ConcurrentMap<String, ConcurrentMap<Integer, Long>> offsetTable) {
+        this.flushedTable.clear();
+        this.generation = 0;
+        this.logSize = 0;
+        this.snapshotSize = 0;
+        try {
+            this.loadSnapshot();
+            this.loadLog();
+        } catch (IOException e) {
+            log.error("Load consumer offset store failed, snapshot: " + this.snapshotFileName, e);
+            return false;
+        }
+
+        int count = 0;
+        for (Map.Entry<String, long[]> entry : this.flushedTable.entrySet()) {
+            ConcurrentMap<Integer, Long> map = new ConcurrentHashMap<Integer, Long>(32);
+            long[] offsets = entry.getValue();
+            for (int queueId = 0; queueId < offsets.length; queueId++) {
+                if (offsets[queueId] != NONE) {
+                    map.put(queueId, offsets[queueId]);
+                    count++;
+                }
+            }
+            offsetTable.put(entry.getKey(), map);
+        }
+        log.info("Load consumer offset store OK, generation: {}, topic@group: {}, offsets: {}, log size: {}",
+            this.generation, this.flushedTable.size(), count, this.logSize);
+        return true;
+    }
+
+    /**
+     * Append the offsets changed since the last flush, compact when the log has grown larger than the snapshot.
+     */
+    public synchronized void flush(final ConcurrentMap<String, ConcurrentMap<Integer, Long>> offsetTable) {
+        try {
+            ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream(4096);
+            DataOutputStream out = new DataOutputStream(byteArrayOutputStream);
+            int records = this.diff(offsetTable, out);
+            out.flush();
+
+            // a new snapshot holds the changed offsets as well, they are not appended to a log it replaces
+            boolean compact = this.compactRequired || !new File(this.snapshotFileName).exists() && records > 0;
+            if (records > 0 && !compact) {
+                this.appendLog(byteArrayOutputStream.toByteArray());
+            }
+
+            if (compact || this.logSize > Math.max(MIN_COMPACT_LOG_SIZE, this.snapshotSize)) {
+                this.compact();
+            }
+        } catch (IOException e) {
+            this.compactRequired = true;
+            log.error("Flush consumer offset store failed, log: " + this.logFileName, e);
+        }
+    }
+
+    /**
+     * Write the changed offsets as records and apply them to the flushed table.
+     */
+    private int diff(final ConcurrentMap<String, ConcurrentMap<Integer, Long>> offsetTable,
+        final DataOutputStream out) throws IOException {
+        int records = 0;
+        for (Map.Entry<String, ConcurrentMap<Integer, Long>> entry : offsetTable.entrySet()) {
+            final String key = entry.getKey();
+            final ConcurrentMap<Integer, Long> map = entry.getValue();
+            long[] flushed = this.flushedTable.get(key);
+            for (Map.Entry<Integer, Long> offsetEntry : map.entrySet()) {
+                int queueId = offsetEntry.getKey();
+                Long offset = offsetEntry.getValue();
+                if (queueId < 0 || null == offset) {
+                    continue;
+                }
+                if (null == flushed || queueId >= flushed.length || flushed[queueId] != offset) {
+                    flushed = ensureCapacity(flushed, queueId);
+                    flushed[queueId] = offset;
+                    out.writeByte(RECORD_PUT);
+                    out.writeUTF(key);
+                    out.writeInt(queueId);
+                    out.writeLong(offset);
+                    records++;
+                }
+            }
+
+            if (null == flushed) {
+                continue;
+            }
+            for (int queueId = 0; queueId < flushed.length; queueId++) {
+                if (flushed[queueId] != NONE && !map.containsKey(queueId)) {
+                    flushed[queueId] = NONE;
+                    out.writeByte(RECORD_REMOVE_QUEUE);
+                    out.writeUTF(key);
+                    out.writeInt(queueId);
+                    records++;
+                }
+            }
+            this.flushedTable.put(key, flushed);
+        }
+
+        Iterator<String> it = this.flushedTable.keySet().iterator();
+        while (it.hasNext()) {
+            String key = it.next();
+            if (!offsetTable.containsKey(key)) {
+                it.remove();
+                out.writeByte(RECORD_REMOVE_KEY);
+                out.writeUTF(key);
+                records++;
+            }
+        }
+        return records;
+    }
+
+    private void appendLog(final byte[] payload) throws IOException {
+        File file = new File(this.logFileName);
+        if (this.logSize < LOG_HEADER_SIZE || !file.exists()) {
+            this.resetLog();
+        }
+
+        CRC32 crc32 = new CRC32();
+        crc32.update(payload);
+        ByteBuffer header = ByteBuffer.allocate(BATCH_HEADER_SIZE);
+        header.putInt(BATCH_MAGIC_CODE);
+        header.putInt(payload.length);
+        header.putLong(crc32.getValue());
+        header.flip();
+
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            FileChannel channel = randomAccessFile.getChannel();
+            channel.position(this.logSize);
+            writeFully(channel, header);
+            writeFully(channel, ByteBuffer.wrap(payload));
+            channel.force(false);
+            this.logSize += BATCH_HEADER_SIZE + payload.length;
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    private void resetLog() throws IOException {
+        File file = new File(this.logFileName);
+        File parent = file.getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        ByteBuffer header = ByteBuffer.allocate(LOG_HEADER_SIZE);
+        header.putInt(LOG_MAGIC_CODE);
+        header.putInt(VERSION);
+        header.putLong(this.generation);
+        header.flip();
+
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            FileChannel channel = randomAccessFile.getChannel();
+            channel.truncate(0);
+            writeFully(channel, header);
+            channel.force(true);
+            this.logSize = LOG_HEADER_SIZE;
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    private void compact() throws IOException {
+        final long newGeneration = this.generation + 1;
+        File file = new File(this.snapshotFileName);
+        File tmpFile = new File(this.snapshotFileName + ".tmp");
+        File parent = file.getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+
+        DataOutputStream out = null;
+        try {
+            FileOutputStream fileOutputStream = new FileOutputStream(tmpFile);
+            out = new DataOutputStream(new BufferedOutputStream(fileOutputStream, 64 * 1024));
+            out.writeInt(SNAPSHOT_MAGIC_CODE);
+            out.writeInt(VERSION);
+            out.writeLong(newGeneration);
+            out.writeInt(this.flushedTable.size());
+            for (Map.Entry<String, long[]> entry : this.flushedTable.entrySet()) {
+                long[] offsets = entry.getValue();
+                int count = 0;
+                for (long offset : offsets) {
+                    if (offset != NONE) {
+                        count++;
+                    }
+                }
+                out.writeUTF(entry.getKey());
+                out.writeInt(count);
+                for (int queueId = 0; queueId < offsets.length; queueId++) {
+                    if (offsets[queueId] != NONE) {
+                        out.writeInt(queueId);
+                        out.writeLong(offsets[queueId]);
+                    }
+                }
+            }
+            out.flush();
+            fileOutputStream.getFD().sync();
+            out.close();
+            out = null;
+        } finally {
+            closeQuietly(out);
+        }
+
+        if (!tmpFile.renameTo(file)) {
+            file.delete();
+            if (!tmpFile.renameTo(file)) {
+                throw new IOException("rename " + tmpFile + " to " + file + " failed");
+            }
+        }
+
+        this.generation = newGeneration;
+        this.snapshotSize = file.length();
+        this.compactRequired = false;
+        this.resetLog();
+        log.info("Compact consumer offset store OK, generation: {}, snapshot size: {}", this.generation, this.snapshotSize);
+    }
+
+    private void loadSnapshot() throws IOException {
+        File file = new File(this.snapshotFileName);
+        if (!file.exists()) {
+            return;
+        }
+
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 64 * 1024));
+            if (in.readInt() != SNAPSHOT_MAGIC_CODE || in.readInt() != VERSION) {
+                throw new IOException("consumer offset snapshot " + this.snapshotFileName + " is not recognized");
+            }
+            this.generation = in.readLong();
+            int keyCount = in.readInt();
+            for (int i = 0; i < keyCount; i++) {
+                String key = in.readUTF();
+                int count = in.readInt();
+                long[] offsets = null;
+                for (int j = 0; j < count; j++) {
+                    int queueId = in.readInt();
+                    long offset = in.readLong();
+                    offsets = ensureCapacity(offsets, queueId);
+                    offsets[queueId] = offset;
+                }
+                this.flushedTable.put(key, null == offsets ? new long[0] : offsets);
+            }
+            this.snapshotSize = file.length();
+        } finally {
+            closeQuietly(in);
+        }
+    }
+
+    /**
+     * Replay the batches of the log written after the snapshot, a torn batch at the tail is cut off.
+     */
+    private void loadLog() throws IOException {
+        File file = new File(this.logFileName);
+        if (!file.exists()) {
+            return;
+        }
+
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            FileChannel channel = randomAccessFile.getChannel();
+            ByteBuffer header = ByteBuffer.allocate(LOG_HEADER_SIZE);
+            if (!readFully(channel, header, 0) || header.getInt(0) != LOG_MAGIC_CODE || header.getInt(4) != VERSION) {
+                log.warn("Consumer offset log {} is not recognized, ignore it", this.logFileName);
+                return;
+            }
+            long logGeneration = header.getLong(8);
+            if (logGeneration != this.generation) {
+                log.info("Consumer offset log {} generation {} is older than the snapshot {}, ignore it",
+                    this.logFileName, logGeneration, this.generation);
+                return;
+            }
+
+            long position = LOG_HEADER_SIZE;
+            ByteBuffer batchHeader = ByteBuffer.allocate(BATCH_HEADER_SIZE);
+            while (true) {
+                batchHeader.clear();
+                if (!readFully(channel, batchHeader, position) || batchHeader.getInt(0) != BATCH_MAGIC_CODE) {
+                    break;
+                }
+                int length = batchHeader.getInt(4);
+                if (length <= 0 || position + BATCH_HEADER_SIZE + length > channel.size()) {
+                    break;
+                }
+                ByteBuffer payload = ByteBuffer.allocate(length);
+                if (!readFully(channel, payload, position + BATCH_HEADER_SIZE)) {
+                    break;
+                }
+                CRC32 crc32 = new CRC32();
+                crc32.update(payload.array(), 0, length);
+                if (crc32.getValue() != batchHeader.getLong(8)) {
+                    log.warn("Consumer offset log {} batch at {} checksum mismatch", this.logFileName, position);
+                    break;
+                }
+                this.applyBatch(payload.array());
+                position += BATCH_HEADER_SIZE + length;
+            }
+
+            if (position < channel.size()) {
+                log.warn("Consumer offset log {} truncated from {} to {}", this.logFileName, channel.size(), position);
+                channel.truncate(position);
+            }
+            this.logSize = position;
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    private void applyBatch(final byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        while (true) {
+            int type;
+            try {
+                type = in.readByte();
+            } catch (EOFException e) {
+                return;
+            }
+            String key = in.readUTF();
+            switch (type) {
+                case RECORD_PUT: {
+                    int queueId = in.readInt();
+                    long offset = in.readLong();
+                    long[] offsets = ensureCapacity(this.flushedTable.get(key), queueId);
+                    offsets[queueId] = offset;
+                    this.flushedTable.put(key, offsets);
+                    break;
+                }
+                case RECORD_REMOVE_QUEUE: {
+                    int queueId = in.readInt();
+                    long[] offsets = this.flushedTable.get(key);
+                    if (offsets != null && queueId < offsets.length) {
+                        offsets[queueId] = NONE;
+                    }
+                    break;
+                }
+                case RECORD_REMOVE_KEY:
+                    this.flushedTable.remove(key);
+                    break;
+                default:
+                    throw new IOException("unknown consumer offset record type " + type);
+            }
+        }
+    }
+
+    long getGeneration() {
+        return generation;
+    }
+
+    long getLogSize() {
+        return logSize;
+    }
+
+    private static long[] ensureCapacity(final long[] offsets, final int queueId) {
+        if (offsets != null && queueId < offsets.length) {
+            return offsets;
+        }
+        int length = offsets == null ? 0 : offsets.length;
+        long[] newOffsets = offsets == null ? new long[queueId + 1] : Arrays.copyOf(offsets, Math.max(queueId + 1, length * 2));
+        Arrays.fill(newOffsets, length, newOffsets.length, NONE);
+        return newOffsets;
+    }
+
+    private static boolean readFully(final FileChannel channel, final ByteBuffer buffer, final long position)
+        throws IOException {
+        long pos = position;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, pos);
+            if (read < 0) {
+                return false;
+            }
+            pos += read;
+        }
+        return true;
+    }
+
+    private static void writeFully(final FileChannel channel, final ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static void closeQuietly(final Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
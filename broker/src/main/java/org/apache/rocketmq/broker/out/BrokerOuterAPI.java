@@ -16,11 +16,14 @@
  */
 package org.apache.rocketmq.broker.out;
 
-import com.google.common.collect.Lists;
 import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
@@ -40,6 +43,7 @@ import org.apache.rocketmq.common.protocol.ResponseCode;
 import org.apache.rocketmq.common.protocol.body.ConsumerOffsetSerializeWrapper;
 import org.apache.rocketmq.common.protocol.body.KVTable;
 import org.apache.rocketmq.common.protocol.body.RegisterBrokerBody;
+import org.apache.rocketmq.common.protocol.body.RegisterBrokerDeltaBody;
 import org.apache.rocketmq.common.protocol.body.SubscriptionGroupWrapper;
 import org.apache.rocketmq.common.protocol.body.TopicConfigSerializeWrapper;
 import org.apache.rocketmq.common.protocol.header.namesrv.QueryDataVersionRequestHeader;
@@ -63,6 +67,10 @@ public class BrokerOuterAPI {
     private final RemotingClient remotingClient;
     private final TopAddressing topAddressing = new TopAddressing(MixAll.getWSAddr());
     private String nameSrvAddr = null;
+    private final ConcurrentMap<String/* namesrvAddr */, DataVersion> registeredDataVersionTable =
+        new ConcurrentHashMap<String, DataVersion>();
+    private final ConcurrentMap<String/* namesrvAddr */, Boolean> deltaUnsupportedNameServers =
+        new ConcurrentHashMap<String, Boolean>();
     private BrokerFixedThreadPoolExecutor brokerOuterExecutor = new BrokerFixedThreadPoolExecutor(4, 10, 1, TimeUnit.MINUTES,
         new ArrayBlockingQueue<Runnable>(32), new ThreadFactoryImpl("brokerOutApi_thread_", true));
 
@@ -122,28 +130,49 @@ public class BrokerOuterAPI {
         final boolean oneway,
         final int timeoutMills,
         final boolean compressed) {
+        return registerBrokerAll(clusterName, brokerAddr, brokerName, brokerId, haServerAddr, topicConfigWrapper,
+            filterServerList, oneway, timeoutMills, compressed, null);
+    }
+
+    /**
+     * @param topicConfigDeltaBuilder if not null, a name server whose registered data version is known only receives
+     * the topic configs changed since that version, it receives all of them if it rejects the delta
+     */
+    public List<RegisterBrokerResult> registerBrokerAll(
+        final String clusterName,
+        final String brokerAddr,
+        final String brokerName,
+        final long brokerId,
+        final String haServerAddr,
+        final TopicConfigSerializeWrapper topicConfigWrapper,
+        final List<String> filterServerList,
+        final boolean oneway,
+        final int timeoutMills,
+        final boolean compressed,
+        final TopicConfigDeltaBuilder topicConfigDeltaBuilder) {
 
-        final List<RegisterBrokerResult> registerBrokerResultList = Lists.newArrayList();
+        final List<RegisterBrokerResult> registerBrokerResultList = new CopyOnWriteArrayList<RegisterBrokerResult>();
         //获取namesrv的地址列表
         List<String> nameServerAddressList = this.remotingClient.getNameServerAddressList();
         if (nameServerAddressList != null && nameServerAddressList.size() > 0) {
+            final DataVersion dataVersion = new DataVersion();
+            dataVersion.assignNewOne(topicConfigWrapper.getDataVersion());
+
+            final Map<String/* namesrvAddr */, RegisterBrokerDeltaBody> deltaBodyTable = new HashMap<String, RegisterBrokerDeltaBody>();
+            if (topicConfigDeltaBuilder != null) {
+                for (String namesrvAddr : nameServerAddressList) {
+                    RegisterBrokerDeltaBody deltaBody = this.buildRegisterBrokerDeltaBody(namesrvAddr, topicConfigDeltaBuilder, filterServerList);
+                    if (deltaBody != null) {
+                        deltaBodyTable.put(namesrvAddr, deltaBody);
+                    }
+                }
+            }
 
-            final RegisterBrokerRequestHeader requestHeader = new RegisterBrokerRequestHeader();
-            requestHeader.setBrokerAddr(brokerAddr);
-            requestHeader.setBrokerId(brokerId);
-            requestHeader.setBrokerName(brokerName);
-            requestHeader.setClusterName(clusterName);
-            requestHeader.setHaServerAddr(haServerAddr);
-            requestHeader.setCompressed(compressed);
-
-            RegisterBrokerBody requestBody = new RegisterBrokerBody();
-            requestBody.setTopicConfigSerializeWrapper(topicConfigWrapper);
-            requestBody.setFilterServerList(filterServerList);
+            final RegisterBrokerRequestHeader requestHeader = this.buildRegisterBrokerRequestHeader(clusterName, brokerAddr, brokerName,
+                brokerId, haServerAddr, compressed);
             //请求体编码，并压缩
-            final byte[] body = requestBody.encode(compressed);
-            //CRC校验
-            final int bodyCrc32 = UtilAll.crc32(body);
-            requestHeader.setBodyCrc32(bodyCrc32);
+            final byte[] body = deltaBodyTable.size() < nameServerAddressList.size()
+                ? this.encodeRegisterBrokerBody(topicConfigWrapper, filterServerList, compressed, requestHeader) : null;
             final CountDownLatch countDownLatch = new CountDownLatch(nameServerAddressList.size());
             //nameSrv注册broker
             for (final String namesrvAddr : nameServerAddressList) {
@@ -151,14 +180,47 @@ public class BrokerOuterAPI {
                     @Override
                     public void run() {
                         try {
+                            RegisterBrokerDeltaBody deltaBody = deltaBodyTable.get(namesrvAddr);
+                            if (deltaBody != null) {
+                                try {
+                                    RegisterBrokerResult result = registerBrokerDelta(namesrvAddr, oneway, timeoutMills,
+                                        buildRegisterBrokerRequestHeader(clusterName, brokerAddr, brokerName, brokerId, haServerAddr, false),
+                                        deltaBody);
+                                    if (result != null) {
+                                        registerBrokerResultList.add(result);
+                                    }
+                                    log.info("register broker[{}] delta to name server {} OK, topics {} removed {}", brokerId, namesrvAddr,
+                                        deltaBody.getTopicConfigTable().size(), deltaBody.getRemovedTopics().size());
+                                    return;
+                                } catch (MQBrokerException e) {
+                                    if (ResponseCode.REQUEST_CODE_NOT_SUPPORTED == e.getResponseCode()) {
+                                        deltaUnsupportedNameServers.put(namesrvAddr, Boolean.TRUE);
+                                    }
+                                    registeredDataVersionTable.remove(namesrvAddr);
+                                    log.info("register broker[{}] delta to name server {} rejected, {}, register in full", brokerId, namesrvAddr,
+                                        e.getErrorMessage());
+                                }
+                            }
+
+                            RegisterBrokerRequestHeader fullRequestHeader = requestHeader;
+                            byte[] fullBody = body;
+                            if (null == fullBody) {
+                                fullRequestHeader = buildRegisterBrokerRequestHeader(clusterName, brokerAddr, brokerName, brokerId,
+                                    haServerAddr, compressed);
+                                fullBody = encodeRegisterBrokerBody(topicConfigWrapper, filterServerList, compressed, fullRequestHeader);
+                            }
                             //注册broker任务分发
-                            RegisterBrokerResult result = registerBroker(namesrvAddr,oneway, timeoutMills,requestHeader,body);
+                            RegisterBrokerResult result = registerBroker(namesrvAddr, oneway, timeoutMills, fullRequestHeader, fullBody);
                             if (result != null) {
                                 registerBrokerResultList.add(result);
                             }
+                            if (topicConfigDeltaBuilder != null) {
+                                registeredDataVersionTable.put(namesrvAddr, dataVersion);
+                            }
 
                             log.info("register broker[{}]to name server {} OK", brokerId, namesrvAddr);
                         } catch (Exception e) {
+                            registeredDataVersionTable.remove(namesrvAddr);
                             log.warn("registerBroker Exception, {}", namesrvAddr, e);
                         } finally {
                             countDownLatch.countDown();
@@ -176,6 +238,55 @@ public class BrokerOuterAPI {
         return registerBrokerResultList;
     }
 
+    private RegisterBrokerRequestHeader buildRegisterBrokerRequestHeader(
+        final String clusterName,
+        final String brokerAddr,
+        final String brokerName,
+        final long brokerId,
+        final String haServerAddr,
+        final boolean compressed) {
+        RegisterBrokerRequestHeader requestHeader = new RegisterBrokerRequestHeader();
+        requestHeader.setBrokerAddr(brokerAddr);
+        requestHeader.setBrokerId(brokerId);
+        requestHeader.setBrokerName(brokerName);
+        requestHeader.setClusterName(clusterName);
+        requestHeader.setHaServerAddr(haServerAddr);
+        requestHeader.setCompressed(compressed);
+        return requestHeader;
+    }
+
+    private byte[] encodeRegisterBrokerBody(
+        final TopicConfigSerializeWrapper topicConfigWrapper,
+        final List<String> filterServerList,
+        final boolean compressed,
+        final RegisterBrokerRequestHeader requestHeader) {
+        RegisterBrokerBody requestBody = new RegisterBrokerBody();
+        requestBody.setTopicConfigSerializeWrapper(topicConfigWrapper);
+        requestBody.setFilterServerList(filterServerList);
+        byte[] body = requestBody.encode(compressed);
+        //CRC校验
+        requestHeader.setBodyCrc32(UtilAll.crc32(body));
+        return body;
+    }
+
+    private RegisterBrokerDeltaBody buildRegisterBrokerDeltaBody(
+        final String namesrvAddr,
+        final TopicConfigDeltaBuilder topicConfigDeltaBuilder,
+        final List<String> filterServerList) {
+        if (this.deltaUnsupportedNameServers.containsKey(namesrvAddr)) {
+            return null;
+        }
+        DataVersion registeredDataVersion = this.registeredDataVersionTable.get(namesrvAddr);
+        if (null == registeredDataVersion) {
+            return null;
+        }
+        RegisterBrokerDeltaBody deltaBody = topicConfigDeltaBuilder.build(registeredDataVersion);
+        if (deltaBody != null) {
+            deltaBody.setFilterServerList(filterServerList);
+        }
+        return deltaBody;
+    }
+
     private RegisterBrokerResult registerBroker(
         final String namesrvAddr,
         final boolean oneway,
@@ -186,7 +297,34 @@ public class BrokerOuterAPI {
         InterruptedException {
         RemotingCommand request = RemotingCommand.createRequestCommand(RequestCode.REGISTER_BROKER, requestHeader);
         request.setBody(body);
+        return this.invokeRegisterBroker(namesrvAddr, oneway, timeoutMills, request);
+    }
 
+    private RegisterBrokerResult registerBrokerDelta(
+        final String namesrvAddr,
+        final boolean oneway,
+        final int timeoutMills,
+        final RegisterBrokerRequestHeader requestHeader,
+        final RegisterBrokerDeltaBody deltaBody
+    ) throws RemotingCommandException, MQBrokerException, RemotingConnectException, RemotingSendRequestException, RemotingTimeoutException,
+        InterruptedException {
+        byte[] body = deltaBody.encode();
+        requestHeader.setBodyCrc32(UtilAll.crc32(body));
+        RemotingCommand request = RemotingCommand.createRequestCommand(RequestCode.REGISTER_BROKER_DELTA, requestHeader);
+        request.setBody(body);
+        RegisterBrokerResult result = this.invokeRegisterBroker(namesrvAddr, oneway, timeoutMills, request);
+        // a lost oneway delta is found out by the next synchronous one, which falls back to a full registration
+        this.registeredDataVersionTable.put(namesrvAddr, deltaBody.getDataVersion());
+        return result;
+    }
+
+    private RegisterBrokerResult invokeRegisterBroker(
+        final String namesrvAddr,
+        final boolean oneway,
+        final int timeoutMills,
+        final RemotingCommand request
+    ) throws RemotingCommandException, MQBrokerException, RemotingConnectException, RemotingSendRequestException, RemotingTimeoutException,
+        InterruptedException {
         if (oneway) {
             try {
                 //异步请求，不管训结果
@@ -303,6 +441,7 @@ public class BrokerOuterAPI {
                                     byte[] body = response.getBody();
                                     if (body != null) {
                                         nameServerDataVersion = DataVersion.decode(body, DataVersion.class);
+                                        registeredDataVersionTable.put(namesrvAddr, nameServerDataVersion);
                                         if (!topicConfigWrapper.getDataVersion().equals(nameServerDataVersion)) {
                                            //数据不一致需要更新
                                             changed = true;
@@ -152,9 +152,9 @@ public abstract class AbstractSendMessageProcessor implements NettyRequestProces
             response.setCode(ResponseCode.MESSAGE_ILLEGAL);
             return response;
         }
-        if (request.getBody().length > DBMsgConstants.MAX_BODY_SIZE) {
+        if (request.getBodyLength() > DBMsgConstants.MAX_BODY_SIZE) {
             log.warn(" topic {}  msg body size {}  from {}", requestHeader.getTopic(),
-                request.getBody().length, ChannelUtil.getRemoteIp(ctx.channel()));
+                request.getBodyLength(), ChannelUtil.getRemoteIp(ctx.channel()));
             response.setRemark("msg body must be less 64KB");
             response.setCode(ResponseCode.MESSAGE_ILLEGAL);
             return response;
@@ -261,7 +261,7 @@ public abstract class AbstractSendMessageProcessor implements NettyRequestProces
                         context.setNamespace(namespace);
                         context.setProducerGroup(requestHeader.getProducerGroup());
                         context.setTopic(requestHeader.getTopic());
-                        context.setBodyLength(request.getBody().length);
+                        context.setBodyLength(request.getBodyLength());
                         context.setMsgProps(requestHeader.getProperties());
                         context.setBornHost(RemotingHelper.parseChannelRemoteAddr(ctx.channel()));
                         context.setBrokerAddr(this.brokerController.getBrokerAddr());
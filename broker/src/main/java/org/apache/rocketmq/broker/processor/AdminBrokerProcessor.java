@@ -29,12 +29,14 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentMap;
 import org.apache.rocketmq.acl.AccessValidator;
 import org.apache.rocketmq.acl.plain.PlainAccessValidator;
 import org.apache.rocketmq.broker.BrokerController;
 import org.apache.rocketmq.broker.client.ClientChannelInfo;
 import org.apache.rocketmq.broker.client.ConsumerGroupInfo;
+import org.apache.rocketmq.broker.client.DefaultConsumerIdsChangeListener;
 import org.apache.rocketmq.broker.filter.ConsumerFilterData;
 import org.apache.rocketmq.broker.filter.ExpressionMessageFilter;
 import org.apache.rocketmq.broker.transaction.queue.TransactionalMessageUtil;
@@ -77,11 +79,14 @@ import org.apache.rocketmq.common.protocol.body.QueryConsumeQueueResponseBody;
 import org.apache.rocketmq.common.protocol.body.QueryConsumeTimeSpanBody;
 import org.apache.rocketmq.common.protocol.body.QueryCorrectionOffsetBody;
 import org.apache.rocketmq.common.protocol.body.QueueTimeSpan;
+import org.apache.rocketmq.common.protocol.body.RequestMetricsBody;
+import org.apache.rocketmq.common.protocol.body.RequestMetricsItem;
 import org.apache.rocketmq.common.protocol.body.TopicList;
 import org.apache.rocketmq.common.protocol.body.UnlockBatchRequestBody;
 import org.apache.rocketmq.common.protocol.header.CloneGroupOffsetRequestHeader;
 import org.apache.rocketmq.common.protocol.header.ConsumeMessageDirectlyResultRequestHeader;
 import org.apache.rocketmq.common.protocol.header.CreateTopicRequestHeader;
+import org.apache.rocketmq.common.protocol.header.DeleteQuotaRequestHeader;
 import org.apache.rocketmq.common.protocol.header.DeleteSubscriptionGroupRequestHeader;
 import org.apache.rocketmq.common.protocol.header.DeleteTopicRequestHeader;
 import org.apache.rocketmq.common.protocol.header.GetAllTopicConfigResponseHeader;
@@ -98,6 +103,7 @@ import org.apache.rocketmq.common.protocol.header.GetMaxOffsetResponseHeader;
 import org.apache.rocketmq.common.protocol.header.GetMinOffsetRequestHeader;
 import org.apache.rocketmq.common.protocol.header.GetMinOffsetResponseHeader;
 import org.apache.rocketmq.common.protocol.header.GetProducerConnectionListRequestHeader;
+import org.apache.rocketmq.common.protocol.header.GetRequestMetricsRequestHeader;
 import org.apache.rocketmq.common.protocol.header.GetTopicStatsInfoRequestHeader;
 import org.apache.rocketmq.common.protocol.header.QueryConsumeQueueRequestHeader;
 import org.apache.rocketmq.common.protocol.header.QueryConsumeTimeSpanRequestHeader;
@@ -111,14 +117,19 @@ import org.apache.rocketmq.common.protocol.header.ViewBrokerStatsDataRequestHead
 import org.apache.rocketmq.common.protocol.header.filtersrv.RegisterFilterServerRequestHeader;
 import org.apache.rocketmq.common.protocol.header.filtersrv.RegisterFilterServerResponseHeader;
 import org.apache.rocketmq.common.protocol.heartbeat.SubscriptionData;
+import org.apache.rocketmq.common.quota.QuotaConfig;
 import org.apache.rocketmq.common.stats.StatsItem;
 import org.apache.rocketmq.common.stats.StatsSnapshot;
 import org.apache.rocketmq.common.subscription.SubscriptionGroupConfig;
 import org.apache.rocketmq.filter.util.BitsArray;
+import org.apache.rocketmq.remoting.RemotingServer;
+import org.apache.rocketmq.remoting.common.LogLinearHistogram;
 import org.apache.rocketmq.remoting.common.RemotingHelper;
 import org.apache.rocketmq.remoting.exception.RemotingCommandException;
 import org.apache.rocketmq.remoting.exception.RemotingTimeoutException;
 import org.apache.rocketmq.remoting.netty.NettyRequestProcessor;
+import org.apache.rocketmq.remoting.netty.RequestCodeMetrics;
+import org.apache.rocketmq.remoting.netty.WriteBufferMonitorHandler;
 import org.apache.rocketmq.remoting.protocol.LanguageCode;
 import org.apache.rocketmq.remoting.protocol.RemotingCommand;
 import org.apache.rocketmq.remoting.protocol.RemotingSerializable;
@@ -174,6 +185,9 @@ public class AdminBrokerProcessor implements NettyRequestProcessor {
                 //获取broker运行信息
             case RequestCode.GET_BROKER_RUNTIME_INFO:
                 return this.getBrokerRuntimeInfo(ctx, request);
+                //获取各请求编码和线程池的请求耗时
+            case RequestCode.GET_REQUEST_METRICS:
+                return this.getRequestMetrics(ctx, request);
                 //批量锁定消息队列
             case RequestCode.LOCK_BATCH_MQ:
                 return this.lockBatchMQ(ctx, request);
@@ -189,6 +203,12 @@ public class AdminBrokerProcessor implements NettyRequestProcessor {
                 //删除订阅组
             case RequestCode.DELETE_SUBSCRIPTIONGROUP:
                 return this.deleteSubscriptionGroup(ctx, request);
+            case RequestCode.UPDATE_AND_CREATE_QUOTA:
+                return this.updateAndCreateQuota(ctx, request);
+            case RequestCode.DELETE_QUOTA:
+                return this.deleteQuota(ctx, request);
+            case RequestCode.GET_ALL_QUOTA:
+                return this.getAllQuota(ctx, request);
                 //获取topic状态信息
             case RequestCode.GET_TOPIC_STATS_INFO:
                 return this.getTopicStatsInfo(ctx, request);
@@ -644,6 +664,81 @@ public class AdminBrokerProcessor implements NettyRequestProcessor {
         return response;
     }
 
+    private RemotingCommand getRequestMetrics(ChannelHandlerContext ctx,
+        RemotingCommand request) throws RemotingCommandException {
+        final RemotingCommand response = RemotingCommand.createResponseCommand(null);
+        final GetRequestMetricsRequestHeader requestHeader =
+            (GetRequestMetricsRequestHeader) request.decodeCommandCustomHeader(GetRequestMetricsRequestHeader.class);
+
+        //同一请求编码在两个server上的快照合并
+        Map<Integer, LogLinearHistogram.Snapshot[]> codeTable = new TreeMap<Integer, LogLinearHistogram.Snapshot[]>();
+        this.collectRequestMetrics(this.brokerController.getRemotingServer(), requestHeader.isReset(), codeTable);
+        this.collectRequestMetrics(this.brokerController.getFastRemotingServer(), requestHeader.isReset(), codeTable);
+
+        RequestMetricsBody body = new RequestMetricsBody();
+        Map<String, LogLinearHistogram.Snapshot[]> poolTable = new TreeMap<String, LogLinearHistogram.Snapshot[]>();
+        for (Map.Entry<Integer, LogLinearHistogram.Snapshot[]> entry : codeTable.entrySet()) {
+            String poolName = this.brokerController.getProcessorPoolName(entry.getKey());
+            RequestMetricsItem item = buildRequestMetricsItem(entry.getValue());
+            item.setRequestCode(entry.getKey());
+            item.setPoolName(poolName);
+            body.getRequestCodeList().add(item);
+
+            LogLinearHistogram.Snapshot[] poolSnapshots = poolTable.get(poolName);
+            if (null == poolSnapshots) {
+                poolSnapshots = new LogLinearHistogram.Snapshot[] {
+                    new LogLinearHistogram.Snapshot(), new LogLinearHistogram.Snapshot(), new LogLinearHistogram.Snapshot()};
+                poolTable.put(poolName, poolSnapshots);
+            }
+            for (int i = 0; i < poolSnapshots.length; i++) {
+                poolSnapshots[i].merge(entry.getValue()[i]);
+            }
+        }
+        for (Map.Entry<String, LogLinearHistogram.Snapshot[]> entry : poolTable.entrySet()) {
+            RequestMetricsItem item = buildRequestMetricsItem(entry.getValue());
+            item.setRequestCode(-1);
+            item.setPoolName(entry.getKey());
+            body.getPoolList().add(item);
+        }
+
+        response.setBody(body.encode());
+        response.setCode(ResponseCode.SUCCESS);
+        response.setRemark(null);
+        return response;
+    }
+
+    private void collectRequestMetrics(final RemotingServer server, final boolean reset,
+        final Map<Integer, LogLinearHistogram.Snapshot[]> codeTable) {
+        if (null == server) {
+            return;
+        }
+        for (RequestCodeMetrics metrics : server.getRequestCodeMetricsTable().values()) {
+            LogLinearHistogram.Snapshot[] snapshots = codeTable.get(metrics.getRequestCode());
+            if (null == snapshots) {
+                snapshots = new LogLinearHistogram.Snapshot[] {
+                    new LogLinearHistogram.Snapshot(), new LogLinearHistogram.Snapshot(), new LogLinearHistogram.Snapshot()};
+                codeTable.put(metrics.getRequestCode(), snapshots);
+            }
+            snapshots[0].merge(metrics.getQueueWaitMicros().snapshot(reset));
+            snapshots[1].merge(metrics.getProcessMicros().snapshot(reset));
+            snapshots[2].merge(metrics.getResponseSize().snapshot(reset));
+        }
+    }
+
+    private static RequestMetricsItem buildRequestMetricsItem(final LogLinearHistogram.Snapshot[] snapshots) {
+        RequestMetricsItem item = new RequestMetricsItem();
+        item.setCount(snapshots[1].getCount());
+        item.setQueueWaitAvg(snapshots[0].getAvg());
+        item.setQueueWaitP99(snapshots[0].percentile(0.99));
+        item.setQueueWaitMax(snapshots[0].getMax());
+        item.setProcessAvg(snapshots[1].getAvg());
+        item.setProcessP99(snapshots[1].percentile(0.99));
+        item.setProcessMax(snapshots[1].getMax());
+        item.setResponseSizeAvg(snapshots[2].getAvg());
+        item.setResponseSizeMax(snapshots[2].getMax());
+        return item;
+    }
+
     private RemotingCommand lockBatchMQ(ChannelHandlerContext ctx,
         RemotingCommand request) throws RemotingCommandException {
         final RemotingCommand response = RemotingCommand.createResponseCommand(null);
@@ -739,6 +834,58 @@ public class AdminBrokerProcessor implements NettyRequestProcessor {
         return response;
     }
 
+    private RemotingCommand updateAndCreateQuota(ChannelHandlerContext ctx, RemotingCommand request)
+        throws RemotingCommandException {
+        final RemotingCommand response = RemotingCommand.createResponseCommand(null);
+
+        log.info("updateAndCreateQuota called by {}", RemotingHelper.parseChannelRemoteAddr(ctx.channel()));
+        QuotaConfig config = RemotingSerializable.decode(request.getBody(), QuotaConfig.class);
+        if (null == config || !QuotaConfig.isValidType(config.getType()) || !QuotaConfig.isValidDirection(config.getDirection())
+            || UtilAll.isBlank(config.getResource())) {
+            response.setCode(ResponseCode.SYSTEM_ERROR);
+            response.setRemark("The quota type must be TOPIC or GROUP, the direction SEND or PULL and the resource must not be blank");
+            return response;
+        }
+        this.brokerController.getQuotaManager().updateQuotaConfig(config);
+
+        response.setCode(ResponseCode.SUCCESS);
+        response.setRemark(null);
+        return response;
+    }
+
+    private RemotingCommand deleteQuota(ChannelHandlerContext ctx, RemotingCommand request)
+        throws RemotingCommandException {
+        final RemotingCommand response = RemotingCommand.createResponseCommand(null);
+        DeleteQuotaRequestHeader requestHeader =
+            (DeleteQuotaRequestHeader) request.decodeCommandCustomHeader(DeleteQuotaRequestHeader.class);
+
+        log.info("deleteQuota called by {}", RemotingHelper.parseChannelRemoteAddr(ctx.channel()));
+        String direction = null == requestHeader.getDirection() ? QuotaConfig.DIRECTION_SEND : requestHeader.getDirection();
+        this.brokerController.getQuotaManager().deleteQuotaConfig(requestHeader.getType(), direction, requestHeader.getResource());
+
+        response.setCode(ResponseCode.SUCCESS);
+        response.setRemark(null);
+        return response;
+    }
+
+    private RemotingCommand getAllQuota(ChannelHandlerContext ctx, RemotingCommand request) {
+        final RemotingCommand response = RemotingCommand.createResponseCommand(null);
+        String content = this.brokerController.getQuotaManager().encode();
+        try {
+            response.setBody(content.getBytes(MixAll.DEFAULT_CHARSET));
+        } catch (UnsupportedEncodingException e) {
+            log.error("", e);
+
+            response.setCode(ResponseCode.SYSTEM_ERROR);
+            response.setRemark("UnsupportedEncodingException " + e);
+            return response;
+        }
+
+        response.setCode(ResponseCode.SUCCESS);
+        response.setRemark(null);
+        return response;
+    }
+
     private RemotingCommand getTopicStatsInfo(ChannelHandlerContext ctx,
         RemotingCommand request) throws RemotingCommandException {
         final RemotingCommand response = RemotingCommand.createResponseCommand(null);
@@ -1467,6 +1614,25 @@ public class AdminBrokerProcessor implements NettyRequestProcessor {
         runtimeInfo.put("EndTransactionThreadPoolQueueCapacity",
             String.valueOf(this.brokerController.getBrokerConfig().getEndTransactionPoolQueueCapacity()));
 
+        //已写入channel但未发出的字节数, 以及超过高水位不可写的channel
+        long pendingWriteBytes = 0;
+        int unwritableChannelCount = 0;
+        long unwritableTimes = 0;
+        for (RemotingServer server : new RemotingServer[] {this.brokerController.getRemotingServer(),
+            this.brokerController.getFastRemotingServer()}) {
+            WriteBufferMonitorHandler monitor = null == server ? null : server.getWriteBufferMonitor();
+            if (monitor != null) {
+                pendingWriteBytes += monitor.getTotalPendingWriteBytes();
+                unwritableChannelCount += monitor.getUnwritableChannelCount();
+                unwritableTimes += monitor.getUnwritableTimes();
+            }
+        }
+        runtimeInfo.put("remotingPendingWriteBytes", String.valueOf(pendingWriteBytes));
+        runtimeInfo.put("remotingUnwritableChannelCount", String.valueOf(unwritableChannelCount));
+        runtimeInfo.put("remotingUnwritableTimes", String.valueOf(unwritableTimes));
+        runtimeInfo.put("pullPausedRequestCount",
+            String.valueOf(this.brokerController.getPullRequestHoldService().getPausedRequestCount()));
+
         //在commitlog中但是未分配的字节数
         runtimeInfo.put("dispatchBehindBytes", String.valueOf(this.brokerController.getMessageStore().dispatchBehindBytes()));
         //缓存锁定时间
@@ -1480,6 +1646,12 @@ public class AdminBrokerProcessor implements NettyRequestProcessor {
         runtimeInfo.put("queryThreadPoolQueueHeadWaitTimeMills", String.valueOf(this.brokerController.headSlowTimeMills4QueryThreadPoolQueue()));
 
 
+        if (this.brokerController.getConsumerIdsChangeListener() instanceof DefaultConsumerIdsChangeListener) {
+            DefaultConsumerIdsChangeListener listener = (DefaultConsumerIdsChangeListener) this.brokerController.getConsumerIdsChangeListener();
+            runtimeInfo.put("consumerIdsChangeCoalescedCount", String.valueOf(listener.getCoalescedChangeCount()));
+            runtimeInfo.put("consumerIdsChangeSuppressedNotifyCount", String.valueOf(listener.getSuppressedNotifyCount()));
+        }
+
         //最早消息存储时间
         runtimeInfo.put("earliestMessageTimeStamp", String.valueOf(this.brokerController.getMessageStore().getEarliestMessageTime()));
         //开始接受发送请求时间
@@ -80,6 +80,7 @@ public class ClientManageProcessor implements NettyRequestProcessor {
             request.getLanguage(),
             request.getVersion()
         );
+        clientChannelInfo.setTransactionCheckBatchSupported(heartbeatData.isTransactionCheckBatchSupported());
 
         for (ConsumerData data : heartbeatData.getConsumerDataSet()) {
             SubscriptionGroupConfig subscriptionGroupConfig =
@@ -24,6 +24,7 @@ import org.apache.rocketmq.common.constant.LoggerName;
 import org.apache.rocketmq.logging.InternalLogger;
 import org.apache.rocketmq.common.protocol.RequestCode;
 import org.apache.rocketmq.common.protocol.ResponseCode;
+import org.apache.rocketmq.common.protocol.body.UpdateConsumerOffsetBatchRequestBody;
 import org.apache.rocketmq.common.protocol.header.GetConsumerListByGroupRequestHeader;
 import org.apache.rocketmq.common.protocol.header.GetConsumerListByGroupResponseBody;
 import org.apache.rocketmq.common.protocol.header.GetConsumerListByGroupResponseHeader;
@@ -54,6 +55,8 @@ public class ConsumerManageProcessor implements NettyRequestProcessor {
                 return this.getConsumerListByGroup(ctx, request);
             case RequestCode.UPDATE_CONSUMER_OFFSET:
                 return this.updateConsumerOffset(ctx, request);
+            case RequestCode.UPDATE_CONSUMER_OFFSET_BATCH:
+                return this.updateConsumerOffsetBatch(ctx, request);
             case RequestCode.QUERY_CONSUMER_OFFSET:
                 return this.queryConsumerOffset(ctx, request);
             default:
@@ -115,6 +118,23 @@ public class ConsumerManageProcessor implements NettyRequestProcessor {
         return response;
     }
 
+    private RemotingCommand updateConsumerOffsetBatch(ChannelHandlerContext ctx, RemotingCommand request) {
+        final RemotingCommand response = RemotingCommand.createResponseCommand(null);
+        final UpdateConsumerOffsetBatchRequestBody requestBody =
+            UpdateConsumerOffsetBatchRequestBody.decode(request.getBody(), UpdateConsumerOffsetBatchRequestBody.class);
+        if (null == requestBody || null == requestBody.getConsumerGroup() || null == requestBody.getOffsetTable()) {
+            response.setCode(ResponseCode.SYSTEM_ERROR);
+            response.setRemark("the consumer group and the offsets of the batch must not be null");
+            return response;
+        }
+
+        this.brokerController.getConsumerOffsetManager().commitOffsets(RemotingHelper.parseChannelRemoteAddr(ctx.channel()),
+            requestBody.getConsumerGroup(), requestBody.getOffsetTable());
+        response.setCode(ResponseCode.SUCCESS);
+        response.setRemark(null);
+        return response;
+    }
+
     private RemotingCommand queryConsumerOffset(ChannelHandlerContext ctx, RemotingCommand request)
         throws RemotingCommandException {
         final RemotingCommand response =
@@ -25,7 +25,9 @@ import org.apache.rocketmq.common.message.MessageAccessor;
 import org.apache.rocketmq.common.message.MessageConst;
 import org.apache.rocketmq.common.message.MessageDecoder;
 import org.apache.rocketmq.common.message.MessageExt;
+import org.apache.rocketmq.common.protocol.RequestCode;
 import org.apache.rocketmq.common.protocol.ResponseCode;
+import org.apache.rocketmq.common.protocol.body.EndTransactionBatchRequestBody;
 import org.apache.rocketmq.common.protocol.header.EndTransactionRequestHeader;
 import org.apache.rocketmq.common.sysflag.MessageSysFlag;
 import org.apache.rocketmq.logging.InternalLogger;
@@ -52,9 +54,42 @@ public class EndTransactionProcessor implements NettyRequestProcessor {
     @Override
     public RemotingCommand processRequest(ChannelHandlerContext ctx, RemotingCommand request) throws
         RemotingCommandException {
-        final RemotingCommand response = RemotingCommand.createResponseCommand(null);
+        if (request.getCode() == RequestCode.END_TRANSACTION_BATCH) {
+            return this.processBatchRequest(ctx, request);
+        }
         final EndTransactionRequestHeader requestHeader =
             (EndTransactionRequestHeader)request.decodeCommandCustomHeader(EndTransactionRequestHeader.class);
+        return this.processRequest(ctx, requestHeader, request.getRemark());
+    }
+
+    /**
+     * The batch is sent oneway as the answer of a batch transaction check, so there is no response.
+     */
+    private RemotingCommand processBatchRequest(ChannelHandlerContext ctx, RemotingCommand request) {
+        if (null == request.getBody()) {
+            return null;
+        }
+        final EndTransactionBatchRequestBody requestBody =
+            EndTransactionBatchRequestBody.decode(request.getBody(), EndTransactionBatchRequestBody.class);
+        for (int i = 0; i < requestBody.getEndTransactionList().size(); i++) {
+            EndTransactionRequestHeader requestHeader = requestBody.getEndTransactionList().get(i);
+            try {
+                requestHeader.checkFields();
+                RemotingCommand response = this.processRequest(ctx, requestHeader, requestBody.getRemark(i));
+                if (response != null && response.getCode() != ResponseCode.SUCCESS) {
+                    LOGGER.warn("End transaction in batch failed, RequestHeader: {} Code: {} Remark: {}",
+                        requestHeader, response.getCode(), response.getRemark());
+                }
+            } catch (Exception e) {
+                LOGGER.error("End transaction in batch error, RequestHeader: " + requestHeader, e);
+            }
+        }
+        return null;
+    }
+
+    private RemotingCommand processRequest(ChannelHandlerContext ctx, EndTransactionRequestHeader requestHeader,
+        String remark) {
+        final RemotingCommand response = RemotingCommand.createResponseCommand(null);
         LOGGER.info("Transaction request:{}", requestHeader);
         if (BrokerRole.SLAVE == brokerController.getMessageStoreConfig().getBrokerRole()) {
             response.setCode(ResponseCode.SLAVE_NOT_AVAILABLE);
@@ -69,7 +104,7 @@ public class EndTransactionProcessor implements NettyRequestProcessor {
                             + "RequestHeader: {} Remark: {}",
                         RemotingHelper.parseChannelRemoteAddr(ctx.channel()),
                         requestHeader.toString(),
-                        request.getRemark());
+                        remark);
                     return null;
                 }
 
@@ -78,7 +113,7 @@ public class EndTransactionProcessor implements NettyRequestProcessor {
                             + "RequestHeader: {} Remark: {}",
                         RemotingHelper.parseChannelRemoteAddr(ctx.channel()),
                         requestHeader.toString(),
-                        request.getRemark());
+                        remark);
 
                     break;
                 }
@@ -88,7 +123,7 @@ public class EndTransactionProcessor implements NettyRequestProcessor {
                             + "RequestHeader: {} Remark: {}",
                         RemotingHelper.parseChannelRemoteAddr(ctx.channel()),
                         requestHeader.toString(),
-                        request.getRemark());
+                        remark);
                     break;
                 }
                 default:
@@ -101,7 +136,7 @@ public class EndTransactionProcessor implements NettyRequestProcessor {
                             + "RequestHeader: {} Remark: {}",
                         RemotingHelper.parseChannelRemoteAddr(ctx.channel()),
                         requestHeader.toString(),
-                        request.getRemark());
+                        remark);
                     return null;
                 }
 
@@ -114,7 +149,7 @@ public class EndTransactionProcessor implements NettyRequestProcessor {
                             + "RequestHeader: {} Remark: {}",
                         RemotingHelper.parseChannelRemoteAddr(ctx.channel()),
                         requestHeader.toString(),
-                        request.getRemark());
+                        remark);
                     break;
                 }
                 default:
@@ -33,6 +33,7 @@ import org.apache.rocketmq.broker.longpolling.PullRequest;
 import org.apache.rocketmq.broker.mqtrace.ConsumeMessageContext;
 import org.apache.rocketmq.broker.mqtrace.ConsumeMessageHook;
 import org.apache.rocketmq.broker.pagecache.ManyMessageTransfer;
+import org.apache.rocketmq.broker.quota.QuotaManager;
 import org.apache.rocketmq.common.MixAll;
 import org.apache.rocketmq.common.TopicConfig;
 import org.apache.rocketmq.common.TopicFilterType;
@@ -51,6 +52,7 @@ import org.apache.rocketmq.common.protocol.header.PullMessageResponseHeader;
 import org.apache.rocketmq.common.protocol.heartbeat.MessageModel;
 import org.apache.rocketmq.common.protocol.heartbeat.SubscriptionData;
 import org.apache.rocketmq.common.protocol.topic.OffsetMovedEvent;
+import org.apache.rocketmq.common.quota.QuotaConfig;
 import org.apache.rocketmq.common.subscription.SubscriptionGroupConfig;
 import org.apache.rocketmq.common.sysflag.PullSysFlag;
 import org.apache.rocketmq.remoting.common.RemotingHelper;
@@ -58,6 +60,7 @@ import org.apache.rocketmq.remoting.common.RemotingUtil;
 import org.apache.rocketmq.remoting.exception.RemotingCommandException;
 import org.apache.rocketmq.remoting.netty.NettyRequestProcessor;
 import org.apache.rocketmq.remoting.netty.RequestTask;
+import org.apache.rocketmq.remoting.netty.WriteBufferMonitorHandler;
 import org.apache.rocketmq.remoting.protocol.RemotingCommand;
 import org.apache.rocketmq.store.GetMessageResult;
 import org.apache.rocketmq.store.MessageExtBrokerInner;
@@ -233,14 +236,41 @@ public class PullMessageProcessor implements NettyRequestProcessor {
                 this.brokerController.getConsumerFilterManager());
         }
 
+        //consumer收不完已发送的数据时不再为它读取消息, channel可写或超时后再处理
+        if (brokerAllowSuspend && hasSuspendFlag && !channel.isWritable()
+            && this.brokerController.getBrokerConfig().isPullPauseWhenChannelUnwritable()) {
+            long pauseTimeMills = Math.min(suspendTimeoutMillisLong,
+                this.brokerController.getBrokerConfig().getPullPauseMaxTimeMills());
+            PullRequest pullRequest = new PullRequest(request, channel, pauseTimeMills,
+                this.brokerController.getMessageStore().now(), requestHeader.getQueueOffset(), subscriptionData, messageFilter);
+            this.brokerController.getPullRequestHoldService().pausePullRequest(pullRequest);
+            log.debug("pause pull of {}, {} bytes pending", RemotingHelper.parseChannelRemoteAddr(channel),
+                WriteBufferMonitorHandler.getPendingWriteBytes(channel));
+            return null;
+        }
+
+        final QuotaManager quotaManager = this.brokerController.getQuotaManager();
+        if (!quotaManager.isAvailable(QuotaConfig.DIRECTION_PULL, requestHeader.getTopic(), requestHeader.getConsumerGroup())) {
+            response.setCode(ResponseCode.QUOTA_EXCEEDED);
+            response.setRemark(String.format("the pull quota of topic[%s] or consumer group[%s] is exceeded",
+                requestHeader.getTopic(), requestHeader.getConsumerGroup()));
+            return response;
+        }
+
         final GetMessageResult getMessageResult =
             this.brokerController.getMessageStore().getMessage(requestHeader.getConsumerGroup(), requestHeader.getTopic(),
                 requestHeader.getQueueId(), requestHeader.getQueueOffset(), requestHeader.getMaxMsgNums(), messageFilter);
         if (getMessageResult != null) {
+            quotaManager.acquire(QuotaConfig.DIRECTION_PULL, requestHeader.getTopic(), requestHeader.getConsumerGroup(),
+                getMessageResult.getMessageCount(), getMessageResult.getBufferTotalSize());
             response.setRemark(getMessageResult.getStatus().name());
             responseHeader.setNextBeginOffset(getMessageResult.getNextBeginOffset());
             responseHeader.setMinOffset(getMessageResult.getMinOffset());
             responseHeader.setMaxOffset(getMessageResult.getMaxOffset());
+            if (this.brokerController.getBrokerConfig().isRequestSchedulingEnable()) {
+                this.brokerController.getPullRequestClassifier().updateMaxOffset(requestHeader.getTopic(),
+                    requestHeader.getQueueId(), getMessageResult.getMaxOffset());
+            }
 
             if (getMessageResult.isSuggestPullingFromSlave()) {
                 responseHeader.setSuggestWhichBrokerId(subscriptionGroupConfig.getWhichBrokerWhenConsumeSlowly());
@@ -385,7 +415,8 @@ public class PullMessageProcessor implements NettyRequestProcessor {
                     } else {
                         try {
                             FileRegion fileRegion =
-                                new ManyMessageTransfer(response.encodeHeader(getMessageResult.getBufferTotalSize()), getMessageResult);
+                                new ManyMessageTransfer(response.encodeHeader(getMessageResult.getBufferTotalSize(),
+                                    RemotingHelper.serializeTypeOf(channel, response)), getMessageResult);
                             channel.writeAndFlush(fileRegion).addListener(new ChannelFutureListener() {
                                 @Override
                                 public void operationComplete(ChannelFuture future) throws Exception {
@@ -416,7 +447,8 @@ public class PullMessageProcessor implements NettyRequestProcessor {
                         int queueId = requestHeader.getQueueId();
                         PullRequest pullRequest = new PullRequest(request, channel, pollingTimeMills,
                             this.brokerController.getMessageStore().now(), offset, subscriptionData, messageFilter);
-                        this.brokerController.getPullRequestHoldService().suspendPullRequest(topic, queueId, pullRequest);
+                        this.brokerController.getPullRequestHoldService().suspendPullRequest(topic, queueId, pullRequest,
+                            getMessageResult.getMaxOffset());
                         response = null;
                         break;
                     }
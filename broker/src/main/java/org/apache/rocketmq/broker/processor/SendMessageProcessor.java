@@ -17,6 +17,7 @@
 package org.apache.rocketmq.broker.processor;
 
 import java.net.SocketAddress;
+import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.Map;
 
@@ -25,6 +26,7 @@ import org.apache.rocketmq.broker.BrokerController;
 import org.apache.rocketmq.broker.mqtrace.ConsumeMessageContext;
 import org.apache.rocketmq.broker.mqtrace.ConsumeMessageHook;
 import org.apache.rocketmq.broker.mqtrace.SendMessageContext;
+import org.apache.rocketmq.broker.quota.QuotaManager;
 import org.apache.rocketmq.common.MQVersion;
 import org.apache.rocketmq.common.MixAll;
 import org.apache.rocketmq.common.TopicConfig;
@@ -43,6 +45,7 @@ import org.apache.rocketmq.common.protocol.ResponseCode;
 import org.apache.rocketmq.common.protocol.header.ConsumerSendMsgBackRequestHeader;
 import org.apache.rocketmq.common.protocol.header.SendMessageRequestHeader;
 import org.apache.rocketmq.common.protocol.header.SendMessageResponseHeader;
+import org.apache.rocketmq.common.quota.QuotaConfig;
 import org.apache.rocketmq.common.subscription.SubscriptionGroupConfig;
 import org.apache.rocketmq.common.sysflag.MessageSysFlag;
 import org.apache.rocketmq.common.sysflag.TopicSysFlag;
@@ -323,7 +326,9 @@ public class SendMessageProcessor extends AbstractSendMessageProcessor implement
             return response;
         }
 
-        final byte[] body = request.getBody();
+        if (!this.acquireQuota(requestHeader, request, response)) {
+            return response;
+        }
 
         int queueIdInt = requestHeader.getQueueId();
         TopicConfig topicConfig = this.brokerController.getTopicConfigManager().selectTopicConfig(requestHeader.getTopic());
@@ -340,7 +345,12 @@ public class SendMessageProcessor extends AbstractSendMessageProcessor implement
             return response;
         }
 
-        msgInner.setBody(body);
+        if (request.getBodyBuffer() != null) {
+            // appended straight from the received frame, which is released once this request is processed
+            msgInner.setBodyBuffer(request.getBodyBuffer().nioBuffer());
+        } else {
+            msgInner.setBody(request.getBody());
+        }
         msgInner.setFlag(requestHeader.getFlag());
         MessageAccessor.setProperties(msgInner, MessageDecoder.string2messageProperties(requestHeader.getProperties()));
         msgInner.setPropertiesString(requestHeader.getProperties());
@@ -461,7 +471,7 @@ public class SendMessageProcessor extends AbstractSendMessageProcessor implement
             return null;
         } else {
             if (hasSendMessageHook()) {
-                int wroteSize = request.getBody().length;
+                int wroteSize = request.getBodyLength();
                 int incValue = (int)Math.ceil(wroteSize / BrokerStatsManager.SIZE_PER_COUNT);
 
                 sendMessageContext.setCommercialSendStats(BrokerStatsManager.StatsType.SEND_FAILURE);
@@ -473,6 +483,43 @@ public class SendMessageProcessor extends AbstractSendMessageProcessor implement
         return response;
     }
 
+    private boolean acquireQuota(final SendMessageRequestHeader requestHeader, final RemotingCommand request,
+                                 final RemotingCommand response) {
+        final QuotaManager quotaManager = this.brokerController.getQuotaManager();
+        if (!quotaManager.isAvailable(QuotaConfig.DIRECTION_SEND, requestHeader.getTopic(), requestHeader.getProducerGroup())) {
+            response.setCode(ResponseCode.QUOTA_EXCEEDED);
+            response.setRemark(String.format("the send quota of topic[%s] or producer group[%s] is exceeded",
+                requestHeader.getTopic(), requestHeader.getProducerGroup()));
+            return false;
+        }
+
+        final int msgNums = requestHeader.isBatch() ? countBatchMessages(request.getBody()) : 1;
+        quotaManager.acquire(QuotaConfig.DIRECTION_SEND, requestHeader.getTopic(), requestHeader.getProducerGroup(), msgNums,
+            request.getBodyLength());
+        return true;
+    }
+
+    /**
+     * Each message of a batch body starts with its total size.
+     */
+    static int countBatchMessages(final byte[] body) {
+        if (null == body) {
+            return 0;
+        }
+        ByteBuffer byteBuffer = ByteBuffer.wrap(body);
+        int count = 0;
+        int position = 0;
+        while (position + 4 <= body.length) {
+            int totalSize = byteBuffer.getInt(position);
+            if (totalSize <= 0) {
+                break;
+            }
+            count++;
+            position += totalSize;
+        }
+        return count;
+    }
+
     private RemotingCommand sendBatchMessage(final ChannelHandlerContext ctx,
                                              final RemotingCommand request,
                                              final SendMessageContext sendMessageContext,
@@ -501,6 +548,10 @@ public class SendMessageProcessor extends AbstractSendMessageProcessor implement
             return response;
         }
 
+        if (!this.acquireQuota(requestHeader, request, response)) {
+            return response;
+        }
+
         int queueIdInt = requestHeader.getQueueId();
         TopicConfig topicConfig = this.brokerController.getTopicConfigManager().selectTopicConfig(requestHeader.getTopic());
 
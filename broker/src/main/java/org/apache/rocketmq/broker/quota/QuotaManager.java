@@ -0,0 +1,177 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.broker.quota;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.apache.rocketmq.broker.BrokerController;
+import org.apache.rocketmq.broker.BrokerPathConfigHelper;
+import org.apache.rocketmq.common.ConfigManager;
+import org.apache.rocketmq.common.DataVersion;
+import org.apache.rocketmq.common.constant.LoggerName;
+import org.apache.rocketmq.common.quota.QuotaConfig;
+import org.apache.rocketmq.logging.InternalLogger;
+import org.apache.rocketmq.logging.InternalLoggerFactory;
+import org.apache.rocketmq.remoting.protocol.RemotingSerializable;
+
+/**
+ * Messages/s and bytes/s quotas of topics and producer/consumer groups, enforced by the send and pull processors. Each
+ * processor only checks the quotas of its own direction.
+ */
+public class QuotaManager extends ConfigManager {
+    private static final InternalLogger log = InternalLoggerFactory.getLogger(LoggerName.BROKER_LOGGER_NAME);
+
+    private final ConcurrentMap<String/* type@direction@resource */, QuotaConfig> quotaTable =
+        new ConcurrentHashMap<String, QuotaConfig>();
+    private final DataVersion dataVersion = new DataVersion();
+    private final transient ConcurrentMap<String, Limiter> limiterTable = new ConcurrentHashMap<String, Limiter>();
+    private transient BrokerController brokerController;
+
+    public QuotaManager() {
+    }
+
+    public QuotaManager(final BrokerController brokerController) {
+        this.brokerController = brokerController;
+    }
+
+    public void updateQuotaConfig(final QuotaConfig config) {
+        String key = QuotaConfig.buildKey(config.getType(), config.getDirection(), config.getResource());
+        QuotaConfig old = this.quotaTable.put(key, config);
+        this.limiterTable.put(key, new Limiter(config));
+        if (old != null) {
+            log.info("update quota config, old: {} new: {}", old, config);
+        } else {
+            log.info("create new quota, {}", config);
+        }
+        this.dataVersion.nextVersion();
+        this.persist();
+    }
+
+    public void deleteQuotaConfig(final String type, final String direction, final String resource) {
+        String key = QuotaConfig.buildKey(type, direction, resource);
+        QuotaConfig old = this.quotaTable.remove(key);
+        this.limiterTable.remove(key);
+        if (old != null) {
+            log.info("delete quota OK, quota: {}", old);
+            this.dataVersion.nextVersion();
+            this.persist();
+        } else {
+            log.warn("delete quota failed, quota {} not exist", key);
+        }
+    }
+
+    /**
+     * @param direction {@link QuotaConfig#DIRECTION_SEND} or {@link QuotaConfig#DIRECTION_PULL}
+     * @return false if the topic or the group has used up its quota of the direction
+     */
+    public boolean isAvailable(final String direction, final String topic, final String group) {
+        if (this.limiterTable.isEmpty()) {
+            return true;
+        }
+        Limiter topicLimiter = this.limiterTable.get(QuotaConfig.buildKey(QuotaConfig.TYPE_TOPIC, direction, topic));
+        if (topicLimiter != null && !topicLimiter.isAvailable()) {
+            return false;
+        }
+        Limiter groupLimiter = null == group ? null
+            : this.limiterTable.get(QuotaConfig.buildKey(QuotaConfig.TYPE_GROUP, direction, group));
+        return null == groupLimiter || groupLimiter.isAvailable();
+    }
+
+    public void acquire(final String direction, final String topic, final String group, final int msgNums,
+        final long bytes) {
+        if (this.limiterTable.isEmpty()) {
+            return;
+        }
+        Limiter topicLimiter = this.limiterTable.get(QuotaConfig.buildKey(QuotaConfig.TYPE_TOPIC, direction, topic));
+        if (topicLimiter != null) {
+            topicLimiter.acquire(msgNums, bytes);
+        }
+        Limiter groupLimiter = null == group ? null
+            : this.limiterTable.get(QuotaConfig.buildKey(QuotaConfig.TYPE_GROUP, direction, group));
+        if (groupLimiter != null) {
+            groupLimiter.acquire(msgNums, bytes);
+        }
+    }
+
+    @Override
+    public String encode() {
+        return this.encode(false);
+    }
+
+    @Override
+    public String configFilePath() {
+        return BrokerPathConfigHelper.getQuotaPath(this.brokerController.getMessageStoreConfig().getStorePathRootDir());
+    }
+
+    @Override
+    public void decode(String jsonString) {
+        if (jsonString != null) {
+            QuotaManager obj = RemotingSerializable.fromJson(jsonString, QuotaManager.class);
+            if (obj != null) {
+                for (QuotaConfig config : obj.quotaTable.values()) {
+                    // quotas saved without a direction are send quotas
+                    if (null == config.getDirection()) {
+                        config.setDirection(QuotaConfig.DIRECTION_SEND);
+                    }
+                    String key = QuotaConfig.buildKey(config.getType(), config.getDirection(), config.getResource());
+                    this.quotaTable.put(key, config);
+                    this.limiterTable.put(key, new Limiter(config));
+                    log.info("load exist quota, {}", config);
+                }
+                this.dataVersion.assignNewOne(obj.dataVersion);
+            }
+        }
+    }
+
+    @Override
+    public String encode(final boolean prettyFormat) {
+        return RemotingSerializable.toJson(this, prettyFormat);
+    }
+
+    public ConcurrentMap<String, QuotaConfig> getQuotaTable() {
+        return quotaTable;
+    }
+
+    public DataVersion getDataVersion() {
+        return dataVersion;
+    }
+
+    static class Limiter {
+        private final TokenBucket messageBucket;
+        private final TokenBucket byteBucket;
+
+        Limiter(final QuotaConfig config) {
+            this.messageBucket = config.getMessagesPerSecond() < 0 ? null : new TokenBucket(config.getMessagesPerSecond());
+            this.byteBucket = config.getBytesPerSecond() < 0 ? null : new TokenBucket(config.getBytesPerSecond());
+        }
+
+        boolean isAvailable() {
+            return (null == this.messageBucket || this.messageBucket.isAvailable())
+                && (null == this.byteBucket || this.byteBucket.isAvailable());
+        }
+
+        void acquire(final int msgNums, final long bytes) {
+            if (this.messageBucket != null) {
+                this.messageBucket.acquire(msgNums);
+            }
+            if (this.byteBucket != null) {
+                this.byteBucket.acquire(bytes);
+            }
+        }
+    }
+}
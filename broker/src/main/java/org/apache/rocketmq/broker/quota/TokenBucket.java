@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.broker.quota;
+
+/**
+ * Token bucket refilled at a fixed rate per second, holding at most one second worth of tokens.
+ * <p>
+ * Tokens may go negative: a request is admitted while any token is left and is charged afterwards, so requests larger
+ * than the bucket, or whose size is only known once served, still get through and the debt delays later ones.
+ */
+public class TokenBucket {
+    private final long ratePerSecond;
+    private double tokens;
+    private long lastRefillNanos;
+
+    public TokenBucket(final long ratePerSecond) {
+        this(ratePerSecond, System.nanoTime());
+    }
+
+    TokenBucket(final long ratePerSecond, final long nowNanos) {
+        this.ratePerSecond = ratePerSecond;
+        this.tokens = ratePerSecond;
+        this.lastRefillNanos = nowNanos;
+    }
+
+    public boolean isAvailable() {
+        return this.isAvailable(System.nanoTime());
+    }
+
+    synchronized boolean isAvailable(final long nowNanos) {
+        this.refill(nowNanos);
+        return this.tokens > 0;
+    }
+
+    public void acquire(final long permits) {
+        this.acquire(permits, System.nanoTime());
+    }
+
+    synchronized void acquire(final long permits, final long nowNanos) {
+        this.refill(nowNanos);
+        this.tokens -= permits;
+    }
+
+    public long getRatePerSecond() {
+        return ratePerSecond;
+    }
+
+    private void refill(final long nowNanos) {
+        long elapsed = nowNanos - this.lastRefillNanos;
+        if (elapsed <= 0) {
+            return;
+        }
+        this.tokens = Math.min(this.ratePerSecond, this.tokens + elapsed * this.ratePerSecond / 1e9);
+        this.lastRefillNanos = nowNanos;
+    }
+}
@@ -16,8 +16,11 @@
  */
 package org.apache.rocketmq.broker.topic;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
@@ -37,18 +40,27 @@ import org.apache.rocketmq.common.constant.PermName;
 import org.apache.rocketmq.logging.InternalLogger;
 import org.apache.rocketmq.logging.InternalLoggerFactory;
 import org.apache.rocketmq.common.protocol.body.KVTable;
+import org.apache.rocketmq.common.protocol.body.RegisterBrokerDeltaBody;
 import org.apache.rocketmq.common.protocol.body.TopicConfigSerializeWrapper;
 import org.apache.rocketmq.common.sysflag.TopicSysFlag;
 
 public class TopicConfigManager extends ConfigManager {
     private static final InternalLogger log = InternalLoggerFactory.getLogger(LoggerName.BROKER_LOGGER_NAME);
     private static final long LOCK_TIMEOUT_MILLIS = 3000;
+    private static final int MAX_REMOVED_TOPIC_CHANGES = 1024;
     private transient final Lock lockTopicConfigTable = new ReentrantLock();
 
     private final ConcurrentMap<String, TopicConfig> topicConfigTable =
         new ConcurrentHashMap<String, TopicConfig>(1024);
     private final DataVersion dataVersion = new DataVersion();
     private final Set<String> systemTopicList = new HashSet<String>();
+    /**
+     * The data version counter at which each topic was last changed, oldest first. Changes at or below
+     * untrackedCounter have been evicted, deltas from a base before it cannot be built.
+     */
+    private transient final LinkedHashMap<String/* topic */, Long> topicChangeTable = new LinkedHashMap<String, Long>();
+    private transient long untrackedCounter = 0;
+    private transient long lastChangeCounter = 0;
     private transient BrokerController brokerController;
 
     public TopicConfigManager() {
@@ -206,7 +218,7 @@ public class TopicConfigManager extends ConfigManager {
 
                         this.topicConfigTable.put(topic, topicConfig);
 
-                        this.dataVersion.nextVersion();
+                        this.nextVersion(topic);
 
                         createNew = true;
 
@@ -254,7 +266,7 @@ public class TopicConfigManager extends ConfigManager {
                     log.info("create new topic {}", topicConfig);
                     this.topicConfigTable.put(topic, topicConfig);
                     createNew = true;
-                    this.dataVersion.nextVersion();
+                    this.nextVersion(topic);
                     this.persist();
                 } finally {
                     this.lockTopicConfigTable.unlock();
@@ -294,7 +306,7 @@ public class TopicConfigManager extends ConfigManager {
                     log.info("create new topic {}", topicConfig);
                     this.topicConfigTable.put(MixAll.TRANS_CHECK_MAX_TIME_TOPIC, topicConfig);
                     createNew = true;
-                    this.dataVersion.nextVersion();
+                    this.nextVersion(MixAll.TRANS_CHECK_MAX_TIME_TOPIC);
                     this.persist();
                 } finally {
                     this.lockTopicConfigTable.unlock();
@@ -327,7 +339,7 @@ public class TopicConfigManager extends ConfigManager {
 
             this.topicConfigTable.put(topic, topicConfig);
 
-            this.dataVersion.nextVersion();
+            this.nextVersion(topic);
 
             this.persist();
             this.brokerController.registerBrokerAll(false, true, true);
@@ -347,7 +359,7 @@ public class TopicConfigManager extends ConfigManager {
 
             this.topicConfigTable.put(topic, topicConfig);
 
-            this.dataVersion.nextVersion();
+            this.nextVersion(topic);
 
             this.persist();
             this.brokerController.registerBrokerAll(false, true, true);
@@ -363,7 +375,7 @@ public class TopicConfigManager extends ConfigManager {
             log.info("create new topic [{}]", topicConfig);
         }
         //用版本号标记数据改变
-        this.dataVersion.nextVersion();
+        this.nextVersion(topicConfig.getTopicName());
         //持久化数据
         this.persist();
     }
@@ -371,13 +383,13 @@ public class TopicConfigManager extends ConfigManager {
     public void updateOrderTopicConfig(final KVTable orderKVTableFromNs) {
 
         if (orderKVTableFromNs != null && orderKVTableFromNs.getTable() != null) {
-            boolean isChange = false;
+            Set<String> changedTopics = new HashSet<String>();
             Set<String> orderTopics = orderKVTableFromNs.getTable().keySet();
             for (String topic : orderTopics) {
                 TopicConfig topicConfig = this.topicConfigTable.get(topic);
                 if (topicConfig != null && !topicConfig.isOrder()) {
                     topicConfig.setOrder(true);
-                    isChange = true;
+                    changedTopics.add(topic);
                     log.info("update order topic config, topic={}, order={}", topic, true);
                 }
             }
@@ -388,15 +400,15 @@ public class TopicConfigManager extends ConfigManager {
                     TopicConfig topicConfig = entry.getValue();
                     if (topicConfig.isOrder()) {
                         topicConfig.setOrder(false);
-                        isChange = true;
+                        changedTopics.add(topic);
                         log.info("update order topic config, topic={}, order={}", topic, false);
                     }
                 }
             }
 
-            if (isChange) {
+            if (!changedTopics.isEmpty()) {
                 //跟新版本号
-                this.dataVersion.nextVersion();
+                this.nextVersion(changedTopics);
                 //持久化数据
                 this.persist();
             }
@@ -418,7 +430,7 @@ public class TopicConfigManager extends ConfigManager {
         if (old != null) {
             log.info("delete topic config OK, topic: {}", old);
             //更新数据版本号
-            this.dataVersion.nextVersion();
+            this.nextVersion(topic);
             //持久化数据
             this.persist();
         } else {
@@ -426,6 +438,65 @@ public class TopicConfigManager extends ConfigManager {
         }
     }
 
+    /**
+     * @return the topic configs changed since baseDataVersion, null if the changes are not tracked that far back
+     */
+    public RegisterBrokerDeltaBody buildTopicConfigDelta(final DataVersion baseDataVersion) {
+        synchronized (this.topicChangeTable) {
+            long counter = this.dataVersion.getCounter().get();
+            if (counter != this.lastChangeCounter) {
+                // the data version moved without recording the topics, e.g. synchronized from the master
+                this.topicChangeTable.clear();
+                this.untrackedCounter = counter;
+                this.lastChangeCounter = counter;
+            }
+
+            long baseCounter = baseDataVersion.getCounter().get();
+            if (baseCounter < this.untrackedCounter || baseCounter > counter) {
+                return null;
+            }
+
+            RegisterBrokerDeltaBody deltaBody = new RegisterBrokerDeltaBody();
+            deltaBody.getBaseDataVersion().assignNewOne(baseDataVersion);
+            deltaBody.getDataVersion().assignNewOne(this.dataVersion);
+            for (Map.Entry<String, Long> entry : this.topicChangeTable.entrySet()) {
+                if (entry.getValue() <= baseCounter) {
+                    continue;
+                }
+                TopicConfig topicConfig = this.topicConfigTable.get(entry.getKey());
+                if (topicConfig != null) {
+                    deltaBody.getTopicConfigTable().put(entry.getKey(), topicConfig);
+                } else {
+                    deltaBody.getRemovedTopics().add(entry.getKey());
+                }
+            }
+            return deltaBody;
+        }
+    }
+
+    private void nextVersion(final String topic) {
+        this.nextVersion(Collections.singleton(topic));
+    }
+
+    private void nextVersion(final Collection<String> topics) {
+        synchronized (this.topicChangeTable) {
+            this.dataVersion.nextVersion();
+            long counter = this.dataVersion.getCounter().get();
+            for (String topic : topics) {
+                this.topicChangeTable.remove(topic);
+                this.topicChangeTable.put(topic, counter);
+            }
+            this.lastChangeCounter = counter;
+
+            // keep the removed topics of at most MAX_REMOVED_TOPIC_CHANGES changes
+            Iterator<Map.Entry<String, Long>> it = this.topicChangeTable.entrySet().iterator();
+            while (this.topicChangeTable.size() > this.topicConfigTable.size() + MAX_REMOVED_TOPIC_CHANGES && it.hasNext()) {
+                this.untrackedCounter = Math.max(this.untrackedCounter, it.next().getValue());
+                it.remove();
+            }
+        }
+    }
+
     public TopicConfigSerializeWrapper buildTopicConfigSerializeWrapper() {
         TopicConfigSerializeWrapper topicConfigSerializeWrapper = new TopicConfigSerializeWrapper();
         topicConfigSerializeWrapper.setTopicConfigTable(this.topicConfigTable);
@@ -452,6 +523,11 @@ public class TopicConfigManager extends ConfigManager {
             if (topicConfigSerializeWrapper != null) {
                 this.topicConfigTable.putAll(topicConfigSerializeWrapper.getTopicConfigTable());
                 this.dataVersion.assignNewOne(topicConfigSerializeWrapper.getDataVersion());
+                synchronized (this.topicChangeTable) {
+                    this.topicChangeTable.clear();
+                    this.untrackedCounter = this.dataVersion.getCounter().get();
+                    this.lastChangeCounter = this.untrackedCounter;
+                }
                 this.printLoadDataWhenFirstBoot(topicConfigSerializeWrapper);
             }
         }
@@ -17,6 +17,10 @@
 package org.apache.rocketmq.broker.transaction;
 
 import io.netty.channel.Channel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Random;
 import org.apache.rocketmq.broker.BrokerController;
 import org.apache.rocketmq.common.constant.LoggerName;
@@ -50,6 +54,9 @@ public abstract class AbstractTransactionalMessageCheckListener {
         }
     });
 
+    private final HashMap<String/* producer group */, List<MessageExt>> pendingCheckTable =
+        new HashMap<String, List<MessageExt>>();
+
     public AbstractTransactionalMessageCheckListener() {
     }
 
@@ -64,9 +71,7 @@ public abstract class AbstractTransactionalMessageCheckListener {
         checkTransactionStateRequestHeader.setMsgId(msgExt.getUserProperty(MessageConst.PROPERTY_UNIQ_CLIENT_MESSAGE_ID_KEYIDX));
         checkTransactionStateRequestHeader.setTransactionId(checkTransactionStateRequestHeader.getMsgId());
         checkTransactionStateRequestHeader.setTranStateTableOffset(msgExt.getQueueOffset());
-        msgExt.setTopic(msgExt.getUserProperty(MessageConst.PROPERTY_REAL_TOPIC));
-        msgExt.setQueueId(Integer.parseInt(msgExt.getUserProperty(MessageConst.PROPERTY_REAL_QUEUE_ID)));
-        msgExt.setStoreSize(0);
+        restoreRealTopic(msgExt);
         String groupId = msgExt.getProperty(MessageConst.PROPERTY_PRODUCER_GROUP);
         Channel channel = brokerController.getProducerManager().getAvaliableChannel(groupId);
         if (channel != null) {
@@ -76,7 +81,49 @@ public abstract class AbstractTransactionalMessageCheckListener {
         }
     }
 
+    /**
+     * Check the given half messages of one producer group with a single request if the picked producer supports it,
+     * otherwise one by one.
+     */
+    public void sendCheckMessages(String groupId, List<MessageExt> msgExtList) throws Exception {
+        Channel channel = brokerController.getProducerManager().getAvaliableChannel(groupId);
+        if (channel == null) {
+            LOGGER.warn("Check transaction failed, channel is null. groupId={}", groupId);
+            return;
+        }
+        if (!brokerController.getProducerManager().isTransactionCheckBatchSupported(groupId, channel)) {
+            for (MessageExt msgExt : msgExtList) {
+                sendCheckMessage(msgExt);
+            }
+            return;
+        }
+        for (MessageExt msgExt : msgExtList) {
+            restoreRealTopic(msgExt);
+        }
+        brokerController.getBroker2Client().checkProducerTransactionStateBatch(groupId, channel, msgExtList);
+    }
+
     public void resolveHalfMsg(final MessageExt msgExt) {
+        if (isCheckBatchEnable()) {
+            String groupId = msgExt.getProperty(MessageConst.PROPERTY_PRODUCER_GROUP);
+            List<MessageExt> batch = null;
+            synchronized (this.pendingCheckTable) {
+                List<MessageExt> pending = this.pendingCheckTable.get(groupId);
+                if (null == pending) {
+                    pending = new ArrayList<MessageExt>();
+                    this.pendingCheckTable.put(groupId, pending);
+                }
+                pending.add(msgExt);
+                if (pending.size() >= brokerController.getBrokerConfig().getTransactionCheckBatchSize()) {
+                    batch = this.pendingCheckTable.remove(groupId);
+                }
+            }
+            if (batch != null) {
+                resolveHalfMsgBatch(groupId, batch);
+            }
+            return;
+        }
+
         executorService.execute(new Runnable() {
             @Override
             public void run() {
@@ -89,6 +136,46 @@ public abstract class AbstractTransactionalMessageCheckListener {
         });
     }
 
+    /**
+     * Send the half messages buffered by {@link #resolveHalfMsg(MessageExt)}, called at the end of every check round.
+     */
+    public void flushCheckMessages() {
+        Map<String, List<MessageExt>> batches;
+        synchronized (this.pendingCheckTable) {
+            if (this.pendingCheckTable.isEmpty()) {
+                return;
+            }
+            batches = new HashMap<String, List<MessageExt>>(this.pendingCheckTable);
+            this.pendingCheckTable.clear();
+        }
+        for (Map.Entry<String, List<MessageExt>> entry : batches.entrySet()) {
+            resolveHalfMsgBatch(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private void resolveHalfMsgBatch(final String groupId, final List<MessageExt> msgExtList) {
+        executorService.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    sendCheckMessages(groupId, msgExtList);
+                } catch (Exception e) {
+                    LOGGER.error("Send check messages error!", e);
+                }
+            }
+        });
+    }
+
+    private boolean isCheckBatchEnable() {
+        return brokerController != null && brokerController.getBrokerConfig().isTransactionCheckBatchEnable();
+    }
+
+    private static void restoreRealTopic(MessageExt msgExt) {
+        msgExt.setTopic(msgExt.getUserProperty(MessageConst.PROPERTY_REAL_TOPIC));
+        msgExt.setQueueId(Integer.parseInt(msgExt.getUserProperty(MessageConst.PROPERTY_REAL_QUEUE_ID)));
+        msgExt.setStoreSize(0);
+    }
+
     public BrokerController getBrokerController() {
         return brokerController;
     }
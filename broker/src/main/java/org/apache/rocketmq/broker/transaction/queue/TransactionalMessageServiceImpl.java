@@ -16,6 +16,8 @@
  */
 package org.apache.rocketmq.broker.transaction.queue;
 
+import org.apache.rocketmq.broker.BrokerController;
+import org.apache.rocketmq.broker.BrokerPathConfigHelper;
 import org.apache.rocketmq.broker.transaction.AbstractTransactionalMessageCheckListener;
 import org.apache.rocketmq.broker.transaction.OperationResult;
 import org.apache.rocketmq.broker.transaction.TransactionalMessageService;
@@ -39,6 +41,7 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -53,6 +56,12 @@ public class TransactionalMessageServiceImpl implements TransactionalMessageServ
 
     private static final int MAX_RETRY_COUNT_WHEN_HALF_NULL = 1;
 
+    private static final int OP_INDEX_PULL_BATCH_SIZE = 32;
+
+    private final TransactionalOpIndex opIndex = new TransactionalOpIndex();
+
+    private volatile boolean opIndexEnable = false;
+
     public TransactionalMessageServiceImpl(TransactionalMessageBridge transactionBridge) {
         this.transactionalMessageBridge = transactionBridge;
     }
@@ -128,6 +137,8 @@ public class TransactionalMessageServiceImpl implements TransactionalMessageServ
                 return;
             }
             log.debug("Check topic={}, queues={}", topic, msgQueues);
+            // Op consume offsets moved by the op index, updated once the index is persisted
+            HashMap<MessageQueue, Long> opIndexOffsetTable = new HashMap<>();
             for (MessageQueue messageQueue : msgQueues) {
                 long startTime = System.currentTimeMillis();
                 MessageQueue opQueue = getOpQueue(messageQueue);
@@ -139,14 +150,26 @@ public class TransactionalMessageServiceImpl implements TransactionalMessageServ
                         halfOffset, opOffset);
                     continue;
                 }
+                if (opIndexEnable && halfOffset < opIndex.getTruncatedOffset(messageQueue.getQueueId())) {
+                    // The half messages below the truncated offset were done before the index was persisted
+                    log.warn("The queue={} msgOffset={} is below the op index truncated offset {}, skip to it",
+                        messageQueue, halfOffset, opIndex.getTruncatedOffset(messageQueue.getQueueId()));
+                    halfOffset = opIndex.getTruncatedOffset(messageQueue.getQueueId());
+                    transactionalMessageBridge.updateConsumeOffset(messageQueue, halfOffset);
+                }
 
                 List<Long> doneOpOffset = new ArrayList<>();
                 HashMap<Long, Long> removeMap = new HashMap<>();
-                PullResult pullResult = fillOpRemoveMap(removeMap, opQueue, opOffset, halfOffset, doneOpOffset);
-                if (null == pullResult) {
-                    log.error("The queue={} check msgOffset={} with opOffset={} failed, pullResult is null",
-                        messageQueue, halfOffset, opOffset);
-                    continue;
+                // The op index holds every op message written before this round, so the op queue is not rescanned
+                boolean useOpIndex = opIndexEnable && catchUpOpIndex(opQueue, opOffset, halfOffset, startTime);
+                PullResult pullResult = null;
+                if (!useOpIndex) {
+                    pullResult = fillOpRemoveMap(removeMap, opQueue, opOffset, halfOffset, doneOpOffset);
+                    if (null == pullResult) {
+                        log.error("The queue={} check msgOffset={} with opOffset={} failed, pullResult is null",
+                            messageQueue, halfOffset, opOffset);
+                        continue;
+                    }
                 }
                 // single thread
                 int getMessageNullCount = 1;
@@ -157,8 +180,8 @@ public class TransactionalMessageServiceImpl implements TransactionalMessageServ
                         log.info("Queue={} process time reach max={}", messageQueue, MAX_PROCESS_TIME_LIMIT);
                         break;
                     }
-                    if (removeMap.containsKey(i)) {
-                        log.info("Half offset {} has been committed/rolled back", i);
+                    if (useOpIndex ? opIndex.isResolved(messageQueue.getQueueId(), i) : removeMap.containsKey(i)) {
+                        log.debug("Half offset {} has been committed/rolled back", i);
                         removeMap.remove(i);
                     } else {
                         GetResult getResult = getHalfMsg(messageQueue, i);
@@ -198,7 +221,7 @@ public class TransactionalMessageServiceImpl implements TransactionalMessageServ
                         if (null != checkImmunityTimeStr) {
                             checkImmunityTime = getImmunityTime(checkImmunityTimeStr, transactionTimeout);
                             if (valueOfCurrentMinusBorn < checkImmunityTime) {
-                                if (checkPrepareQueueOffset(removeMap, doneOpOffset, msgExt)) {
+                                if (checkPrepareQueueOffset(removeMap, doneOpOffset, msgExt, useOpIndex)) {
                                     newOffset = i + 1;
                                     i++;
                                     continue;
@@ -211,16 +234,24 @@ public class TransactionalMessageServiceImpl implements TransactionalMessageServ
                                 break;
                             }
                         }
-                        List<MessageExt> opMsg = pullResult.getMsgFoundList();
-                        boolean isNeedCheck = (opMsg == null && valueOfCurrentMinusBorn > checkImmunityTime)
-                            || (opMsg != null && (opMsg.get(opMsg.size() - 1).getBornTimestamp() - startTime > transactionTimeout))
-                            || (valueOfCurrentMinusBorn <= -1);
+                        boolean isNeedCheck;
+                        if (useOpIndex) {
+                            isNeedCheck = valueOfCurrentMinusBorn > checkImmunityTime || valueOfCurrentMinusBorn <= -1;
+                        } else {
+                            List<MessageExt> opMsg = pullResult.getMsgFoundList();
+                            isNeedCheck = (opMsg == null && valueOfCurrentMinusBorn > checkImmunityTime)
+                                || (opMsg != null && (opMsg.get(opMsg.size() - 1).getBornTimestamp() - startTime > transactionTimeout))
+                                || (valueOfCurrentMinusBorn <= -1);
+                        }
 
                         if (isNeedCheck) {
                             if (!putBackHalfMsgQueue(msgExt, i)) {
                                 continue;
                             }
                             listener.resolveHalfMsg(msgExt);
+                        } else if (useOpIndex) {
+                            log.debug("The miss offset:{} in messageQueue:{} is not resolved yet, check it later", i, messageQueue);
+                            break;
                         } else {
                             pullResult = fillOpRemoveMap(removeMap, opQueue, pullResult.getNextBeginOffset(), halfOffset, doneOpOffset);
                             log.info("The miss offset:{} in messageQueue:{} need to get more opMsg, result is:{}", i,
@@ -234,18 +265,86 @@ public class TransactionalMessageServiceImpl implements TransactionalMessageServ
                 if (newOffset != halfOffset) {
                     transactionalMessageBridge.updateConsumeOffset(messageQueue, newOffset);
                 }
-                long newOpOffset = calculateOpOffset(doneOpOffset, opOffset);
-                if (newOpOffset != opOffset) {
-                    transactionalMessageBridge.updateConsumeOffset(opQueue, newOpOffset);
+                if (useOpIndex) {
+                    opIndex.truncate(messageQueue.getQueueId(), newOffset);
+                    // The applied op messages are kept by the index, the op queue is not read from them again
+                    long newOpOffset = opIndex.getOpOffset(messageQueue.getQueueId());
+                    if (newOpOffset != opOffset) {
+                        opIndexOffsetTable.put(opQueue, newOpOffset);
+                    }
+                } else {
+                    long newOpOffset = calculateOpOffset(doneOpOffset, opOffset);
+                    if (newOpOffset != opOffset) {
+                        transactionalMessageBridge.updateConsumeOffset(opQueue, newOpOffset);
+                    }
+                }
+            }
+            // The persisted op consume offsets must not pass the persisted index, or the op messages between are lost
+            if (opIndexEnable && opIndex.persist()) {
+                for (Map.Entry<MessageQueue, Long> entry : opIndexOffsetTable.entrySet()) {
+                    transactionalMessageBridge.updateConsumeOffset(entry.getKey(), entry.getValue());
                 }
             }
         } catch (Exception e) {
             e.printStackTrace();
             log.error("Check error", e);
+        } finally {
+            listener.flushCheckMessages();
         }
 
     }
 
+    /**
+     * Apply the op messages written since the last round to the op index.
+     *
+     * @param opQueue Op message queue.
+     * @param opOffset The consume offset of the op message queue.
+     * @param miniOffset The current minimum offset of half message queue.
+     * @param startTime Begin time of this round.
+     * @return True if all op messages have been applied, so the index can be used instead of the op queue.
+     */
+    private boolean catchUpOpIndex(MessageQueue opQueue, long opOffset, long miniOffset, long startTime) {
+        int queueId = opQueue.getQueueId();
+        long offset = Math.max(opIndex.getOpOffset(queueId), opOffset);
+        boolean complete = true;
+        while (true) {
+            if (System.currentTimeMillis() - startTime > MAX_PROCESS_TIME_LIMIT) {
+                log.info("Op queue={} catch up time reach max={}, offset={}", opQueue, MAX_PROCESS_TIME_LIMIT, offset);
+                complete = false;
+                break;
+            }
+            PullResult pullResult = pullOpMsg(opQueue, offset, OP_INDEX_PULL_BATCH_SIZE);
+            if (null == pullResult) {
+                complete = false;
+                break;
+            }
+            if (pullResult.getPullStatus() == PullStatus.NO_NEW_MSG) {
+                break;
+            }
+            List<MessageExt> opMsg = pullResult.getMsgFoundList();
+            if (pullResult.getPullStatus() == PullStatus.FOUND && opMsg != null) {
+                for (MessageExt opMessageExt : opMsg) {
+                    if (TransactionalMessageUtil.REMOVETAG.equals(opMessageExt.getTags())) {
+                        long queueOffset = getLong(new String(opMessageExt.getBody(), TransactionalMessageUtil.charset));
+                        if (queueOffset >= miniOffset) {
+                            opIndex.markResolved(queueId, queueOffset);
+                        }
+                    } else {
+                        log.error("Found a illegal tag in opMessageExt= {} ", opMessageExt);
+                    }
+                }
+            }
+            if (pullResult.getNextBeginOffset() <= offset) {
+                break;
+            }
+            offset = pullResult.getNextBeginOffset();
+        }
+        opIndex.setOpOffset(queueId, offset);
+        // Op messages pointing below miniOffset are not applied
+        opIndex.setTruncatedOffset(queueId, Math.max(opIndex.getTruncatedOffset(queueId), miniOffset));
+        return complete;
+    }
+
     private long getImmunityTime(String checkImmunityTimeStr, long transactionTimeout) {
         long checkImmunityTime;
 
@@ -315,10 +414,11 @@ public class TransactionalMessageServiceImpl implements TransactionalMessageServ
      * @param removeMap Op message map to determine whether a half message was responded by producer.
      * @param doneOpOffset Op Message which has been checked.
      * @param msgExt Half message
+     * @param useOpIndex Whether to look up the op index instead of removeMap.
      * @return Return true if put success, otherwise return false.
      */
     private boolean checkPrepareQueueOffset(HashMap<Long, Long> removeMap, List<Long> doneOpOffset,
-        MessageExt msgExt) {
+        MessageExt msgExt, boolean useOpIndex) {
         String prepareQueueOffsetStr = msgExt.getUserProperty(MessageConst.PROPERTY_TRANSACTION_PREPARED_QUEUE_OFFSET);
         if (null == prepareQueueOffsetStr) {
             return putImmunityMsgBackToHalfQueue(msgExt);
@@ -326,6 +426,8 @@ public class TransactionalMessageServiceImpl implements TransactionalMessageServ
             long prepareQueueOffset = getLong(prepareQueueOffsetStr);
             if (-1 == prepareQueueOffset) {
                 return false;
+            } else if (useOpIndex) {
+                return opIndex.isResolved(msgExt.getQueueId(), prepareQueueOffset) || putImmunityMsgBackToHalfQueue(msgExt);
             } else {
                 if (removeMap.containsKey(prepareQueueOffset)) {
                     long tmpOpOffset = removeMap.remove(prepareQueueOffset);
@@ -480,12 +582,19 @@ public class TransactionalMessageServiceImpl implements TransactionalMessageServ
 
     @Override
     public boolean open() {
+        BrokerController brokerController = transactionalMessageBridge.getBrokerController();
+        if (brokerController != null && brokerController.getBrokerConfig().isTransactionOpIndexEnable()) {
+            String rootDir = brokerController.getMessageStoreConfig().getStorePathRootDir();
+            opIndexEnable = opIndex.load(BrokerPathConfigHelper.getTransactionOpIndexPath(rootDir));
+        }
         return true;
     }
 
     @Override
     public void close() {
-
+        if (opIndexEnable) {
+            opIndex.persist();
+        }
     }
 
 }
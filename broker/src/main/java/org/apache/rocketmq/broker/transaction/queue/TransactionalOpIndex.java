@@ -0,0 +1,283 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.broker.transaction.queue;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import org.apache.rocketmq.common.constant.LoggerName;
+import org.apache.rocketmq.logging.InternalLogger;
+import org.apache.rocketmq.logging.InternalLoggerFactory;
+
+/**
+ * Persistent index of the half offsets which have been committed or rolled back, one bitmap per half queue.
+ * <p>
+ * The op queue is read only once, incrementally: {@link #getOpOffset(int)} is the op queue offset up to which all op
+ * messages have been applied. Bitmaps are split into segments of {@link #SEGMENT_SIZE} half offsets, segments below
+ * the half consume offset are dropped by {@link #truncate(int, long)}.
+ * <p>
+ * {@link #getTruncatedOffset(int)} is the half offset from which the index is complete, all the half messages below it
+ * have been done. The half consume offset can fall below it after a crash, as consume offsets are persisted apart
+ * from the index.
+ */
+public class TransactionalOpIndex {
+    private static final InternalLogger log = InternalLoggerFactory.getLogger(LoggerName.TRANSACTION_LOGGER_NAME);
+
+    private static final int MAGIC_CODE = 0x54584f49;
+    private static final int VERSION = 2;
+
+    static final int SEGMENT_SIZE = 1 << 16;
+    private static final int WORDS_PER_SEGMENT = SEGMENT_SIZE / 64;
+
+    private final HashMap<Integer/* queueId */, QueueIndex> queueIndexTable = new HashMap<Integer, QueueIndex>();
+    private String fileName;
+    private boolean dirty = false;
+
+    public synchronized boolean load(final String fileName) {
+        this.fileName = fileName;
+        File file = new File(fileName);
+        if (!file.exists()) {
+            log.info("Transaction op index file {} not exist, the index will be built from the op queue", fileName);
+            return true;
+        }
+
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            if (in.readInt() != MAGIC_CODE || in.readInt() != VERSION) {
+                log.warn("Transaction op index file {} is not recognized, ignore it", fileName);
+                return true;
+            }
+            HashMap<Integer, QueueIndex> table = new HashMap<Integer, QueueIndex>();
+            int queueNum = in.readInt();
+            for (int i = 0; i < queueNum; i++) {
+                int queueId = in.readInt();
+                QueueIndex queueIndex = new QueueIndex();
+                queueIndex.opOffset = in.readLong();
+                queueIndex.maxHalfOffset = in.readLong();
+                queueIndex.truncatedOffset = in.readLong();
+                int segmentNum = in.readInt();
+                for (int j = 0; j < segmentNum; j++) {
+                    long segment = in.readLong();
+                    long[] words = new long[WORDS_PER_SEGMENT];
+                    for (int k = 0; k < WORDS_PER_SEGMENT; k++) {
+                        words[k] = in.readLong();
+                    }
+                    queueIndex.segments.put(segment, words);
+                }
+                table.put(queueId, queueIndex);
+            }
+            this.queueIndexTable.clear();
+            this.queueIndexTable.putAll(table);
+            log.info("Load transaction op index file {} OK, queues {}", fileName, queueNum);
+        } catch (IOException e) {
+            log.warn("Load transaction op index file " + fileName + " failed, the index will be built from the op queue", e);
+            this.queueIndexTable.clear();
+        } finally {
+            closeQuietly(in);
+        }
+        return true;
+    }
+
+    /**
+     * @return true if the file holds the current index
+     */
+    public synchronized boolean persist() {
+        if (null == this.fileName) {
+            return false;
+        }
+        if (!this.dirty) {
+            return true;
+        }
+
+        File file = new File(this.fileName);
+        File tmpFile = new File(this.fileName + ".tmp");
+        File parent = file.getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        DataOutputStream out = null;
+        try {
+            FileOutputStream fileOutputStream = new FileOutputStream(tmpFile);
+            out = new DataOutputStream(new BufferedOutputStream(fileOutputStream));
+            out.writeInt(MAGIC_CODE);
+            out.writeInt(VERSION);
+            out.writeInt(this.queueIndexTable.size());
+            for (Map.Entry<Integer, QueueIndex> entry : this.queueIndexTable.entrySet()) {
+                QueueIndex queueIndex = entry.getValue();
+                out.writeInt(entry.getKey());
+                out.writeLong(queueIndex.opOffset);
+                out.writeLong(queueIndex.maxHalfOffset);
+                out.writeLong(queueIndex.truncatedOffset);
+                out.writeInt(queueIndex.segments.size());
+                for (Map.Entry<Long, long[]> segment : queueIndex.segments.entrySet()) {
+                    out.writeLong(segment.getKey());
+                    for (long word : segment.getValue()) {
+                        out.writeLong(word);
+                    }
+                }
+            }
+            out.flush();
+            fileOutputStream.getFD().sync();
+            out.close();
+            out = null;
+
+            // the previous index stays in place until the new one replaces it
+            Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            this.dirty = false;
+            return true;
+        } catch (IOException e) {
+            log.error("Persist transaction op index file " + this.fileName + " failed", e);
+            return false;
+        } finally {
+            closeQuietly(out);
+        }
+    }
+
+    /**
+     * @return the op queue offset from which op messages have not been applied yet, -1 if the queue is unknown
+     */
+    public synchronized long getOpOffset(final int queueId) {
+        QueueIndex queueIndex = this.queueIndexTable.get(queueId);
+        return queueIndex == null ? -1 : queueIndex.opOffset;
+    }
+
+    public synchronized void setOpOffset(final int queueId, final long opOffset) {
+        QueueIndex queueIndex = getOrCreate(queueId);
+        if (queueIndex.opOffset != opOffset) {
+            queueIndex.opOffset = opOffset;
+            this.dirty = true;
+        }
+    }
+
+    /**
+     * @return the max half offset marked as resolved, -1 if none
+     */
+    public synchronized long getMaxHalfOffset(final int queueId) {
+        QueueIndex queueIndex = this.queueIndexTable.get(queueId);
+        return queueIndex == null ? -1 : queueIndex.maxHalfOffset;
+    }
+
+    /**
+     * @return the half offset from which all resolved half offsets are in the index, -1 if the queue is unknown
+     */
+    public synchronized long getTruncatedOffset(final int queueId) {
+        QueueIndex queueIndex = this.queueIndexTable.get(queueId);
+        return queueIndex == null ? -1 : queueIndex.truncatedOffset;
+    }
+
+    public synchronized void setTruncatedOffset(final int queueId, final long truncatedOffset) {
+        QueueIndex queueIndex = getOrCreate(queueId);
+        if (queueIndex.truncatedOffset != truncatedOffset) {
+            queueIndex.truncatedOffset = truncatedOffset;
+            this.dirty = true;
+        }
+    }
+
+    public synchronized void markResolved(final int queueId, final long halfOffset) {
+        if (halfOffset < 0) {
+            return;
+        }
+        QueueIndex queueIndex = getOrCreate(queueId);
+        long segment = halfOffset / SEGMENT_SIZE;
+        long[] words = queueIndex.segments.get(segment);
+        if (null == words) {
+            words = new long[WORDS_PER_SEGMENT];
+            queueIndex.segments.put(segment, words);
+        }
+        int bit = (int) (halfOffset % SEGMENT_SIZE);
+        words[bit >>> 6] |= 1L << (bit & 63);
+        if (halfOffset > queueIndex.maxHalfOffset) {
+            queueIndex.maxHalfOffset = halfOffset;
+        }
+        this.dirty = true;
+    }
+
+    public synchronized boolean isResolved(final int queueId, final long halfOffset) {
+        QueueIndex queueIndex = this.queueIndexTable.get(queueId);
+        if (null == queueIndex || halfOffset < 0) {
+            return false;
+        }
+        long[] words = queueIndex.segments.get(halfOffset / SEGMENT_SIZE);
+        if (null == words) {
+            return false;
+        }
+        int bit = (int) (halfOffset % SEGMENT_SIZE);
+        return (words[bit >>> 6] & (1L << (bit & 63))) != 0;
+    }
+
+    /**
+     * Drop the segments which only contain half offsets below minHalfOffset.
+     */
+    public synchronized void truncate(final int queueId, final long minHalfOffset) {
+        QueueIndex queueIndex = this.queueIndexTable.get(queueId);
+        if (null == queueIndex) {
+            return;
+        }
+        long minSegment = minHalfOffset / SEGMENT_SIZE;
+        Iterator<Long> it = queueIndex.segments.keySet().iterator();
+        while (it.hasNext()) {
+            if (it.next() >= minSegment) {
+                break;
+            }
+            it.remove();
+            this.dirty = true;
+        }
+        long truncatedOffset = minSegment * SEGMENT_SIZE;
+        if (truncatedOffset > queueIndex.truncatedOffset) {
+            queueIndex.truncatedOffset = truncatedOffset;
+            this.dirty = true;
+        }
+    }
+
+    private QueueIndex getOrCreate(final int queueId) {
+        QueueIndex queueIndex = this.queueIndexTable.get(queueId);
+        if (null == queueIndex) {
+            queueIndex = new QueueIndex();
+            this.queueIndexTable.put(queueId, queueIndex);
+        }
+        return queueIndex;
+    }
+
+    private static void closeQuietly(final Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    static class QueueIndex {
+        private long opOffset = -1;
+        private long maxHalfOffset = -1;
+        private long truncatedOffset = -1;
+        private final TreeMap<Long/* segment */, long[]> segments = new TreeMap<Long, long[]>();
+    }
+}
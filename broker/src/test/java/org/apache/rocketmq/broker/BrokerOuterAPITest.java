@@ -25,9 +25,13 @@ import java.lang.reflect.Field;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 import org.apache.rocketmq.broker.out.BrokerOuterAPI;
+import org.apache.rocketmq.broker.out.TopicConfigDeltaBuilder;
 import org.apache.rocketmq.common.BrokerConfig;
+import org.apache.rocketmq.common.DataVersion;
 import org.apache.rocketmq.common.namesrv.RegisterBrokerResult;
+import org.apache.rocketmq.common.protocol.RequestCode;
 import org.apache.rocketmq.common.protocol.ResponseCode;
+import org.apache.rocketmq.common.protocol.body.RegisterBrokerDeltaBody;
 import org.apache.rocketmq.common.protocol.body.TopicConfigSerializeWrapper;
 import org.apache.rocketmq.common.protocol.header.namesrv.QueryDataVersionResponseHeader;
 import org.apache.rocketmq.common.protocol.header.namesrv.RegisterBrokerResponseHeader;
@@ -39,6 +43,7 @@ import org.apache.rocketmq.store.MessageStore;
 import org.apache.rocketmq.store.config.MessageStoreConfig;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentMatcher;
 import org.mockito.Mock;
 import org.mockito.Spy;
 import org.mockito.invocation.InvocationOnMock;
@@ -50,6 +55,10 @@ import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -182,6 +191,62 @@ public class BrokerOuterAPITest {
         assertEquals(2, registerBrokerResultList.size());
     }
 
+    @Test
+    public void test_register_delta() throws Exception {
+        init();
+        brokerOuterAPI.start();
+
+        final RemotingCommand response = RemotingCommand.createResponseCommand(RegisterBrokerResponseHeader.class);
+        response.setCode(ResponseCode.SUCCESS);
+        response.setRemark(null);
+        final RemotingCommand notMatchResponse = RemotingCommand.createResponseCommand(RegisterBrokerResponseHeader.class);
+        notMatchResponse.setCode(ResponseCode.DATA_VERSION_NOT_MATCH);
+
+        TopicConfigSerializeWrapper topicConfigSerializeWrapper = new TopicConfigSerializeWrapper();
+        TopicConfigDeltaBuilder topicConfigDeltaBuilder = new TopicConfigDeltaBuilder() {
+            @Override
+            public RegisterBrokerDeltaBody build(DataVersion baseDataVersion) {
+                RegisterBrokerDeltaBody deltaBody = new RegisterBrokerDeltaBody();
+                deltaBody.getBaseDataVersion().assignNewOne(baseDataVersion);
+                return deltaBody;
+            }
+        };
+
+        when(nettyRemotingClient.getNameServerAddressList()).thenReturn(Lists.asList(nameserver1, nameserver2, new String[] {}));
+        when(nettyRemotingClient.invokeSync(anyString(), any(RemotingCommand.class), anyLong())).thenAnswer(new Answer<RemotingCommand>() {
+            @Override
+            public RemotingCommand answer(InvocationOnMock invocation) throws Throwable {
+                RemotingCommand request = invocation.getArgument(1);
+                if (request.getCode() == RequestCode.REGISTER_BROKER_DELTA && invocation.getArgument(0) == nameserver2) {
+                    return notMatchResponse;
+                }
+                return response;
+            }
+        });
+
+        // the registered data versions are unknown at first
+        brokerOuterAPI.registerBrokerAll(clusterName, brokerAddr, brokerName, brokerId, "hasServerAddr", topicConfigSerializeWrapper,
+            Lists.<String>newArrayList(), false, timeOut, false, topicConfigDeltaBuilder);
+        verify(nettyRemotingClient, times(2)).invokeSync(anyString(), argThat(requestCode(RequestCode.REGISTER_BROKER)), anyLong());
+
+        List<RegisterBrokerResult> registerBrokerResultList = brokerOuterAPI.registerBrokerAll(clusterName, brokerAddr, brokerName,
+            brokerId, "hasServerAddr", topicConfigSerializeWrapper, Lists.<String>newArrayList(), false, timeOut, false, topicConfigDeltaBuilder);
+        assertEquals(2, registerBrokerResultList.size());
+        verify(nettyRemotingClient).invokeSync(eq(nameserver1), argThat(requestCode(RequestCode.REGISTER_BROKER_DELTA)), anyLong());
+        verify(nettyRemotingClient).invokeSync(eq(nameserver2), argThat(requestCode(RequestCode.REGISTER_BROKER_DELTA)), anyLong());
+        // nameserver2 rejects the delta and receives the full table again
+        verify(nettyRemotingClient, times(3)).invokeSync(anyString(), argThat(requestCode(RequestCode.REGISTER_BROKER)), anyLong());
+    }
+
+    private static ArgumentMatcher<RemotingCommand> requestCode(final int code) {
+        return new ArgumentMatcher<RemotingCommand>() {
+            @Override
+            public boolean matches(RemotingCommand request) {
+                return request != null && request.getCode() == code;
+            }
+        };
+    }
+
     private RemotingCommand buildResponse(Boolean changed) {
         final RemotingCommand response = RemotingCommand.createResponseCommand(QueryDataVersionResponseHeader.class);
         final QueryDataVersionResponseHeader responseHeader = (QueryDataVersionResponseHeader) response.readCustomHeader();
@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.broker.client;
+
+import io.netty.channel.Channel;
+import io.netty.channel.embedded.EmbeddedChannel;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.rocketmq.broker.client.rebalance.RebalanceLockManager;
+import org.apache.rocketmq.common.message.MessageQueue;
+
+/**
+ * Concurrent producer heartbeats against {@link ProducerManager} and queue lock batches against
+ * {@link RebalanceLockManager}, the way a broker sees them right after a restart.
+ * <p>
+ * Usage: ClientManagerBenchmark [threads] [groups] [clientsPerGroup] [seconds]
+ */
+public class ClientManagerBenchmark {
+    private static final int QUEUES_PER_CLIENT = 8;
+
+    public static void main(String[] args) throws Exception {
+        final int threadCount = args.length > 0 ? Integer.parseInt(args[0]) : 32;
+        final int groupCount = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        final int clientsPerGroup = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+        final int seconds = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+        System.out.printf("threads %d groups %d clientsPerGroup %d seconds %d%n", threadCount, groupCount, clientsPerGroup, seconds);
+
+        final String[] groups = new String[groupCount];
+        final ClientChannelInfo[][] clients = new ClientChannelInfo[groupCount][clientsPerGroup];
+        for (int i = 0; i < groupCount; i++) {
+            groups[i] = "BenchmarkGroup_" + i;
+            for (int j = 0; j < clientsPerGroup; j++) {
+                Channel channel = new EmbeddedChannel();
+                clients[i][j] = new ClientChannelInfo(channel, "client_" + i + "_" + j, null, 0);
+            }
+        }
+
+        final ProducerManager producerManager = new ProducerManager();
+        run("heartbeat", threadCount, seconds, new Operation() {
+            @Override
+            public void run(ThreadLocalRandom random) {
+                int group = random.nextInt(groups.length);
+                ClientChannelInfo client = clients[group][random.nextInt(clientsPerGroup)];
+                if (random.nextInt(100) == 0) {
+                    producerManager.unregisterProducer(groups[group], client);
+                } else {
+                    producerManager.registerProducer(groups[group], client);
+                }
+            }
+        });
+
+        final RebalanceLockManager rebalanceLockManager = new RebalanceLockManager();
+        run("lockBatch", threadCount, seconds, new Operation() {
+            @Override
+            public void run(ThreadLocalRandom random) {
+                int group = random.nextInt(groups.length);
+                int client = random.nextInt(clientsPerGroup);
+                Set<MessageQueue> mqs = new HashSet<MessageQueue>(QUEUES_PER_CLIENT);
+                for (int i = 0; i < QUEUES_PER_CLIENT; i++) {
+                    mqs.add(new MessageQueue(groups[group], "broker-a", client * QUEUES_PER_CLIENT + i));
+                }
+                String clientId = clients[group][client].getClientId();
+                rebalanceLockManager.tryLockBatch(groups[group], mqs, clientId);
+                rebalanceLockManager.unlockBatch(groups[group], mqs, clientId);
+            }
+        });
+    }
+
+    private static void run(final String name, final int threadCount, final int seconds,
+        final Operation operation) throws InterruptedException {
+        final AtomicLong operations = new AtomicLong(0);
+        final long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(seconds);
+        final CountDownLatch countDownLatch = new CountDownLatch(threadCount);
+        ExecutorService executorService = Executors.newFixedThreadPool(threadCount);
+        for (int i = 0; i < threadCount; i++) {
+            executorService.execute(new Runnable() {
+                @Override
+                public void run() {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    long count = 0;
+                    while (System.currentTimeMillis() < deadline) {
+                        operation.run(random);
+                        count++;
+                    }
+                    operations.addAndGet(count);
+                    countDownLatch.countDown();
+                }
+            });
+        }
+        countDownLatch.await();
+        executorService.shutdown();
+        System.out.printf("%s: %d ops, %.0f ops/s%n", name, operations.get(), operations.get() / (double) seconds);
+    }
+
+    interface Operation {
+        void run(ThreadLocalRandom random);
+    }
+}
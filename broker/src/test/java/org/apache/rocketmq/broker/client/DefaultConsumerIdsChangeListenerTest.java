@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.broker.client;
+
+import io.netty.channel.Channel;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.rocketmq.broker.BrokerController;
+import org.apache.rocketmq.broker.client.net.Broker2Client;
+import org.apache.rocketmq.common.BrokerConfig;
+import org.apache.rocketmq.remoting.netty.NettyClientConfig;
+import org.apache.rocketmq.remoting.netty.NettyServerConfig;
+import org.apache.rocketmq.store.config.MessageStoreConfig;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.class)
+public class DefaultConsumerIdsChangeListenerTest {
+    @Spy
+    private BrokerController brokerController = new BrokerController(new BrokerConfig(), new NettyServerConfig(), new NettyClientConfig(), new MessageStoreConfig());
+    @Mock
+    private Broker2Client broker2Client;
+
+    private DefaultConsumerIdsChangeListener listener;
+    private String group = "FooBarGroup";
+
+    @Before
+    public void init() {
+        doReturn(broker2Client).when(brokerController).getBroker2Client();
+        listener = new DefaultConsumerIdsChangeListener(brokerController);
+    }
+
+    @After
+    public void destroy() {
+        listener.shutdown();
+    }
+
+    @Test
+    public void testNotifyOnEveryChange() {
+        List<Channel> channels = new ArrayList<Channel>();
+        channels.add(mock(Channel.class));
+        listener.handle(ConsumerGroupEvent.CHANGE, group, channels);
+        listener.handle(ConsumerGroupEvent.CHANGE, group, channels);
+        verify(broker2Client, times(2)).notifyConsumerIdsChanged(channels.get(0), group);
+        assertThat(listener.getCoalescedChangeCount()).isZero();
+    }
+
+    @Test
+    public void testDebounceNotify() {
+        brokerController.getBrokerConfig().setNotifyConsumerIdsChangedDebounceMillis(300);
+        List<Channel> channels = new ArrayList<Channel>();
+        for (int i = 0; i < 5; i++) {
+            channels.add(mock(Channel.class));
+            listener.handle(ConsumerGroupEvent.CHANGE, group, new ArrayList<Channel>(channels));
+        }
+        verify(broker2Client, never()).notifyConsumerIdsChanged(any(Channel.class), anyString());
+
+        for (Channel channel : channels) {
+            verify(broker2Client, timeout(3000)).notifyConsumerIdsChanged(channel, group);
+        }
+        verify(broker2Client, times(channels.size())).notifyConsumerIdsChanged(any(Channel.class), anyString());
+        assertThat(listener.getCoalescedChangeCount()).isEqualTo(4);
+        assertThat(listener.getSuppressedNotifyCount()).isEqualTo(1 + 2 + 3 + 4);
+    }
+}
@@ -20,6 +20,8 @@ import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import java.lang.reflect.Field;
 import java.util.HashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -87,4 +89,34 @@ public class ProducerManagerTest {
         assertThat(channelMap).isNull();
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testConcurrentRegisterAndUnregister() throws Exception {
+        final int threadCount = 8;
+        final ClientChannelInfo[] clientInfos = new ClientChannelInfo[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            clientInfos[i] = new ClientChannelInfo(mock(Channel.class));
+        }
+        final CountDownLatch countDownLatch = new CountDownLatch(threadCount);
+        for (int i = 0; i < threadCount; i++) {
+            final ClientChannelInfo clientChannelInfo = clientInfos[i];
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < 1000; j++) {
+                        producerManager.registerProducer(group, clientChannelInfo);
+                        producerManager.unregisterProducer(group, clientChannelInfo);
+                    }
+                    producerManager.registerProducer(group, clientChannelInfo);
+                    countDownLatch.countDown();
+                }
+            }).start();
+        }
+        assertThat(countDownLatch.await(30, TimeUnit.SECONDS)).isTrue();
+
+        HashMap<Channel, ClientChannelInfo> channelMap = producerManager.getGroupChannelTable().get(group);
+        assertThat(channelMap).hasSize(threadCount);
+        for (ClientChannelInfo clientChannelInfo : clientInfos) {
+            assertThat(channelMap.get(clientChannelInfo.getChannel())).isEqualTo(clientChannelInfo);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.broker.client.net;
+
+import io.netty.channel.Channel;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.rocketmq.broker.BrokerController;
+import org.apache.rocketmq.common.BrokerConfig;
+import org.apache.rocketmq.common.message.MessageDecoder;
+import org.apache.rocketmq.common.message.MessageExt;
+import org.apache.rocketmq.common.protocol.RequestCode;
+import org.apache.rocketmq.remoting.RemotingServer;
+import org.apache.rocketmq.remoting.netty.NettyClientConfig;
+import org.apache.rocketmq.remoting.netty.NettyServerConfig;
+import org.apache.rocketmq.remoting.protocol.RemotingCommand;
+import org.apache.rocketmq.store.config.MessageStoreConfig;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.class)
+public class Broker2ClientTest {
+    @Spy
+    private BrokerController brokerController = new BrokerController(new BrokerConfig(), new NettyServerConfig(),
+        new NettyClientConfig(), new MessageStoreConfig());
+    @Mock
+    private RemotingServer remotingServer;
+    @Mock
+    private Channel channel;
+
+    private Broker2Client broker2Client;
+
+    @Before
+    public void init() {
+        doReturn(remotingServer).when(brokerController).getRemotingServer();
+        broker2Client = new Broker2Client(brokerController);
+    }
+
+    @Test
+    public void testCheckProducerTransactionStateBatchSplitByBytes() throws Exception {
+        List<MessageExt> msgExtList = new ArrayList<MessageExt>();
+        for (int i = 0; i < 5; i++) {
+            msgExtList.add(createMessageExt(1024));
+        }
+        int encodedLength = MessageDecoder.encode(msgExtList.get(0), false).length;
+        // two messages fit in one request
+        brokerController.getBrokerConfig().setTransactionCheckBatchMaxBytes(encodedLength * 2 + 1);
+
+        broker2Client.checkProducerTransactionStateBatch("PID_TEST_BATCH", channel, msgExtList);
+
+        ArgumentCaptor<RemotingCommand> requestCaptor = ArgumentCaptor.forClass(RemotingCommand.class);
+        verify(remotingServer, times(3)).invokeOneway(eq(channel), requestCaptor.capture(), anyLong());
+        List<RemotingCommand> requests = requestCaptor.getAllValues();
+        assertThat(requests.get(0).getCode()).isEqualTo(RequestCode.CHECK_TRANSACTION_STATE_BATCH);
+        assertThat(requests.get(0).getBody()).hasSize(encodedLength * 2);
+        assertThat(requests.get(1).getBody()).hasSize(encodedLength * 2);
+        assertThat(requests.get(2).getBody()).hasSize(encodedLength);
+    }
+
+    @Test
+    public void testCheckProducerTransactionStateBatchLargeMessage() throws Exception {
+        List<MessageExt> msgExtList = new ArrayList<MessageExt>();
+        msgExtList.add(createMessageExt(4096));
+        brokerController.getBrokerConfig().setTransactionCheckBatchMaxBytes(1024);
+
+        // a message larger than the limit is still sent, alone
+        broker2Client.checkProducerTransactionStateBatch("PID_TEST_BATCH", channel, msgExtList);
+        verify(remotingServer).invokeOneway(eq(channel), any(RemotingCommand.class), anyLong());
+    }
+
+    private MessageExt createMessageExt(int bodySize) {
+        MessageExt msgExt = new MessageExt();
+        msgExt.setTopic("TopicTest");
+        msgExt.setBody(new byte[bodySize]);
+        msgExt.setBornHost(new InetSocketAddress("127.0.0.1", 10911));
+        msgExt.setStoreHost(new InetSocketAddress("127.0.0.1", 10911));
+        return msgExt;
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.broker.client.rebalance;
+
+import java.util.HashSet;
+import java.util.Set;
+import org.apache.rocketmq.common.message.MessageQueue;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RebalanceLockManagerTest {
+    private RebalanceLockManager rebalanceLockManager = new RebalanceLockManager();
+    private String group = "FooBarGroup";
+
+    @Test
+    public void testTryLockBatch() {
+        Set<MessageQueue> mqs = new HashSet<MessageQueue>();
+        for (int i = 0; i < 4; i++) {
+            mqs.add(new MessageQueue("FooBar", "broker-a", i));
+        }
+
+        assertThat(rebalanceLockManager.tryLockBatch(group, mqs, "client-a")).isEqualTo(mqs);
+        assertThat(rebalanceLockManager.tryLockBatch(group, mqs, "client-a")).isEqualTo(mqs);
+        assertThat(rebalanceLockManager.tryLockBatch(group, mqs, "client-b")).isEmpty();
+        // the same queues of another group are locked independently
+        assertThat(rebalanceLockManager.tryLockBatch(group + "_other", mqs, "client-b")).isEqualTo(mqs);
+
+        rebalanceLockManager.unlockBatch(group, mqs, "client-b");
+        assertThat(rebalanceLockManager.tryLock(group, new MessageQueue("FooBar", "broker-a", 0), "client-b")).isFalse();
+
+        rebalanceLockManager.unlockBatch(group, mqs, "client-a");
+        assertThat(rebalanceLockManager.tryLockBatch(group, mqs, "client-b")).isEqualTo(mqs);
+    }
+}
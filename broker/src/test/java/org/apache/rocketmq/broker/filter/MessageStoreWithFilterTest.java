@@ -48,6 +48,7 @@ import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -366,6 +367,11 @@ public class MessageStoreWithFilterTest {
                     public boolean isMatchedByCommitLog(ByteBuffer msgBuffer, Map<String, String> properties) {
                         return true;
                     }
+
+                    @Override
+                    public Set<Integer> getTagsCodeSet() {
+                        return null;
+                    }
                 });
             assertThat(getMessageResult.getMessageCount()).isEqualTo(msgPerTopic);
         }
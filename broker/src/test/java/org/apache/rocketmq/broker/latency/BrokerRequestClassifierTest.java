@@ -0,0 +1,58 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.broker.latency;
+
+import org.apache.rocketmq.broker.BrokerController;
+import org.apache.rocketmq.common.BrokerConfig;
+import org.apache.rocketmq.common.protocol.RequestCode;
+import org.apache.rocketmq.remoting.netty.NettyClientConfig;
+import org.apache.rocketmq.remoting.netty.NettyServerConfig;
+import org.apache.rocketmq.remoting.protocol.RemotingCommand;
+import org.apache.rocketmq.store.config.MessageStoreConfig;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BrokerRequestClassifierTest {
+    private final BrokerController brokerController = new BrokerController(new BrokerConfig(), new NettyServerConfig(),
+        new NettyClientConfig(), new MessageStoreConfig());
+
+    @Test
+    public void testClassifyPullByRecordedMaxOffset() {
+        brokerController.getBrokerConfig().setPullBacklogThreshold(100);
+        BrokerRequestClassifier.PullRequestClassifier classifier = BrokerRequestClassifier.forPull(brokerController);
+        RemotingCommand request = createPullRequest("TopicTest", 1, 10);
+
+        // not pulled yet
+        assertThat(classifier.classify(request)).isEqualTo(BrokerRequestClassifier.PullRequestClassifier.PULL);
+
+        classifier.updateMaxOffset("TopicTest", 1, 50);
+        assertThat(classifier.classify(request)).isEqualTo(BrokerRequestClassifier.PullRequestClassifier.PULL);
+
+        classifier.updateMaxOffset("TopicTest", 1, 500);
+        assertThat(classifier.classify(request)).isEqualTo(BrokerRequestClassifier.PullRequestClassifier.PULL_BACKLOG);
+        assertThat(classifier.classify(createPullRequest("TopicTest", 2, 10))).isEqualTo(BrokerRequestClassifier.PullRequestClassifier.PULL);
+    }
+
+    private static RemotingCommand createPullRequest(String topic, int queueId, long queueOffset) {
+        RemotingCommand request = RemotingCommand.createRequestCommand(RequestCode.PULL_MESSAGE, null);
+        request.addExtField("topic", topic);
+        request.addExtField("queueId", String.valueOf(queueId));
+        request.addExtField("queueOffset", String.valueOf(queueOffset));
+        return request;
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.broker.latency;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.apache.rocketmq.remoting.netty.RequestTask;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class WeightedFairRequestQueueTest {
+    private final RequestClassifier classifier = new RequestClassifier() {
+        @Override
+        public String[] classNames() {
+            return new String[] {"HIGH", "LOW"};
+        }
+
+        @Override
+        public int[] weights() {
+            return new int[] {3, 1};
+        }
+
+        @Override
+        public int classify(Runnable runnable) {
+            return runnable instanceof LowTask ? 1 : 0;
+        }
+
+        @Override
+        public long maxWaitTimeMillis(int classIndex) {
+            return classIndex == 1 ? 50 : 10000;
+        }
+    };
+
+    @Test
+    public void testWeightedPoll() {
+        WeightedFairRequestQueue queue = new WeightedFairRequestQueue(100, classifier);
+        for (int i = 0; i < 8; i++) {
+            assertThat(queue.offer(new HighTask())).isTrue();
+            assertThat(queue.offer(new LowTask())).isTrue();
+        }
+        assertThat(queue.size()).isEqualTo(16);
+
+        List<Runnable> polled = new ArrayList<Runnable>();
+        for (int i = 0; i < 8; i++) {
+            polled.add(queue.poll());
+        }
+        int low = 0;
+        for (Runnable runnable : polled) {
+            if (runnable instanceof LowTask) {
+                low++;
+            }
+        }
+        assertThat(low).isEqualTo(2);
+
+        queue.drainTo(polled);
+        assertThat(polled).hasSize(16);
+        assertThat(queue.poll()).isNull();
+        long waited = 0;
+        for (long bucketCount : queue.getWaitTimeHistogram(1)) {
+            waited += bucketCount;
+        }
+        assertThat(waited).isEqualTo(8);
+        assertThat(queue.getDepthHistogram(0)[1]).isEqualTo(8);
+    }
+
+    @Test
+    public void testCapacityAndRemove() throws Exception {
+        WeightedFairRequestQueue queue = new WeightedFairRequestQueue(2, classifier);
+        HighTask high = new HighTask();
+        assertThat(queue.offer(high)).isTrue();
+        assertThat(queue.offer(new LowTask())).isTrue();
+        assertThat(queue.offer(new LowTask())).isFalse();
+        assertThat(queue.offer(new LowTask(), 10, TimeUnit.MILLISECONDS)).isFalse();
+        assertThat(queue.remainingCapacity()).isZero();
+
+        assertThat(queue.remove(high)).isTrue();
+        assertThat(queue.size()).isEqualTo(1);
+        assertThat(queue.peek()).isInstanceOf(LowTask.class);
+        assertThat(queue.take()).isInstanceOf(LowTask.class);
+        assertThat(queue.poll(10, TimeUnit.MILLISECONDS)).isNull();
+    }
+
+    @Test
+    public void testReservedCapacity() throws Exception {
+        // 3 slots reserved for HIGH, 1 for LOW and 4 shared
+        WeightedFairRequestQueue queue = new WeightedFairRequestQueue(8, classifier);
+        for (int i = 0; i < 5; i++) {
+            assertThat(queue.offer(new LowTask())).isTrue();
+        }
+        assertThat(queue.offer(new LowTask())).isFalse();
+        for (int i = 0; i < 3; i++) {
+            assertThat(queue.offer(new HighTask())).isTrue();
+        }
+        assertThat(queue.offer(new HighTask())).isFalse();
+
+        queue.clear();
+        for (int i = 0; i < 7; i++) {
+            assertThat(queue.offer(new HighTask())).isTrue();
+        }
+        assertThat(queue.offer(new HighTask())).isFalse();
+        assertThat(queue.offer(new LowTask())).isTrue();
+    }
+
+    @Test
+    public void testCleanExpiredRequest() throws Exception {
+        WeightedFairRequestQueue queue = new WeightedFairRequestQueue(100, new RequestClassifier() {
+            @Override
+            public String[] classNames() {
+                return classifier.classNames();
+            }
+
+            @Override
+            public int[] weights() {
+                return classifier.weights();
+            }
+
+            @Override
+            public int classify(Runnable runnable) {
+                return ((FutureTaskExt) runnable).getRunnable() instanceof LowRequestTask ? 1 : 0;
+            }
+
+            @Override
+            public long maxWaitTimeMillis(int classIndex) {
+                return classifier.maxWaitTimeMillis(classIndex);
+            }
+        });
+
+        RequestTask highRequest = new RequestTask(new HighTask(), null, null);
+        RequestTask lowRequest = new LowRequestTask();
+        queue.add(new FutureTaskExt<Void>(highRequest, null));
+        queue.add(new FutureTaskExt<Void>(lowRequest, null));
+        TimeUnit.MILLISECONDS.sleep(100);
+
+        queue.cleanExpiredRequest();
+        assertThat(queue.size()).isEqualTo(1);
+        assertThat(lowRequest.isStopRun()).isTrue();
+        assertThat(highRequest.isStopRun()).isFalse();
+        assertThat(((FutureTaskExt) queue.peek()).getRunnable()).isEqualTo(highRequest);
+    }
+
+    static class HighTask implements Runnable {
+        @Override
+        public void run() {
+        }
+    }
+
+    static class LowTask implements Runnable {
+        @Override
+        public void run() {
+        }
+    }
+
+    static class LowRequestTask extends RequestTask {
+        LowRequestTask() {
+            super(new LowTask(), null, null);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.broker.longpolling;
+
+import java.util.Collections;
+import org.apache.rocketmq.common.protocol.RequestCode;
+import org.apache.rocketmq.remoting.protocol.RemotingCommand;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ManyPullRequestTest {
+    private final ArrivingMessage arrivingMessage = new ArrivingMessage(11, 100L, System.currentTimeMillis(), null, null);
+
+    @Test
+    public void testAddArrivingIfHeld() {
+        ManyPullRequest mpr = new ManyPullRequest();
+        assertThat(mpr.addArrivingIfHeld(Collections.singletonList(arrivingMessage))).isFalse();
+        assertThat(mpr.hasArriving()).isFalse();
+
+        mpr.addPullRequest(createPullRequest());
+        assertThat(mpr.addArrivingIfHeld(Collections.singletonList(arrivingMessage))).isTrue();
+        assertThat(mpr.drainArriving()).containsExactly(arrivingMessage);
+    }
+
+    @Test
+    public void testAddArrivingWhileNotifying() {
+        ManyPullRequest mpr = new ManyPullRequest();
+        mpr.addPullRequest(createPullRequest());
+
+        // the running notification has taken the requests out and not put them back yet
+        assertThat(mpr.tryStartNotify()).isTrue();
+        assertThat(mpr.cloneListAndClear()).hasSize(1);
+        assertThat(mpr.addArrivingIfHeld(Collections.singletonList(arrivingMessage))).isTrue();
+        mpr.endNotify();
+        assertThat(mpr.drainArriving()).containsExactly(arrivingMessage);
+    }
+
+    private PullRequest createPullRequest() {
+        RemotingCommand request = RemotingCommand.createRequestCommand(RequestCode.PULL_MESSAGE, null);
+        return new PullRequest(request, null, 15000, System.currentTimeMillis(), 10, null, null);
+    }
+}
@@ -0,0 +1,238 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.broker.longpolling;
+
+import io.netty.channel.Channel;
+import org.apache.rocketmq.broker.BrokerController;
+import org.apache.rocketmq.broker.processor.PullMessageProcessor;
+import org.apache.rocketmq.common.BrokerConfig;
+import org.apache.rocketmq.common.protocol.RequestCode;
+import org.apache.rocketmq.remoting.netty.NettyClientConfig;
+import org.apache.rocketmq.remoting.netty.NettyServerConfig;
+import org.apache.rocketmq.remoting.protocol.RemotingCommand;
+import org.apache.rocketmq.store.ConsumeQueueExt;
+import org.apache.rocketmq.store.MessageFilter;
+import org.apache.rocketmq.store.MessageStore;
+import org.apache.rocketmq.store.config.BrokerRole;
+import org.apache.rocketmq.store.config.MessageStoreConfig;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class PullRequestHoldServiceTest {
+    private static final String TOPIC = "FooBar";
+    private static final long TICK_MILLIS = 100;
+
+    @Spy
+    private BrokerController brokerController = new BrokerController(new BrokerConfig(), new NettyServerConfig(),
+        new NettyClientConfig(), new MessageStoreConfig());
+    @Mock
+    private MessageStore messageStore;
+    @Mock
+    private PullMessageProcessor pullMessageProcessor;
+    @Mock
+    private MessageFilter messageFilter;
+    @Mock
+    private Channel channel;
+
+    private PullRequestHoldService pullRequestHoldService;
+
+    @Before
+    public void init() {
+        brokerController.getBrokerConfig().setPullRequestHoldTickMills(TICK_MILLIS);
+        brokerController.setMessageStore(messageStore);
+        doReturn(pullMessageProcessor).when(brokerController).getPullMessageProcessor();
+        pullRequestHoldService = new PullRequestHoldService(brokerController);
+    }
+
+    @Test
+    public void testWakeupByTimeout() throws Exception {
+        long now = System.currentTimeMillis();
+        PullRequest pullRequest = createPullRequest(now, 1000, 10);
+        pullRequestHoldService.suspendPullRequest(TOPIC, 0, pullRequest);
+        assertThat(pullRequestHoldService.getHoldingRequestCount()).isEqualTo(1);
+
+        pullRequestHoldService.checkTimeout(now + 500);
+        verify(pullMessageProcessor, never()).executeRequestWhenWakeup(any(Channel.class), any(RemotingCommand.class));
+
+        pullRequestHoldService.checkTimeout(now + 1000 + TICK_MILLIS);
+        verify(pullMessageProcessor).executeRequestWhenWakeup(channel, pullRequest.getRequestCommand());
+        assertThat(pullRequestHoldService.getHoldingRequestCount()).isZero();
+
+        pullRequestHoldService.notifyMessageArriving(TOPIC, 0, 11);
+        verify(pullMessageProcessor).executeRequestWhenWakeup(any(Channel.class), any(RemotingCommand.class));
+    }
+
+    @Test
+    public void testWakeupByArriving() throws Exception {
+        when(messageFilter.isMatchedByConsumeQueue(anyLong(), any(ConsumeQueueExt.CqExtUnit.class))).thenReturn(true);
+        long now = System.currentTimeMillis();
+        PullRequest pullRequest = createPullRequest(now, 15000, 10);
+        PullRequest otherQueueRequest = createPullRequest(now, 15000, 10);
+        pullRequestHoldService.suspendPullRequest(TOPIC, 0, pullRequest);
+        pullRequestHoldService.suspendPullRequest(TOPIC, 1, otherQueueRequest);
+
+        pullRequestHoldService.notifyMessageArriving(TOPIC, 0, 11, 100L, now, null, null);
+        verify(pullMessageProcessor).executeRequestWhenWakeup(channel, pullRequest.getRequestCommand());
+        verify(pullMessageProcessor, never()).executeRequestWhenWakeup(channel, otherQueueRequest.getRequestCommand());
+        assertThat(pullRequestHoldService.getHoldingRequestCount()).isEqualTo(1);
+
+        // already woken up, the timing wheel only expires the other one
+        pullRequestHoldService.checkTimeout(now + 15000 + TICK_MILLIS);
+        verify(pullMessageProcessor).executeRequestWhenWakeup(channel, pullRequest.getRequestCommand());
+        verify(pullMessageProcessor).executeRequestWhenWakeup(channel, otherQueueRequest.getRequestCommand());
+        assertThat(pullRequestHoldService.getHoldingRequestCount()).isZero();
+    }
+
+    @Test
+    public void testMessageArrivingBatch() throws Exception {
+        when(messageFilter.isMatchedByConsumeQueue(anyLong(), any(ConsumeQueueExt.CqExtUnit.class))).thenReturn(false, true);
+        long now = System.currentTimeMillis();
+        PullRequest pullRequest = createPullRequest(now, 15000, 10);
+        pullRequestHoldService.suspendPullRequest(TOPIC, 0, pullRequest);
+
+        pullRequestHoldService.messageArriving(TOPIC, 0, 11, 100L, now, null, null);
+        pullRequestHoldService.messageArriving(TOPIC, 0, 12, 200L, now, null, null);
+        // no request held on queue 1
+        pullRequestHoldService.messageArriving(TOPIC, 1, 1, 100L, now, null, null);
+        verify(pullMessageProcessor, never()).executeRequestWhenWakeup(any(Channel.class), any(RemotingCommand.class));
+
+        pullRequestHoldService.messageArrivingBatchEnd();
+        verify(messageFilter, times(2)).isMatchedByConsumeQueue(anyLong(), any(ConsumeQueueExt.CqExtUnit.class));
+        verify(pullMessageProcessor).executeRequestWhenWakeup(channel, pullRequest.getRequestCommand());
+        assertThat(pullRequestHoldService.getHoldingRequestCount()).isZero();
+    }
+
+    @Test
+    public void testMessageArrivingReducedByTagsCode() throws Exception {
+        when(messageFilter.isMatchedByConsumeQueue(anyLong(), any(ConsumeQueueExt.CqExtUnit.class))).thenReturn(true);
+        long now = System.currentTimeMillis();
+        PullRequest pullRequest = createPullRequest(now, 15000, 12);
+        pullRequestHoldService.suspendPullRequest(TOPIC, 0, pullRequest);
+
+        pullRequestHoldService.messageArriving(TOPIC, 0, 11, 100L, now, null, null);
+        pullRequestHoldService.messageArriving(TOPIC, 0, 12, 100L, now, null, null);
+        pullRequestHoldService.messageArriving(TOPIC, 0, 13, 100L, now, null, null);
+        pullRequestHoldService.messageArrivingBatchEnd();
+        // only the message at the max offset is matched
+        verify(messageFilter, times(1)).isMatchedByConsumeQueue(anyLong(), any(ConsumeQueueExt.CqExtUnit.class));
+        verify(pullMessageProcessor).executeRequestWhenWakeup(channel, pullRequest.getRequestCommand());
+    }
+
+    @Test
+    public void testSuspendAfterMessageArrived() throws Exception {
+        when(messageStore.getMaxOffsetInQueue(TOPIC, 0)).thenReturn(11L);
+        when(messageFilter.isMatchedByConsumeQueue(ArgumentMatchers.<Long>isNull(), any(ConsumeQueueExt.CqExtUnit.class))).thenReturn(true);
+        PullRequest pullRequest = createPullRequest(System.currentTimeMillis(), 15000, 10);
+        pullRequestHoldService.suspendPullRequest(TOPIC, 0, pullRequest, 10);
+        verify(pullMessageProcessor, times(1)).executeRequestWhenWakeup(channel, pullRequest.getRequestCommand());
+        assertThat(pullRequestHoldService.getHoldingRequestCount()).isZero();
+    }
+
+    @Test
+    public void testCheckHoldRequestOnSlave() throws Exception {
+        brokerController.getMessageStoreConfig().setBrokerRole(BrokerRole.SLAVE);
+        when(messageStore.getMaxOffsetInQueue(TOPIC, 0)).thenReturn(10L, 11L);
+        when(messageFilter.isMatchedByConsumeQueue(ArgumentMatchers.<Long>isNull(), any(ConsumeQueueExt.CqExtUnit.class))).thenReturn(true);
+        long now = System.currentTimeMillis();
+        PullRequest pullRequest = createPullRequest(now, 15000, 10);
+        pullRequestHoldService.suspendPullRequest(TOPIC, 0, pullRequest);
+
+        // nothing arrived yet
+        pullRequestHoldService.checkHoldRequest(now);
+        verify(pullMessageProcessor, never()).executeRequestWhenWakeup(any(Channel.class), any(RemotingCommand.class));
+
+        // checked again only after the interval
+        pullRequestHoldService.checkHoldRequest(now + 1000);
+        verify(messageStore, times(1)).getMaxOffsetInQueue(TOPIC, 0);
+
+        pullRequestHoldService.checkHoldRequest(now + 5000);
+        verify(pullMessageProcessor).executeRequestWhenWakeup(channel, pullRequest.getRequestCommand());
+        assertThat(pullRequestHoldService.getHoldingRequestCount()).isZero();
+    }
+
+    @Test
+    public void testNoCheckHoldRequestOnMaster() throws Exception {
+        PullRequest pullRequest = createPullRequest(System.currentTimeMillis(), 15000, 10);
+        pullRequestHoldService.suspendPullRequest(TOPIC, 0, pullRequest);
+
+        pullRequestHoldService.checkHoldRequest(System.currentTimeMillis());
+        verify(messageStore, never()).getMaxOffsetInQueue(TOPIC, 0);
+        assertThat(pullRequestHoldService.getHoldingRequestCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testPauseUntilWritable() throws Exception {
+        when(channel.isActive()).thenReturn(true);
+        when(channel.isWritable()).thenReturn(false, true);
+        long now = System.currentTimeMillis();
+        PullRequest pullRequest = createPullRequest(now, 3000, 10);
+        pullRequestHoldService.pausePullRequest(pullRequest);
+        assertThat(pullRequestHoldService.getPausedRequestCount()).isEqualTo(1);
+
+        pullRequestHoldService.checkPaused(now + TICK_MILLIS);
+        verify(pullMessageProcessor, never()).executeRequestWhenWakeup(any(Channel.class), any(RemotingCommand.class));
+        assertThat(pullRequestHoldService.getPausedRequestCount()).isEqualTo(1);
+
+        pullRequestHoldService.checkPaused(now + 2 * TICK_MILLIS);
+        verify(pullMessageProcessor).executeRequestWhenWakeup(channel, pullRequest.getRequestCommand());
+        assertThat(pullRequestHoldService.getPausedRequestCount()).isZero();
+    }
+
+    @Test
+    public void testPauseTimeoutAndChannelClosed() throws Exception {
+        when(channel.isActive()).thenReturn(true);
+        when(channel.isWritable()).thenReturn(false);
+        long now = System.currentTimeMillis();
+        PullRequest pullRequest = createPullRequest(now, 3000, 10);
+        RemotingCommand closedRequest = RemotingCommand.createRequestCommand(RequestCode.PULL_MESSAGE, null);
+        Channel closedChannel = mock(Channel.class);
+        pullRequestHoldService.pausePullRequest(pullRequest);
+        pullRequestHoldService.pausePullRequest(new PullRequest(closedRequest, closedChannel, 3000, now, 10, null, messageFilter));
+        assertThat(pullRequestHoldService.getPausedRequestCount()).isEqualTo(2);
+
+        // the closed one is dropped, the other one is processed once its deadline passes
+        pullRequestHoldService.checkPaused(now + TICK_MILLIS);
+        verify(pullMessageProcessor, never()).executeRequestWhenWakeup(any(Channel.class), any(RemotingCommand.class));
+        assertThat(pullRequestHoldService.getPausedRequestCount()).isEqualTo(1);
+
+        pullRequestHoldService.checkPaused(now + 3000);
+        verify(pullMessageProcessor).executeRequestWhenWakeup(channel, pullRequest.getRequestCommand());
+        verify(pullMessageProcessor, never()).executeRequestWhenWakeup(closedChannel, closedRequest);
+        assertThat(pullRequestHoldService.getPausedRequestCount()).isZero();
+    }
+
+    private PullRequest createPullRequest(long suspendTimestamp, long timeoutMillis, long offset) {
+        RemotingCommand request = RemotingCommand.createRequestCommand(RequestCode.PULL_MESSAGE, null);
+        return new PullRequest(request, channel, timeoutMillis, suspendTimestamp, offset, null, messageFilter);
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.broker.offset;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.apache.rocketmq.broker.BrokerController;
+import org.apache.rocketmq.broker.BrokerPathConfigHelper;
+import org.apache.rocketmq.common.BrokerConfig;
+import org.apache.rocketmq.common.UtilAll;
+import org.apache.rocketmq.remoting.netty.NettyClientConfig;
+import org.apache.rocketmq.remoting.netty.NettyServerConfig;
+import org.apache.rocketmq.store.config.MessageStoreConfig;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ConsumerOffsetStoreTest {
+    private final String storePath = System.getProperty("user.home") + File.separator + "unitteststore-offset-" + UUID.randomUUID();
+    private final String snapshotFile = BrokerPathConfigHelper.getConsumerOffsetSnapshotPath(storePath);
+    private final String logFile = BrokerPathConfigHelper.getConsumerOffsetLogPath(storePath);
+
+    @After
+    public void destroy() {
+        UtilAll.deleteFile(new File(storePath));
+    }
+
+    @Test
+    public void testIncrementalFlushAndLoad() throws Exception {
+        ConsumerOffsetStore store = new ConsumerOffsetStore(snapshotFile, logFile);
+        ConcurrentMap<String, ConcurrentMap<Integer, Long>> table = new ConcurrentHashMap<String, ConcurrentMap<Integer, Long>>();
+        for (int i = 0; i < 100; i++) {
+            ConcurrentMap<Integer, Long> offsets = new ConcurrentHashMap<Integer, Long>();
+            for (int queueId = 0; queueId < 8; queueId++) {
+                offsets.put(queueId, (long) i * queueId);
+            }
+            table.put("Topic" + i + "@Group", offsets);
+        }
+
+        store.flush(table);
+        assertThat(new File(snapshotFile).exists()).isTrue();
+        assertThat(store.getGeneration()).isEqualTo(1);
+        long logSize = store.getLogSize();
+
+        store.flush(table);
+        assertThat(store.getLogSize()).isEqualTo(logSize);
+
+        table.get("Topic1@Group").put(3, 1000L);
+        table.get("Topic2@Group").remove(5);
+        table.remove("Topic3@Group");
+        store.flush(table);
+        assertThat(store.getLogSize()).isGreaterThan(logSize).isLessThan(logSize + 200);
+        assertThat(store.getGeneration()).isEqualTo(1);
+
+        ConcurrentMap<String, ConcurrentMap<Integer, Long>> loaded = new ConcurrentHashMap<String, ConcurrentMap<Integer, Long>>();
+        assertThat(new ConsumerOffsetStore(snapshotFile, logFile).load(loaded)).isTrue();
+        assertThat(loaded).isEqualTo(table);
+    }
+
+    @Test
+    public void testTornLogTail() throws Exception {
+        ConsumerOffsetStore store = new ConsumerOffsetStore(snapshotFile, logFile);
+        ConcurrentMap<String, ConcurrentMap<Integer, Long>> table = new ConcurrentHashMap<String, ConcurrentMap<Integer, Long>>();
+        table.put("TopicA@Group", new ConcurrentHashMap<Integer, Long>());
+        table.get("TopicA@Group").put(0, 1L);
+        store.flush(table);
+        table.get("TopicA@Group").put(0, 2L);
+        store.flush(table);
+        long logSize = store.getLogSize();
+        table.get("TopicA@Group").put(0, 3L);
+        store.flush(table);
+
+        RandomAccessFile file = new RandomAccessFile(logFile, "rw");
+        try {
+            file.setLength(file.length() - 3);
+        } finally {
+            file.close();
+        }
+
+        ConsumerOffsetStore reloaded = new ConsumerOffsetStore(snapshotFile, logFile);
+        ConcurrentMap<String, ConcurrentMap<Integer, Long>> loaded = new ConcurrentHashMap<String, ConcurrentMap<Integer, Long>>();
+        assertThat(reloaded.load(loaded)).isTrue();
+        assertThat(loaded.get("TopicA@Group").get(0)).isEqualTo(2L);
+        assertThat(reloaded.getLogSize()).isEqualTo(logSize);
+        assertThat(new File(logFile).length()).isEqualTo(logSize);
+
+        reloaded.flush(table);
+        loaded.clear();
+        assertThat(new ConsumerOffsetStore(snapshotFile, logFile).load(loaded)).isTrue();
+        assertThat(loaded.get("TopicA@Group").get(0)).isEqualTo(3L);
+    }
+
+    @Test
+    public void testMigrateFromJson() {
+        MessageStoreConfig messageStoreConfig = new MessageStoreConfig();
+        messageStoreConfig.setStorePathRootDir(storePath);
+        BrokerController brokerController = new BrokerController(new BrokerConfig(), new NettyServerConfig(), new NettyClientConfig(), messageStoreConfig);
+
+        ConsumerOffsetManager jsonManager = new ConsumerOffsetManager(brokerController);
+        jsonManager.commitOffset("127.0.0.1", "Group", "TopicA", 1, 100);
+        jsonManager.persist();
+        assertThat(new File(snapshotFile).exists()).isFalse();
+
+        brokerController.getBrokerConfig().setConsumerOffsetBinaryStoreEnable(true);
+        ConsumerOffsetManager binaryManager = new ConsumerOffsetManager(brokerController);
+        assertThat(binaryManager.load()).isTrue();
+        assertThat(binaryManager.queryOffset("Group", "TopicA", 1)).isEqualTo(100);
+        binaryManager.commitOffset("127.0.0.1", "Group", "TopicA", 1, 200);
+        binaryManager.persist();
+        assertThat(new File(snapshotFile).exists()).isTrue();
+
+        ConsumerOffsetManager reloaded = new ConsumerOffsetManager(brokerController);
+        assertThat(reloaded.load()).isTrue();
+        assertThat(reloaded.queryOffset("Group", "TopicA", 1)).isEqualTo(200);
+    }
+
+    @Test
+    public void testLoadNewerWhenSwitched() {
+        MessageStoreConfig messageStoreConfig = new MessageStoreConfig();
+        messageStoreConfig.setStorePathRootDir(storePath);
+        BrokerController brokerController = new BrokerController(new BrokerConfig(), new NettyServerConfig(), new NettyClientConfig(), messageStoreConfig);
+
+        brokerController.getBrokerConfig().setConsumerOffsetBinaryStoreEnable(true);
+        ConsumerOffsetManager binaryManager = new ConsumerOffsetManager(brokerController);
+        assertThat(binaryManager.load()).isTrue();
+        binaryManager.commitOffset("127.0.0.1", "Group", "TopicA", 1, 100);
+        binaryManager.persist();
+        long past = System.currentTimeMillis() - 60 * 1000;
+        assertThat(new File(snapshotFile).setLastModified(past)).isTrue();
+        assertThat(new File(logFile).setLastModified(past)).isTrue();
+
+        // switched off, the binary store is newer than the json file
+        brokerController.getBrokerConfig().setConsumerOffsetBinaryStoreEnable(false);
+        ConsumerOffsetManager jsonManager = new ConsumerOffsetManager(brokerController);
+        assertThat(jsonManager.load()).isTrue();
+        assertThat(jsonManager.queryOffset("Group", "TopicA", 1)).isEqualTo(100);
+        jsonManager.commitOffset("127.0.0.1", "Group", "TopicA", 1, 200);
+        jsonManager.persist();
+
+        // switched on again, the json file is newer than the binary store
+        brokerController.getBrokerConfig().setConsumerOffsetBinaryStoreEnable(true);
+        ConsumerOffsetManager reloaded = new ConsumerOffsetManager(brokerController);
+        assertThat(reloaded.load()).isTrue();
+        assertThat(reloaded.queryOffset("Group", "TopicA", 1)).isEqualTo(200);
+        reloaded.commitOffset("127.0.0.1", "Group", "TopicA", 2, 300);
+        reloaded.persist();
+
+        ConcurrentMap<String, ConcurrentMap<Integer, Long>> loaded = new ConcurrentHashMap<String, ConcurrentMap<Integer, Long>>();
+        assertThat(new ConsumerOffsetStore(snapshotFile, logFile).load(loaded)).isTrue();
+        assertThat(loaded.get("TopicA@Group")).containsEntry(1, 200L).containsEntry(2, 300L);
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.broker.processor;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import org.apache.rocketmq.broker.BrokerController;
+import org.apache.rocketmq.common.BrokerConfig;
+import org.apache.rocketmq.common.message.MessageQueue;
+import org.apache.rocketmq.common.protocol.RequestCode;
+import org.apache.rocketmq.common.protocol.ResponseCode;
+import org.apache.rocketmq.common.protocol.body.UpdateConsumerOffsetBatchRequestBody;
+import org.apache.rocketmq.remoting.netty.NettyClientConfig;
+import org.apache.rocketmq.remoting.netty.NettyServerConfig;
+import org.apache.rocketmq.remoting.protocol.RemotingCommand;
+import org.apache.rocketmq.store.config.MessageStoreConfig;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ConsumerManageProcessorTest {
+    private ConsumerManageProcessor consumerManageProcessor;
+    @Spy
+    private BrokerController brokerController = new BrokerController(new BrokerConfig(), new NettyServerConfig(), new NettyClientConfig(), new MessageStoreConfig());
+    @Mock
+    private ChannelHandlerContext handlerContext;
+    @Mock
+    private Channel channel;
+
+    private String group = "FooBarGroup";
+
+    @Before
+    public void init() {
+        when(handlerContext.channel()).thenReturn(channel);
+        consumerManageProcessor = new ConsumerManageProcessor(brokerController);
+    }
+
+    @Test
+    public void testUpdateConsumerOffsetBatch() throws Exception {
+        UpdateConsumerOffsetBatchRequestBody requestBody = new UpdateConsumerOffsetBatchRequestBody();
+        requestBody.setConsumerGroup(group);
+        for (int i = 0; i < 4; i++) {
+            requestBody.getOffsetTable().put(new MessageQueue("TopicA", "broker-a", i), 100L + i);
+            requestBody.getOffsetTable().put(new MessageQueue("TopicB", "broker-a", i), 200L + i);
+        }
+        RemotingCommand request = RemotingCommand.createRequestCommand(RequestCode.UPDATE_CONSUMER_OFFSET_BATCH, null);
+        request.setBody(requestBody.encode());
+
+        RemotingCommand response = consumerManageProcessor.processRequest(handlerContext, request);
+        assertThat(response.getCode()).isEqualTo(ResponseCode.SUCCESS);
+        assertThat(brokerController.getConsumerOffsetManager().queryOffset(group, "TopicA", 3)).isEqualTo(103L);
+        assertThat(brokerController.getConsumerOffsetManager().queryOffset(group, "TopicB", 0)).isEqualTo(200L);
+        assertThat(brokerController.getConsumerOffsetManager().queryOffset(group, "TopicB")).hasSize(4);
+    }
+}
@@ -26,6 +26,7 @@ import org.apache.rocketmq.common.message.MessageConst;
 import org.apache.rocketmq.common.message.MessageExt;
 import org.apache.rocketmq.common.protocol.RequestCode;
 import org.apache.rocketmq.common.protocol.ResponseCode;
+import org.apache.rocketmq.common.protocol.body.EndTransactionBatchRequestBody;
 import org.apache.rocketmq.common.protocol.header.EndTransactionRequestHeader;
 import org.apache.rocketmq.common.sysflag.MessageSysFlag;
 import org.apache.rocketmq.remoting.exception.RemotingCommandException;
@@ -48,6 +49,8 @@ import org.mockito.junit.MockitoJUnitRunner;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -119,6 +122,26 @@ public class EndTransactionProcessorTest {
         assertThat(response.getCode()).isEqualTo(ResponseCode.SUCCESS);
     }
 
+    @Test
+    public void testProcessRequest_Batch() throws RemotingCommandException {
+        when(transactionMsgService.commitMessage(any(EndTransactionRequestHeader.class))).thenReturn(createResponse(ResponseCode.SUCCESS));
+        when(transactionMsgService.rollbackMessage(any(EndTransactionRequestHeader.class))).thenReturn(createResponse(ResponseCode.SUCCESS));
+        when(messageStore.putMessage(any(MessageExtBrokerInner.class))).thenReturn(new PutMessageResult
+            (PutMessageStatus.PUT_OK, new AppendMessageResult(AppendMessageStatus.PUT_OK)));
+        EndTransactionBatchRequestBody requestBody = new EndTransactionBatchRequestBody();
+        requestBody.getEndTransactionList().add(createEndTransactionRequestHeader(MessageSysFlag.TRANSACTION_COMMIT_TYPE, true));
+        requestBody.getEndTransactionList().add(createEndTransactionRequestHeader(MessageSysFlag.TRANSACTION_ROLLBACK_TYPE, true));
+        requestBody.getEndTransactionList().add(createEndTransactionRequestHeader(MessageSysFlag.TRANSACTION_NOT_TYPE, true));
+        RemotingCommand request = RemotingCommand.createRequestCommand(RequestCode.END_TRANSACTION_BATCH, null);
+        request.setBody(requestBody.encode());
+        RemotingCommand response = endTransactionProcessor.processRequest(handlerContext, request);
+        assertThat(response).isNull();
+        verify(transactionMsgService).commitMessage(any(EndTransactionRequestHeader.class));
+        verify(transactionMsgService).rollbackMessage(any(EndTransactionRequestHeader.class));
+        verify(messageStore).putMessage(any(MessageExtBrokerInner.class));
+        verify(transactionMsgService, times(2)).deletePrepareMessage(any(MessageExt.class));
+    }
+
     private MessageExt createDefaultMessageExt() {
         MessageExt messageExt = new MessageExt();
         messageExt.setMsgId("12345678");
@@ -21,6 +21,7 @@ import io.netty.channel.ChannelHandlerContext;
 import org.apache.rocketmq.broker.BrokerController;
 import org.apache.rocketmq.broker.mqtrace.SendMessageContext;
 import org.apache.rocketmq.broker.mqtrace.SendMessageHook;
+import org.apache.rocketmq.broker.quota.QuotaManager;
 import org.apache.rocketmq.broker.transaction.TransactionalMessageService;
 import org.apache.rocketmq.common.BrokerConfig;
 import org.apache.rocketmq.common.MixAll;
@@ -31,6 +32,7 @@ import org.apache.rocketmq.common.protocol.RequestCode;
 import org.apache.rocketmq.common.protocol.ResponseCode;
 import org.apache.rocketmq.common.protocol.header.ConsumerSendMsgBackRequestHeader;
 import org.apache.rocketmq.common.protocol.header.SendMessageRequestHeader;
+import org.apache.rocketmq.common.quota.QuotaConfig;
 import org.apache.rocketmq.common.sysflag.MessageSysFlag;
 import org.apache.rocketmq.remoting.exception.RemotingCommandException;
 import org.apache.rocketmq.remoting.netty.NettyClientConfig;
@@ -62,6 +64,8 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -175,6 +179,15 @@ public class SendMessageProcessorTest {
         assertPutResult(ResponseCode.SLAVE_NOT_AVAILABLE);
     }
 
+    @Test
+    public void testProcessRequest_QuotaExceeded() throws RemotingCommandException {
+        QuotaManager quotaManager = mock(QuotaManager.class);
+        when(brokerController.getQuotaManager()).thenReturn(quotaManager);
+        when(quotaManager.isAvailable(QuotaConfig.DIRECTION_SEND, topic, group)).thenReturn(false);
+        assertPutResult(ResponseCode.QUOTA_EXCEEDED);
+        verify(messageStore, never()).putMessage(any(MessageExtBrokerInner.class));
+    }
+
     @Test
     public void testProcessRequest_WithMsgBack() throws RemotingCommandException {
         when(messageStore.putMessage(any(MessageExtBrokerInner.class))).thenReturn(new PutMessageResult(PutMessageStatus.PUT_OK, new AppendMessageResult(AppendMessageStatus.PUT_OK)));
@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.broker.quota;
+
+import java.io.File;
+import java.util.UUID;
+import org.apache.rocketmq.broker.BrokerController;
+import org.apache.rocketmq.common.BrokerConfig;
+import org.apache.rocketmq.common.UtilAll;
+import org.apache.rocketmq.common.quota.QuotaConfig;
+import org.apache.rocketmq.remoting.netty.NettyClientConfig;
+import org.apache.rocketmq.remoting.netty.NettyServerConfig;
+import org.apache.rocketmq.store.config.MessageStoreConfig;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class QuotaManagerTest {
+    private final String storePath = System.getProperty("user.home") + File.separator + "unitteststore-quota-" + UUID.randomUUID();
+    private BrokerController brokerController;
+
+    @Before
+    public void init() {
+        MessageStoreConfig messageStoreConfig = new MessageStoreConfig();
+        messageStoreConfig.setStorePathRootDir(storePath);
+        brokerController = new BrokerController(new BrokerConfig(), new NettyServerConfig(), new NettyClientConfig(), messageStoreConfig);
+    }
+
+    @After
+    public void destroy() {
+        UtilAll.deleteFile(new File(storePath));
+    }
+
+    @Test
+    public void testTokenBucket() {
+        long now = 0;
+        TokenBucket bucket = new TokenBucket(10, now);
+        assertThat(bucket.isAvailable(now)).isTrue();
+        bucket.acquire(25, now);
+        assertThat(bucket.isAvailable(now)).isFalse();
+
+        now += 1000 * 1000 * 1000L;
+        assertThat(bucket.isAvailable(now)).isFalse();
+        now += 600 * 1000 * 1000L;
+        assertThat(bucket.isAvailable(now)).isTrue();
+
+        now += 60 * 1000 * 1000 * 1000L;
+        bucket.acquire(10, now);
+        assertThat(bucket.isAvailable(now)).isFalse();
+    }
+
+    @Test
+    public void testQuota() {
+        QuotaManager quotaManager = new QuotaManager(brokerController);
+        assertThat(quotaManager.isAvailable(QuotaConfig.DIRECTION_SEND, "TopicA", "GroupA")).isTrue();
+
+        QuotaConfig topicQuota = new QuotaConfig();
+        topicQuota.setResource("TopicA");
+        topicQuota.setMessagesPerSecond(10);
+        quotaManager.updateQuotaConfig(topicQuota);
+
+        QuotaConfig groupQuota = new QuotaConfig();
+        groupQuota.setType(QuotaConfig.TYPE_GROUP);
+        groupQuota.setResource("GroupB");
+        groupQuota.setBytesPerSecond(1024);
+        quotaManager.updateQuotaConfig(groupQuota);
+
+        quotaManager.acquire(QuotaConfig.DIRECTION_SEND, "TopicA", "GroupA", 100, 100);
+        assertThat(quotaManager.isAvailable(QuotaConfig.DIRECTION_SEND, "TopicA", "GroupA")).isFalse();
+        assertThat(quotaManager.isAvailable(QuotaConfig.DIRECTION_SEND, "TopicB", "GroupA")).isTrue();
+
+        quotaManager.acquire(QuotaConfig.DIRECTION_SEND, "TopicB", "GroupB", 1, 4096);
+        assertThat(quotaManager.isAvailable(QuotaConfig.DIRECTION_SEND, "TopicB", "GroupB")).isFalse();
+        assertThat(quotaManager.isAvailable(QuotaConfig.DIRECTION_SEND, "TopicB", "GroupA")).isTrue();
+
+        QuotaManager loaded = new QuotaManager(brokerController);
+        assertThat(loaded.load()).isTrue();
+        assertThat(loaded.getQuotaTable()).hasSize(2);
+        assertThat(loaded.isAvailable(QuotaConfig.DIRECTION_SEND, "TopicA", "GroupB")).isTrue();
+
+        quotaManager.deleteQuotaConfig(QuotaConfig.TYPE_TOPIC, QuotaConfig.DIRECTION_SEND, "TopicA");
+        assertThat(quotaManager.isAvailable(QuotaConfig.DIRECTION_SEND, "TopicA", "GroupA")).isTrue();
+        assertThat(quotaManager.getQuotaTable()).hasSize(1);
+    }
+
+    @Test
+    public void testSendAndPullQuota() {
+        QuotaManager quotaManager = new QuotaManager(brokerController);
+        QuotaConfig sendQuota = new QuotaConfig();
+        sendQuota.setResource("TopicA");
+        sendQuota.setMessagesPerSecond(10);
+        quotaManager.updateQuotaConfig(sendQuota);
+
+        QuotaConfig pullQuota = new QuotaConfig();
+        pullQuota.setDirection(QuotaConfig.DIRECTION_PULL);
+        pullQuota.setResource("TopicA");
+        pullQuota.setMessagesPerSecond(10);
+        quotaManager.updateQuotaConfig(pullQuota);
+        assertThat(quotaManager.getQuotaTable()).hasSize(2);
+
+        // pulls do not use up the quota of the producers
+        quotaManager.acquire(QuotaConfig.DIRECTION_PULL, "TopicA", "GroupA", 100, 100);
+        assertThat(quotaManager.isAvailable(QuotaConfig.DIRECTION_PULL, "TopicA", "GroupA")).isFalse();
+        assertThat(quotaManager.isAvailable(QuotaConfig.DIRECTION_SEND, "TopicA", "GroupA")).isTrue();
+
+        quotaManager.deleteQuotaConfig(QuotaConfig.TYPE_TOPIC, QuotaConfig.DIRECTION_PULL, "TopicA");
+        assertThat(quotaManager.isAvailable(QuotaConfig.DIRECTION_PULL, "TopicA", "GroupA")).isTrue();
+        assertThat(quotaManager.getQuotaTable()).hasSize(1);
+    }
+}
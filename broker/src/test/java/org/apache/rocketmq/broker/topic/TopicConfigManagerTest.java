@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.broker.topic;
+
+import java.io.File;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.rocketmq.broker.BrokerController;
+import org.apache.rocketmq.common.BrokerConfig;
+import org.apache.rocketmq.common.DataVersion;
+import org.apache.rocketmq.common.TopicConfig;
+import org.apache.rocketmq.common.UtilAll;
+import org.apache.rocketmq.common.protocol.body.RegisterBrokerDeltaBody;
+import org.apache.rocketmq.remoting.netty.NettyClientConfig;
+import org.apache.rocketmq.remoting.netty.NettyServerConfig;
+import org.apache.rocketmq.store.config.MessageStoreConfig;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TopicConfigManagerTest {
+    private final String storePath = System.getProperty("user.home") + File.separator + "unitteststore-topic-" + UUID.randomUUID();
+    private TopicConfigManager topicConfigManager;
+
+    @Before
+    public void init() {
+        MessageStoreConfig messageStoreConfig = new MessageStoreConfig();
+        messageStoreConfig.setStorePathRootDir(storePath);
+        BrokerController brokerController = new BrokerController(new BrokerConfig(), new NettyServerConfig(), new NettyClientConfig(), messageStoreConfig);
+        topicConfigManager = new TopicConfigManager(brokerController);
+    }
+
+    @After
+    public void destroy() {
+        UtilAll.deleteFile(new File(storePath));
+    }
+
+    @Test
+    public void testBuildTopicConfigDelta() {
+        topicConfigManager.updateTopicConfig(new TopicConfig("TopicA", 8, 8, 6));
+        DataVersion baseDataVersion = new DataVersion();
+        baseDataVersion.assignNewOne(topicConfigManager.getDataVersion());
+
+        topicConfigManager.updateTopicConfig(new TopicConfig("TopicB", 8, 8, 6));
+        topicConfigManager.updateTopicConfig(new TopicConfig("TopicC", 8, 8, 6));
+        topicConfigManager.deleteTopicConfig("TopicA");
+        topicConfigManager.deleteTopicConfig("TopicC");
+
+        RegisterBrokerDeltaBody deltaBody = topicConfigManager.buildTopicConfigDelta(baseDataVersion);
+        assertThat(deltaBody).isNotNull();
+        assertThat(deltaBody.getBaseDataVersion()).isEqualTo(baseDataVersion);
+        assertThat(deltaBody.getDataVersion()).isEqualTo(topicConfigManager.getDataVersion());
+        assertThat(deltaBody.getTopicConfigTable().keySet()).containsExactly("TopicB");
+        assertThat(deltaBody.getRemovedTopics()).containsExactlyInAnyOrder("TopicA", "TopicC");
+
+        deltaBody = topicConfigManager.buildTopicConfigDelta(topicConfigManager.getDataVersion());
+        assertThat(deltaBody.getTopicConfigTable()).isEmpty();
+        assertThat(deltaBody.getRemovedTopics()).isEmpty();
+    }
+
+    @Test
+    public void testBuildTopicConfigDelta_Untracked() {
+        topicConfigManager.updateTopicConfig(new TopicConfig("TopicA", 8, 8, 6));
+        DataVersion baseDataVersion = new DataVersion();
+        baseDataVersion.assignNewOne(topicConfigManager.getDataVersion());
+
+        // the data version moved without telling which topics changed
+        topicConfigManager.getDataVersion().nextVersion();
+        assertThat(topicConfigManager.buildTopicConfigDelta(baseDataVersion)).isNull();
+        assertThat(topicConfigManager.buildTopicConfigDelta(topicConfigManager.getDataVersion())).isNotNull();
+
+        DataVersion newerDataVersion = new DataVersion();
+        newerDataVersion.setCounter(new AtomicLong(topicConfigManager.getDataVersion().getCounter().get() + 1));
+        assertThat(topicConfigManager.buildTopicConfigDelta(newerDataVersion)).isNull();
+    }
+}
@@ -16,8 +16,13 @@
  */
 package org.apache.rocketmq.broker.transaction.queue;
 
+import io.netty.channel.Channel;
 import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
 import org.apache.rocketmq.broker.BrokerController;
+import org.apache.rocketmq.broker.client.ClientChannelInfo;
+import org.apache.rocketmq.broker.client.net.Broker2Client;
 import org.apache.rocketmq.common.BrokerConfig;
 import org.apache.rocketmq.common.MixAll;
 import org.apache.rocketmq.common.message.MessageAccessor;
@@ -25,6 +30,7 @@ import org.apache.rocketmq.common.message.MessageConst;
 import org.apache.rocketmq.common.message.MessageExt;
 import org.apache.rocketmq.remoting.netty.NettyClientConfig;
 import org.apache.rocketmq.remoting.netty.NettyServerConfig;
+import org.apache.rocketmq.remoting.protocol.LanguageCode;
 import org.apache.rocketmq.store.MessageExtBrokerInner;
 import org.apache.rocketmq.store.MessageStore;
 import org.apache.rocketmq.store.config.MessageStoreConfig;
@@ -36,6 +42,12 @@ import org.mockito.Mock;
 import org.mockito.Spy;
 import org.mockito.junit.MockitoJUnitRunner;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
 @RunWith(MockitoJUnitRunner.class)
 public class DefaultTransactionalMessageCheckListenerTest {
 
@@ -72,6 +84,26 @@ public class DefaultTransactionalMessageCheckListenerTest {
         listener.sendCheckMessage(messageExt);
     }
 
+    @Test
+    public void testSendCheckMessages() throws Exception {
+        Channel channel = mock(Channel.class);
+        when(channel.isActive()).thenReturn(true);
+        when(channel.isWritable()).thenReturn(true);
+        ClientChannelInfo clientChannelInfo = new ClientChannelInfo(channel, "clientId", LanguageCode.JAVA, 0);
+        clientChannelInfo.setTransactionCheckBatchSupported(true);
+        brokerController.getProducerManager().registerProducer("PID_TEST_BATCH", clientChannelInfo);
+        Broker2Client broker2Client = mock(Broker2Client.class);
+        doReturn(broker2Client).when(brokerController).getBroker2Client();
+
+        List<MessageExt> msgExtList = new ArrayList<MessageExt>();
+        msgExtList.add(createMessageExt());
+        msgExtList.add(createMessageExt());
+        listener.sendCheckMessages("PID_TEST_BATCH", msgExtList);
+        verify(broker2Client).checkProducerTransactionStateBatch("PID_TEST_BATCH", channel, msgExtList);
+        assertThat(msgExtList.get(0).getTopic()).isEqualTo("realTopic");
+        assertThat(msgExtList.get(1).getQueueId()).isEqualTo(1);
+    }
+
     @Test
     public void sendCheckMessage() {
         listener.resolveDiscardMsg(createMessageExt());
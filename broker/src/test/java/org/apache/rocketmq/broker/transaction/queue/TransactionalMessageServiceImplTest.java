@@ -17,6 +17,7 @@
 package org.apache.rocketmq.broker.transaction.queue;
 
 import org.apache.rocketmq.broker.BrokerController;
+import org.apache.rocketmq.broker.BrokerPathConfigHelper;
 import org.apache.rocketmq.broker.transaction.AbstractTransactionalMessageCheckListener;
 import org.apache.rocketmq.broker.transaction.OperationResult;
 import org.apache.rocketmq.broker.transaction.TransactionalMessageService;
@@ -24,6 +25,7 @@ import org.apache.rocketmq.client.consumer.PullResult;
 import org.apache.rocketmq.client.consumer.PullStatus;
 import org.apache.rocketmq.common.BrokerConfig;
 import org.apache.rocketmq.common.MixAll;
+import org.apache.rocketmq.common.UtilAll;
 import org.apache.rocketmq.common.message.MessageConst;
 import org.apache.rocketmq.common.message.MessageExt;
 import org.apache.rocketmq.common.message.MessageQueue;
@@ -47,6 +49,7 @@ import org.mockito.invocation.InvocationOnMock;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.mockito.stubbing.Answer;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
@@ -58,7 +61,10 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -150,6 +156,83 @@ public class TransactionalMessageServiceImplTest {
         assertThat(checkMessage.get()).isEqualTo(1);
     }
 
+    @Test
+    public void testCheck_withOpIndex() {
+        brokerController.getMessageStoreConfig().setStorePathRootDir(System.getProperty("java.io.tmpdir")
+            + File.separator + "transactionOpIndexTest" + System.nanoTime());
+        when(bridge.getBrokerController()).thenReturn(this.brokerController);
+        queueTransactionMsgService.open();
+        when(bridge.fetchMessageQueues(MixAll.RMQ_SYS_TRANS_HALF_TOPIC)).thenReturn(createMessageQueueSet(MixAll.RMQ_SYS_TRANS_HALF_TOPIC));
+        when(bridge.getOpMessage(0, 0, 32)).thenReturn(createOpPulResult(MixAll.RMQ_SYS_TRANS_OP_HALF_TOPIC, 0, "0", 1));
+        when(bridge.getOpMessage(0, 1, 32)).thenReturn(createPullResult(MixAll.RMQ_SYS_TRANS_OP_HALF_TOPIC, 1, "0", 0));
+        when(bridge.getHalfMessage(0, 1, 1)).thenReturn(createPullResult(MixAll.RMQ_SYS_TRANS_HALF_TOPIC, 1, "hello", 1));
+        when(bridge.getHalfMessage(0, 2, 1)).thenReturn(createPullResult(MixAll.RMQ_SYS_TRANS_HALF_TOPIC, 2, "hello", 0));
+        when(bridge.renewHalfMessageInner(any(MessageExtBrokerInner.class))).thenReturn(createMessageBrokerInner());
+        when(bridge.putMessageReturnResult(any(MessageExtBrokerInner.class))).thenReturn(new PutMessageResult
+            (PutMessageStatus.PUT_OK, new AppendMessageResult(AppendMessageStatus.PUT_OK)));
+        long timeOut = this.brokerController.getBrokerConfig().getTransactionTimeOut();
+        int checkMax = this.brokerController.getBrokerConfig().getTransactionCheckMax();
+        final AtomicInteger checkMessage = new AtomicInteger(0);
+        doAnswer(new Answer() {
+            @Override
+            public Object answer(InvocationOnMock invocation) {
+                checkMessage.addAndGet(1);
+                return checkMessage;
+            }
+        }).when(listener).resolveHalfMsg(any(MessageExt.class));
+        queueTransactionMsgService.check(timeOut, checkMax, listener);
+        queueTransactionMsgService.close();
+        assertThat(checkMessage.get()).isEqualTo(1);
+        // half offset 0 is resolved by the op index, it is neither pulled nor checked
+        verify(bridge, never()).getHalfMessage(0, 0, 1);
+        UtilAll.deleteFile(new File(brokerController.getMessageStoreConfig().getStorePathRootDir()));
+    }
+
+    @Test
+    public void testCheck_withOpIndexAheadOfConsumeOffsets() {
+        String rootDir = System.getProperty("java.io.tmpdir") + File.separator + "transactionOpIndexTest" + System.nanoTime();
+        brokerController.getMessageStoreConfig().setStorePathRootDir(rootDir);
+        // the index was persisted after half offsets 0 and 1 were done, the consume offsets were not
+        TransactionalOpIndex persisted = new TransactionalOpIndex();
+        persisted.load(BrokerPathConfigHelper.getTransactionOpIndexPath(rootDir));
+        persisted.markResolved(0, 0);
+        persisted.markResolved(0, 5);
+        persisted.setOpOffset(0, 4);
+        persisted.setTruncatedOffset(0, 2);
+        persisted.persist();
+
+        when(bridge.getBrokerController()).thenReturn(this.brokerController);
+        queueTransactionMsgService.open();
+        when(bridge.fetchMessageQueues(MixAll.RMQ_SYS_TRANS_HALF_TOPIC)).thenReturn(createMessageQueueSet(MixAll.RMQ_SYS_TRANS_HALF_TOPIC));
+        when(bridge.getOpMessage(0, 4, 32)).thenReturn(createPullResult(MixAll.RMQ_SYS_TRANS_OP_HALF_TOPIC, 4, "0", 0));
+        when(bridge.getHalfMessage(0, 2, 1)).thenReturn(createPullResult(MixAll.RMQ_SYS_TRANS_HALF_TOPIC, 2, "hello", 1));
+        when(bridge.getHalfMessage(0, 3, 1)).thenReturn(createPullResult(MixAll.RMQ_SYS_TRANS_HALF_TOPIC, 3, "hello", 0));
+        when(bridge.renewHalfMessageInner(any(MessageExtBrokerInner.class))).thenReturn(createMessageBrokerInner());
+        when(bridge.putMessageReturnResult(any(MessageExtBrokerInner.class))).thenReturn(new PutMessageResult
+            (PutMessageStatus.PUT_OK, new AppendMessageResult(AppendMessageStatus.PUT_OK)));
+        long timeOut = this.brokerController.getBrokerConfig().getTransactionTimeOut();
+        int checkMax = this.brokerController.getBrokerConfig().getTransactionCheckMax();
+        final AtomicInteger checkMessage = new AtomicInteger(0);
+        doAnswer(new Answer() {
+            @Override
+            public Object answer(InvocationOnMock invocation) {
+                checkMessage.addAndGet(1);
+                return checkMessage;
+            }
+        }).when(listener).resolveHalfMsg(any(MessageExt.class));
+        queueTransactionMsgService.check(timeOut, checkMax, listener);
+        queueTransactionMsgService.close();
+        // the done half offsets are skipped, neither pulled nor checked a second time
+        assertThat(checkMessage.get()).isEqualTo(1);
+        verify(bridge, never()).getHalfMessage(0, 0, 1);
+        verify(bridge, never()).getHalfMessage(0, 1, 1);
+        verify(bridge, never()).getOpMessage(0, 0, 32);
+        // the op consume offset follows the index although half offset 5 is still ahead
+        verify(bridge).updateConsumeOffset(any(MessageQueue.class), eq(4L));
+        verify(bridge).updateConsumeOffset(any(MessageQueue.class), eq(3L));
+        UtilAll.deleteFile(new File(rootDir));
+    }
+
     @Test
     public void testDeletePrepareMessage() {
         when(bridge.putOpMessage(any(MessageExt.class), anyString())).thenReturn(true);
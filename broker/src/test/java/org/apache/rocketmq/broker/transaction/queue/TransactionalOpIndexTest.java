@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.rocketmq.broker.transaction.queue;
+
+import java.io.File;
+import org.apache.rocketmq.common.UtilAll;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TransactionalOpIndexTest {
+    private final String fileName = System.getProperty("java.io.tmpdir") + File.separator
+        + "transactionOpIndexTest" + System.nanoTime() + File.separator + "transactionOpIndex";
+
+    @After
+    public void destroy() {
+        UtilAll.deleteFile(new File(fileName).getParentFile());
+    }
+
+    @Test
+    public void testMarkAndTruncate() {
+        TransactionalOpIndex opIndex = new TransactionalOpIndex();
+        opIndex.markResolved(0, 3);
+        opIndex.markResolved(0, TransactionalOpIndex.SEGMENT_SIZE + 5);
+        opIndex.markResolved(1, 3);
+
+        assertThat(opIndex.isResolved(0, 3)).isTrue();
+        assertThat(opIndex.isResolved(0, 4)).isFalse();
+        assertThat(opIndex.isResolved(0, TransactionalOpIndex.SEGMENT_SIZE + 5)).isTrue();
+        assertThat(opIndex.isResolved(2, 3)).isFalse();
+        assertThat(opIndex.getMaxHalfOffset(0)).isEqualTo(TransactionalOpIndex.SEGMENT_SIZE + 5);
+
+        opIndex.truncate(0, TransactionalOpIndex.SEGMENT_SIZE);
+        assertThat(opIndex.isResolved(0, 3)).isFalse();
+        assertThat(opIndex.isResolved(0, TransactionalOpIndex.SEGMENT_SIZE + 5)).isTrue();
+        assertThat(opIndex.isResolved(1, 3)).isTrue();
+        assertThat(opIndex.getTruncatedOffset(0)).isEqualTo(TransactionalOpIndex.SEGMENT_SIZE);
+        assertThat(opIndex.getTruncatedOffset(1)).isEqualTo(-1);
+    }
+
+    @Test
+    public void testPersistAndLoad() {
+        TransactionalOpIndex opIndex = new TransactionalOpIndex();
+        assertThat(opIndex.load(fileName)).isTrue();
+        assertThat(opIndex.getOpOffset(0)).isEqualTo(-1);
+        opIndex.markResolved(0, 10);
+        opIndex.markResolved(0, 70);
+        opIndex.setOpOffset(0, 2);
+        opIndex.setTruncatedOffset(0, 5);
+        opIndex.persist();
+
+        TransactionalOpIndex loaded = new TransactionalOpIndex();
+        assertThat(loaded.load(fileName)).isTrue();
+        assertThat(loaded.getOpOffset(0)).isEqualTo(2);
+        assertThat(loaded.getMaxHalfOffset(0)).isEqualTo(70);
+        assertThat(loaded.getTruncatedOffset(0)).isEqualTo(5);
+        assertThat(loaded.isResolved(0, 10)).isTrue();
+        assertThat(loaded.isResolved(0, 70)).isTrue();
+        assertThat(loaded.isResolved(0, 11)).isFalse();
+    }
+}
@@ -24,6 +24,7 @@ import org.apache.rocketmq.common.message.MessageQueue;
 import org.apache.rocketmq.common.protocol.NamespaceUtil;
 import org.apache.rocketmq.common.utils.NameServerAddressUtils;
 import org.apache.rocketmq.remoting.common.RemotingUtil;
+import org.apache.rocketmq.remoting.netty.NettySystemConfig;
 import org.apache.rocketmq.remoting.netty.TlsSystemConfig;
 import org.apache.rocketmq.remoting.protocol.LanguageCode;
 
@@ -57,6 +58,11 @@ public class ClientConfig {
 
     private boolean useTLS = TlsSystemConfig.tlsEnable;
 
+    /**
+     * Share event loops, executors and the response timer with other clients in the same JVM
+     */
+    private boolean shareTransportResources = NettySystemConfig.CLIENT_SHARE_TRANSPORT_RESOURCES;
+
     private LanguageCode language = LanguageCode.JAVA;
 
     public String buildMQClientId() {
@@ -139,6 +145,7 @@ public class ClientConfig {
         this.unitName = cc.unitName;
         this.vipChannelEnabled = cc.vipChannelEnabled;
         this.useTLS = cc.useTLS;
+        this.shareTransportResources = cc.shareTransportResources;
         this.namespace = cc.namespace;
         this.language = cc.language;
     }
@@ -156,6 +163,7 @@ public class ClientConfig {
         cc.unitName = unitName;
         cc.vipChannelEnabled = vipChannelEnabled;
         cc.useTLS = useTLS;
+        cc.shareTransportResources = shareTransportResources;
         cc.namespace = namespace;
         cc.language = language;
         return cc;
@@ -240,6 +248,14 @@ public class ClientConfig {
         this.useTLS = useTLS;
     }
 
+    public boolean isShareTransportResources() {
+        return shareTransportResources;
+    }
+
+    public void setShareTransportResources(boolean shareTransportResources) {
+        this.shareTransportResources = shareTransportResources;
+    }
+
     public LanguageCode getLanguage() {
         return language;
     }
@@ -279,6 +295,6 @@ public class ClientConfig {
             + ", clientCallbackExecutorThreads=" + clientCallbackExecutorThreads + ", pollNameServerInterval=" + pollNameServerInterval
             + ", heartbeatBrokerInterval=" + heartbeatBrokerInterval + ", persistConsumerOffsetInterval="
             + persistConsumerOffsetInterval + ", unitMode=" + unitMode + ", unitName=" + unitName + ", vipChannelEnabled="
-            + vipChannelEnabled + ", useTLS=" + useTLS + ", language=" + language.name() + ", namespace=" + namespace + "]";
+            + vipChannelEnabled + ", useTLS=" + useTLS + ", shareTransportResources=" + shareTransportResources + ", language=" + language.name() + ", namespace=" + namespace + "]";
     }
 }
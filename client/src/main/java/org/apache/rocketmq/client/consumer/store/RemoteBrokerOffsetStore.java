@@ -32,9 +32,11 @@ import org.apache.rocketmq.common.MixAll;
 import org.apache.rocketmq.common.UtilAll;
 import org.apache.rocketmq.logging.InternalLogger;
 import org.apache.rocketmq.common.message.MessageQueue;
+import org.apache.rocketmq.common.protocol.body.UpdateConsumerOffsetBatchRequestBody;
 import org.apache.rocketmq.common.protocol.header.QueryConsumerOffsetRequestHeader;
 import org.apache.rocketmq.common.protocol.header.UpdateConsumerOffsetRequestHeader;
 import org.apache.rocketmq.remoting.exception.RemotingException;
+import org.apache.rocketmq.remoting.protocol.RemotingSysResponseCode;
 
 /**
  * Remote storage implementation
@@ -45,6 +47,8 @@ public class RemoteBrokerOffsetStore implements OffsetStore {
     private final String groupName;
     private ConcurrentMap<MessageQueue, AtomicLong> offsetTable =
         new ConcurrentHashMap<MessageQueue, AtomicLong>();
+    private final ConcurrentMap<String/* brokerAddr */, Boolean> batchUnsupportedBrokers =
+        new ConcurrentHashMap<String, Boolean>();
 
     public RemoteBrokerOffsetStore(MQClientInstance mQClientFactory, String groupName) {
         this.mQClientFactory = mQClientFactory;
@@ -117,29 +121,38 @@ public class RemoteBrokerOffsetStore implements OffsetStore {
             return;
 
         final HashSet<MessageQueue> unusedMQ = new HashSet<MessageQueue>();
-        if (!mqs.isEmpty()) {
-            for (Map.Entry<MessageQueue, AtomicLong> entry : this.offsetTable.entrySet()) {
-                MessageQueue mq = entry.getKey();
-                AtomicLong offset = entry.getValue();
-                if (offset != null) {
-                    if (mqs.contains(mq)) {
-                        try {
-                            this.updateConsumeOffsetToBroker(mq, offset.get());
-                            log.info("[persistAll] Group: {} ClientId: {} updateConsumeOffsetToBroker {} {}",
-                                this.groupName,
-                                this.mQClientFactory.getClientId(),
-                                mq,
-                                offset.get());
-                        } catch (Exception e) {
-                            log.error("updateConsumeOffsetToBroker exception, " + mq.toString(), e);
-                        }
-                    } else {
-                        unusedMQ.add(mq);
+        final HashMap<String/* brokerName */, HashMap<MessageQueue, Long>> brokerOffsetTable =
+            new HashMap<String, HashMap<MessageQueue, Long>>();
+        for (Map.Entry<MessageQueue, AtomicLong> entry : this.offsetTable.entrySet()) {
+            MessageQueue mq = entry.getKey();
+            AtomicLong offset = entry.getValue();
+            if (offset != null) {
+                if (mqs.contains(mq)) {
+                    HashMap<MessageQueue, Long> offsets = brokerOffsetTable.get(mq.getBrokerName());
+                    if (null == offsets) {
+                        offsets = new HashMap<MessageQueue, Long>();
+                        brokerOffsetTable.put(mq.getBrokerName(), offsets);
                     }
+                    offsets.put(mq, offset.get());
+                } else {
+                    unusedMQ.add(mq);
                 }
             }
         }
 
+        for (Map.Entry<String, HashMap<MessageQueue, Long>> entry : brokerOffsetTable.entrySet()) {
+            try {
+                this.updateConsumeOffsetToBroker(entry.getKey(), entry.getValue());
+                log.info("[persistAll] Group: {} ClientId: {} updateConsumeOffsetToBroker {} {}",
+                    this.groupName,
+                    this.mQClientFactory.getClientId(),
+                    entry.getKey(),
+                    entry.getValue());
+            } catch (Exception e) {
+                log.error("updateConsumeOffsetToBroker exception, " + entry.getKey(), e);
+            }
+        }
+
         if (!unusedMQ.isEmpty()) {
             for (MessageQueue mq : unusedMQ) {
                 this.offsetTable.remove(mq);
@@ -186,6 +199,51 @@ public class RemoteBrokerOffsetStore implements OffsetStore {
         return cloneOffsetTable;
     }
 
+    /**
+     * Update the offsets of all the queues of one broker in one request, falling back to one oneway request per
+     * queue when the broker does not support batches.
+     */
+    private void updateConsumeOffsetToBroker(final String brokerName, final Map<MessageQueue, Long> offsets)
+        throws RemotingException, MQBrokerException, InterruptedException, MQClientException {
+        if (offsets.size() > 1) {
+            MessageQueue anyMQ = offsets.keySet().iterator().next();
+            FindBrokerResult findBrokerResult = this.mQClientFactory.findBrokerAddressInAdmin(brokerName);
+            if (null == findBrokerResult) {
+                this.mQClientFactory.updateTopicRouteInfoFromNameServer(anyMQ.getTopic());
+                findBrokerResult = this.mQClientFactory.findBrokerAddressInAdmin(brokerName);
+            }
+
+            if (null == findBrokerResult) {
+                throw new MQClientException("The broker[" + brokerName + "] not exist", null);
+            }
+
+            if (!this.batchUnsupportedBrokers.containsKey(findBrokerResult.getBrokerAddr())) {
+                UpdateConsumerOffsetBatchRequestBody requestBody = new UpdateConsumerOffsetBatchRequestBody();
+                requestBody.setConsumerGroup(this.groupName);
+                requestBody.setOffsetTable(offsets);
+                try {
+                    this.mQClientFactory.getMQClientAPIImpl().updateConsumerOffsetBatch(
+                        findBrokerResult.getBrokerAddr(), requestBody, 1000 * 5);
+                    return;
+                } catch (MQBrokerException e) {
+                    if (e.getResponseCode() != RemotingSysResponseCode.REQUEST_CODE_NOT_SUPPORTED) {
+                        throw e;
+                    }
+                    this.batchUnsupportedBrokers.put(findBrokerResult.getBrokerAddr(), Boolean.TRUE);
+                    log.info("broker {} does not support batch offset update, update offsets one by one", findBrokerResult.getBrokerAddr());
+                }
+            }
+        }
+
+        for (Map.Entry<MessageQueue, Long> entry : offsets.entrySet()) {
+            try {
+                this.updateConsumeOffsetToBroker(entry.getKey(), entry.getValue());
+            } catch (Exception e) {
+                log.error("updateConsumeOffsetToBroker exception, " + entry.getKey().toString(), e);
+            }
+        }
+    }
+
     /**
      * Update the Consumer Offset in one way, once the Master is off, updated to Slave,
      * here need to be optimized.
@@ -17,7 +17,9 @@
 package org.apache.rocketmq.client.impl;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import io.netty.channel.ChannelHandlerContext;
@@ -64,6 +66,8 @@ public class ClientRemotingProcessor implements NettyRequestProcessor {
         switch (request.getCode()) {
             case RequestCode.CHECK_TRANSACTION_STATE:
                 return this.checkTransactionState(ctx, request);
+            case RequestCode.CHECK_TRANSACTION_STATE_BATCH:
+                return this.checkTransactionStateBatch(ctx, request);
             case RequestCode.NOTIFY_CONSUMER_IDS_CHANGED:
                 return this.notifyConsumerIdsChanged(ctx, request);
             case RequestCode.RESET_CONSUMER_CLIENT_OFFSET:
@@ -121,6 +125,61 @@ public class ClientRemotingProcessor implements NettyRequestProcessor {
         return null;
     }
 
+    public RemotingCommand checkTransactionStateBatch(ChannelHandlerContext ctx,
+        RemotingCommand request) throws RemotingCommandException {
+        if (null == request.getBody()) {
+            return null;
+        }
+        final ByteBuffer byteBuffer = ByteBuffer.wrap(request.getBody());
+        final List<MessageExt> messageExtList = new ArrayList<MessageExt>();
+        while (byteBuffer.hasRemaining()) {
+            MessageExt messageExt = MessageDecoder.decode(byteBuffer);
+            if (null == messageExt) {
+                break;
+            }
+            messageExtList.add(messageExt);
+        }
+        if (messageExtList.isEmpty()) {
+            log.warn("checkTransactionStateBatch, decode messages failed");
+            return null;
+        }
+
+        final String group = messageExtList.get(0).getProperty(MessageConst.PROPERTY_PRODUCER_GROUP);
+        if (null == group) {
+            log.warn("checkTransactionStateBatch, pick producer group failed");
+            return null;
+        }
+        MQProducerInner producer = this.mqClientFactory.selectProducer(group);
+        if (null == producer) {
+            log.debug("checkTransactionStateBatch, pick producer by group[{}] failed", group);
+            return null;
+        }
+
+        final List<CheckTransactionStateRequestHeader> requestHeaderList =
+            new ArrayList<CheckTransactionStateRequestHeader>(messageExtList.size());
+        for (MessageExt messageExt : messageExtList) {
+            CheckTransactionStateRequestHeader requestHeader = new CheckTransactionStateRequestHeader();
+            requestHeader.setCommitLogOffset(messageExt.getCommitLogOffset());
+            requestHeader.setOffsetMsgId(messageExt.getMsgId());
+            requestHeader.setMsgId(messageExt.getProperty(MessageConst.PROPERTY_UNIQ_CLIENT_MESSAGE_ID_KEYIDX));
+            requestHeader.setTransactionId(requestHeader.getMsgId());
+            requestHeader.setTranStateTableOffset(messageExt.getQueueOffset());
+            requestHeaderList.add(requestHeader);
+
+            if (StringUtils.isNotEmpty(this.mqClientFactory.getClientConfig().getNamespace())) {
+                messageExt.setTopic(NamespaceUtil
+                    .withoutNamespace(messageExt.getTopic(), this.mqClientFactory.getClientConfig().getNamespace()));
+            }
+            if (null != requestHeader.getTransactionId() && !"".equals(requestHeader.getTransactionId())) {
+                messageExt.setTransactionId(requestHeader.getTransactionId());
+            }
+        }
+
+        final String addr = RemotingHelper.parseChannelRemoteAddr(ctx.channel());
+        producer.checkTransactionState(addr, messageExtList, requestHeaderList);
+        return null;
+    }
+
     public RemotingCommand notifyConsumerIdsChanged(ChannelHandlerContext ctx,
         RemotingCommand request) throws RemotingCommandException {
         try {
@@ -131,6 +131,7 @@ public class MQClientInstance {
         this.nettyClientConfig = new NettyClientConfig();
         this.nettyClientConfig.setClientCallbackExecutorThreads(clientConfig.getClientCallbackExecutorThreads());
         this.nettyClientConfig.setUseTLS(clientConfig.isUseTLS());
+        this.nettyClientConfig.setClientShareTransportResources(clientConfig.isShareTransportResources());
         this.clientRemotingProcessor = new ClientRemotingProcessor(this);
         this.mQClientAPIImpl = new MQClientAPIImpl(this.nettyClientConfig, this.clientRemotingProcessor, rpcHook, clientConfig);
 
@@ -705,6 +706,7 @@ public class MQClientInstance {
 
         // clientID
         heartbeatData.setClientID(this.clientId);
+        heartbeatData.setTransactionCheckBatchSupported(true);
 
         // Consumer
         for (Map.Entry<String, MQConsumerInner> entry : this.consumerTable.entrySet()) {
@@ -75,6 +75,7 @@ import org.apache.rocketmq.common.message.MessageQueue;
 import org.apache.rocketmq.common.message.MessageType;
 import org.apache.rocketmq.common.protocol.NamespaceUtil;
 import org.apache.rocketmq.common.protocol.ResponseCode;
+import org.apache.rocketmq.common.protocol.body.EndTransactionBatchRequestBody;
 import org.apache.rocketmq.common.protocol.header.CheckTransactionStateRequestHeader;
 import org.apache.rocketmq.common.protocol.header.EndTransactionRequestHeader;
 import org.apache.rocketmq.common.protocol.header.SendMessageRequestHeader;
@@ -336,33 +337,8 @@ public class DefaultMQProducerImpl implements MQProducerInner {
                 final LocalTransactionState localTransactionState,
                 final String producerGroup,
                 final Throwable exception) {
-                final EndTransactionRequestHeader thisHeader = new EndTransactionRequestHeader();
-                thisHeader.setCommitLogOffset(checkRequestHeader.getCommitLogOffset());
-                thisHeader.setProducerGroup(producerGroup);
-                thisHeader.setTranStateTableOffset(checkRequestHeader.getTranStateTableOffset());
-                thisHeader.setFromTransactionCheck(true);
-
-                String uniqueKey = message.getProperties().get(MessageConst.PROPERTY_UNIQ_CLIENT_MESSAGE_ID_KEYIDX);
-                if (uniqueKey == null) {
-                    uniqueKey = message.getMsgId();
-                }
-                thisHeader.setMsgId(uniqueKey);
-                thisHeader.setTransactionId(checkRequestHeader.getTransactionId());
-                switch (localTransactionState) {
-                    case COMMIT_MESSAGE:
-                        thisHeader.setCommitOrRollback(MessageSysFlag.TRANSACTION_COMMIT_TYPE);
-                        break;
-                    case ROLLBACK_MESSAGE:
-                        thisHeader.setCommitOrRollback(MessageSysFlag.TRANSACTION_ROLLBACK_TYPE);
-                        log.warn("when broker check, client rollback this transaction, {}", thisHeader);
-                        break;
-                    case UNKNOW:
-                        thisHeader.setCommitOrRollback(MessageSysFlag.TRANSACTION_NOT_TYPE);
-                        log.warn("when broker check, client does not know this transaction state, {}", thisHeader);
-                        break;
-                    default:
-                        break;
-                }
+                final EndTransactionRequestHeader thisHeader =
+                    buildEndTransactionHeader(message, checkRequestHeader, producerGroup, localTransactionState);
 
                 String remark = null;
                 if (exception != null) {
@@ -381,6 +357,86 @@ public class DefaultMQProducerImpl implements MQProducerInner {
         this.checkExecutor.submit(request);
     }
 
+    @Override
+    public void checkTransactionState(final String addr, final List<MessageExt> msgs,
+        final List<CheckTransactionStateRequestHeader> checkRequestHeaders) {
+        Runnable request = new Runnable() {
+            private final String brokerAddr = addr;
+            private final String group = DefaultMQProducerImpl.this.defaultMQProducer.getProducerGroup();
+
+            @Override
+            public void run() {
+                TransactionCheckListener transactionCheckListener = DefaultMQProducerImpl.this.checkListener();
+                TransactionListener transactionListener = getCheckListener();
+                if (transactionCheckListener == null && transactionListener == null) {
+                    log.warn("CheckTransactionState, pick transactionCheckListener by group[{}] failed", group);
+                    return;
+                }
+
+                EndTransactionBatchRequestBody requestBody = new EndTransactionBatchRequestBody();
+                for (int i = 0; i < msgs.size(); i++) {
+                    MessageExt message = msgs.get(i);
+                    LocalTransactionState localTransactionState = LocalTransactionState.UNKNOW;
+                    String remark = null;
+                    try {
+                        if (transactionCheckListener != null) {
+                            localTransactionState = transactionCheckListener.checkLocalTransactionState(message);
+                        } else {
+                            localTransactionState = transactionListener.checkLocalTransaction(message);
+                        }
+                    } catch (Throwable e) {
+                        log.error("Broker call checkTransactionState, but checkLocalTransactionState exception", e);
+                        remark = "checkLocalTransactionState Exception: " + RemotingHelper.exceptionSimpleDesc(e);
+                    }
+                    requestBody.addEndTransaction(
+                        buildEndTransactionHeader(message, checkRequestHeaders.get(i), group, localTransactionState), remark);
+                }
+
+                try {
+                    DefaultMQProducerImpl.this.mQClientFactory.getMQClientAPIImpl().endTransactionBatchOneway(brokerAddr, requestBody,
+                        3000);
+                } catch (Exception e) {
+                    log.error("endTransactionBatchOneway exception", e);
+                }
+            }
+        };
+
+        this.checkExecutor.submit(request);
+    }
+
+    private EndTransactionRequestHeader buildEndTransactionHeader(final MessageExt message,
+        final CheckTransactionStateRequestHeader checkRequestHeader, final String producerGroup,
+        final LocalTransactionState localTransactionState) {
+        final EndTransactionRequestHeader thisHeader = new EndTransactionRequestHeader();
+        thisHeader.setCommitLogOffset(checkRequestHeader.getCommitLogOffset());
+        thisHeader.setProducerGroup(producerGroup);
+        thisHeader.setTranStateTableOffset(checkRequestHeader.getTranStateTableOffset());
+        thisHeader.setFromTransactionCheck(true);
+
+        String uniqueKey = message.getProperties().get(MessageConst.PROPERTY_UNIQ_CLIENT_MESSAGE_ID_KEYIDX);
+        if (uniqueKey == null) {
+            uniqueKey = message.getMsgId();
+        }
+        thisHeader.setMsgId(uniqueKey);
+        thisHeader.setTransactionId(checkRequestHeader.getTransactionId());
+        switch (localTransactionState) {
+            case COMMIT_MESSAGE:
+                thisHeader.setCommitOrRollback(MessageSysFlag.TRANSACTION_COMMIT_TYPE);
+                break;
+            case ROLLBACK_MESSAGE:
+                thisHeader.setCommitOrRollback(MessageSysFlag.TRANSACTION_ROLLBACK_TYPE);
+                log.warn("when broker check, client rollback this transaction, {}", thisHeader);
+                break;
+            case UNKNOW:
+                thisHeader.setCommitOrRollback(MessageSysFlag.TRANSACTION_NOT_TYPE);
+                log.warn("when broker check, client does not know this transaction state, {}", thisHeader);
+                break;
+            default:
+                break;
+        }
+        return thisHeader;
+    }
+
     @Override
     public void updateTopicPublishInfo(final String topic, final TopicPublishInfo info) {
         if (info != null && topic != null) {
@@ -16,6 +16,7 @@
  */
 package org.apache.rocketmq.client.impl.producer;
 
+import java.util.List;
 import java.util.Set;
 import org.apache.rocketmq.client.producer.TransactionCheckListener;
 import org.apache.rocketmq.client.producer.TransactionListener;
@@ -35,6 +36,11 @@ public interface MQProducerInner {
         final MessageExt msg,
         final CheckTransactionStateRequestHeader checkRequestHeader);
 
+    void checkTransactionState(
+        final String addr,
+        final List<MessageExt> msgs,
+        final List<CheckTransactionStateRequestHeader> checkRequestHeaders);
+
     void updateTopicPublishInfo(final String topic, final TopicPublishInfo info);
 
     boolean isUnitMode();
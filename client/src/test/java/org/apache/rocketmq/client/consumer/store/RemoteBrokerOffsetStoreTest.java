@@ -24,12 +24,15 @@ import org.apache.rocketmq.client.impl.FindBrokerResult;
 import org.apache.rocketmq.client.impl.MQClientAPIImpl;
 import org.apache.rocketmq.client.impl.factory.MQClientInstance;
 import org.apache.rocketmq.common.message.MessageQueue;
+import org.apache.rocketmq.common.protocol.body.UpdateConsumerOffsetBatchRequestBody;
 import org.apache.rocketmq.common.protocol.header.QueryConsumerOffsetRequestHeader;
 import org.apache.rocketmq.common.protocol.header.UpdateConsumerOffsetRequestHeader;
 import org.apache.rocketmq.remoting.exception.RemotingException;
+import org.apache.rocketmq.remoting.protocol.RemotingSysResponseCode;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.junit.MockitoJUnitRunner;
@@ -39,8 +42,12 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -124,6 +131,32 @@ public class RemoteBrokerOffsetStoreTest {
         assertThat(offsetStore.readOffset(messageQueue, ReadOffsetType.READ_FROM_STORE)).isEqualTo(1025);
     }
 
+    @Test
+    public void testPersistAll_Batch() throws Exception {
+        OffsetStore offsetStore = new RemoteBrokerOffsetStore(mQClientFactory, group);
+        HashSet<MessageQueue> mqs = new HashSet<MessageQueue>();
+        for (int i = 0; i < 4; i++) {
+            MessageQueue messageQueue = new MessageQueue(topic, brokerName, i);
+            offsetStore.updateOffset(messageQueue, 100 + i, false);
+            mqs.add(messageQueue);
+        }
+
+        ArgumentCaptor<UpdateConsumerOffsetBatchRequestBody> bodyCaptor = ArgumentCaptor.forClass(UpdateConsumerOffsetBatchRequestBody.class);
+        offsetStore.persistAll(mqs);
+        verify(mqClientAPI).updateConsumerOffsetBatch(eq("127.0.0.1"), bodyCaptor.capture(), anyLong());
+        assertThat(bodyCaptor.getValue().getConsumerGroup()).isEqualTo(group);
+        assertThat(bodyCaptor.getValue().getOffsetTable()).hasSize(4);
+        assertThat(bodyCaptor.getValue().getOffsetTable().get(new MessageQueue(topic, brokerName, 2))).isEqualTo(102L);
+        verify(mqClientAPI, never()).updateConsumerOffsetOneway(anyString(), any(UpdateConsumerOffsetRequestHeader.class), anyLong());
+
+        doThrow(new MQBrokerException(RemotingSysResponseCode.REQUEST_CODE_NOT_SUPPORTED, ""))
+            .when(mqClientAPI).updateConsumerOffsetBatch(anyString(), any(UpdateConsumerOffsetBatchRequestBody.class), anyLong());
+        offsetStore.persistAll(mqs);
+        offsetStore.persistAll(mqs);
+        verify(mqClientAPI, times(2)).updateConsumerOffsetBatch(anyString(), any(UpdateConsumerOffsetBatchRequestBody.class), anyLong());
+        verify(mqClientAPI, times(8)).updateConsumerOffsetOneway(anyString(), any(UpdateConsumerOffsetRequestHeader.class), anyLong());
+    }
+
     @Test
     public void testRemoveOffset() throws Exception {
         OffsetStore offsetStore = new RemoteBrokerOffsetStore(mQClientFactory, group);
@@ -77,6 +77,12 @@ public class BrokerConfig {
 
     private int flushConsumerOffsetHistoryInterval = 1000 * 60;
 
+    /**
+     * Persist consumer offsets as a binary snapshot plus an append-only change log instead of rewriting
+     * consumerOffset.json, the json file is still read once when no binary store exists yet
+     */
+    private boolean consumerOffsetBinaryStoreEnable = false;
+
     @ImportantField
     private boolean rejectTransactionMessage = false;
     @ImportantField
@@ -95,8 +101,27 @@ public class BrokerConfig {
 
     private long shortPollingTimeMills = 1000;
 
+    /**
+     * Tick of the timing wheel which expires held pull requests, bounds the timeout jitter.
+     */
+    private long pullRequestHoldTickMills = 100;
+
+    /**
+     * Hold the long polling pulls of a consumer whose channel is above the write buffer high water mark, until the
+     * channel drains or this time elapses, instead of reading more messages for it.
+     */
+    private boolean pullPauseWhenChannelUnwritable = true;
+
+    private long pullPauseMaxTimeMills = 3000;
+
     private boolean notifyConsumerIdsChangedEnable = true;
 
+    /**
+     * Changes of a consumer group within this window are merged into one notification per channel, 0 notifies on
+     * every change.
+     */
+    private long notifyConsumerIdsChangedDebounceMillis = 0;
+
     private boolean highSpeedMode = false;
 
     private boolean commercialEnable = true;
@@ -122,6 +147,22 @@ public class BrokerConfig {
     private long waitTimeMillsInHeartbeatQueue = 31 * 1000;
     private long waitTimeMillsInTransactionQueue = 3 * 1000;
 
+    /**
+     * Schedule the send and pull thread pools by request class with weighted fair queues instead of FIFO.
+     */
+    private boolean requestSchedulingEnable = false;
+    private int sendRequestWeight = 8;
+    private int sendOnewayRequestWeight = 4;
+    private int sendBackRequestWeight = 1;
+    private int pullRequestWeight = 4;
+    private int pullBacklogRequestWeight = 1;
+    private long waitTimeMillsInSendBackQueue = 200;
+    private long waitTimeMillsInPullBacklogQueue = 5 * 1000;
+    /**
+     * A pull more than this number of messages behind the max offset of its queue is a backlog pull.
+     */
+    private long pullBacklogThreshold = 100000;
+
     private long startAcceptSendRequestTimeStamp = 0L;
 
     private boolean traceOn = true;
@@ -149,6 +190,12 @@ public class BrokerConfig {
 
     private boolean forceRegister = true;
 
+    /**
+     * Only send the topic configs changed since the data version registered on a name server, the name servers must
+     * support REGISTER_BROKER_DELTA.
+     */
+    private boolean registerBrokerDeltaEnable = false;
+
     /**
      * This configurable item defines interval of topics registration of broker to name server. Allowing values are
      * between 10, 000 and 60, 000 milliseconds.
@@ -174,6 +221,26 @@ public class BrokerConfig {
     @ImportantField
     private long transactionCheckInterval = 60 * 1000;
 
+    /**
+     * Keep a persistent bitmap of committed/rolled back half offsets instead of rescanning the op queue every check.
+     */
+    private boolean transactionOpIndexEnable = true;
+
+    /**
+     * Check half messages of one producer group with a single request, only for producers which support it.
+     */
+    private boolean transactionCheckBatchEnable = true;
+
+    /**
+     * Max half messages carried by one batch check request.
+     */
+    private int transactionCheckBatchSize = 32;
+
+    /**
+     * Max bytes of the encoded half messages carried by one batch check request, a larger message is sent alone.
+     */
+    private int transactionCheckBatchMaxBytes = 1024 * 1024;
+
     /**
      * Acl feature switch
      */
@@ -198,6 +265,78 @@ public class BrokerConfig {
         this.traceOn = traceOn;
     }
 
+    public boolean isRequestSchedulingEnable() {
+        return requestSchedulingEnable;
+    }
+
+    public void setRequestSchedulingEnable(boolean requestSchedulingEnable) {
+        this.requestSchedulingEnable = requestSchedulingEnable;
+    }
+
+    public int getSendRequestWeight() {
+        return sendRequestWeight;
+    }
+
+    public void setSendRequestWeight(int sendRequestWeight) {
+        this.sendRequestWeight = sendRequestWeight;
+    }
+
+    public int getSendOnewayRequestWeight() {
+        return sendOnewayRequestWeight;
+    }
+
+    public void setSendOnewayRequestWeight(int sendOnewayRequestWeight) {
+        this.sendOnewayRequestWeight = sendOnewayRequestWeight;
+    }
+
+    public int getSendBackRequestWeight() {
+        return sendBackRequestWeight;
+    }
+
+    public void setSendBackRequestWeight(int sendBackRequestWeight) {
+        this.sendBackRequestWeight = sendBackRequestWeight;
+    }
+
+    public int getPullRequestWeight() {
+        return pullRequestWeight;
+    }
+
+    public void setPullRequestWeight(int pullRequestWeight) {
+        this.pullRequestWeight = pullRequestWeight;
+    }
+
+    public int getPullBacklogRequestWeight() {
+        return pullBacklogRequestWeight;
+    }
+
+    public void setPullBacklogRequestWeight(int pullBacklogRequestWeight) {
+        this.pullBacklogRequestWeight = pullBacklogRequestWeight;
+    }
+
+    public long getWaitTimeMillsInSendBackQueue() {
+        return waitTimeMillsInSendBackQueue;
+    }
+
+    public void setWaitTimeMillsInSendBackQueue(long waitTimeMillsInSendBackQueue) {
+        this.waitTimeMillsInSendBackQueue = waitTimeMillsInSendBackQueue;
+    }
+
+    public long getWaitTimeMillsInPullBacklogQueue() {
+        return waitTimeMillsInPullBacklogQueue;
+    }
+
+    public void setWaitTimeMillsInPullBacklogQueue(long waitTimeMillsInPullBacklogQueue) {
+        this.waitTimeMillsInPullBacklogQueue = waitTimeMillsInPullBacklogQueue;
+    }
+
+    public long getPullBacklogThreshold() {
+        return pullBacklogThreshold;
+    }
+
+    public void setPullBacklogThreshold(long pullBacklogThreshold) {
+        this.pullBacklogThreshold = pullBacklogThreshold;
+    }
+
     public long getStartAcceptSendRequestTimeStamp() {
         return startAcceptSendRequestTimeStamp;
     }
@@ -406,6 +545,14 @@ public class BrokerConfig {
         this.flushConsumerOffsetHistoryInterval = flushConsumerOffsetHistoryInterval;
     }
 
+    public boolean isConsumerOffsetBinaryStoreEnable() {
+        return consumerOffsetBinaryStoreEnable;
+    }
+
+    public void setConsumerOffsetBinaryStoreEnable(boolean consumerOffsetBinaryStoreEnable) {
+        this.consumerOffsetBinaryStoreEnable = consumerOffsetBinaryStoreEnable;
+    }
+
     public boolean isClusterTopicEnable() {
         return clusterTopicEnable;
     }
@@ -510,6 +657,14 @@ public class BrokerConfig {
         this.notifyConsumerIdsChangedEnable = notifyConsumerIdsChangedEnable;
     }
 
+    public long getNotifyConsumerIdsChangedDebounceMillis() {
+        return notifyConsumerIdsChangedDebounceMillis;
+    }
+
+    public void setNotifyConsumerIdsChangedDebounceMillis(long notifyConsumerIdsChangedDebounceMillis) {
+        this.notifyConsumerIdsChangedDebounceMillis = notifyConsumerIdsChangedDebounceMillis;
+    }
+
     public long getShortPollingTimeMills() {
         return shortPollingTimeMills;
     }
@@ -518,6 +673,30 @@ public class BrokerConfig {
         this.shortPollingTimeMills = shortPollingTimeMills;
     }
 
+    public long getPullRequestHoldTickMills() {
+        return pullRequestHoldTickMills;
+    }
+
+    public void setPullRequestHoldTickMills(long pullRequestHoldTickMills) {
+        this.pullRequestHoldTickMills = pullRequestHoldTickMills;
+    }
+
+    public boolean isPullPauseWhenChannelUnwritable() {
+        return pullPauseWhenChannelUnwritable;
+    }
+
+    public void setPullPauseWhenChannelUnwritable(boolean pullPauseWhenChannelUnwritable) {
+        this.pullPauseWhenChannelUnwritable = pullPauseWhenChannelUnwritable;
+    }
+
+    public long getPullPauseMaxTimeMills() {
+        return pullPauseMaxTimeMills;
+    }
+
+    public void setPullPauseMaxTimeMills(long pullPauseMaxTimeMills) {
+        this.pullPauseMaxTimeMills = pullPauseMaxTimeMills;
+    }
+
     public int getClientManageThreadPoolNums() {
         return clientManageThreadPoolNums;
     }
@@ -662,6 +841,14 @@ public class BrokerConfig {
         this.forceRegister = forceRegister;
     }
 
+    public boolean isRegisterBrokerDeltaEnable() {
+        return registerBrokerDeltaEnable;
+    }
+
+    public void setRegisterBrokerDeltaEnable(boolean registerBrokerDeltaEnable) {
+        this.registerBrokerDeltaEnable = registerBrokerDeltaEnable;
+    }
+
     public int getHeartbeatThreadPoolQueueCapacity() {
         return heartbeatThreadPoolQueueCapacity;
     }
@@ -718,6 +905,38 @@ public class BrokerConfig {
         this.transactionCheckInterval = transactionCheckInterval;
     }
 
+    public boolean isTransactionOpIndexEnable() {
+        return transactionOpIndexEnable;
+    }
+
+    public void setTransactionOpIndexEnable(boolean transactionOpIndexEnable) {
+        this.transactionOpIndexEnable = transactionOpIndexEnable;
+    }
+
+    public boolean isTransactionCheckBatchEnable() {
+        return transactionCheckBatchEnable;
+    }
+
+    public void setTransactionCheckBatchEnable(boolean transactionCheckBatchEnable) {
+        this.transactionCheckBatchEnable = transactionCheckBatchEnable;
+    }
+
+    public int getTransactionCheckBatchSize() {
+        return transactionCheckBatchSize;
+    }
+
+    public void setTransactionCheckBatchSize(int transactionCheckBatchSize) {
+        this.transactionCheckBatchSize = transactionCheckBatchSize;
+    }
+
+    public int getTransactionCheckBatchMaxBytes() {
+        return transactionCheckBatchMaxBytes;
+    }
+
+    public void setTransactionCheckBatchMaxBytes(int transactionCheckBatchMaxBytes) {
+        this.transactionCheckBatchMaxBytes = transactionCheckBatchMaxBytes;
+    }
+
     public int getEndTransactionThreadPoolNums() {
         return endTransactionThreadPoolNums;
     }
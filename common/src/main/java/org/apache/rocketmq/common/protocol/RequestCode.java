@@ -180,4 +180,36 @@ public class RequestCode {
      * resume logic of checking half messages that have been put in TRANS_CHECK_MAXTIME_TOPIC before
      */
     public static final int RESUME_CHECK_HALF_MESSAGE = 323;
+
+    /**
+     * check the state of many half messages of one producer group in one request
+     */
+    public static final int CHECK_TRANSACTION_STATE_BATCH = 324;
+
+    /**
+     * end many transactions in one request, the answer to CHECK_TRANSACTION_STATE_BATCH
+     */
+    public static final int END_TRANSACTION_BATCH = 325;
+
+    public static final int UPDATE_AND_CREATE_QUOTA = 326;
+
+    public static final int DELETE_QUOTA = 327;
+
+    public static final int GET_ALL_QUOTA = 328;
+
+    /**
+     * update the offsets of many queues of one consumer group in one request
+     */
+    public static final int UPDATE_CONSUMER_OFFSET_BATCH = 329;
+
+    /**
+     * register a broker with the topic configs changed since the data version it was last registered with
+     */
+    public static final int REGISTER_BROKER_DELTA = 330;
+
+    /**
+     * queue wait, processing time and response size of the requests processed by a broker, per request code and per
+     * processor pool
+     */
+    public static final int GET_REQUEST_METRICS = 331;
 }
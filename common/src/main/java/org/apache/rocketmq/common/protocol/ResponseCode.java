@@ -80,4 +80,14 @@ public class ResponseCode extends RemotingSysResponseCode {
 
     public static final int UPDATE_GLOBAL_WHITE_ADDRS_CONFIG_FAILED = 211;
 
+    /**
+     * the topic or client group ran out of its quota, the client should back off before retrying
+     */
+    public static final int QUOTA_EXCEEDED = 212;
+
+    /**
+     * the base data version of a delta registration is not the one registered, the broker should register in full
+     */
+    public static final int DATA_VERSION_NOT_MATCH = 213;
+
 }
@@ -0,0 +1,60 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.rocketmq.common.protocol.body;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.rocketmq.common.protocol.header.EndTransactionRequestHeader;
+import org.apache.rocketmq.remoting.protocol.RemotingSerializable;
+
+public class EndTransactionBatchRequestBody extends RemotingSerializable {
+
+    private List<EndTransactionRequestHeader> endTransactionList = new ArrayList<EndTransactionRequestHeader>();
+
+    // remark of every end transaction, null if there is none
+    private List<String> remarkList = new ArrayList<String>();
+
+    public void addEndTransaction(EndTransactionRequestHeader endTransaction, String remark) {
+        this.endTransactionList.add(endTransaction);
+        this.remarkList.add(remark);
+    }
+
+    public String getRemark(int index) {
+        if (null == remarkList || index >= remarkList.size()) {
+            return null;
+        }
+        return remarkList.get(index);
+    }
+
+    public List<EndTransactionRequestHeader> getEndTransactionList() {
+        return endTransactionList;
+    }
+
+    public void setEndTransactionList(List<EndTransactionRequestHeader> endTransactionList) {
+        this.endTransactionList = endTransactionList;
+    }
+
+    public List<String> getRemarkList() {
+        return remarkList;
+    }
+
+    public void setRemarkList(List<String> remarkList) {
+        this.remarkList = remarkList;
+    }
+
+}
@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.common.protocol.body;
+
+/**
+ * Metrics of the requests of one request code, or of one processor pool. Times are in microseconds, sizes in bytes.
+ */
+public class RequestMetricsItem {
+    private int requestCode;
+    private String poolName;
+    private long count;
+    private long queueWaitAvg;
+    private long queueWaitP99;
+    private long queueWaitMax;
+    private long processAvg;
+    private long processP99;
+    private long processMax;
+    private long responseSizeAvg;
+    private long responseSizeMax;
+
+    public int getRequestCode() {
+        return requestCode;
+    }
+
+    public void setRequestCode(int requestCode) {
+        this.requestCode = requestCode;
+    }
+
+    public String getPoolName() {
+        return poolName;
+    }
+
+    public void setPoolName(String poolName) {
+        this.poolName = poolName;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    public long getQueueWaitAvg() {
+        return queueWaitAvg;
+    }
+
+    public void setQueueWaitAvg(long queueWaitAvg) {
+        this.queueWaitAvg = queueWaitAvg;
+    }
+
+    public long getQueueWaitP99() {
+        return queueWaitP99;
+    }
+
+    public void setQueueWaitP99(long queueWaitP99) {
+        this.queueWaitP99 = queueWaitP99;
+    }
+
+    public long getQueueWaitMax() {
+        return queueWaitMax;
+    }
+
+    public void setQueueWaitMax(long queueWaitMax) {
+        this.queueWaitMax = queueWaitMax;
+    }
+
+    public long getProcessAvg() {
+        return processAvg;
+    }
+
+    public void setProcessAvg(long processAvg) {
+        this.processAvg = processAvg;
+    }
+
+    public long getProcessP99() {
+        return processP99;
+    }
+
+    public void setProcessP99(long processP99) {
+        this.processP99 = processP99;
+    }
+
+    public long getProcessMax() {
+        return processMax;
+    }
+
+    public void setProcessMax(long processMax) {
+        this.processMax = processMax;
+    }
+
+    public long getResponseSizeAvg() {
+        return responseSizeAvg;
+    }
+
+    public void setResponseSizeAvg(long responseSizeAvg) {
+        this.responseSizeAvg = responseSizeAvg;
+    }
+
+    public long getResponseSizeMax() {
+        return responseSizeMax;
+    }
+
+    public void setResponseSizeMax(long responseSizeMax) {
+        this.responseSizeMax = responseSizeMax;
+    }
+}
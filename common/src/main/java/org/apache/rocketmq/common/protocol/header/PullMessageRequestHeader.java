@@ -20,12 +20,17 @@
  */
 package org.apache.rocketmq.common.protocol.header;
 
-import org.apache.rocketmq.remoting.CommandCustomHeader;
+import java.util.Map;
 import org.apache.rocketmq.remoting.annotation.CFNotNull;
 import org.apache.rocketmq.remoting.annotation.CFNullable;
 import org.apache.rocketmq.remoting.exception.RemotingCommandException;
+import org.apache.rocketmq.remoting.protocol.CompactCodesHeader;
+import org.apache.rocketmq.remoting.protocol.CompactFields;
+import org.apache.rocketmq.remoting.protocol.CompactHeaderSchema;
+import org.apache.rocketmq.remoting.protocol.FastCodesHelper;
+import org.apache.rocketmq.remoting.protocol.QueueAffinityHeader;
 
-public class PullMessageRequestHeader implements CommandCustomHeader {
+public class PullMessageRequestHeader implements CompactCodesHeader, QueueAffinityHeader {
     @CFNotNull
     private String consumerGroup;
     @CFNotNull
@@ -52,6 +57,61 @@ public class PullMessageRequestHeader implements CommandCustomHeader {
     public void checkFields() throws RemotingCommandException {
     }
 
+    @Override
+    public CompactHeaderSchema compactSchema() {
+        return CompactHeaderSchema.PULL_MESSAGE_REQUEST;
+    }
+
+    @Override
+    public int queueAffinityKey() {
+        return 31 * (topic == null ? 0 : topic.hashCode()) + (queueId == null ? 0 : queueId);
+    }
+
+    @Override
+    public void encode(Map<String, String> extFields) {
+        FastCodesHelper.putIfNotNull(extFields, "consumerGroup", this.consumerGroup);
+        FastCodesHelper.putIfNotNull(extFields, "topic", this.topic);
+        FastCodesHelper.putIfNotNull(extFields, "queueId", this.queueId);
+        FastCodesHelper.putIfNotNull(extFields, "queueOffset", this.queueOffset);
+        FastCodesHelper.putIfNotNull(extFields, "maxMsgNums", this.maxMsgNums);
+        FastCodesHelper.putIfNotNull(extFields, "sysFlag", this.sysFlag);
+        FastCodesHelper.putIfNotNull(extFields, "commitOffset", this.commitOffset);
+        FastCodesHelper.putIfNotNull(extFields, "suspendTimeoutMillis", this.suspendTimeoutMillis);
+        FastCodesHelper.putIfNotNull(extFields, "subscription", this.subscription);
+        FastCodesHelper.putIfNotNull(extFields, "subVersion", this.subVersion);
+        FastCodesHelper.putIfNotNull(extFields, "expressionType", this.expressionType);
+    }
+
+    @Override
+    public void decode(Map<String, String> extFields) {
+        this.consumerGroup = FastCodesHelper.getString(extFields, "consumerGroup", true);
+        this.topic = FastCodesHelper.getString(extFields, "topic", true);
+        this.queueId = FastCodesHelper.getInteger(extFields, "queueId", true);
+        this.queueOffset = FastCodesHelper.getLong(extFields, "queueOffset", true);
+        this.maxMsgNums = FastCodesHelper.getInteger(extFields, "maxMsgNums", true);
+        this.sysFlag = FastCodesHelper.getInteger(extFields, "sysFlag", true);
+        this.commitOffset = FastCodesHelper.getLong(extFields, "commitOffset", true);
+        this.suspendTimeoutMillis = FastCodesHelper.getLong(extFields, "suspendTimeoutMillis", true);
+        this.subscription = FastCodesHelper.getString(extFields, "subscription", false);
+        this.subVersion = FastCodesHelper.getLong(extFields, "subVersion", true);
+        this.expressionType = FastCodesHelper.getString(extFields, "expressionType", false);
+    }
+
+    @Override
+    public void decode(CompactFields fields) {
+        this.consumerGroup = fields.getString("consumerGroup", true);
+        this.topic = fields.getString("topic", true);
+        this.queueId = fields.getInteger("queueId", true);
+        this.queueOffset = fields.getLong("queueOffset", true);
+        this.maxMsgNums = fields.getInteger("maxMsgNums", true);
+        this.sysFlag = fields.getInteger("sysFlag", true);
+        this.commitOffset = fields.getLong("commitOffset", true);
+        this.suspendTimeoutMillis = fields.getLong("suspendTimeoutMillis", true);
+        this.subscription = fields.getString("subscription", false);
+        this.subVersion = fields.getLong("subVersion", true);
+        this.expressionType = fields.getString("expressionType", false);
+    }
+
     public String getConsumerGroup() {
         return consumerGroup;
     }
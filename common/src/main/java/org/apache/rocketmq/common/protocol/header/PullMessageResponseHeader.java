@@ -20,11 +20,15 @@
  */
 package org.apache.rocketmq.common.protocol.header;
 
-import org.apache.rocketmq.remoting.CommandCustomHeader;
+import java.util.Map;
 import org.apache.rocketmq.remoting.annotation.CFNotNull;
 import org.apache.rocketmq.remoting.exception.RemotingCommandException;
+import org.apache.rocketmq.remoting.protocol.CompactCodesHeader;
+import org.apache.rocketmq.remoting.protocol.CompactFields;
+import org.apache.rocketmq.remoting.protocol.CompactHeaderSchema;
+import org.apache.rocketmq.remoting.protocol.FastCodesHelper;
 
-public class PullMessageResponseHeader implements CommandCustomHeader {
+public class PullMessageResponseHeader implements CompactCodesHeader {
     @CFNotNull
     private Long suggestWhichBrokerId;
     @CFNotNull
@@ -38,6 +42,35 @@ public class PullMessageResponseHeader implements CommandCustomHeader {
     public void checkFields() throws RemotingCommandException {
     }
 
+    @Override
+    public CompactHeaderSchema compactSchema() {
+        return CompactHeaderSchema.PULL_MESSAGE_RESPONSE;
+    }
+
+    @Override
+    public void encode(Map<String, String> extFields) {
+        FastCodesHelper.putIfNotNull(extFields, "suggestWhichBrokerId", this.suggestWhichBrokerId);
+        FastCodesHelper.putIfNotNull(extFields, "nextBeginOffset", this.nextBeginOffset);
+        FastCodesHelper.putIfNotNull(extFields, "minOffset", this.minOffset);
+        FastCodesHelper.putIfNotNull(extFields, "maxOffset", this.maxOffset);
+    }
+
+    @Override
+    public void decode(Map<String, String> extFields) {
+        this.suggestWhichBrokerId = FastCodesHelper.getLong(extFields, "suggestWhichBrokerId", true);
+        this.nextBeginOffset = FastCodesHelper.getLong(extFields, "nextBeginOffset", true);
+        this.minOffset = FastCodesHelper.getLong(extFields, "minOffset", true);
+        this.maxOffset = FastCodesHelper.getLong(extFields, "maxOffset", true);
+    }
+
+    @Override
+    public void decode(CompactFields fields) {
+        this.suggestWhichBrokerId = fields.getLong("suggestWhichBrokerId", true);
+        this.nextBeginOffset = fields.getLong("nextBeginOffset", true);
+        this.minOffset = fields.getLong("minOffset", true);
+        this.maxOffset = fields.getLong("maxOffset", true);
+    }
+
     public Long getNextBeginOffset() {
         return nextBeginOffset;
     }
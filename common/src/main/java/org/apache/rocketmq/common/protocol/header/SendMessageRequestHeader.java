@@ -20,12 +20,12 @@
  */
 package org.apache.rocketmq.common.protocol.header;
 
-import org.apache.rocketmq.remoting.CommandCustomHeader;
 import org.apache.rocketmq.remoting.annotation.CFNotNull;
 import org.apache.rocketmq.remoting.annotation.CFNullable;
 import org.apache.rocketmq.remoting.exception.RemotingCommandException;
+import org.apache.rocketmq.remoting.protocol.QueueAffinityHeader;
 
-public class SendMessageRequestHeader implements CommandCustomHeader {
+public class SendMessageRequestHeader implements QueueAffinityHeader {
     @CFNotNull
     private String producerGroup;
     @CFNotNull
@@ -56,6 +56,11 @@ public class SendMessageRequestHeader implements CommandCustomHeader {
     public void checkFields() throws RemotingCommandException {
     }
 
+    @Override
+    public int queueAffinityKey() {
+        return 31 * (topic == null ? 0 : topic.hashCode()) + (queueId == null ? 0 : queueId);
+    }
+
     public String getProducerGroup() {
         return producerGroup;
     }
@@ -17,15 +17,20 @@
 
 package org.apache.rocketmq.common.protocol.header;
 
-import org.apache.rocketmq.remoting.CommandCustomHeader;
+import java.util.Map;
 import org.apache.rocketmq.remoting.annotation.CFNotNull;
 import org.apache.rocketmq.remoting.annotation.CFNullable;
 import org.apache.rocketmq.remoting.exception.RemotingCommandException;
+import org.apache.rocketmq.remoting.protocol.CompactCodesHeader;
+import org.apache.rocketmq.remoting.protocol.CompactFields;
+import org.apache.rocketmq.remoting.protocol.CompactHeaderSchema;
+import org.apache.rocketmq.remoting.protocol.FastCodesHelper;
+import org.apache.rocketmq.remoting.protocol.QueueAffinityHeader;
 
 /**
  * Use short variable name to speed up FastJson deserialization process.
  */
-public class SendMessageRequestHeaderV2 implements CommandCustomHeader {
+public class SendMessageRequestHeaderV2 implements CompactCodesHeader, QueueAffinityHeader {
     @CFNotNull
     private String a; // producerGroup;
     @CFNotNull
@@ -94,6 +99,79 @@ public class SendMessageRequestHeaderV2 implements CommandCustomHeader {
     public void checkFields() throws RemotingCommandException {
     }
 
+    @Override
+    public CompactHeaderSchema compactSchema() {
+        return CompactHeaderSchema.SEND_MESSAGE_REQUEST_V2;
+    }
+
+    @Override
+    public int queueAffinityKey() {
+        return 31 * (b == null ? 0 : b.hashCode()) + (e == null ? 0 : e);
+    }
+
+    @Override
+    public void encode(Map<String, String> extFields) {
+        FastCodesHelper.putIfNotNull(extFields, "a", this.a);
+        FastCodesHelper.putIfNotNull(extFields, "b", this.b);
+        FastCodesHelper.putIfNotNull(extFields, "c", this.c);
+        FastCodesHelper.putIfNotNull(extFields, "d", this.d);
+        FastCodesHelper.putIfNotNull(extFields, "e", this.e);
+        FastCodesHelper.putIfNotNull(extFields, "f", this.f);
+        FastCodesHelper.putIfNotNull(extFields, "g", this.g);
+        FastCodesHelper.putIfNotNull(extFields, "h", this.h);
+        FastCodesHelper.putIfNotNull(extFields, "i", this.i);
+        FastCodesHelper.putIfNotNull(extFields, "j", this.j);
+        FastCodesHelper.putIfNotNull(extFields, "k", this.k);
+        FastCodesHelper.putIfNotNull(extFields, "l", this.l);
+        FastCodesHelper.putIfNotNull(extFields, "m", this.m);
+    }
+
+    @Override
+    public void decode(Map<String, String> extFields) {
+        this.a = FastCodesHelper.getString(extFields, "a", true);
+        this.b = FastCodesHelper.getString(extFields, "b", true);
+        this.c = FastCodesHelper.getString(extFields, "c", true);
+        this.d = FastCodesHelper.getInteger(extFields, "d", true);
+        this.e = FastCodesHelper.getInteger(extFields, "e", true);
+        this.f = FastCodesHelper.getInteger(extFields, "f", true);
+        this.g = FastCodesHelper.getLong(extFields, "g", true);
+        this.h = FastCodesHelper.getInteger(extFields, "h", true);
+        this.i = FastCodesHelper.getString(extFields, "i", false);
+        this.j = FastCodesHelper.getInteger(extFields, "j", false);
+        Boolean unitMode = FastCodesHelper.getBoolean(extFields, "k", false);
+        if (unitMode != null) {
+            this.k = unitMode;
+        }
+        this.l = FastCodesHelper.getInteger(extFields, "l", false);
+        Boolean batch = FastCodesHelper.getBoolean(extFields, "m", false);
+        if (batch != null) {
+            this.m = batch;
+        }
+    }
+
+    @Override
+    public void decode(CompactFields fields) {
+        this.a = fields.getString("a", true);
+        this.b = fields.getString("b", true);
+        this.c = fields.getString("c", true);
+        this.d = fields.getInteger("d", true);
+        this.e = fields.getInteger("e", true);
+        this.f = fields.getInteger("f", true);
+        this.g = fields.getLong("g", true);
+        this.h = fields.getInteger("h", true);
+        this.i = fields.getString("i", false);
+        this.j = fields.getInteger("j", false);
+        Boolean unitMode = fields.getBoolean("k", false);
+        if (unitMode != null) {
+            this.k = unitMode;
+        }
+        this.l = fields.getInteger("l", false);
+        Boolean batch = fields.getBoolean("m", false);
+        if (batch != null) {
+            this.m = batch;
+        }
+    }
+
     public String getA() {
         return a;
     }
@@ -20,11 +20,15 @@
  */
 package org.apache.rocketmq.common.protocol.header;
 
-import org.apache.rocketmq.remoting.CommandCustomHeader;
+import java.util.Map;
 import org.apache.rocketmq.remoting.annotation.CFNotNull;
 import org.apache.rocketmq.remoting.exception.RemotingCommandException;
+import org.apache.rocketmq.remoting.protocol.CompactCodesHeader;
+import org.apache.rocketmq.remoting.protocol.CompactFields;
+import org.apache.rocketmq.remoting.protocol.CompactHeaderSchema;
+import org.apache.rocketmq.remoting.protocol.FastCodesHelper;
 
-public class SendMessageResponseHeader implements CommandCustomHeader {
+public class SendMessageResponseHeader implements CompactCodesHeader {
     @CFNotNull
     private String msgId;
     @CFNotNull
@@ -37,6 +41,35 @@ public class SendMessageResponseHeader implements CommandCustomHeader {
     public void checkFields() throws RemotingCommandException {
     }
 
+    @Override
+    public CompactHeaderSchema compactSchema() {
+        return CompactHeaderSchema.SEND_MESSAGE_RESPONSE;
+    }
+
+    @Override
+    public void encode(Map<String, String> extFields) {
+        FastCodesHelper.putIfNotNull(extFields, "msgId", this.msgId);
+        FastCodesHelper.putIfNotNull(extFields, "queueId", this.queueId);
+        FastCodesHelper.putIfNotNull(extFields, "queueOffset", this.queueOffset);
+        FastCodesHelper.putIfNotNull(extFields, "transactionId", this.transactionId);
+    }
+
+    @Override
+    public void decode(Map<String, String> extFields) {
+        this.msgId = FastCodesHelper.getString(extFields, "msgId", true);
+        this.queueId = FastCodesHelper.getInteger(extFields, "queueId", true);
+        this.queueOffset = FastCodesHelper.getLong(extFields, "queueOffset", true);
+        this.transactionId = FastCodesHelper.getString(extFields, "transactionId", false);
+    }
+
+    @Override
+    public void decode(CompactFields fields) {
+        this.msgId = fields.getString("msgId", true);
+        this.queueId = fields.getInteger("queueId", true);
+        this.queueOffset = fields.getLong("queueOffset", true);
+        this.transactionId = fields.getString("transactionId", false);
+    }
+
     public String getMsgId() {
         return msgId;
     }
@@ -28,6 +28,7 @@ public class HeartbeatData extends RemotingSerializable {
     private String clientID;
     private Set<ProducerData> producerDataSet = new HashSet<ProducerData>();
     private Set<ConsumerData> consumerDataSet = new HashSet<ConsumerData>();
+    private boolean transactionCheckBatchSupported = false;
 
     public String getClientID() {
         return clientID;
@@ -53,6 +54,14 @@ public class HeartbeatData extends RemotingSerializable {
         this.consumerDataSet = consumerDataSet;
     }
 
+    public boolean isTransactionCheckBatchSupported() {
+        return transactionCheckBatchSupported;
+    }
+
+    public void setTransactionCheckBatchSupported(boolean transactionCheckBatchSupported) {
+        this.transactionCheckBatchSupported = transactionCheckBatchSupported;
+    }
+
     @Override
     public String toString() {
         return "HeartbeatData [clientID=" + clientID + ", producerDataSet=" + producerDataSet
@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.common.quota;
+
+/**
+ * Throughput quota of a topic or of a producer/consumer group, a negative rate means unlimited. Send and pull quotas
+ * are separate, so that consumers do not use up the quota of the producers of a topic and vice versa.
+ */
+public class QuotaConfig {
+    public static final String TYPE_TOPIC = "TOPIC";
+    public static final String TYPE_GROUP = "GROUP";
+    public static final String DIRECTION_SEND = "SEND";
+    public static final String DIRECTION_PULL = "PULL";
+
+    private String type = TYPE_TOPIC;
+
+    private String direction = DIRECTION_SEND;
+
+    private String resource;
+
+    private long messagesPerSecond = -1;
+
+    private long bytesPerSecond = -1;
+
+    public static String buildKey(final String type, final String direction, final String resource) {
+        return type + "@" + direction + "@" + resource;
+    }
+
+    public static boolean isValidType(final String type) {
+        return TYPE_TOPIC.equals(type) || TYPE_GROUP.equals(type);
+    }
+
+    public static boolean isValidDirection(final String direction) {
+        return DIRECTION_SEND.equals(direction) || DIRECTION_PULL.equals(direction);
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public String getDirection() {
+        return direction;
+    }
+
+    public void setDirection(String direction) {
+        this.direction = direction;
+    }
+
+    public String getResource() {
+        return resource;
+    }
+
+    public void setResource(String resource) {
+        this.resource = resource;
+    }
+
+    public long getMessagesPerSecond() {
+        return messagesPerSecond;
+    }
+
+    public void setMessagesPerSecond(long messagesPerSecond) {
+        this.messagesPerSecond = messagesPerSecond;
+    }
+
+    public long getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    public void setBytesPerSecond(long bytesPerSecond) {
+        this.bytesPerSecond = bytesPerSecond;
+    }
+
+    @Override
+    public String toString() {
+        return "QuotaConfig [type=" + type + ", direction=" + direction + ", resource=" + resource
+            + ", messagesPerSecond=" + messagesPerSecond + ", bytesPerSecond=" + bytesPerSecond + "]";
+    }
+}
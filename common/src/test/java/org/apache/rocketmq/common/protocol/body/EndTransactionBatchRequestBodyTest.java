@@ -0,0 +1,56 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.rocketmq.common.protocol.body;
+
+import org.apache.rocketmq.common.protocol.header.EndTransactionRequestHeader;
+import org.apache.rocketmq.common.sysflag.MessageSysFlag;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class EndTransactionBatchRequestBodyTest {
+
+    @Test
+    public void testEncodeAndDecode() {
+        EndTransactionBatchRequestBody body = new EndTransactionBatchRequestBody();
+        for (int i = 0; i < 3; i++) {
+            EndTransactionRequestHeader header = new EndTransactionRequestHeader();
+            header.setProducerGroup("defaultGroup");
+            header.setTranStateTableOffset((long) i);
+            header.setCommitLogOffset(1024L * i);
+            header.setCommitOrRollback(MessageSysFlag.TRANSACTION_COMMIT_TYPE);
+            header.setFromTransactionCheck(true);
+            header.setMsgId("msgId" + i);
+            header.setTransactionId("transactionId" + i);
+            body.addEndTransaction(header, i == 1 ? "checkLocalTransactionState Exception" : null);
+        }
+        EndTransactionBatchRequestBody decoded = EndTransactionBatchRequestBody.decode(body.encode(), EndTransactionBatchRequestBody.class);
+        assertThat(decoded.getEndTransactionList()).hasSize(3);
+        EndTransactionRequestHeader last = decoded.getEndTransactionList().get(2);
+        assertThat(last.getProducerGroup()).isEqualTo("defaultGroup");
+        assertThat(last.getTranStateTableOffset()).isEqualTo(2L);
+        assertThat(last.getCommitLogOffset()).isEqualTo(2048L);
+        assertThat(last.getCommitOrRollback()).isEqualTo(MessageSysFlag.TRANSACTION_COMMIT_TYPE);
+        assertThat(last.getFromTransactionCheck()).isTrue();
+        assertThat(last.getMsgId()).isEqualTo("msgId2");
+        assertThat(last.getTransactionId()).isEqualTo("transactionId2");
+        assertThat(decoded.getRemark(0)).isNull();
+        assertThat(decoded.getRemark(1)).isEqualTo("checkLocalTransactionState Exception");
+        assertThat(decoded.getRemark(3)).isNull();
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.common.protocol.header;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.rocketmq.remoting.protocol.CompactCodesHeader;
+import org.apache.rocketmq.remoting.protocol.CompactHeaderSchema;
+import org.apache.rocketmq.remoting.protocol.FastCodesHeader;
+import org.apache.rocketmq.remoting.protocol.RemotingCommand;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FastCodesHeaderTest {
+    private static final Class[] FAST_CODES_HEADERS = new Class[] {
+        SendMessageRequestHeaderV2.class,
+        SendMessageResponseHeader.class,
+        PullMessageRequestHeader.class,
+        PullMessageResponseHeader.class
+    };
+
+    @Test
+    public void testEncodeSameAsReflection() throws Exception {
+        for (Class clazz : FAST_CODES_HEADERS) {
+            FastCodesHeader header = newFilledHeader(clazz);
+            Map<String, String> extFields = new HashMap<String, String>();
+            header.encode(extFields);
+            assertThat(extFields).as(clazz.getSimpleName()).isEqualTo(encodeByReflection(header));
+        }
+    }
+
+    @Test
+    public void testDecodeSameAsReflection() throws Exception {
+        for (Class clazz : FAST_CODES_HEADERS) {
+            FastCodesHeader header = newFilledHeader(clazz);
+            FastCodesHeader decoded = (FastCodesHeader) clazz.newInstance();
+            decoded.decode(encodeByReflection(header));
+            for (Field field : instanceFields(clazz)) {
+                assertThat(field.get(decoded)).as(clazz.getSimpleName() + "." + field.getName()).isEqualTo(field.get(header));
+            }
+        }
+    }
+
+    @Test
+    public void testCompactSchemaCoversAllFields() throws Exception {
+        for (Class clazz : FAST_CODES_HEADERS) {
+            CompactHeaderSchema schema = ((CompactCodesHeader) clazz.newInstance()).compactSchema();
+            Field[] fields = instanceFields(clazz);
+            assertThat(schema.size()).as(clazz.getSimpleName()).isEqualTo(fields.length);
+            for (Field field : fields) {
+                int index = schema.indexOf(field.getName());
+                assertThat(index).as(clazz.getSimpleName() + "." + field.getName()).isGreaterThanOrEqualTo(0);
+                assertThat(schema.getFieldType(index).name()).as(clazz.getSimpleName() + "." + field.getName())
+                    .isEqualTo(compactFieldType(field.getType()));
+            }
+        }
+    }
+
+    @Test
+    public void testDecodeMissingAndMalformedFields() throws Exception {
+        Map<String, String> extFields = new HashMap<String, String>();
+        extFields.put("consumerGroup", "group");
+        extFields.put("queueId", "not a number");
+        PullMessageRequestHeader header = new PullMessageRequestHeader();
+        header.decode(extFields);
+        assertThat(header.getConsumerGroup()).isEqualTo("group");
+        assertThat(header.getQueueId()).isNull();
+        assertThat(header.getTopic()).isNull();
+    }
+
+    @Test
+    public void testRemotingCommandRoundTrip() throws Exception {
+        SendMessageRequestHeaderV2 header = (SendMessageRequestHeaderV2) newFilledHeader(SendMessageRequestHeaderV2.class);
+        RemotingCommand request = RemotingCommand.createRequestCommand(0, header);
+        ByteBuffer buffer = request.encode();
+        // skip the total length, which is consumed by the frame decoder
+        buffer.getInt();
+        RemotingCommand decoded = RemotingCommand.decode(buffer.slice());
+        SendMessageRequestHeaderV2 decodedHeader =
+            (SendMessageRequestHeaderV2) decoded.decodeCommandCustomHeader(SendMessageRequestHeaderV2.class);
+        for (Field field : instanceFields(SendMessageRequestHeaderV2.class)) {
+            assertThat(field.get(decodedHeader)).as(field.getName()).isEqualTo(field.get(header));
+        }
+    }
+
+    private static FastCodesHeader newFilledHeader(Class clazz) throws Exception {
+        FastCodesHeader header = (FastCodesHeader) clazz.newInstance();
+        int i = 1;
+        for (Field field : instanceFields(clazz)) {
+            Class type = field.getType();
+            if (type == String.class) {
+                field.set(header, field.getName() + i);
+            } else if (type == Integer.class || type == int.class) {
+                field.set(header, i);
+            } else if (type == Long.class || type == long.class) {
+                field.set(header, Long.MAX_VALUE - i);
+            } else if (type == Boolean.class || type == boolean.class) {
+                field.set(header, true);
+            }
+            i++;
+        }
+        return header;
+    }
+
+    private static String compactFieldType(Class type) {
+        if (type == Integer.class || type == int.class) {
+            return "INTEGER";
+        } else if (type == Long.class || type == long.class) {
+            return "LONG";
+        } else if (type == Boolean.class || type == boolean.class) {
+            return "BOOLEAN";
+        }
+        return "STRING";
+    }
+
+    private static Map<String, String> encodeByReflection(Object header) throws Exception {
+        Map<String, String> extFields = new HashMap<String, String>();
+        for (Field field : instanceFields(header.getClass())) {
+            Object value = field.get(header);
+            if (value != null) {
+                extFields.put(field.getName(), value.toString());
+            }
+        }
+        return extFields;
+    }
+
+    private static Field[] instanceFields(Class clazz) {
+        Field[] fields = clazz.getDeclaredFields();
+        int count = 0;
+        for (Field field : fields) {
+            if (!Modifier.isStatic(field.getModifiers())) {
+                field.setAccessible(true);
+                fields[count++] = field;
+            }
+        }
+        Field[] result = new Field[count];
+        System.arraycopy(fields, 0, result, 0, count);
+        return result;
+    }
+}
@@ -86,8 +86,10 @@ public class Consumer {
                     final double averageB2CRT = (end[2] - begin[2]) / (double) (end[1] - begin[1]);
                     final double averageS2CRT = (end[3] - begin[3]) / (double) (end[1] - begin[1]);
 
-                    System.out.printf("Consume TPS: %d Average(B2C) RT: %7.3f Average(S2C) RT: %7.3f MAX(B2C) RT: %d MAX(S2C) RT: %d%n",
-                        consumeTps, averageB2CRT, averageS2CRT, end[4], end[5]
+                    System.out.printf("Consume TPS: %d Average(B2C) RT: %7.3f Average(S2C) RT: %7.3f MAX(B2C) RT: %d MAX(S2C) RT: %d P99(B2C) RT: %d P99(S2C) RT: %d%n",
+                        consumeTps, averageB2CRT, averageS2CRT, end[4], end[5],
+                        statsBenchmarkConsumer.getBorn2ConsumerRTHistogram().percentileAndReset(0.99),
+                        statsBenchmarkConsumer.getStore2ConsumerRTHistogram().percentileAndReset(0.99)
                     );
                 }
             }
@@ -132,9 +134,11 @@ public class Consumer {
 
                 long born2ConsumerRT = now - msg.getBornTimestamp();
                 statsBenchmarkConsumer.getBorn2ConsumerTotalRT().addAndGet(born2ConsumerRT);
+                statsBenchmarkConsumer.getBorn2ConsumerRTHistogram().record(born2ConsumerRT);
 
                 long store2ConsumerRT = now - msg.getStoreTimestamp();
                 statsBenchmarkConsumer.getStore2ConsumerTotalRT().addAndGet(store2ConsumerRT);
+                statsBenchmarkConsumer.getStore2ConsumerRTHistogram().record(store2ConsumerRT);
 
                 compareAndSetMax(statsBenchmarkConsumer.getBorn2ConsumerMaxRT(), born2ConsumerRT);
 
@@ -196,6 +200,10 @@ class StatsBenchmarkConsumer {
 
     private final AtomicLong store2ConsumerMaxRT = new AtomicLong(0L);
 
+    private final RTHistogram born2ConsumerRTHistogram = new RTHistogram();
+
+    private final RTHistogram store2ConsumerRTHistogram = new RTHistogram();
+
     public Long[] createSnapshot() {
         Long[] snap = new Long[] {
             System.currentTimeMillis(),
@@ -228,4 +236,12 @@ class StatsBenchmarkConsumer {
     public AtomicLong getStore2ConsumerMaxRT() {
         return store2ConsumerMaxRT;
     }
+
+    public RTHistogram getBorn2ConsumerRTHistogram() {
+        return born2ConsumerRTHistogram;
+    }
+
+    public RTHistogram getStore2ConsumerRTHistogram() {
+        return store2ConsumerRTHistogram;
+    }
 }
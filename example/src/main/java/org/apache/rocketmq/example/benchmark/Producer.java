@@ -23,6 +23,7 @@ import java.util.Timer;
 import java.util.TimerTask;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.cli.CommandLine;
@@ -33,6 +34,8 @@ import org.apache.rocketmq.client.exception.MQBrokerException;
 import org.apache.rocketmq.client.exception.MQClientException;
 import org.apache.rocketmq.client.log.ClientLogger;
 import org.apache.rocketmq.client.producer.DefaultMQProducer;
+import org.apache.rocketmq.client.producer.SendCallback;
+import org.apache.rocketmq.client.producer.SendResult;
 import org.apache.rocketmq.logging.InternalLogger;
 import org.apache.rocketmq.common.message.Message;
 import org.apache.rocketmq.remoting.common.RemotingHelper;
@@ -53,8 +56,11 @@ public class Producer {
         final int messageSize = commandLine.hasOption('s') ? Integer.parseInt(commandLine.getOptionValue('s')) : 128;
         final boolean keyEnable = commandLine.hasOption('k') && Boolean.parseBoolean(commandLine.getOptionValue('k'));
         final int propertySize = commandLine.hasOption('p') ? Integer.parseInt(commandLine.getOptionValue('p')) : 0;
+        final boolean asyncEnable = commandLine.hasOption('a') && Boolean.parseBoolean(commandLine.getOptionValue('a'));
+        final int asyncWindow = commandLine.hasOption('i') ? Integer.parseInt(commandLine.getOptionValue('i')) : 1024;
 
-        System.out.printf("topic %s threadCount %d messageSize %d keyEnable %s%n", topic, threadCount, messageSize, keyEnable);
+        System.out.printf("topic %s threadCount %d messageSize %d keyEnable %s asyncEnable %s asyncWindow %d%n",
+            topic, threadCount, messageSize, keyEnable, asyncEnable, asyncWindow);
 
         final InternalLogger log = ClientLogger.getLog();
 
@@ -62,6 +68,8 @@ public class Producer {
 
         final StatsBenchmarkProducer statsBenchmark = new StatsBenchmarkProducer();
 
+        final Semaphore asyncPermits = new Semaphore(asyncWindow);
+
         final Timer timer = new Timer("BenchmarkTimerThread", true);
 
         final LinkedList<Long[]> snapshotList = new LinkedList<Long[]>();
@@ -85,8 +93,9 @@ public class Producer {
                     final long sendTps = (long) (((end[3] - begin[3]) / (double) (end[0] - begin[0])) * 1000L);
                     final double averageRT = (end[5] - begin[5]) / (double) (end[3] - begin[3]);
 
-                    System.out.printf("Send TPS: %d Max RT: %d Average RT: %7.3f Send Failed: %d Response Failed: %d%n",
-                        sendTps, statsBenchmark.getSendMessageMaxRT().get(), averageRT, end[2], end[4]);
+                    System.out.printf("Send TPS: %d Max RT: %d Average RT: %7.3f P99 RT: %d Send Failed: %d Response Failed: %d%n",
+                        sendTps, statsBenchmark.getSendMessageMaxRT().get(), averageRT,
+                        statsBenchmark.getSendMessageRTHistogram().percentileAndReset(0.99), end[2], end[4]);
                 }
             }
 
@@ -149,19 +158,38 @@ public class Producer {
                                     startValue += 2;
                                 }
                             }
+                            if (asyncEnable) {
+                                asyncPermits.acquire();
+                                boolean sent = false;
+                                try {
+                                    producer.send(msg, new SendCallback() {
+                                        @Override
+                                        public void onSuccess(SendResult sendResult) {
+                                            asyncPermits.release();
+                                            statsBenchmark.getReceiveResponseSuccessCount().incrementAndGet();
+                                            statsBenchmark.updateRT(System.currentTimeMillis() - beginTimestamp);
+                                        }
+
+                                        @Override
+                                        public void onException(Throwable e) {
+                                            asyncPermits.release();
+                                            statsBenchmark.getReceiveResponseFailedCount().incrementAndGet();
+                                            log.error("[BENCHMARK_PRODUCER] Async Send Exception", e);
+                                        }
+                                    });
+                                    sent = true;
+                                } finally {
+                                    if (!sent) {
+                                        asyncPermits.release();
+                                    }
+                                }
+                                statsBenchmark.getSendRequestSuccessCount().incrementAndGet();
+                                continue;
+                            }
                             producer.send(msg);
                             statsBenchmark.getSendRequestSuccessCount().incrementAndGet();
                             statsBenchmark.getReceiveResponseSuccessCount().incrementAndGet();
-                            final long currentRT = System.currentTimeMillis() - beginTimestamp;
-                            statsBenchmark.getSendMessageSuccessTimeTotal().addAndGet(currentRT);
-                            long prevMaxRT = statsBenchmark.getSendMessageMaxRT().get();
-                            while (currentRT > prevMaxRT) {
-                                boolean updated = statsBenchmark.getSendMessageMaxRT().compareAndSet(prevMaxRT, currentRT);
-                                if (updated)
-                                    break;
-
-                                prevMaxRT = statsBenchmark.getSendMessageMaxRT().get();
-                            }
+                            statsBenchmark.updateRT(System.currentTimeMillis() - beginTimestamp);
                         } catch (RemotingException e) {
                             statsBenchmark.getSendRequestFailedCount().incrementAndGet();
                             log.error("[BENCHMARK_PRODUCER] Send Exception", e);
@@ -210,6 +238,14 @@ public class Producer {
         opt.setRequired(false);
         options.addOption(opt);
 
+        opt = new Option("a", "asyncEnable", true, "Send Async, Default: false");
+        opt.setRequired(false);
+        options.addOption(opt);
+
+        opt = new Option("i", "asyncWindow", true, "Max In-flight Async Sends, Default: 1024");
+        opt.setRequired(false);
+        options.addOption(opt);
+
         return options;
     }
 
@@ -241,6 +277,8 @@ class StatsBenchmarkProducer {
 
     private final AtomicLong sendMessageMaxRT = new AtomicLong(0L);
 
+    private final RTHistogram sendMessageRTHistogram = new RTHistogram();
+
     public Long[] createSnapshot() {
         Long[] snap = new Long[] {
             System.currentTimeMillis(),
@@ -254,6 +292,23 @@ class StatsBenchmarkProducer {
         return snap;
     }
 
+    public void updateRT(final long currentRT) {
+        this.sendMessageSuccessTimeTotal.addAndGet(currentRT);
+        this.sendMessageRTHistogram.record(currentRT);
+        long prevMaxRT = this.sendMessageMaxRT.get();
+        while (currentRT > prevMaxRT) {
+            boolean updated = this.sendMessageMaxRT.compareAndSet(prevMaxRT, currentRT);
+            if (updated)
+                break;
+
+            prevMaxRT = this.sendMessageMaxRT.get();
+        }
+    }
+
+    public RTHistogram getSendMessageRTHistogram() {
+        return sendMessageRTHistogram;
+    }
+
     public AtomicLong getSendRequestSuccessCount() {
         return sendRequestSuccessCount;
     }
@@ -0,0 +1,59 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.example.benchmark;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of response times with one millisecond buckets, drained on each report.
+ */
+class RTHistogram {
+    private static final int MAX_RT_MILLIS = 10000;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(MAX_RT_MILLIS + 1);
+
+    public void record(final long rtMillis) {
+        int index = (int) Math.max(0, Math.min(rtMillis, MAX_RT_MILLIS));
+        this.buckets.incrementAndGet(index);
+    }
+
+    /**
+     * @return the response time below which the given fraction of the samples recorded since the last call fall, -1 if
+     * nothing was recorded
+     */
+    public long percentileAndReset(final double fraction) {
+        long[] counts = new long[this.buckets.length()];
+        long total = 0;
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = this.buckets.getAndSet(i, 0);
+            total += counts[i];
+        }
+        if (total == 0) {
+            return -1;
+        }
+
+        long threshold = (long) Math.ceil(total * fraction);
+        long sum = 0;
+        for (int i = 0; i < counts.length; i++) {
+            sum += counts[i];
+            if (sum >= threshold) {
+                return i;
+            }
+        }
+        return MAX_RT_MILLIS;
+    }
+}
@@ -34,6 +34,7 @@ import org.apache.rocketmq.common.namesrv.RegisterBrokerResult;
 import org.apache.rocketmq.common.protocol.RequestCode;
 import org.apache.rocketmq.common.protocol.ResponseCode;
 import org.apache.rocketmq.common.protocol.body.RegisterBrokerBody;
+import org.apache.rocketmq.common.protocol.body.RegisterBrokerDeltaBody;
 import org.apache.rocketmq.common.protocol.body.TopicConfigSerializeWrapper;
 import org.apache.rocketmq.common.protocol.header.GetTopicsByClusterRequestHeader;
 import org.apache.rocketmq.common.protocol.header.namesrv.DeleteKVConfigRequestHeader;
@@ -94,6 +95,8 @@ public class DefaultRequestProcessor implements NettyRequestProcessor {
                 } else {
                     return this.registerBroker(ctx, request);
                 }
+            case RequestCode.REGISTER_BROKER_DELTA:
+                return this.registerBrokerDelta(ctx, request);
             case RequestCode.UNREGISTER_BROKER:
                 return this.unregisterBroker(ctx, request);
             case RequestCode.GET_ROUTEINTO_BY_TOPIC:
@@ -237,6 +240,54 @@ public class DefaultRequestProcessor implements NettyRequestProcessor {
         return response;
     }
 
+    public RemotingCommand registerBrokerDelta(ChannelHandlerContext ctx, RemotingCommand request)
+        throws RemotingCommandException {
+        final RemotingCommand response = RemotingCommand.createResponseCommand(RegisterBrokerResponseHeader.class);
+        final RegisterBrokerResponseHeader responseHeader = (RegisterBrokerResponseHeader) response.readCustomHeader();
+        final RegisterBrokerRequestHeader requestHeader =
+            (RegisterBrokerRequestHeader) request.decodeCommandCustomHeader(RegisterBrokerRequestHeader.class);
+
+        if (!checksum(ctx, request, requestHeader)) {
+            response.setCode(ResponseCode.SYSTEM_ERROR);
+            response.setRemark("crc32 not match");
+            return response;
+        }
+
+        RegisterBrokerDeltaBody deltaBody = null;
+        if (request.getBody() != null) {
+            deltaBody = RegisterBrokerDeltaBody.decode(request.getBody(), RegisterBrokerDeltaBody.class);
+        }
+        if (null == deltaBody) {
+            response.setCode(ResponseCode.SYSTEM_ERROR);
+            response.setRemark("register broker delta body is null");
+            return response;
+        }
+
+        RegisterBrokerResult result = this.namesrvController.getRouteInfoManager().registerBrokerDelta(
+            requestHeader.getClusterName(),
+            requestHeader.getBrokerAddr(),
+            requestHeader.getBrokerName(),
+            requestHeader.getBrokerId(),
+            requestHeader.getHaServerAddr(),
+            deltaBody,
+            ctx.channel());
+        if (null == result) {
+            response.setCode(ResponseCode.DATA_VERSION_NOT_MATCH);
+            response.setRemark("the registered data version is not " + deltaBody.getBaseDataVersion());
+            return response;
+        }
+
+        responseHeader.setHaServerAddr(result.getHaServerAddr());
+        responseHeader.setMasterAddr(result.getMasterAddr());
+
+        byte[] jsonValue = this.namesrvController.getKvConfigManager().getKVListByNamespace(NamesrvUtil.NAMESPACE_ORDER_TOPIC_CONFIG);
+        response.setBody(jsonValue);
+
+        response.setCode(ResponseCode.SUCCESS);
+        response.setRemark(null);
+        return response;
+    }
+
     private boolean checksum(ChannelHandlerContext ctx, RemotingCommand request,
         RegisterBrokerRequestHeader requestHeader) {
         if (requestHeader.getBodyCrc32() != 0) {
@@ -37,6 +37,7 @@ import org.apache.rocketmq.logging.InternalLogger;
 import org.apache.rocketmq.logging.InternalLoggerFactory;
 import org.apache.rocketmq.common.namesrv.RegisterBrokerResult;
 import org.apache.rocketmq.common.protocol.body.ClusterInfo;
+import org.apache.rocketmq.common.protocol.body.RegisterBrokerDeltaBody;
 import org.apache.rocketmq.common.protocol.body.TopicConfigSerializeWrapper;
 import org.apache.rocketmq.common.protocol.body.TopicList;
 import org.apache.rocketmq.common.protocol.route.BrokerData;
@@ -180,26 +181,98 @@ public class RouteInfoManager {
                     }
                 }
 
-                if (MixAll.MASTER_ID != brokerId) {
-                    String masterAddr = brokerData.getBrokerAddrs().get(MixAll.MASTER_ID);
-                    if (masterAddr != null) {
-                        BrokerLiveInfo brokerLiveInfo = this.brokerLiveTable.get(masterAddr);
-                        if (brokerLiveInfo != null) {
-                            result.setHaServerAddr(brokerLiveInfo.getHaServerAddr());
-                            result.setMasterAddr(masterAddr);
-                        }
+                this.fillMasterAddr(result, brokerData, brokerId);
+            } finally {
+                this.lock.writeLock().unlock();
+            }
+        } catch (Exception e) {
+            log.error("registerBroker Exception", e);
+        }
+
+        return result;
+    }
+
+    /**
+     * Apply the topic configs changed since the data version the broker was last registered with.
+     *
+     * @return null if the broker is not registered with the base data version of the delta, the broker should
+     * register in full then
+     */
+    public RegisterBrokerResult registerBrokerDelta(
+        final String clusterName,
+        final String brokerAddr,
+        final String brokerName,
+        final long brokerId,
+        final String haServerAddr,
+        final RegisterBrokerDeltaBody deltaBody,
+        final Channel channel) {
+        RegisterBrokerResult result = null;
+        try {
+            try {
+                this.lock.writeLock().lockInterruptibly();
+
+                Set<String> brokerNames = this.clusterAddrTable.get(clusterName);
+                BrokerData brokerData = this.brokerAddrTable.get(brokerName);
+                BrokerLiveInfo prevBrokerLiveInfo = this.brokerLiveTable.get(brokerAddr);
+                if (null == brokerNames || !brokerNames.contains(brokerName)
+                    || null == brokerData || !brokerAddr.equals(brokerData.getBrokerAddrs().get(brokerId))
+                    || null == prevBrokerLiveInfo
+                    || !deltaBody.getBaseDataVersion().equals(prevBrokerLiveInfo.getDataVersion())) {
+                    log.info("registerBrokerDelta, data version not match, broker {} base {} registered {}", brokerAddr,
+                        deltaBody.getBaseDataVersion(), prevBrokerLiveInfo != null ? prevBrokerLiveInfo.getDataVersion() : null);
+                    return null;
+                }
+
+                if (MixAll.MASTER_ID == brokerId) {
+                    for (TopicConfig topicConfig : deltaBody.getTopicConfigTable().values()) {
+                        this.createAndUpdateQueueData(brokerName, topicConfig);
+                    }
+                    for (String topic : deltaBody.getRemovedTopics()) {
+                        this.removeQueueData(brokerName, topic);
                     }
                 }
+
+                this.brokerLiveTable.put(brokerAddr,
+                    new BrokerLiveInfo(
+                        System.currentTimeMillis(),
+                        deltaBody.getDataVersion(),
+                        channel,
+                        haServerAddr));
+
+                List<String> filterServerList = deltaBody.getFilterServerList();
+                if (filterServerList != null) {
+                    if (filterServerList.isEmpty()) {
+                        this.filterServerTable.remove(brokerAddr);
+                    } else {
+                        this.filterServerTable.put(brokerAddr, filterServerList);
+                    }
+                }
+
+                result = new RegisterBrokerResult();
+                this.fillMasterAddr(result, brokerData, brokerId);
             } finally {
                 this.lock.writeLock().unlock();
             }
         } catch (Exception e) {
-            log.error("registerBroker Exception", e);
+            log.error("registerBrokerDelta Exception", e);
         }
 
         return result;
     }
 
+    private void fillMasterAddr(final RegisterBrokerResult result, final BrokerData brokerData, final long brokerId) {
+        if (MixAll.MASTER_ID != brokerId) {
+            String masterAddr = brokerData.getBrokerAddrs().get(MixAll.MASTER_ID);
+            if (masterAddr != null) {
+                BrokerLiveInfo brokerLiveInfo = this.brokerLiveTable.get(masterAddr);
+                if (brokerLiveInfo != null) {
+                    result.setHaServerAddr(brokerLiveInfo.getHaServerAddr());
+                    result.setMasterAddr(masterAddr);
+                }
+            }
+        }
+    }
+
     public boolean isBrokerTopicConfigChanged(final String brokerAddr, final DataVersion dataVersion) {
         DataVersion prev = queryBrokerTopicConfig(brokerAddr);
         return null == prev || !prev.equals(dataVersion);
@@ -257,6 +330,26 @@ public class RouteInfoManager {
         }
     }
 
+    private void removeQueueData(final String brokerName, final String topic) {
+        List<QueueData> queueDataList = this.topicQueueTable.get(topic);
+        if (null == queueDataList) {
+            return;
+        }
+
+        Iterator<QueueData> it = queueDataList.iterator();
+        while (it.hasNext()) {
+            QueueData qd = it.next();
+            if (qd.getBrokerName().equals(brokerName)) {
+                log.info("topic removed from broker, {} {}", topic, qd);
+                it.remove();
+            }
+        }
+
+        if (queueDataList.isEmpty()) {
+            this.topicQueueTable.remove(topic);
+        }
+    }
+
     public int wipeWritePermOfBrokerByLock(final String brokerName) {
         try {
             try {
@@ -19,8 +19,10 @@ package org.apache.rocketmq.namesrv.routeinfo;
 import io.netty.channel.Channel;
 import java.util.ArrayList;
 import java.util.concurrent.ConcurrentHashMap;
+import org.apache.rocketmq.common.MixAll;
 import org.apache.rocketmq.common.TopicConfig;
 import org.apache.rocketmq.common.namesrv.RegisterBrokerResult;
+import org.apache.rocketmq.common.protocol.body.RegisterBrokerDeltaBody;
 import org.apache.rocketmq.common.protocol.body.TopicConfigSerializeWrapper;
 import org.apache.rocketmq.common.protocol.route.TopicRouteData;
 import org.junit.After;
@@ -78,6 +80,36 @@ public class RouteInfoManagerTest {
         assertThat(registerBrokerResult).isNotNull();
     }
 
+    @Test
+    public void testRegisterBrokerDelta() {
+        TopicConfigSerializeWrapper topicConfigSerializeWrapper = new TopicConfigSerializeWrapper();
+        topicConfigSerializeWrapper.getTopicConfigTable().put("delta-a", new TopicConfig("delta-a", 8, 8, 6));
+        topicConfigSerializeWrapper.getDataVersion().nextVersion();
+        Channel channel = mock(Channel.class);
+        routeInfoManager.registerBroker("default-cluster", "127.0.0.1:10921", "delta-broker", MixAll.MASTER_ID, "127.0.0.1:1002",
+            topicConfigSerializeWrapper, new ArrayList<String>(), channel);
+        assertThat(routeInfoManager.pickupTopicRouteData("delta-a")).isNotNull();
+
+        RegisterBrokerDeltaBody deltaBody = new RegisterBrokerDeltaBody();
+        deltaBody.getBaseDataVersion().assignNewOne(topicConfigSerializeWrapper.getDataVersion());
+        deltaBody.getDataVersion().assignNewOne(topicConfigSerializeWrapper.getDataVersion());
+        deltaBody.getDataVersion().nextVersion();
+        deltaBody.getTopicConfigTable().put("delta-b", new TopicConfig("delta-b", 4, 4, 6));
+        deltaBody.getRemovedTopics().add("delta-a");
+        RegisterBrokerResult registerBrokerResult = routeInfoManager.registerBrokerDelta("default-cluster", "127.0.0.1:10921", "delta-broker",
+            MixAll.MASTER_ID, "127.0.0.1:1002", deltaBody, channel);
+        assertThat(registerBrokerResult).isNotNull();
+        assertThat(routeInfoManager.pickupTopicRouteData("delta-a")).isNull();
+        assertThat(routeInfoManager.pickupTopicRouteData("delta-b").getQueueDatas().get(0).getWriteQueueNums()).isEqualTo(4);
+        assertThat(routeInfoManager.queryBrokerTopicConfig("127.0.0.1:10921")).isEqualTo(deltaBody.getDataVersion());
+
+        // the base is no longer the registered data version
+        registerBrokerResult = routeInfoManager.registerBrokerDelta("default-cluster", "127.0.0.1:10921", "delta-broker",
+            MixAll.MASTER_ID, "127.0.0.1:1002", deltaBody, channel);
+        assertThat(registerBrokerResult).isNull();
+        routeInfoManager.unregisterBroker("default-cluster", "127.0.0.1:10921", "delta-broker", MixAll.MASTER_ID);
+    }
+
     @Test
     public void testWipeWritePermOfBrokerByLock() {
         int result = routeInfoManager.wipeWritePermOfBrokerByLock("default-broker");
@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.remoting.common;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of non negative values such as latencies or sizes. Values below 16 have a bucket of their own,
+ * larger values share a bucket with the values of the same power of two and the same next 3 bits, so percentiles are
+ * off by at most 12.5%, whatever the range of the values.
+ */
+public class LogLinearHistogram {
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int LINEAR_BUCKET_COUNT = 2 * SUB_BUCKET_COUNT;
+    private static final int LINEAR_BUCKET_BITS = 4;
+    private static final int BUCKET_COUNT = LINEAR_BUCKET_COUNT + (63 - LINEAR_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong count = new AtomicLong(0);
+    private final AtomicLong sum = new AtomicLong(0);
+    private final AtomicLong max = new AtomicLong(0);
+
+    public void record(final long value) {
+        final long v = value < 0 ? 0 : value;
+        this.buckets.incrementAndGet(bucketIndex(v));
+        this.count.incrementAndGet();
+        this.sum.addAndGet(v);
+
+        long prevMax = this.max.get();
+        while (v > prevMax) {
+            if (this.max.compareAndSet(prevMax, v)) {
+                break;
+            }
+            prevMax = this.max.get();
+        }
+    }
+
+    /**
+     * @param reset start over after taking the snapshot, values recorded meanwhile may land on either side
+     */
+    public Snapshot snapshot(final boolean reset) {
+        long[] counts = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = reset ? this.buckets.getAndSet(i, 0) : this.buckets.get(i);
+        }
+        if (reset) {
+            return new Snapshot(counts, this.count.getAndSet(0), this.sum.getAndSet(0), this.max.getAndSet(0));
+        }
+        return new Snapshot(counts, this.count.get(), this.sum.get(), this.max.get());
+    }
+
+    static int bucketIndex(final long value) {
+        if (value < LINEAR_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+        return LINEAR_BUCKET_COUNT + (exponent - LINEAR_BUCKET_BITS) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    static long bucketUpperBound(final int index) {
+        if (index < LINEAR_BUCKET_COUNT) {
+            return index;
+        }
+        int exponent = LINEAR_BUCKET_BITS + (index - LINEAR_BUCKET_COUNT) / SUB_BUCKET_COUNT;
+        int subBucket = (index - LINEAR_BUCKET_COUNT) % SUB_BUCKET_COUNT;
+        int shift = exponent - SUB_BUCKET_BITS;
+        long lowerBound = (long) (SUB_BUCKET_COUNT + subBucket) << shift;
+        return lowerBound + (1L << shift) - 1;
+    }
+
+    public static class Snapshot {
+        private final long[] buckets;
+        private long count;
+        private long sum;
+        private long max;
+
+        public Snapshot() {
+            this(new long[BUCKET_COUNT], 0, 0, 0);
+        }
+
+        Snapshot(final long[] buckets, final long count, final long sum, final long max) {
+            this.buckets = buckets;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        /**
+         * Add the values of another snapshot to this one
+         */
+        public void merge(final Snapshot other) {
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                this.buckets[i] += other.buckets[i];
+            }
+            this.count += other.count;
+            this.sum += other.sum;
+            this.max = Math.max(this.max, other.max);
+        }
+
+        /**
+         * @return upper bound of the bucket holding the value below which the given fraction of the values fall, 0 if
+         * there is no value
+         */
+        public long percentile(final double fraction) {
+            long total = 0;
+            for (long c : this.buckets) {
+                total += c;
+            }
+            if (total == 0) {
+                return 0;
+            }
+
+            long threshold = Math.max(1, (long) Math.ceil(total * fraction));
+            long seen = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                seen += this.buckets[i];
+                if (seen >= threshold) {
+                    return Math.min(bucketUpperBound(i), this.max);
+                }
+            }
+            return this.max;
+        }
+
+        public long getAvg() {
+            return this.count == 0 ? 0 : this.sum / this.count;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getSum() {
+            return sum;
+        }
+
+        public long getMax() {
+            return max;
+        }
+    }
+}
@@ -17,12 +17,16 @@
 package org.apache.rocketmq.remoting.common;
 
 import io.netty.channel.Channel;
+import io.netty.util.Attribute;
+import io.netty.util.AttributeKey;
 import org.apache.rocketmq.remoting.exception.RemotingConnectException;
 import org.apache.rocketmq.remoting.exception.RemotingSendRequestException;
 import org.apache.rocketmq.remoting.exception.RemotingTimeoutException;
 import org.apache.rocketmq.logging.InternalLogger;
 import org.apache.rocketmq.logging.InternalLoggerFactory;
+import org.apache.rocketmq.remoting.protocol.CompactSerializable;
 import org.apache.rocketmq.remoting.protocol.RemotingCommand;
+import org.apache.rocketmq.remoting.protocol.SerializeType;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
@@ -36,6 +40,35 @@ public class RemotingHelper {
 
     private static final InternalLogger log = InternalLoggerFactory.getLogger(ROCKETMQ_REMOTING);
 
+    private static final AttributeKey<Integer> COMPACT_HEADER_VERSION_KEY = AttributeKey.valueOf("CompactHeaderVersion");
+
+    /**
+     * Remember the compact header version the peer accepts, which it announces in the flag of every command.
+     */
+    public static void recordCompactHeaderVersion(final Channel channel, final RemotingCommand cmd) {
+        int version = cmd.getCompactHeaderVersion();
+        if (version > 0) {
+            Attribute<Integer> attribute = channel.attr(COMPACT_HEADER_VERSION_KEY);
+            Integer recorded = attribute.get();
+            if (null == recorded || recorded != version) {
+                attribute.set(version);
+            }
+        }
+    }
+
+    /**
+     * @return {@link SerializeType#COMPACT} if both sides accept it, the serialize type of the command otherwise
+     */
+    public static SerializeType serializeTypeOf(final Channel channel, final RemotingCommand cmd) {
+        if (RemotingCommand.isCompactHeaderEnable()) {
+            Integer version = channel.attr(COMPACT_HEADER_VERSION_KEY).get();
+            if (version != null && version >= CompactSerializable.VERSION) {
+                return SerializeType.COMPACT;
+            }
+        }
+        return cmd.getSerializeTypeCurrentRPC();
+    }
+
     public static String exceptionSimpleDesc(final Throwable e) {
         StringBuffer sb = new StringBuffer();
         if (e != null) {
@@ -19,6 +19,7 @@ package org.apache.rocketmq.remoting.common;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.epoll.Epoll;
 import java.io.IOException;
 import java.lang.reflect.Method;
 import java.net.Inet6Address;
@@ -91,6 +92,13 @@ public class RemotingUtil {
         return isLinuxPlatform;
     }
 
+    /**
+     * Whether netty should use its native epoll transport instead of NIO, for both the server and the client
+     */
+    public static boolean useEpoll(final boolean useEpollNativeSelector) {
+        return isLinuxPlatform() && useEpollNativeSelector && Epoll.isAvailable();
+    }
+
     public static String getLocalAddress() {
         try {
             // Traversal Network interface to get the first non-loopback and non-private address
@@ -0,0 +1,149 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.remoting.netty;
+
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.concurrent.DefaultEventExecutorGroup;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.rocketmq.logging.InternalLogger;
+import org.apache.rocketmq.logging.InternalLoggerFactory;
+import org.apache.rocketmq.remoting.common.RemotingHelper;
+import org.apache.rocketmq.remoting.common.RemotingUtil;
+
+/**
+ * Event loops, executors and response timer shared by the remoting clients of a JVM which enable
+ * {@link NettyClientConfig#isClientShareTransportResources()}, so that many producers and consumers do not start a
+ * set of threads each.
+ * <p>
+ * Each pool has {@link NettySystemConfig#CLIENT_SHARED_TRANSPORT_THREADS} threads, the number of cores by default.
+ * The resources are created by the first client and shut down with the last one, the epoll setting of the first
+ * client applies to all of them.
+ */
+public class ClientTransportResources {
+    private static final InternalLogger log = InternalLoggerFactory.getLogger(RemotingHelper.ROCKETMQ_REMOTING);
+
+    private static ClientTransportResources sharedInstance;
+    private static int refCount = 0;
+
+    private final boolean useEpoll;
+    private final EventLoopGroup eventLoopGroup;
+    private final DefaultEventExecutorGroup eventExecutorGroup;
+    private final ExecutorService publicExecutor;
+    private final HashedWheelTimer responseTimeoutTimer;
+
+    private ClientTransportResources(final boolean useEpoll, final int threads) {
+        this.useEpoll = useEpoll;
+        if (useEpoll) {
+            this.eventLoopGroup = new EpollEventLoopGroup(threads, new ThreadFactory() {
+                private AtomicInteger threadIndex = new AtomicInteger(0);
+
+                @Override
+                public Thread newThread(Runnable r) {
+                    return new Thread(r, String.format("NettySharedClientEPOLLSelector_%d", this.threadIndex.incrementAndGet()));
+                }
+            });
+        } else {
+            this.eventLoopGroup = new NioEventLoopGroup(threads, new ThreadFactory() {
+                private AtomicInteger threadIndex = new AtomicInteger(0);
+
+                @Override
+                public Thread newThread(Runnable r) {
+                    return new Thread(r, String.format("NettySharedClientSelector_%d", this.threadIndex.incrementAndGet()));
+                }
+            });
+        }
+
+        this.eventExecutorGroup = new DefaultEventExecutorGroup(threads, new ThreadFactory() {
+            private AtomicInteger threadIndex = new AtomicInteger(0);
+
+            @Override
+            public Thread newThread(Runnable r) {
+                return new Thread(r, "NettySharedClientWorkerThread_" + this.threadIndex.incrementAndGet());
+            }
+        });
+
+        this.publicExecutor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            private AtomicInteger threadIndex = new AtomicInteger(0);
+
+            @Override
+            public Thread newThread(Runnable r) {
+                return new Thread(r, "NettySharedClientPublicExecutor_" + this.threadIndex.incrementAndGet());
+            }
+        });
+
+        this.responseTimeoutTimer = NettyRemotingAbstract.newResponseTimeoutTimer();
+    }
+
+    /**
+     * Get the shared resources, creating them if no client uses them, each call must be paired with a
+     * {@link #release()}.
+     */
+    public static synchronized ClientTransportResources acquire(final NettyClientConfig nettyClientConfig) {
+        if (null == sharedInstance) {
+            int threads = Math.max(1, NettySystemConfig.CLIENT_SHARED_TRANSPORT_THREADS);
+            sharedInstance = new ClientTransportResources(
+                RemotingUtil.useEpoll(nettyClientConfig.isUseEpollNativeSelector()), threads);
+            log.info("create shared client transport resources, {} threads per pool", threads);
+        }
+        refCount++;
+        return sharedInstance;
+    }
+
+    /**
+     * Shut the resources down once no client uses them any more.
+     */
+    public void release() {
+        synchronized (ClientTransportResources.class) {
+            if (this != sharedInstance || --refCount > 0) {
+                return;
+            }
+            sharedInstance = null;
+        }
+
+        log.info("shutdown shared client transport resources");
+        this.responseTimeoutTimer.stop();
+        this.eventLoopGroup.shutdownGracefully();
+        this.eventExecutorGroup.shutdownGracefully();
+        this.publicExecutor.shutdown();
+    }
+
+    public boolean isUseEpoll() {
+        return useEpoll;
+    }
+
+    public EventLoopGroup getEventLoopGroup() {
+        return eventLoopGroup;
+    }
+
+    public DefaultEventExecutorGroup getEventExecutorGroup() {
+        return eventExecutorGroup;
+    }
+
+    public ExecutorService getPublicExecutor() {
+        return publicExecutor;
+    }
+
+    public HashedWheelTimer getResponseTimeoutTimer() {
+        return responseTimeoutTimer;
+    }
+}
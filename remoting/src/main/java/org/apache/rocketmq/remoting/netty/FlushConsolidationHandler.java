@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.remoting.netty;
+
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import java.util.concurrent.Future;
+
+/**
+ * Coalesce the flushes of a channel, so that many small writes cost a single syscall.
+ * <p>
+ * While a read is in progress, flushes are delayed until the read completes, responses to pipelined requests go out
+ * together. Otherwise the flush is submitted to the executor of this handler, behind the write tasks already queued by
+ * other threads, so concurrent async and oneway requests are flushed once per tick. In both cases the channel is
+ * flushed right away after {@code explicitFlushAfterFlushes} pending flushes, or when it becomes unwritable.
+ * <p>
+ * Netty 4.1 ships an equivalent handler, this one works with the Netty version the remoting module is built with.
+ */
+public class FlushConsolidationHandler extends ChannelDuplexHandler {
+    private final int explicitFlushAfterFlushes;
+    private final Runnable flushTask;
+    private ChannelHandlerContext ctx;
+    private int flushPendingCount;
+    private boolean readInProgress;
+    private Future<?> nextScheduledFlush;
+
+    public FlushConsolidationHandler(final int explicitFlushAfterFlushes) {
+        if (explicitFlushAfterFlushes <= 0) {
+            throw new IllegalArgumentException("explicitFlushAfterFlushes: " + explicitFlushAfterFlushes + " (expected: > 0)");
+        }
+        this.explicitFlushAfterFlushes = explicitFlushAfterFlushes;
+        this.flushTask = new Runnable() {
+            @Override
+            public void run() {
+                if (flushPendingCount > 0 && !readInProgress) {
+                    flushPendingCount = 0;
+                    nextScheduledFlush = null;
+                    ctx.flush();
+                }
+            }
+        };
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+        this.ctx = ctx;
+    }
+
+    @Override
+    public void flush(ChannelHandlerContext ctx) throws Exception {
+        if (++this.flushPendingCount == this.explicitFlushAfterFlushes) {
+            flushNow(ctx);
+        } else if (!this.readInProgress) {
+            scheduleFlush(ctx);
+        }
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        this.readInProgress = true;
+        ctx.fireChannelRead(msg);
+    }
+
+    @Override
+    public void channelReadComplete(ChannelHandlerContext ctx) throws Exception {
+        resetReadAndFlushIfNeeded(ctx);
+        ctx.fireChannelReadComplete();
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+        resetReadAndFlushIfNeeded(ctx);
+        ctx.fireExceptionCaught(cause);
+    }
+
+    @Override
+    public void disconnect(ChannelHandlerContext ctx, ChannelPromise promise) throws Exception {
+        resetReadAndFlushIfNeeded(ctx);
+        ctx.disconnect(promise);
+    }
+
+    @Override
+    public void close(ChannelHandlerContext ctx, ChannelPromise promise) throws Exception {
+        resetReadAndFlushIfNeeded(ctx);
+        ctx.close(promise);
+    }
+
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        if (!ctx.channel().isWritable()) {
+            flushIfNeeded(ctx);
+        }
+        ctx.fireChannelWritabilityChanged();
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+        flushIfNeeded(ctx);
+    }
+
+    private void resetReadAndFlushIfNeeded(ChannelHandlerContext ctx) {
+        this.readInProgress = false;
+        flushIfNeeded(ctx);
+    }
+
+    private void flushIfNeeded(ChannelHandlerContext ctx) {
+        if (this.flushPendingCount > 0) {
+            flushNow(ctx);
+        }
+    }
+
+    private void flushNow(ChannelHandlerContext ctx) {
+        if (this.nextScheduledFlush != null) {
+            this.nextScheduledFlush.cancel(false);
+            this.nextScheduledFlush = null;
+        }
+        this.flushPendingCount = 0;
+        ctx.flush();
+    }
+
+    private void scheduleFlush(ChannelHandlerContext ctx) {
+        if (null == this.nextScheduledFlush) {
+            this.nextScheduledFlush = ctx.executor().submit(this.flushTask);
+        }
+    }
+}
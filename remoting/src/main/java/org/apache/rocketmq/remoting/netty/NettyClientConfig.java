@@ -35,8 +35,45 @@ public class NettyClientConfig {
 
     private int clientSocketSndBufSize = NettySystemConfig.socketSndbufSize;
     private int clientSocketRcvBufSize = NettySystemConfig.socketRcvbufSize;
-    private boolean clientPooledByteBufAllocatorEnable = false;
+    private boolean clientPooledByteBufAllocatorEnable = true;
     private boolean clientCloseSocketIfTimeout = false;
+    /**
+     * Use the netty native epoll transport on linux, falls back to NIO when it is not available
+     */
+    private boolean useEpollNativeSelector = NettySystemConfig.CLIENT_USE_EPOLL_NATIVE_SELECTOR;
+
+    /**
+     * Coalesce the flushes of the requests written to a channel within one event loop tick, see
+     * {@link FlushConsolidationHandler}
+     */
+    private boolean clientFlushConsolidationEnable = NettySystemConfig.FLUSH_CONSOLIDATION_ENABLE;
+    private int clientFlushConsolidationExplicitFlushAfterFlushes =
+        NettySystemConfig.FLUSH_CONSOLIDATION_EXPLICIT_FLUSH_AFTER_FLUSHES;
+
+    /**
+     * Number of connections kept to each broker address. Send and pull requests are spread over them, other requests
+     * and the requests from the broker go over the first one
+     */
+    private int clientChannelPoolSize = NettySystemConfig.CLIENT_CHANNEL_POOL_SIZE;
+    /**
+     * Number of IO threads of the client, raised to {@link #clientChannelPoolSize} so that the pooled connections do
+     * not share one thread. Not used with {@link #clientShareTransportResources}
+     */
+    private int clientWorkerThreads = NettySystemConfig.CLIENT_WORKER_THREADS;
+    /**
+     * Send all requests of a message queue over the same pooled connection, so they reach the broker in order
+     */
+    private boolean clientChannelQueueAffinityEnable = true;
+    /**
+     * Without queue affinity, pick the pooled connection with the least requests waiting for a response instead of
+     * round-robin
+     */
+    private boolean clientChannelLeastPendingSelectEnable = false;
+    /**
+     * Use the event loops, executors and response timer shared by all the clients of the JVM enabling it, see
+     * {@link ClientTransportResources}, instead of threads of its own
+     */
+    private boolean clientShareTransportResources = NettySystemConfig.CLIENT_SHARE_TRANSPORT_RESOURCES;
 
     private boolean useTLS;
 
@@ -135,4 +172,68 @@ public class NettyClientConfig {
     public void setUseTLS(boolean useTLS) {
         this.useTLS = useTLS;
     }
+
+    public int getClientChannelPoolSize() {
+        return clientChannelPoolSize;
+    }
+
+    public void setClientChannelPoolSize(int clientChannelPoolSize) {
+        this.clientChannelPoolSize = clientChannelPoolSize;
+    }
+
+    public int getClientWorkerThreads() {
+        return clientWorkerThreads;
+    }
+
+    public void setClientWorkerThreads(int clientWorkerThreads) {
+        this.clientWorkerThreads = clientWorkerThreads;
+    }
+
+    public boolean isClientChannelQueueAffinityEnable() {
+        return clientChannelQueueAffinityEnable;
+    }
+
+    public void setClientChannelQueueAffinityEnable(boolean clientChannelQueueAffinityEnable) {
+        this.clientChannelQueueAffinityEnable = clientChannelQueueAffinityEnable;
+    }
+
+    public boolean isClientChannelLeastPendingSelectEnable() {
+        return clientChannelLeastPendingSelectEnable;
+    }
+
+    public void setClientChannelLeastPendingSelectEnable(boolean clientChannelLeastPendingSelectEnable) {
+        this.clientChannelLeastPendingSelectEnable = clientChannelLeastPendingSelectEnable;
+    }
+
+    public boolean isClientShareTransportResources() {
+        return clientShareTransportResources;
+    }
+
+    public void setClientShareTransportResources(boolean clientShareTransportResources) {
+        this.clientShareTransportResources = clientShareTransportResources;
+    }
+
+    public boolean isUseEpollNativeSelector() {
+        return useEpollNativeSelector;
+    }
+
+    public void setUseEpollNativeSelector(boolean useEpollNativeSelector) {
+        this.useEpollNativeSelector = useEpollNativeSelector;
+    }
+
+    public boolean isClientFlushConsolidationEnable() {
+        return clientFlushConsolidationEnable;
+    }
+
+    public void setClientFlushConsolidationEnable(boolean clientFlushConsolidationEnable) {
+        this.clientFlushConsolidationEnable = clientFlushConsolidationEnable;
+    }
+
+    public int getClientFlushConsolidationExplicitFlushAfterFlushes() {
+        return clientFlushConsolidationExplicitFlushAfterFlushes;
+    }
+
+    public void setClientFlushConsolidationExplicitFlushAfterFlushes(int clientFlushConsolidationExplicitFlushAfterFlushes) {
+        this.clientFlushConsolidationExplicitFlushAfterFlushes = clientFlushConsolidationExplicitFlushAfterFlushes;
+    }
 }
@@ -35,12 +35,13 @@ public class NettyEncoder extends MessageToByteEncoder<RemotingCommand> {
     public void encode(ChannelHandlerContext ctx, RemotingCommand remotingCommand, ByteBuf out)
         throws Exception {
         try {
+            //获取消息体
+            byte[] body = remotingCommand.getBody();
             //消息头编码
-            ByteBuffer header = remotingCommand.encodeHeader();
+            ByteBuffer header = remotingCommand.encodeHeader(body != null ? body.length : 0,
+                RemotingHelper.serializeTypeOf(ctx.channel(), remotingCommand));
             //往buf中写入消息
             out.writeBytes(header);
-            //获取消息体
-            byte[] body = remotingCommand.getBody();
             if (body != null) {
                 //buf中写消息体
                 out.writeBytes(body);
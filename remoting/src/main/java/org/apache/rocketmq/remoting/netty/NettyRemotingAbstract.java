@@ -22,6 +22,9 @@ import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.ssl.SslContext;
 import io.netty.handler.ssl.SslHandler;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.TimerTask;
 import java.net.SocketAddress;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -35,7 +38,9 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.rocketmq.logging.InternalLogger;
 import org.apache.rocketmq.logging.InternalLoggerFactory;
 import org.apache.rocketmq.remoting.ChannelEventListener;
@@ -74,6 +79,12 @@ public abstract class NettyRemotingAbstract {
     protected final ConcurrentMap<Integer /* opaque */, ResponseFuture> responseTable =
         new ConcurrentHashMap<Integer, ResponseFuture>(256);
 
+    /**
+     * Expires each on-going asynchronous request at its own deadline, so that no sweep over {@link #responseTable} is
+     * needed.
+     */
+    protected final HashedWheelTimer responseTimeoutTimer;
+
     /**
      * This container holds all processors per request code, aka, for each incoming request, we may look up the
      * responding processor in this map to handle the request.
@@ -81,6 +92,12 @@ public abstract class NettyRemotingAbstract {
     protected final HashMap<Integer/* request code */, Pair<NettyRequestProcessor, ExecutorService>> processorTable =
         new HashMap<Integer, Pair<NettyRequestProcessor, ExecutorService>>(64);
 
+    /**
+     * Queue wait, processing time and response size of the processed requests, per request code.
+     */
+    protected final ConcurrentMap<Integer/* request code */, RequestCodeMetrics> requestCodeMetricsTable =
+        new ConcurrentHashMap<Integer, RequestCodeMetrics>(64);
+
     /**
      * Executor to feed netty events to user defined {@link ChannelEventListener}.
      */
@@ -114,8 +131,31 @@ public abstract class NettyRemotingAbstract {
      * @param permitsAsync Number of permits for asynchronous requests.
      */
     public NettyRemotingAbstract(final int permitsOneway, final int permitsAsync) {
+        this(permitsOneway, permitsAsync, newResponseTimeoutTimer());
+    }
+
+    /**
+     * Constructor, specifying capacity of one-way and asynchronous semaphores, and the timer expiring the asynchronous
+     * requests, which may be shared with other instances.
+     */
+    public NettyRemotingAbstract(final int permitsOneway, final int permitsAsync,
+        final HashedWheelTimer responseTimeoutTimer) {
         this.semaphoreOneway = new Semaphore(permitsOneway, true);
         this.semaphoreAsync = new Semaphore(permitsAsync, true);
+        this.responseTimeoutTimer = responseTimeoutTimer;
+    }
+
+    static HashedWheelTimer newResponseTimeoutTimer() {
+        return new HashedWheelTimer(new ThreadFactory() {
+            private AtomicInteger threadIndex = new AtomicInteger(0);
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "NettyResponseTimeoutTimer_" + this.threadIndex.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        }, NettySystemConfig.RESPONSE_TIMEOUT_TICK_MILLIS, TimeUnit.MILLISECONDS, NettySystemConfig.RESPONSE_TIMEOUT_TICKS_PER_WHEEL);
     }
 
     /**
@@ -196,11 +236,14 @@ public abstract class NettyRemotingAbstract {
         final Pair<NettyRequestProcessor, ExecutorService> matched = this.processorTable.get(cmd.getCode());
         final Pair<NettyRequestProcessor, ExecutorService> pair = null == matched ? this.defaultRequestProcessor : matched;
         final int opaque = cmd.getOpaque();
+        final long receiveNanos = NettySystemConfig.REQUEST_METRICS_ENABLE ? System.nanoTime() : 0;
 
         if (pair != null) {
             Runnable run = new Runnable() {
                 @Override
                 public void run() {
+                    final long beginNanos = NettySystemConfig.REQUEST_METRICS_ENABLE ? System.nanoTime() : 0;
+                    int responseSize = 0;
                     try {
                         //处理请求前钩子
                         doBeforeRpcHooks(RemotingHelper.parseChannelRemoteAddr(ctx.channel()), cmd);
@@ -211,6 +254,7 @@ public abstract class NettyRemotingAbstract {
                         //如果不是单线程请求
                         if (!cmd.isOnewayRPC()) {
                             if (response != null) {
+                                responseSize = response.getBodyLength();
                                 response.setOpaque(opaque);
                                 response.markResponseType();
                                 try {
@@ -234,11 +278,18 @@ public abstract class NettyRemotingAbstract {
                             response.setOpaque(opaque);
                             ctx.writeAndFlush(response);
                         }
+                    } finally {
+                        cmd.release();
+                        if (NettySystemConfig.REQUEST_METRICS_ENABLE) {
+                            recordRequestMetrics(cmd.getCode(), beginNanos - receiveNanos,
+                                System.nanoTime() - beginNanos, responseSize);
+                        }
                     }
                 }
             };
             //结果为系统忙，流量控制
             if (pair.getObject1().rejectRequest()) {
+                cmd.release();
                 final RemotingCommand response = RemotingCommand.createResponseCommand(RemotingSysResponseCode.SYSTEM_BUSY,
                     "[REJECTREQUEST]system busy, start flow control for a while");
                 response.setOpaque(opaque);
@@ -251,6 +302,7 @@ public abstract class NettyRemotingAbstract {
                 final RequestTask requestTask = new RequestTask(run, ctx.channel(), cmd);
                 pair.getObject2().submit(requestTask);
             } catch (RejectedExecutionException e) {
+                cmd.release();
                 if ((System.currentTimeMillis() % 10000) == 0) {
                     log.warn(RemotingHelper.parseChannelRemoteAddr(ctx.channel())
                         + ", too many requests and system thread pool busy, RejectedExecutionException "
@@ -266,6 +318,7 @@ public abstract class NettyRemotingAbstract {
                 }
             }
         } else {
+            cmd.release();
             //请求编码不支持
             String error = " request type " + cmd.getCode() + " not supported";
             final RemotingCommand response =
@@ -276,6 +329,23 @@ public abstract class NettyRemotingAbstract {
         }
     }
 
+    private void recordRequestMetrics(final int requestCode, final long queueWaitNanos, final long processNanos,
+        final int responseSize) {
+        RequestCodeMetrics metrics = this.requestCodeMetricsTable.get(requestCode);
+        if (null == metrics) {
+            metrics = new RequestCodeMetrics(requestCode);
+            RequestCodeMetrics prev = this.requestCodeMetricsTable.putIfAbsent(requestCode, metrics);
+            if (prev != null) {
+                metrics = prev;
+            }
+        }
+        metrics.record(queueWaitNanos, processNanos, responseSize);
+    }
+
+    public ConcurrentMap<Integer, RequestCodeMetrics> getRequestCodeMetricsTable() {
+        return requestCodeMetricsTable;
+    }
+
     /**
      * Process response from remote peer to the previous issued requests.
      *
@@ -291,6 +361,7 @@ public abstract class NettyRemotingAbstract {
             responseFuture.setResponseCommand(cmd);
 
             responseTable.remove(opaque);
+            responseFuture.cancelTimeoutTask();
 
             if (responseFuture.getInvokeCallback() != null) {
                 executeInvokeCallback(responseFuture);
@@ -376,9 +447,34 @@ public abstract class NettyRemotingAbstract {
      */
     public abstract ExecutorService getCallbackExecutor();
 
+    /**
+     * Schedule the expiry of an asynchronous request on {@link #responseTimeoutTimer}, the task is cancelled once the
+     * request is answered or failed.
+     *
+     * @param responseFuture future of the request, already put in {@link #responseTable}.
+     */
+    protected void scheduleResponseTimeout(final ResponseFuture responseFuture) {
+        Timeout timeoutTask = this.responseTimeoutTimer.newTimeout(new TimerTask() {
+            @Override
+            public void run(Timeout timeout) throws Exception {
+                if (responseTable.remove(responseFuture.getOpaque(), responseFuture)) {
+                    responseFuture.release();
+                    log.warn("remove timeout request, " + responseFuture);
+                    try {
+                        executeInvokeCallback(responseFuture);
+                    } catch (Throwable e) {
+                        log.warn("responseTimeout, operationComplete Exception", e);
+                    }
+                }
+            }
+        }, responseFuture.getTimeoutMillis(), TimeUnit.MILLISECONDS);
+        responseFuture.setTimeoutTask(timeoutTask);
+    }
+
     /**
      * <p>
-     * This method is periodically invoked to scan and expire deprecated request.
+     * Scan and expire deprecated request. Asynchronous requests are expired by {@link #responseTimeoutTimer}, this is
+     * only a fallback for futures put in {@link #responseTable} without a scheduled timeout.
      * </p>
      */
     public void scanResponseTable() {
@@ -470,6 +566,7 @@ public abstract class NettyRemotingAbstract {
             //缓存正在进行的请求
             this.responseTable.put(opaque, responseFuture);
             try {
+                this.scheduleResponseTimeout(responseFuture);
                 channel.writeAndFlush(request).addListener(new ChannelFutureListener() {
                     @Override
                     public void operationComplete(ChannelFuture f) throws Exception {
@@ -482,6 +579,8 @@ public abstract class NettyRemotingAbstract {
                     }
                 });
             } catch (Exception e) {
+                this.responseTable.remove(opaque, responseFuture);
+                responseFuture.cancelTimeoutTask();
                 responseFuture.release();
                 log.warn("send a request command to channel <" + RemotingHelper.parseChannelRemoteAddr(channel) + "> Exception", e);
                 throw new RemotingSendRequestException(RemotingHelper.parseChannelRemoteAddr(channel), e);
@@ -506,6 +605,7 @@ public abstract class NettyRemotingAbstract {
         //从responseTable移除
         ResponseFuture responseFuture = responseTable.remove(opaque);
         if (responseFuture != null) {
+            responseFuture.cancelTimeoutTask();
             responseFuture.setSendRequestOK(false);
             responseFuture.putResponse(null);
             try {
@@ -17,6 +17,7 @@
 package org.apache.rocketmq.remoting.netty;
 
 import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelDuplexHandler;
 import io.netty.channel.ChannelFuture;
@@ -27,12 +28,15 @@ import io.netty.channel.ChannelPipeline;
 import io.netty.channel.ChannelPromise;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollSocketChannel;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
 import io.netty.channel.socket.nio.NioSocketChannel;
 import io.netty.handler.timeout.IdleState;
 import io.netty.handler.timeout.IdleStateEvent;
 import io.netty.handler.timeout.IdleStateHandler;
+import io.netty.util.AttributeKey;
 import io.netty.util.concurrent.DefaultEventExecutorGroup;
 import java.io.IOException;
 import java.net.SocketAddress;
@@ -41,14 +45,13 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
-import java.util.Timer;
-import java.util.TimerTask;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Lock;
@@ -56,6 +59,7 @@ import java.util.concurrent.locks.ReentrantLock;
 import org.apache.rocketmq.logging.InternalLogger;
 import org.apache.rocketmq.logging.InternalLoggerFactory;
 import org.apache.rocketmq.remoting.ChannelEventListener;
+import org.apache.rocketmq.remoting.CommandCustomHeader;
 import org.apache.rocketmq.remoting.InvokeCallback;
 import org.apache.rocketmq.remoting.RPCHook;
 import org.apache.rocketmq.remoting.RemotingClient;
@@ -66,6 +70,7 @@ import org.apache.rocketmq.remoting.exception.RemotingConnectException;
 import org.apache.rocketmq.remoting.exception.RemotingSendRequestException;
 import org.apache.rocketmq.remoting.exception.RemotingTimeoutException;
 import org.apache.rocketmq.remoting.exception.RemotingTooMuchRequestException;
+import org.apache.rocketmq.remoting.protocol.QueueAffinityHeader;
 import org.apache.rocketmq.remoting.protocol.RemotingCommand;
 
 public class NettyRemotingClient extends NettyRemotingAbstract implements RemotingClient {
@@ -73,13 +78,17 @@ public class NettyRemotingClient extends NettyRemotingAbstract implements Remoti
 
     private static final long LOCK_TIMEOUT_MILLIS = 3000;
 
+    private static final String CHANNEL_KEY_SEPARATOR = "#";
+    private static final AttributeKey<AtomicInteger> PENDING_REQUESTS = AttributeKey.valueOf("pendingRequests");
+
     private final NettyClientConfig nettyClientConfig;
     private final Bootstrap bootstrap = new Bootstrap();
     private final EventLoopGroup eventLoopGroupWorker;
+    private final boolean useEpoll;
     private final Lock lockChannelTables = new ReentrantLock();
+    //连接池中第一个连接的key为addr, 其余为addr#index
     private final ConcurrentMap<String /* addr */, ChannelWrapper> channelTables = new ConcurrentHashMap<String, ChannelWrapper>();
-
-    private final Timer timer = new Timer("ClientHouseKeepingService", true);
+    private final AtomicInteger channelIndex = new AtomicInteger(0);
 
     private final AtomicReference<List<String>> namesrvAddrList = new AtomicReference<List<String>>();
     private final AtomicReference<String> namesrvAddrChoosed = new AtomicReference<String>();
@@ -94,6 +103,9 @@ public class NettyRemotingClient extends NettyRemotingAbstract implements Remoti
     private ExecutorService callbackExecutor;
     private final ChannelEventListener channelEventListener;
     private DefaultEventExecutorGroup defaultEventExecutorGroup;
+    //共享的线程资源, 未开启共享时为null
+    private final ClientTransportResources transportResources;
+    private final AtomicBoolean transportResourcesReleased = new AtomicBoolean(false);
 
     public NettyRemotingClient(final NettyClientConfig nettyClientConfig) {
         this(nettyClientConfig, null);
@@ -101,16 +113,48 @@ public class NettyRemotingClient extends NettyRemotingAbstract implements Remoti
 
     public NettyRemotingClient(final NettyClientConfig nettyClientConfig,
         final ChannelEventListener channelEventListener) {
-        super(nettyClientConfig.getClientOnewaySemaphoreValue(), nettyClientConfig.getClientAsyncSemaphoreValue());
+        this(nettyClientConfig, channelEventListener, nettyClientConfig.isClientShareTransportResources()
+            ? ClientTransportResources.acquire(nettyClientConfig) : null);
+    }
+
+    private NettyRemotingClient(final NettyClientConfig nettyClientConfig,
+        final ChannelEventListener channelEventListener, final ClientTransportResources transportResources) {
+        super(nettyClientConfig.getClientOnewaySemaphoreValue(), nettyClientConfig.getClientAsyncSemaphoreValue(),
+            null == transportResources ? newResponseTimeoutTimer() : transportResources.getResponseTimeoutTimer());
         this.nettyClientConfig = nettyClientConfig;
         this.channelEventListener = channelEventListener;
+        this.transportResources = transportResources;
+
+        if (transportResources != null) {
+            this.publicExecutor = transportResources.getPublicExecutor();
+            this.useEpoll = transportResources.isUseEpoll();
+            this.eventLoopGroupWorker = transportResources.getEventLoopGroup();
+        } else {
+            this.publicExecutor = newPublicExecutor(nettyClientConfig);
+            this.useEpoll = RemotingUtil.useEpoll(nettyClientConfig.isUseEpollNativeSelector());
+            this.eventLoopGroupWorker = newEventLoopGroupWorker(this.useEpoll, workerThreads(nettyClientConfig));
+        }
+
+        if (nettyClientConfig.isUseTLS()) {
+            try {
+                sslContext = TlsHelper.buildSslContext(true);
+                log.info("SSL enabled for client");
+            } catch (IOException e) {
+                log.error("Failed to create SSLContext", e);
+            } catch (CertificateException e) {
+                log.error("Failed to create SSLContext", e);
+                throw new RuntimeException("Failed to create SSLContext", e);
+            }
+        }
+    }
 
+    private static ExecutorService newPublicExecutor(final NettyClientConfig nettyClientConfig) {
         int publicThreadNums = nettyClientConfig.getClientCallbackExecutorThreads();
         if (publicThreadNums <= 0) {
             publicThreadNums = 4;
         }
 
-        this.publicExecutor = Executors.newFixedThreadPool(publicThreadNums, new ThreadFactory() {
+        return Executors.newFixedThreadPool(publicThreadNums, new ThreadFactory() {
             private AtomicInteger threadIndex = new AtomicInteger(0);
 
             @Override
@@ -118,26 +162,34 @@ public class NettyRemotingClient extends NettyRemotingAbstract implements Remoti
                 return new Thread(r, "NettyClientPublicExecutor_" + this.threadIndex.incrementAndGet());
             }
         });
+    }
 
-        this.eventLoopGroupWorker = new NioEventLoopGroup(1, new ThreadFactory() {
-            private AtomicInteger threadIndex = new AtomicInteger(0);
+    /**
+     * at least one IO thread per pooled connection, the connections are registered to the threads in turn
+     */
+    static int workerThreads(final NettyClientConfig nettyClientConfig) {
+        return Math.max(1, Math.max(nettyClientConfig.getClientWorkerThreads(), nettyClientConfig.getClientChannelPoolSize()));
+    }
 
-            @Override
-            public Thread newThread(Runnable r) {
-                return new Thread(r, String.format("NettyClientSelector_%d", this.threadIndex.incrementAndGet()));
-            }
-        });
+    private static EventLoopGroup newEventLoopGroupWorker(final boolean useEpoll, final int threads) {
+        if (useEpoll) {
+            return new EpollEventLoopGroup(threads, new ThreadFactory() {
+                private AtomicInteger threadIndex = new AtomicInteger(0);
 
-        if (nettyClientConfig.isUseTLS()) {
-            try {
-                sslContext = TlsHelper.buildSslContext(true);
-                log.info("SSL enabled for client");
-            } catch (IOException e) {
-                log.error("Failed to create SSLContext", e);
-            } catch (CertificateException e) {
-                log.error("Failed to create SSLContext", e);
-                throw new RuntimeException("Failed to create SSLContext", e);
-            }
+                @Override
+                public Thread newThread(Runnable r) {
+                    return new Thread(r, String.format("NettyClientEPOLLSelector_%d", this.threadIndex.incrementAndGet()));
+                }
+            });
+        } else {
+            return new NioEventLoopGroup(threads, new ThreadFactory() {
+                private AtomicInteger threadIndex = new AtomicInteger(0);
+
+                @Override
+                public Thread newThread(Runnable r) {
+                    return new Thread(r, String.format("NettyClientSelector_%d", this.threadIndex.incrementAndGet()));
+                }
+            });
         }
     }
 
@@ -150,19 +202,24 @@ public class NettyRemotingClient extends NettyRemotingAbstract implements Remoti
     @Override
     public void start() {
         //客户端工作线程组
-        this.defaultEventExecutorGroup = new DefaultEventExecutorGroup(
-            nettyClientConfig.getClientWorkerThreads(),
-            new ThreadFactory() {
+        if (this.transportResources != null) {
+            this.defaultEventExecutorGroup = this.transportResources.getEventExecutorGroup();
+        } else {
+            this.defaultEventExecutorGroup = new DefaultEventExecutorGroup(
+                nettyClientConfig.getClientWorkerThreads(),
+                new ThreadFactory() {
 
-                private AtomicInteger threadIndex = new AtomicInteger(0);
+                    private AtomicInteger threadIndex = new AtomicInteger(0);
 
-                @Override
-                public Thread newThread(Runnable r) {
-                    return new Thread(r, "NettyClientWorkerThread_" + this.threadIndex.incrementAndGet());
-                }
-            });
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        return new Thread(r, "NettyClientWorkerThread_" + this.threadIndex.incrementAndGet());
+                    }
+                });
+        }
 
-        Bootstrap handler = this.bootstrap.group(this.eventLoopGroupWorker).channel(NioSocketChannel.class)
+        Bootstrap handler = this.bootstrap.group(this.eventLoopGroupWorker)
+            .channel(this.useEpoll ? EpollSocketChannel.class : NioSocketChannel.class)
             .option(ChannelOption.TCP_NODELAY, true)
             .option(ChannelOption.SO_KEEPALIVE, false)
                 //链接超时时间
@@ -173,6 +230,7 @@ public class NettyRemotingClient extends NettyRemotingAbstract implements Remoti
             .handler(new ChannelInitializer<SocketChannel>() {
                 @Override
                 public void initChannel(SocketChannel ch) throws Exception {
+                    ch.attr(PENDING_REQUESTS).set(new AtomicInteger(0));
                     ChannelPipeline pipeline = ch.pipeline();
                     if (nettyClientConfig.isUseTLS()) {
                         if (null != sslContext) {
@@ -182,6 +240,10 @@ public class NettyRemotingClient extends NettyRemotingAbstract implements Remoti
                             log.warn("Connections are insecure as SSLContext is null!");
                         }
                     }
+                    if (nettyClientConfig.isClientFlushConsolidationEnable()) {
+                        pipeline.addLast(defaultEventExecutorGroup, "flushConsolidationHandler",
+                            new FlushConsolidationHandler(nettyClientConfig.getClientFlushConsolidationExplicitFlushAfterFlushes()));
+                    }
                     pipeline.addLast(
                         //添加事件组
                         defaultEventExecutorGroup,
@@ -197,17 +259,9 @@ public class NettyRemotingClient extends NettyRemotingAbstract implements Remoti
                 }
             });
 
-        this.timer.scheduleAtFixedRate(new TimerTask() {
-            @Override
-            public void run() {
-                try {
-                    //扫描请求表
-                    NettyRemotingClient.this.scanResponseTable();
-                } catch (Throwable e) {
-                    log.error("scanResponseTable exception", e);
-                }
-            }
-        }, 1000 * 3, 1000);
+        if (nettyClientConfig.isClientPooledByteBufAllocatorEnable()) {
+            handler.option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT);
+        }
 
         if (this.channelEventListener != null) {
             this.nettyEventExecutor.start();
@@ -217,7 +271,9 @@ public class NettyRemotingClient extends NettyRemotingAbstract implements Remoti
     @Override
     public void shutdown() {
         try {
-            this.timer.cancel();
+            if (null == this.transportResources) {
+                this.responseTimeoutTimer.stop();
+            }
 
             for (ChannelWrapper cw : this.channelTables.values()) {
                 this.closeChannel(null, cw.getChannel());
@@ -225,12 +281,20 @@ public class NettyRemotingClient extends NettyRemotingAbstract implements Remoti
 
             this.channelTables.clear();
 
-            this.eventLoopGroupWorker.shutdownGracefully();
-
             if (this.nettyEventExecutor != null) {
                 this.nettyEventExecutor.shutdown();
             }
 
+            if (this.transportResources != null) {
+                //共享资源由最后一个使用它的client关闭
+                if (this.transportResourcesReleased.compareAndSet(false, true)) {
+                    this.transportResources.release();
+                }
+                return;
+            }
+
+            this.eventLoopGroupWorker.shutdownGracefully();
+
             if (this.defaultEventExecutorGroup != null) {
                 this.defaultEventExecutorGroup.shutdownGracefully();
             }
@@ -257,7 +321,8 @@ public class NettyRemotingClient extends NettyRemotingAbstract implements Remoti
             if (this.lockChannelTables.tryLock(LOCK_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
                 try {
                     boolean removeItemFromTable = true;
-                    final ChannelWrapper prevCW = this.channelTables.get(addrRemote);
+                    final String channelKey = this.findChannelKey(addrRemote, channel);
+                    final ChannelWrapper prevCW = this.channelTables.get(channelKey);
 
                     log.info("closeChannel: begin close the channel[{}] Found: {}", addrRemote, prevCW != null);
 
@@ -271,8 +336,8 @@ public class NettyRemotingClient extends NettyRemotingAbstract implements Remoti
                     }
 
                     if (removeItemFromTable) {//删除缓存中的channel
-                        this.channelTables.remove(addrRemote);
-                        log.info("closeChannel: the channel[{}] was removed from channel table", addrRemote);
+                        this.channelTables.remove(channelKey);
+                        log.info("closeChannel: the channel[{}] was removed from channel table", channelKey);
                     }
                     //关闭channel
                     RemotingUtil.closeChannel(channel);
@@ -375,8 +440,9 @@ public class NettyRemotingClient extends NettyRemotingAbstract implements Remoti
     public RemotingCommand invokeSync(String addr, final RemotingCommand request, long timeoutMillis)
         throws InterruptedException, RemotingConnectException, RemotingSendRequestException, RemotingTimeoutException {
         long beginStartTime = System.currentTimeMillis();
-        final Channel channel = this.getAndCreateChannel(addr);
+        final Channel channel = this.getAndCreateChannel(addr, this.selectChannelKey(addr, request));
         if (channel != null && channel.isActive()) {
+            final AtomicInteger pendingRequests = this.trackPendingRequests(channel);
             try {
                 doBeforeRpcHooks(addr, request);
                 long costTime = System.currentTimeMillis() - beginStartTime;
@@ -397,6 +463,10 @@ public class NettyRemotingClient extends NettyRemotingAbstract implements Remoti
                 }
                 log.warn("invokeSync: wait response timeout exception, the channel[{}]", addr);
                 throw e;
+            } finally {
+                if (pendingRequests != null) {
+                    pendingRequests.decrementAndGet();
+                }
             }
         } else {
             this.closeChannel(addr, channel);
@@ -404,17 +474,84 @@ public class NettyRemotingClient extends NettyRemotingAbstract implements Remoti
         }
     }
 
-    private Channel getAndCreateChannel(final String addr) throws InterruptedException {
+    private Channel getAndCreateChannel(final String addr, final String channelKey) throws InterruptedException {
         if (null == addr) {
             return getAndCreateNameserverChannel();
         }
         //从channel,tabble中根据addr获取channel信息
-        ChannelWrapper cw = this.channelTables.get(addr);
+        ChannelWrapper cw = this.channelTables.get(channelKey);
         if (cw != null && cw.isOK()) {
             return cw.getChannel();
         }
 
-        return this.createChannel(addr);
+        return this.createChannel(addr, channelKey);
+    }
+
+    /**
+     * Pick the pooled connection to addr for a request. Only requests addressed to a message queue use the pool, the
+     * others go over the first connection, which is the one the broker knows from heartbeats.
+     */
+    private String selectChannelKey(final String addr, final RemotingCommand request) {
+        final int poolSize = this.nettyClientConfig.getClientChannelPoolSize();
+        if (null == addr || poolSize <= 1) {
+            return addr;
+        }
+
+        CommandCustomHeader header = request.readCustomHeader();
+        if (!(header instanceof QueueAffinityHeader)) {
+            return addr;
+        }
+
+        int index;
+        if (this.nettyClientConfig.isClientChannelQueueAffinityEnable()) {
+            index = Math.abs(((QueueAffinityHeader) header).queueAffinityKey() % poolSize);
+        } else if (this.nettyClientConfig.isClientChannelLeastPendingSelectEnable()) {
+            index = 0;
+            int leastPending = Integer.MAX_VALUE;
+            for (int i = 0; i < poolSize; i++) {
+                ChannelWrapper cw = this.channelTables.get(channelKey(addr, i));
+                //未建立的连接视为空闲, 以便建立
+                int pending = cw != null && cw.isOK() ? cw.getPendingRequests() : 0;
+                if (pending < leastPending) {
+                    leastPending = pending;
+                    index = i;
+                }
+            }
+        } else {
+            index = Math.abs(this.channelIndex.getAndIncrement() % poolSize);
+        }
+        return channelKey(addr, index);
+    }
+
+    private static String channelKey(final String addr, final int index) {
+        return index == 0 ? addr : addr + CHANNEL_KEY_SEPARATOR + index;
+    }
+
+    private String findChannelKey(final String addr, final Channel channel) {
+        for (int i = 1; i < this.nettyClientConfig.getClientChannelPoolSize(); i++) {
+            String channelKey = channelKey(addr, i);
+            ChannelWrapper cw = this.channelTables.get(channelKey);
+            if (cw != null && cw.getChannel() == channel) {
+                return channelKey;
+            }
+        }
+        return addr;
+    }
+
+    /**
+     * Count a request waiting for a response on the channel, for least pending selection
+     *
+     * @return the counter to decrement once the request completes, null if not counted
+     */
+    private AtomicInteger trackPendingRequests(final Channel channel) {
+        if (!this.nettyClientConfig.isClientChannelLeastPendingSelectEnable()) {
+            return null;
+        }
+        AtomicInteger pendingRequests = channel.attr(PENDING_REQUESTS).get();
+        if (pendingRequests != null) {
+            pendingRequests.incrementAndGet();
+        }
+        return pendingRequests;
     }
 
     private Channel getAndCreateNameserverChannel() throws InterruptedException {
@@ -466,28 +603,32 @@ public class NettyRemotingClient extends NettyRemotingAbstract implements Remoti
     }
 
     private Channel createChannel(final String addr) throws InterruptedException {
+        return this.createChannel(addr, addr);
+    }
+
+    private Channel createChannel(final String addr, final String channelKey) throws InterruptedException {
         //判断是否有渠道
-        ChannelWrapper cw = this.channelTables.get(addr);
+        ChannelWrapper cw = this.channelTables.get(channelKey);
         if (cw != null && cw.isOK()) {
             cw.getChannel().close();
-            channelTables.remove(addr);
+            channelTables.remove(channelKey);
         }
 
         if (this.lockChannelTables.tryLock(LOCK_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
             try {
                 boolean createNewConnection;
-                cw = this.channelTables.get(addr);
+                cw = this.channelTables.get(channelKey);
                 if (cw != null) {
 
                     if (cw.isOK()) {
                         cw.getChannel().close();
-                        this.channelTables.remove(addr);
+                        this.channelTables.remove(channelKey);
                         createNewConnection = true;
                         //渠道在用就不创建
                     } else if (!cw.getChannelFuture().isDone()) {
                         createNewConnection = false;
                     } else {
-                        this.channelTables.remove(addr);
+                        this.channelTables.remove(channelKey);
                         createNewConnection = true;
                     }
                 } else {
@@ -500,7 +641,7 @@ public class NettyRemotingClient extends NettyRemotingAbstract implements Remoti
                     log.info("createChannel: begin to connect remote host[{}] asynchronously", addr);
                     cw = new ChannelWrapper(channelFuture);
                     //建立的channel放到本次缓存中
-                    this.channelTables.put(addr, cw);
+                    this.channelTables.put(channelKey, cw);
                 }
             } catch (Exception e) {
                 log.error("createChannel: create channel exception", e);
@@ -536,20 +677,39 @@ public class NettyRemotingClient extends NettyRemotingAbstract implements Remoti
         RemotingSendRequestException {
         long beginStartTime = System.currentTimeMillis();
         //        获取并创建channel =》
-        final Channel channel = this.getAndCreateChannel(addr);
+        final Channel channel = this.getAndCreateChannel(addr, this.selectChannelKey(addr, request));
         if (channel != null && channel.isActive()) {
+            final AtomicInteger pendingRequests = this.trackPendingRequests(channel);
+            boolean sent = false;
             try {
                 doBeforeRpcHooks(addr, request);
                 long costTime = System.currentTimeMillis() - beginStartTime;
                 if (timeoutMillis < costTime) {
                     throw new RemotingTooMuchRequestException("invokeAsync call timeout");
                 }
+                InvokeCallback callback = invokeCallback;
+                if (pendingRequests != null) {
+                    callback = new InvokeCallback() {
+                        @Override
+                        public void operationComplete(ResponseFuture responseFuture) {
+                            pendingRequests.decrementAndGet();
+                            if (invokeCallback != null) {
+                                invokeCallback.operationComplete(responseFuture);
+                            }
+                        }
+                    };
+                }
                 //执行同步请求
-                this.invokeAsyncImpl(channel, request, timeoutMillis - costTime, invokeCallback);
+                this.invokeAsyncImpl(channel, request, timeoutMillis - costTime, callback);
+                sent = true;
             } catch (RemotingSendRequestException e) {
                 log.warn("invokeAsync: send request exception, so close the channel[{}]", addr);
                 this.closeChannel(addr, channel);
                 throw e;
+            } finally {
+                if (!sent && pendingRequests != null) {
+                    pendingRequests.decrementAndGet();
+                }
             }
         } else {
             this.closeChannel(addr, channel);
@@ -561,7 +721,7 @@ public class NettyRemotingClient extends NettyRemotingAbstract implements Remoti
     public void invokeOneway(String addr, RemotingCommand request, long timeoutMillis) throws InterruptedException,
         RemotingConnectException, RemotingTooMuchRequestException, RemotingTimeoutException, RemotingSendRequestException {
         //获取channel
-        final Channel channel = this.getAndCreateChannel(addr);
+        final Channel channel = this.getAndCreateChannel(addr, this.selectChannelKey(addr, request));
         if (channel != null && channel.isActive()) {
             try {
                 //执行请求钱执行hook方法
@@ -593,11 +753,17 @@ public class NettyRemotingClient extends NettyRemotingAbstract implements Remoti
 
     @Override
     public boolean isChannelWritable(String addr) {
-        ChannelWrapper cw = this.channelTables.get(addr);
-        if (cw != null && cw.isOK()) {
-            return cw.isWritable();
+        boolean writable = true;
+        for (int i = 0; i < Math.max(1, this.nettyClientConfig.getClientChannelPoolSize()); i++) {
+            ChannelWrapper cw = this.channelTables.get(channelKey(addr, i));
+            if (cw != null && cw.isOK()) {
+                if (cw.isWritable()) {
+                    return true;
+                }
+                writable = false;
+            }
         }
-        return true;
+        return writable;
     }
 
     @Override
@@ -640,6 +806,11 @@ public class NettyRemotingClient extends NettyRemotingAbstract implements Remoti
             return this.channelFuture.channel();
         }
 
+        public int getPendingRequests() {
+            AtomicInteger pendingRequests = this.channelFuture.channel().attr(PENDING_REQUESTS).get();
+            return pendingRequests != null ? pendingRequests.get() : 0;
+        }
+
         public ChannelFuture getChannelFuture() {
             return channelFuture;
         }
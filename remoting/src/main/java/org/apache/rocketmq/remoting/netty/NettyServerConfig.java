@@ -39,6 +39,13 @@ public class NettyServerConfig implements Cloneable {
     //接受消息的最大大小
     private int serverSocketRcvBufSize = NettySystemConfig.socketRcvbufSize;
     private boolean serverPooledByteBufAllocatorEnable = true;
+    //合并一次事件循环内写入的响应的flush, 见FlushConsolidationHandler
+    private boolean serverFlushConsolidationEnable = NettySystemConfig.FLUSH_CONSOLIDATION_ENABLE;
+    private int serverFlushConsolidationExplicitFlushAfterFlushes =
+        NettySystemConfig.FLUSH_CONSOLIDATION_EXPLICIT_FLUSH_AFTER_FLUSHES;
+    //待发送字节数超过高水位时channel不可写, 降到低水位以下恢复可写, 见WriteBufferMonitorHandler
+    private int writeBufferHighWaterMark = NettySystemConfig.WRITE_BUFFER_HIGH_WATER_MARK;
+    private int writeBufferLowWaterMark = NettySystemConfig.WRITE_BUFFER_LOW_WATER_MARK;
 
     /**
      * make make install
@@ -137,6 +144,38 @@ public class NettyServerConfig implements Cloneable {
         this.useEpollNativeSelector = useEpollNativeSelector;
     }
 
+    public boolean isServerFlushConsolidationEnable() {
+        return serverFlushConsolidationEnable;
+    }
+
+    public void setServerFlushConsolidationEnable(boolean serverFlushConsolidationEnable) {
+        this.serverFlushConsolidationEnable = serverFlushConsolidationEnable;
+    }
+
+    public int getServerFlushConsolidationExplicitFlushAfterFlushes() {
+        return serverFlushConsolidationExplicitFlushAfterFlushes;
+    }
+
+    public void setServerFlushConsolidationExplicitFlushAfterFlushes(int serverFlushConsolidationExplicitFlushAfterFlushes) {
+        this.serverFlushConsolidationExplicitFlushAfterFlushes = serverFlushConsolidationExplicitFlushAfterFlushes;
+    }
+
+    public int getWriteBufferHighWaterMark() {
+        return writeBufferHighWaterMark;
+    }
+
+    public void setWriteBufferHighWaterMark(int writeBufferHighWaterMark) {
+        this.writeBufferHighWaterMark = writeBufferHighWaterMark;
+    }
+
+    public int getWriteBufferLowWaterMark() {
+        return writeBufferLowWaterMark;
+    }
+
+    public void setWriteBufferLowWaterMark(int writeBufferLowWaterMark) {
+        this.writeBufferLowWaterMark = writeBufferLowWaterMark;
+    }
+
     @Override
     public Object clone() throws CloneNotSupportedException {
         return (NettyServerConfig) super.clone();
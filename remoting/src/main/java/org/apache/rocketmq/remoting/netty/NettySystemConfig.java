@@ -28,6 +28,30 @@ public class NettySystemConfig {
         "com.rocketmq.remoting.clientAsyncSemaphoreValue";
     public static final String COM_ROCKETMQ_REMOTING_CLIENT_ONEWAY_SEMAPHORE_VALUE =
         "com.rocketmq.remoting.clientOnewaySemaphoreValue";
+    public static final String COM_ROCKETMQ_REMOTING_RESPONSE_TIMEOUT_TICK_MILLIS =
+        "com.rocketmq.remoting.responseTimeoutTickMillis";
+    public static final String COM_ROCKETMQ_REMOTING_RESPONSE_TIMEOUT_TICKS_PER_WHEEL =
+        "com.rocketmq.remoting.responseTimeoutTicksPerWheel";
+    public static final String COM_ROCKETMQ_REMOTING_CLIENT_USE_EPOLL_NATIVE_SELECTOR =
+        "com.rocketmq.remoting.clientUseEpollNativeSelector";
+    public static final String COM_ROCKETMQ_REMOTING_CLIENT_CHANNEL_POOL_SIZE =
+        "com.rocketmq.remoting.clientChannelPoolSize";
+    public static final String COM_ROCKETMQ_REMOTING_CLIENT_WORKER_THREADS =
+        "com.rocketmq.remoting.clientWorkerThreads";
+    public static final String COM_ROCKETMQ_REMOTING_FLUSH_CONSOLIDATION_ENABLE =
+        "com.rocketmq.remoting.flushConsolidationEnable";
+    public static final String COM_ROCKETMQ_REMOTING_FLUSH_CONSOLIDATION_EXPLICIT_FLUSH_AFTER_FLUSHES =
+        "com.rocketmq.remoting.flushConsolidationExplicitFlushAfterFlushes";
+    public static final String COM_ROCKETMQ_REMOTING_REQUEST_METRICS_ENABLE =
+        "com.rocketmq.remoting.requestMetricsEnable";
+    public static final String COM_ROCKETMQ_REMOTING_CLIENT_SHARE_TRANSPORT_RESOURCES =
+        "com.rocketmq.remoting.clientShareTransportResources";
+    public static final String COM_ROCKETMQ_REMOTING_CLIENT_SHARED_TRANSPORT_THREADS =
+        "com.rocketmq.remoting.clientSharedTransportThreads";
+    public static final String COM_ROCKETMQ_REMOTING_WRITE_BUFFER_HIGH_WATER_MARK =
+        "com.rocketmq.remoting.writeBufferHighWaterMark";
+    public static final String COM_ROCKETMQ_REMOTING_WRITE_BUFFER_LOW_WATER_MARK =
+        "com.rocketmq.remoting.writeBufferLowWaterMark";
 
     public static final boolean NETTY_POOLED_BYTE_BUF_ALLOCATOR_ENABLE = //
         Boolean.parseBoolean(System.getProperty(COM_ROCKETMQ_REMOTING_NETTY_POOLED_BYTE_BUF_ALLOCATOR_ENABLE, "false"));
@@ -35,6 +59,31 @@ public class NettySystemConfig {
         Integer.parseInt(System.getProperty(COM_ROCKETMQ_REMOTING_CLIENT_ASYNC_SEMAPHORE_VALUE, "65535"));
     public static final int CLIENT_ONEWAY_SEMAPHORE_VALUE =
         Integer.parseInt(System.getProperty(COM_ROCKETMQ_REMOTING_CLIENT_ONEWAY_SEMAPHORE_VALUE, "65535"));
+    public static final long RESPONSE_TIMEOUT_TICK_MILLIS =
+        Long.parseLong(System.getProperty(COM_ROCKETMQ_REMOTING_RESPONSE_TIMEOUT_TICK_MILLIS, "10"));
+    public static final int RESPONSE_TIMEOUT_TICKS_PER_WHEEL =
+        Integer.parseInt(System.getProperty(COM_ROCKETMQ_REMOTING_RESPONSE_TIMEOUT_TICKS_PER_WHEEL, "512"));
+    public static final boolean CLIENT_USE_EPOLL_NATIVE_SELECTOR =
+        Boolean.parseBoolean(System.getProperty(COM_ROCKETMQ_REMOTING_CLIENT_USE_EPOLL_NATIVE_SELECTOR, "false"));
+    public static final int CLIENT_CHANNEL_POOL_SIZE =
+        Integer.parseInt(System.getProperty(COM_ROCKETMQ_REMOTING_CLIENT_CHANNEL_POOL_SIZE, "1"));
+    public static final int CLIENT_WORKER_THREADS =
+        Integer.parseInt(System.getProperty(COM_ROCKETMQ_REMOTING_CLIENT_WORKER_THREADS, "1"));
+    public static final boolean FLUSH_CONSOLIDATION_ENABLE =
+        Boolean.parseBoolean(System.getProperty(COM_ROCKETMQ_REMOTING_FLUSH_CONSOLIDATION_ENABLE, "false"));
+    public static final int FLUSH_CONSOLIDATION_EXPLICIT_FLUSH_AFTER_FLUSHES =
+        Integer.parseInt(System.getProperty(COM_ROCKETMQ_REMOTING_FLUSH_CONSOLIDATION_EXPLICIT_FLUSH_AFTER_FLUSHES, "256"));
+    public static final boolean REQUEST_METRICS_ENABLE =
+        Boolean.parseBoolean(System.getProperty(COM_ROCKETMQ_REMOTING_REQUEST_METRICS_ENABLE, "true"));
+    public static final boolean CLIENT_SHARE_TRANSPORT_RESOURCES =
+        Boolean.parseBoolean(System.getProperty(COM_ROCKETMQ_REMOTING_CLIENT_SHARE_TRANSPORT_RESOURCES, "false"));
+    public static final int CLIENT_SHARED_TRANSPORT_THREADS =
+        Integer.parseInt(System.getProperty(COM_ROCKETMQ_REMOTING_CLIENT_SHARED_TRANSPORT_THREADS,
+            String.valueOf(Runtime.getRuntime().availableProcessors())));
+    public static final int WRITE_BUFFER_HIGH_WATER_MARK =
+        Integer.parseInt(System.getProperty(COM_ROCKETMQ_REMOTING_WRITE_BUFFER_HIGH_WATER_MARK, "8388608"));
+    public static final int WRITE_BUFFER_LOW_WATER_MARK =
+        Integer.parseInt(System.getProperty(COM_ROCKETMQ_REMOTING_WRITE_BUFFER_LOW_WATER_MARK, "4194304"));
     public static int socketSndbufSize =
         Integer.parseInt(System.getProperty(COM_ROCKETMQ_REMOTING_SOCKET_SNDBUF_SIZE, "65535"));
     public static int socketRcvbufSize =
@@ -0,0 +1,56 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.remoting.netty;
+
+import java.util.concurrent.TimeUnit;
+import org.apache.rocketmq.remoting.common.LogLinearHistogram;
+
+/**
+ * Queue wait, processing time and response size of the requests of one request code processed by a remoting server.
+ */
+public class RequestCodeMetrics {
+    private final int requestCode;
+    private final LogLinearHistogram queueWaitMicros = new LogLinearHistogram();
+    private final LogLinearHistogram processMicros = new LogLinearHistogram();
+    private final LogLinearHistogram responseSize = new LogLinearHistogram();
+
+    public RequestCodeMetrics(final int requestCode) {
+        this.requestCode = requestCode;
+    }
+
+    public void record(final long queueWaitNanos, final long processNanos, final int responseSize) {
+        this.queueWaitMicros.record(TimeUnit.NANOSECONDS.toMicros(queueWaitNanos));
+        this.processMicros.record(TimeUnit.NANOSECONDS.toMicros(processNanos));
+        this.responseSize.record(responseSize);
+    }
+
+    public int getRequestCode() {
+        return requestCode;
+    }
+
+    public LogLinearHistogram getQueueWaitMicros() {
+        return queueWaitMicros;
+    }
+
+    public LogLinearHistogram getProcessMicros() {
+        return processMicros;
+    }
+
+    public LogLinearHistogram getResponseSize() {
+        return responseSize;
+    }
+}
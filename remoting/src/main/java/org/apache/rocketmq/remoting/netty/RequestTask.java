@@ -66,6 +66,10 @@ public class RequestTask implements Runnable {
         return createTimestamp;
     }
 
+    public RemotingCommand getRequest() {
+        return request;
+    }
+
     public boolean isStopRun() {
         return stopRun;
     }
@@ -81,6 +85,7 @@ public class RequestTask implements Runnable {
     }
 
     public void returnResponse(int code, String remark) {
+        this.request.release();
         final RemotingCommand response = RemotingCommand.createResponseCommand(code, remark);
         response.setOpaque(request.getOpaque());
         this.channel.writeAndFlush(response);
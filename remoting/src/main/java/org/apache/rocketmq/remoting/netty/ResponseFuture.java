@@ -17,6 +17,7 @@
 package org.apache.rocketmq.remoting.netty;
 
 import io.netty.channel.Channel;
+import io.netty.util.Timeout;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -45,6 +46,8 @@ public class ResponseFuture {
     private volatile boolean sendRequestOK = true;
     //失败原因
     private volatile Throwable cause;
+    //超时任务
+    private volatile Timeout timeoutTask;
 
     public ResponseFuture(Channel channel, int opaque, long timeoutMillis, InvokeCallback invokeCallback,
         SemaphoreReleaseOnlyOnce once) {
@@ -71,6 +74,13 @@ public class ResponseFuture {
         }
     }
 
+    public void cancelTimeoutTask() {
+        Timeout task = this.timeoutTask;
+        if (task != null) {
+            task.cancel();
+        }
+    }
+
     public boolean isTimeout() {
         long diff = System.currentTimeMillis() - this.beginTimestamp;
         return diff > this.timeoutMillis;
@@ -114,6 +124,14 @@ public class ResponseFuture {
         this.cause = cause;
     }
 
+    public Timeout getTimeoutTask() {
+        return timeoutTask;
+    }
+
+    public void setTimeoutTask(Timeout timeoutTask) {
+        this.timeoutTask = timeoutTask;
+    }
+
     public RemotingCommand getResponseCommand() {
         return responseCommand;
     }
@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.remoting.netty;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.DefaultMessageSizeEstimator;
+import io.netty.channel.FileRegion;
+import io.netty.channel.MessageSizeEstimator;
+import io.netty.util.Attribute;
+import io.netty.util.AttributeKey;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.rocketmq.logging.InternalLogger;
+import org.apache.rocketmq.logging.InternalLoggerFactory;
+import org.apache.rocketmq.remoting.common.RemotingHelper;
+
+/**
+ * Track the bytes written but not yet sent of every channel, and the channels above the high water mark of their
+ * write buffer.
+ * <p>
+ * Must sit below the encoder, so that it sees the encoded buffers and the file regions of the pull responses.
+ */
+@ChannelHandler.Sharable
+public class WriteBufferMonitorHandler extends ChannelDuplexHandler {
+    private static final InternalLogger log = InternalLoggerFactory.getLogger(RemotingHelper.ROCKETMQ_REMOTING);
+
+    /**
+     * Netty sizes a {@link FileRegion} as 0, so that zero copy pull responses never make a channel unwritable, count
+     * them by the bytes they transfer.
+     */
+    public static final MessageSizeEstimator SIZE_ESTIMATOR = new MessageSizeEstimator() {
+        private final Handle handle = new Handle() {
+            private final Handle defaultHandle = DefaultMessageSizeEstimator.DEFAULT.newHandle();
+
+            @Override
+            public int size(Object msg) {
+                return WriteBufferMonitorHandler.size(msg, defaultHandle);
+            }
+        };
+
+        @Override
+        public Handle newHandle() {
+            return handle;
+        }
+    };
+
+    private static final AttributeKey<AtomicLong> PENDING_WRITE_BYTES = AttributeKey.valueOf("pendingWriteBytes");
+    private static final AttributeKey<AtomicBoolean> UNWRITABLE = AttributeKey.valueOf("unwritable");
+
+    private final MessageSizeEstimator.Handle sizeHandle = DefaultMessageSizeEstimator.DEFAULT.newHandle();
+    private final AtomicLong totalPendingWriteBytes = new AtomicLong(0);
+    private final AtomicInteger unwritableChannelCount = new AtomicInteger(0);
+    private final AtomicLong unwritableTimes = new AtomicLong(0);
+
+    static int size(final Object msg, final MessageSizeEstimator.Handle defaultHandle) {
+        if (msg instanceof FileRegion) {
+            return (int) Math.min(Integer.MAX_VALUE, ((FileRegion) msg).count());
+        }
+        return defaultHandle.size(msg);
+    }
+
+    /**
+     * @return bytes written to the channel but not yet sent, 0 if the channel is not monitored
+     */
+    public static long getPendingWriteBytes(final Channel channel) {
+        AtomicLong pendingWriteBytes = channel.attr(PENDING_WRITE_BYTES).get();
+        return null == pendingWriteBytes ? 0 : pendingWriteBytes.get();
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+        ctx.channel().attr(PENDING_WRITE_BYTES).setIfAbsent(new AtomicLong(0));
+        ctx.channel().attr(UNWRITABLE).setIfAbsent(new AtomicBoolean(false));
+        super.handlerAdded(ctx);
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        final int size = size(msg, this.sizeHandle);
+        final AtomicLong pendingWriteBytes = ctx.channel().attr(PENDING_WRITE_BYTES).get();
+        if (size > 0 && pendingWriteBytes != null && !promise.isVoid()) {
+            pendingWriteBytes.addAndGet(size);
+            this.totalPendingWriteBytes.addAndGet(size);
+            promise.addListener(new ChannelFutureListener() {
+                @Override
+                public void operationComplete(ChannelFuture future) throws Exception {
+                    pendingWriteBytes.addAndGet(-size);
+                    totalPendingWriteBytes.addAndGet(-size);
+                }
+            });
+        }
+        ctx.write(msg, promise);
+    }
+
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        final Channel channel = ctx.channel();
+        final Attribute<AtomicBoolean> unwritable = channel.attr(UNWRITABLE);
+        if (!channel.isWritable()) {
+            if (unwritable.get() != null && unwritable.get().compareAndSet(false, true)) {
+                this.unwritableChannelCount.incrementAndGet();
+                this.unwritableTimes.incrementAndGet();
+                log.warn("channel[{}] is not writable, {} bytes pending", RemotingHelper.parseChannelRemoteAddr(channel),
+                    getPendingWriteBytes(channel));
+            }
+        } else if (unwritable.get() != null && unwritable.get().compareAndSet(true, false)) {
+            this.unwritableChannelCount.decrementAndGet();
+        }
+        super.channelWritabilityChanged(ctx);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        // a closed channel does not become writable again
+        AtomicBoolean unwritable = ctx.channel().attr(UNWRITABLE).get();
+        if (unwritable != null && unwritable.compareAndSet(true, false)) {
+            this.unwritableChannelCount.decrementAndGet();
+        }
+        super.channelInactive(ctx);
+    }
+
+    public long getTotalPendingWriteBytes() {
+        return totalPendingWriteBytes.get();
+    }
+
+    public int getUnwritableChannelCount() {
+        return unwritableChannelCount.get();
+    }
+
+    public long getUnwritableTimes() {
+        return unwritableTimes.get();
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.remoting.protocol;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Typed fields of a header decoded with {@link SerializeType#COMPACT}, read by {@link CompactCodesHeader} without
+ * going through strings. A field which was not written with its type, e.g. because its value did not match, is read
+ * from the ext fields like {@link FastCodesHelper} does. Once someone reads the ext fields of the command, the typed
+ * fields are written into them and no longer used.
+ */
+public class CompactFields {
+    private final CompactHeaderSchema schema;
+    private final Object[] values;
+    private final Map<String, String> extFields;
+
+    CompactFields(final CompactHeaderSchema schema, final Object[] values, final Map<String, String> extFields) {
+        this.schema = schema;
+        this.values = values;
+        this.extFields = extFields != null ? extFields : Collections.<String, String>emptyMap();
+    }
+
+    public CompactHeaderSchema getSchema() {
+        return schema;
+    }
+
+    public String getString(final String name, final boolean notNull) {
+        Object value = typedValue(name);
+        return value != null ? (String) value : FastCodesHelper.getString(this.extFields, name, notNull);
+    }
+
+    public Integer getInteger(final String name, final boolean notNull) {
+        Object value = typedValue(name);
+        return value != null ? (Integer) value : FastCodesHelper.getInteger(this.extFields, name, notNull);
+    }
+
+    public Long getLong(final String name, final boolean notNull) {
+        Object value = typedValue(name);
+        return value != null ? (Long) value : FastCodesHelper.getLong(this.extFields, name, notNull);
+    }
+
+    public Boolean getBoolean(final String name, final boolean notNull) {
+        Object value = typedValue(name);
+        return value != null ? (Boolean) value : FastCodesHelper.getBoolean(this.extFields, name, notNull);
+    }
+
+    private Object typedValue(final String name) {
+        int index = this.schema.indexOf(name);
+        return index < 0 ? null : this.values[index];
+    }
+
+    /**
+     * put the typed fields into extFields as strings, for the readers of the plain ext fields such as ACL
+     */
+    void writeTo(final HashMap<String, String> extFields) {
+        for (int i = 0; i < this.values.length; i++) {
+            if (this.values[i] != null) {
+                extFields.put(this.schema.getFieldName(i), this.values[i].toString());
+            }
+        }
+    }
+}
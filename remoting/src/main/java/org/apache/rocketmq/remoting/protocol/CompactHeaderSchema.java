@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.remoting.protocol;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Fixed field layout of a custom header in the compact header format. Ids and field orders are part of the wire
+ * format: never change or reuse them, append new schemas and bump {@link CompactSerializable#VERSION} instead.
+ */
+public class CompactHeaderSchema {
+    public enum FieldType {
+        STRING,
+        INTEGER,
+        LONG,
+        BOOLEAN
+    }
+
+    private static final int MAX_FIELDS = 32;
+
+    public static final CompactHeaderSchema SEND_MESSAGE_REQUEST_V2 = new CompactHeaderSchema((byte) 1)
+        .field("a", FieldType.STRING) // producerGroup
+        .field("b", FieldType.STRING) // topic
+        .field("c", FieldType.STRING) // defaultTopic
+        .field("d", FieldType.INTEGER) // defaultTopicQueueNums
+        .field("e", FieldType.INTEGER) // queueId
+        .field("f", FieldType.INTEGER) // sysFlag
+        .field("g", FieldType.LONG) // bornTimestamp
+        .field("h", FieldType.INTEGER) // flag
+        .field("i", FieldType.STRING) // properties
+        .field("j", FieldType.INTEGER) // reconsumeTimes
+        .field("k", FieldType.BOOLEAN) // unitMode
+        .field("l", FieldType.INTEGER) // consumeRetryTimes
+        .field("m", FieldType.BOOLEAN); // batch
+
+    public static final CompactHeaderSchema SEND_MESSAGE_RESPONSE = new CompactHeaderSchema((byte) 2)
+        .field("msgId", FieldType.STRING)
+        .field("queueId", FieldType.INTEGER)
+        .field("queueOffset", FieldType.LONG)
+        .field("transactionId", FieldType.STRING);
+
+    public static final CompactHeaderSchema PULL_MESSAGE_REQUEST = new CompactHeaderSchema((byte) 3)
+        .field("consumerGroup", FieldType.STRING)
+        .field("topic", FieldType.STRING)
+        .field("queueId", FieldType.INTEGER)
+        .field("queueOffset", FieldType.LONG)
+        .field("maxMsgNums", FieldType.INTEGER)
+        .field("sysFlag", FieldType.INTEGER)
+        .field("commitOffset", FieldType.LONG)
+        .field("suspendTimeoutMillis", FieldType.LONG)
+        .field("subscription", FieldType.STRING)
+        .field("subVersion", FieldType.LONG)
+        .field("expressionType", FieldType.STRING);
+
+    public static final CompactHeaderSchema PULL_MESSAGE_RESPONSE = new CompactHeaderSchema((byte) 4)
+        .field("suggestWhichBrokerId", FieldType.LONG)
+        .field("nextBeginOffset", FieldType.LONG)
+        .field("minOffset", FieldType.LONG)
+        .field("maxOffset", FieldType.LONG);
+
+    private static final CompactHeaderSchema[] SCHEMA_TABLE = new CompactHeaderSchema[] {
+        null,
+        SEND_MESSAGE_REQUEST_V2,
+        SEND_MESSAGE_RESPONSE,
+        PULL_MESSAGE_REQUEST,
+        PULL_MESSAGE_RESPONSE
+    };
+
+    private final byte id;
+    private final List<String> fieldNames = new ArrayList<String>();
+    private final List<FieldType> fieldTypes = new ArrayList<FieldType>();
+    private final HashMap<String, Integer> fieldIndexTable = new HashMap<String, Integer>();
+
+    private CompactHeaderSchema(final byte id) {
+        this.id = id;
+    }
+
+    private CompactHeaderSchema field(final String name, final FieldType type) {
+        if (this.fieldNames.size() >= MAX_FIELDS) {
+            throw new IllegalStateException("too many fields in compact header schema " + this.id);
+        }
+        this.fieldIndexTable.put(name, this.fieldNames.size());
+        this.fieldNames.add(name);
+        this.fieldTypes.add(type);
+        return this;
+    }
+
+    /**
+     * @return the schema of the id, null if unknown
+     */
+    public static CompactHeaderSchema valueOf(final byte id) {
+        if (id <= 0 || id >= SCHEMA_TABLE.length) {
+            return null;
+        }
+        return SCHEMA_TABLE[id];
+    }
+
+    public byte getId() {
+        return id;
+    }
+
+    public int size() {
+        return this.fieldNames.size();
+    }
+
+    public String getFieldName(final int index) {
+        return this.fieldNames.get(index);
+    }
+
+    public FieldType getFieldType(final int index) {
+        return this.fieldTypes.get(index);
+    }
+
+    /**
+     * @return the position of the field, -1 if the schema does not have it
+     */
+    public int indexOf(final String name) {
+        Integer index = this.fieldIndexTable.get(name);
+        return index == null ? -1 : index;
+    }
+}
@@ -0,0 +1,270 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.remoting.protocol;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.rocketmq.remoting.CommandCustomHeader;
+
+/**
+ * Versioned binary header format. Besides the fields of {@link RocketMQSerializable}, the ext fields of a
+ * {@link CompactCodesHeader} are written at the fixed positions of its {@link CompactHeaderSchema} with their natural
+ * types, without the field names.
+ * <pre>
+ * byte version | short code | byte language | short version | int opaque | int flag | int remarkLen | remark
+ * | byte schemaId | [int presentBits | present typed fields] | int extLen | ext fields not in the schema
+ * </pre>
+ * The typed fields are decoded into {@link CompactFields}, from which a {@link CompactCodesHeader} reads them without
+ * parsing strings. Only custom headers are covered: a body such as the JSON heartbeat data is left as it is.
+ */
+public class CompactSerializable {
+    public static final byte VERSION = 1;
+
+    private static final Charset CHARSET_UTF8 = Charset.forName("UTF-8");
+
+    public static byte[] compactProtocolEncode(RemotingCommand cmd) {
+        byte[] remarkBytes = null;
+        if (cmd.getRemark() != null && cmd.getRemark().length() > 0) {
+            remarkBytes = cmd.getRemark().getBytes(CHARSET_UTF8);
+        }
+
+        HashMap<String, String> extFields = cmd.getExtFields();
+        CommandCustomHeader customHeader = cmd.readCustomHeader();
+        CompactHeaderSchema schema = null;
+        if (customHeader instanceof CompactCodesHeader && extFields != null) {
+            schema = ((CompactCodesHeader) customHeader).compactSchema();
+        }
+
+        // typed fields
+        int presentBits = 0;
+        long[] numberValues = null;
+        byte[][] stringValues = null;
+        int typedLen = 0;
+        if (schema != null) {
+            numberValues = new long[schema.size()];
+            stringValues = new byte[schema.size()][];
+            for (int i = 0; i < schema.size(); i++) {
+                String value = extFields.get(schema.getFieldName(i));
+                if (null == value) {
+                    continue;
+                }
+                int fieldLen = parseTypedField(schema.getFieldType(i), value, i, numberValues, stringValues);
+                if (fieldLen >= 0) {
+                    presentBits |= 1 << i;
+                    typedLen += fieldLen;
+                }
+            }
+        }
+
+        // the others, including the typed fields whose values do not match their types
+        int extLen = 0;
+        if (extFields != null) {
+            for (Map.Entry<String, String> entry : extFields.entrySet()) {
+                if (isExtFieldWritten(entry, schema, presentBits)) {
+                    extLen += 2 + entry.getKey().getBytes(CHARSET_UTF8).length
+                        + 4 + entry.getValue().getBytes(CHARSET_UTF8).length;
+                }
+            }
+        }
+
+        int totalLen = 1 + 2 + 1 + 2 + 4 + 4
+            + 4 + (remarkBytes != null ? remarkBytes.length : 0)
+            + 1 + (schema != null ? 4 + typedLen : 0)
+            + 4 + extLen;
+        ByteBuffer headerBuffer = ByteBuffer.allocate(totalLen);
+        headerBuffer.put(VERSION);
+        headerBuffer.putShort((short) cmd.getCode());
+        headerBuffer.put(cmd.getLanguage().getCode());
+        headerBuffer.putShort((short) cmd.getVersion());
+        headerBuffer.putInt(cmd.getOpaque());
+        headerBuffer.putInt(cmd.getFlag());
+        if (remarkBytes != null) {
+            headerBuffer.putInt(remarkBytes.length);
+            headerBuffer.put(remarkBytes);
+        } else {
+            headerBuffer.putInt(0);
+        }
+
+        if (schema != null) {
+            headerBuffer.put(schema.getId());
+            headerBuffer.putInt(presentBits);
+            for (int i = 0; i < schema.size(); i++) {
+                if ((presentBits & (1 << i)) == 0) {
+                    continue;
+                }
+                switch (schema.getFieldType(i)) {
+                    case STRING:
+                        headerBuffer.putInt(stringValues[i].length);
+                        headerBuffer.put(stringValues[i]);
+                        break;
+                    case INTEGER:
+                        headerBuffer.putInt((int) numberValues[i]);
+                        break;
+                    case LONG:
+                        headerBuffer.putLong(numberValues[i]);
+                        break;
+                    case BOOLEAN:
+                        headerBuffer.put((byte) numberValues[i]);
+                        break;
+                    default:
+                        break;
+                }
+            }
+        } else {
+            headerBuffer.put((byte) 0);
+        }
+
+        headerBuffer.putInt(extLen);
+        if (extLen > 0) {
+            for (Map.Entry<String, String> entry : extFields.entrySet()) {
+                if (isExtFieldWritten(entry, schema, presentBits)) {
+                    byte[] key = entry.getKey().getBytes(CHARSET_UTF8);
+                    byte[] val = entry.getValue().getBytes(CHARSET_UTF8);
+                    headerBuffer.putShort((short) key.length);
+                    headerBuffer.put(key);
+                    headerBuffer.putInt(val.length);
+                    headerBuffer.put(val);
+                }
+            }
+        }
+
+        return headerBuffer.array();
+    }
+
+    /**
+     * @return the encoded length of the field, -1 if the value does not match the type
+     */
+    private static int parseTypedField(final CompactHeaderSchema.FieldType type, final String value, final int index,
+        final long[] numberValues, final byte[][] stringValues) {
+        try {
+            switch (type) {
+                case STRING:
+                    stringValues[index] = value.getBytes(CHARSET_UTF8);
+                    return 4 + stringValues[index].length;
+                case INTEGER:
+                    numberValues[index] = Integer.parseInt(value);
+                    return 4;
+                case LONG:
+                    numberValues[index] = Long.parseLong(value);
+                    return 8;
+                case BOOLEAN:
+                    if ("true".equals(value)) {
+                        numberValues[index] = 1;
+                    } else if ("false".equals(value)) {
+                        numberValues[index] = 0;
+                    } else {
+                        return -1;
+                    }
+                    return 1;
+                default:
+                    return -1;
+            }
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static boolean isExtFieldWritten(final Map.Entry<String, String> entry, final CompactHeaderSchema schema,
+        final int presentBits) {
+        if (entry.getKey() == null || entry.getValue() == null) {
+            return false;
+        }
+        if (schema == null) {
+            return true;
+        }
+        int index = schema.indexOf(entry.getKey());
+        return index < 0 || (presentBits & (1 << index)) == 0;
+    }
+
+    public static RemotingCommand compactProtocolDecode(final byte[] headerArray) {
+        ByteBuffer headerBuffer = ByteBuffer.wrap(headerArray);
+        byte version = headerBuffer.get();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("unsupported compact header version " + version);
+        }
+
+        RemotingCommand cmd = new RemotingCommand();
+        cmd.setCode(headerBuffer.getShort());
+        cmd.setLanguage(LanguageCode.valueOf(headerBuffer.get()));
+        cmd.setVersion(headerBuffer.getShort());
+        cmd.setOpaque(headerBuffer.getInt());
+        cmd.setFlag(headerBuffer.getInt());
+        int remarkLength = headerBuffer.getInt();
+        if (remarkLength > 0) {
+            cmd.setRemark(readString(headerBuffer, remarkLength));
+        }
+
+        CompactHeaderSchema schema = null;
+        Object[] values = null;
+        byte schemaId = headerBuffer.get();
+        if (schemaId != 0) {
+            schema = CompactHeaderSchema.valueOf(schemaId);
+            if (null == schema) {
+                throw new IllegalArgumentException("unknown compact header schema " + schemaId);
+            }
+            values = new Object[schema.size()];
+            int presentBits = headerBuffer.getInt();
+            for (int i = 0; i < schema.size(); i++) {
+                if ((presentBits & (1 << i)) == 0) {
+                    continue;
+                }
+                switch (schema.getFieldType(i)) {
+                    case STRING:
+                        values[i] = readString(headerBuffer, headerBuffer.getInt());
+                        break;
+                    case INTEGER:
+                        values[i] = headerBuffer.getInt();
+                        break;
+                    case LONG:
+                        values[i] = headerBuffer.getLong();
+                        break;
+                    case BOOLEAN:
+                        values[i] = headerBuffer.get() != 0;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("unknown field type of compact header schema " + schemaId);
+                }
+            }
+        }
+
+        HashMap<String, String> extFields = null;
+        int extFieldsLength = headerBuffer.getInt();
+        if (extFieldsLength > 0) {
+            extFields = new HashMap<String, String>();
+            int end = headerBuffer.position() + extFieldsLength;
+            while (headerBuffer.position() < end) {
+                String key = readString(headerBuffer, headerBuffer.getShort());
+                String val = readString(headerBuffer, headerBuffer.getInt());
+                extFields.put(key, val);
+            }
+        }
+        cmd.setExtFields(extFields);
+        if (schema != null) {
+            // the typed fields are turned into ext fields only when someone asks for them
+            cmd.setCompactFields(new CompactFields(schema, values, extFields));
+        }
+        return cmd;
+    }
+
+    private static String readString(final ByteBuffer buffer, final int length) {
+        String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, CHARSET_UTF8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+}
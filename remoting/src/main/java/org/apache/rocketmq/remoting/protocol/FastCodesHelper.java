@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.remoting.protocol;
+
+import java.util.Map;
+import org.apache.rocketmq.logging.InternalLogger;
+import org.apache.rocketmq.logging.InternalLoggerFactory;
+import org.apache.rocketmq.remoting.common.RemotingHelper;
+import org.apache.rocketmq.remoting.exception.RemotingCommandException;
+
+/**
+ * Field accessors for {@link FastCodesHeader}, failing the same way as the reflective codec of {@link RemotingCommand}:
+ * a missing not null field or a malformed value is logged and the field is left unset.
+ */
+public class FastCodesHelper {
+    private static final InternalLogger log = InternalLoggerFactory.getLogger(RemotingHelper.ROCKETMQ_REMOTING);
+
+    public static void putIfNotNull(final Map<String, String> extFields, final String name, final Object value) {
+        if (value != null) {
+            extFields.put(name, value.toString());
+        }
+    }
+
+    public static String getString(final Map<String, String> extFields, final String name, final boolean notNull) {
+        String value = extFields.get(name);
+        if (null == value && notNull) {
+            log.error("Failed field [{}] decoding", name,
+                new RemotingCommandException("the custom field <" + name + "> is null"));
+        }
+        return value;
+    }
+
+    public static Integer getInteger(final Map<String, String> extFields, final String name, final boolean notNull) {
+        String value = getString(extFields, name, notNull);
+        if (null == value) {
+            return null;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (Throwable e) {
+            log.error("Failed field [{}] decoding", name, e);
+            return null;
+        }
+    }
+
+    public static Long getLong(final Map<String, String> extFields, final String name, final boolean notNull) {
+        String value = getString(extFields, name, notNull);
+        if (null == value) {
+            return null;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (Throwable e) {
+            log.error("Failed field [{}] decoding", name, e);
+            return null;
+        }
+    }
+
+    public static Boolean getBoolean(final Map<String, String> extFields, final String name, final boolean notNull) {
+        String value = getString(extFields, name, notNull);
+        return null == value ? null : Boolean.parseBoolean(value);
+    }
+}
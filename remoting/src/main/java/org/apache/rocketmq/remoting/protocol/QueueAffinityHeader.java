@@ -0,0 +1,31 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.remoting.protocol;
+
+import org.apache.rocketmq.remoting.CommandCustomHeader;
+
+/**
+ * Custom header of a request addressed to one message queue. Only such requests are spread over the pooled
+ * connections of a client, see {@code NettyClientConfig#getClientChannelPoolSize}.
+ */
+public interface QueueAffinityHeader extends CommandCustomHeader {
+    /**
+     * @return key of the queue, requests with the same key are sent over the same connection when queue affinity is
+     * enabled
+     */
+    int queueAffinityKey();
+}
@@ -17,6 +17,7 @@
 package org.apache.rocketmq.remoting.protocol;
 
 import com.alibaba.fastjson.annotation.JSONField;
+import io.netty.buffer.ByteBuf;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
@@ -35,9 +36,16 @@ public class RemotingCommand {
     public static final String SERIALIZE_TYPE_PROPERTY = "rocketmq.serialize.type";
     public static final String SERIALIZE_TYPE_ENV = "ROCKETMQ_SERIALIZE_TYPE";
     public static final String REMOTING_VERSION_KEY = "rocketmq.remoting.version";
+    /**
+     * Whether to announce and answer with {@link SerializeType#COMPACT}. It shortens the send and pull headers, see
+     * {@link CompactHeaderSchema}; bodies, e.g. the heartbeat data, are still JSON.
+     */
+    public static final String COMPACT_HEADER_ENABLE_PROPERTY = "rocketmq.remoting.compactHeader.enable";
     private static final InternalLogger log = InternalLoggerFactory.getLogger(RemotingHelper.ROCKETMQ_REMOTING);
     private static final int RPC_TYPE = 0; // 0, REQUEST_COMMAND
     private static final int RPC_ONEWAY = 1; // 0, RPC
+    private static final int RPC_COMPACT_HEADER = 2; // 2 bits, the compact header version the sender accepts
+    private static final int RPC_COMPACT_HEADER_MASK = 0x3;
     private static final Map<Class<? extends CommandCustomHeader>, Field[]> CLASS_HASH_MAP =
         new HashMap<Class<? extends CommandCustomHeader>, Field[]>();
     private static final Map<Class, String> CANONICAL_NAME_CACHE = new HashMap<Class, String>();
@@ -57,6 +65,8 @@ public class RemotingCommand {
     private static AtomicInteger requestId = new AtomicInteger(0);
 
     private static SerializeType serializeTypeConfigInThisServer = SerializeType.JSON;
+    private static boolean compactHeaderEnable =
+        Boolean.parseBoolean(System.getProperty(COMPACT_HEADER_ENABLE_PROPERTY, "true"));
 
     static {
         final String protocol = System.getProperty(SERIALIZE_TYPE_PROPERTY, System.getenv(SERIALIZE_TYPE_ENV));
@@ -76,11 +86,19 @@ public class RemotingCommand {
     private int flag = 0;
     private String remark;
     private HashMap<String, String> extFields;
+    /**
+     * Typed header fields of a command decoded with {@link SerializeType#COMPACT}, not yet in extFields.
+     */
+    private transient CompactFields compactFields;
     private transient CommandCustomHeader customHeader;
 
     private SerializeType serializeTypeCurrentRPC = serializeTypeConfigInThisServer;
 
     private transient byte[] body;
+    /**
+     * Body of a decoded request kept as a retained slice of the received frame, see {@link #decode(ByteBuf)}.
+     */
+    private transient ByteBuf bodyBuffer;
 
     protected RemotingCommand() {
     }
@@ -164,6 +182,33 @@ public class RemotingCommand {
         return cmd;
     }
 
+    /**
+     * Decode a frame without its length field. The header is always decoded, but the body of a request is kept as a
+     * retained slice of the frame instead of being copied: it lives until {@link #release()}, which is called once the
+     * request has been processed. Response bodies are handed over to callers and are still copied.
+     */
+    public static RemotingCommand decode(final ByteBuf frame) {
+        int oriHeaderLen = frame.readInt();
+        int headerLength = getHeaderLength(oriHeaderLen);
+
+        byte[] headerData = new byte[headerLength];
+        frame.readBytes(headerData);
+        RemotingCommand cmd = headerDecode(headerData, getProtocolType(oriHeaderLen));
+
+        int bodyLength = frame.readableBytes();
+        if (bodyLength > 0) {
+            if (cmd.isResponseType()) {
+                byte[] bodyData = new byte[bodyLength];
+                frame.readBytes(bodyData);
+                cmd.body = bodyData;
+            } else {
+                cmd.bodyBuffer = frame.readSlice(bodyLength).retain();
+            }
+        }
+
+        return cmd;
+    }
+
     public static int getHeaderLength(int length) {
         return length & 0xFFFFFF;
     }
@@ -178,6 +223,10 @@ public class RemotingCommand {
                 RemotingCommand resultRMQ = RocketMQSerializable.rocketMQProtocolDecode(headerData);
                 resultRMQ.setSerializeTypeCurrentRPC(type);
                 return resultRMQ;
+            case COMPACT:
+                RemotingCommand resultCompact = CompactSerializable.compactProtocolDecode(headerData);
+                resultCompact.setSerializeTypeCurrentRPC(type);
+                return resultCompact;
             default:
                 break;
         }
@@ -197,6 +246,14 @@ public class RemotingCommand {
         return serializeTypeConfigInThisServer;
     }
 
+    public static boolean isCompactHeaderEnable() {
+        return compactHeaderEnable;
+    }
+
+    public static void setCompactHeaderEnable(boolean compactHeaderEnable) {
+        RemotingCommand.compactHeaderEnable = compactHeaderEnable;
+    }
+
     private static boolean isBlank(String str) {
         int strLen;
         if (str == null || (strLen = str.length()) == 0) {
@@ -244,7 +301,20 @@ public class RemotingCommand {
             return null;
         }
 
+        if (this.compactFields != null && objectHeader instanceof CompactCodesHeader
+            && ((CompactCodesHeader) objectHeader).compactSchema() == this.compactFields.getSchema()) {
+            ((CompactCodesHeader) objectHeader).decode(this.compactFields);
+            objectHeader.checkFields();
+            return objectHeader;
+        }
+
+        this.materializeCompactFields();
         if (this.extFields != null) {
+            if (objectHeader instanceof FastCodesHeader) {
+                ((FastCodesHeader) objectHeader).decode(this.extFields);
+                objectHeader.checkFields();
+                return objectHeader;
+            }
 
             Field[] fields = getClazzFields(classHeader);
             for (Field field : fields) {
@@ -332,7 +402,7 @@ public class RemotingCommand {
         int length = 4;
 
         // 2> header data length
-        byte[] headerData = this.headerEncode();
+        byte[] headerData = this.headerEncode(serializeTypeCurrentRPC);
         length += headerData.length;
 
         // 3> body data length
@@ -361,9 +431,14 @@ public class RemotingCommand {
         return result;
     }
 
-    private byte[] headerEncode() {
+    private byte[] headerEncode(final SerializeType serializeType) {
         this.makeCustomHeaderToNet();
-        if (SerializeType.ROCKETMQ == serializeTypeCurrentRPC) {
+        if (compactHeaderEnable) {
+            this.flag |= CompactSerializable.VERSION << RPC_COMPACT_HEADER;
+        }
+        if (SerializeType.COMPACT == serializeType) {
+            return CompactSerializable.compactProtocolEncode(this);
+        } else if (SerializeType.ROCKETMQ == serializeType) {
             return RocketMQSerializable.rocketMQProtocolEncode(this);
         } else {
             return RemotingSerializable.encode(this);
@@ -372,11 +447,18 @@ public class RemotingCommand {
 
     public void makeCustomHeaderToNet() {
         if (this.customHeader != null) {
-            Field[] fields = getClazzFields(customHeader.getClass());
+            this.materializeCompactFields();
             if (null == this.extFields) {
                 this.extFields = new HashMap<String, String>();
             }
 
+            if (this.customHeader instanceof FastCodesHeader) {
+                ((FastCodesHeader) this.customHeader).encode(this.extFields);
+                return;
+            }
+
+            Field[] fields = getClazzFields(customHeader.getClass());
+
             for (Field field : fields) {
                 if (!Modifier.isStatic(field.getModifiers())) {
                     String name = field.getName();
@@ -403,6 +485,14 @@ public class RemotingCommand {
     }
 
     public ByteBuffer encodeHeader(final int bodyLength) {
+        return encodeHeader(bodyLength, serializeTypeCurrentRPC);
+    }
+
+    /**
+     * encode the header with the given serialize type instead of the one of this command, so that the same command
+     * can be written to peers which accept different serialize types.
+     */
+    public ByteBuffer encodeHeader(final int bodyLength, final SerializeType serializeType) {
         // 1> header length size
         //消息头长度
         int length = 4;
@@ -410,7 +500,7 @@ public class RemotingCommand {
         // 2> header data length
         //消息头数据编码
         byte[] headerData;
-        headerData = this.headerEncode();
+        headerData = this.headerEncode(serializeType);
 
         length += headerData.length;
 
@@ -424,7 +514,7 @@ public class RemotingCommand {
         result.putInt(length);
 
         // header length
-        result.put(markProtocolType(headerData.length, serializeTypeCurrentRPC));
+        result.put(markProtocolType(headerData.length, serializeType));
 
         // header data
         result.put(headerData);
@@ -445,6 +535,14 @@ public class RemotingCommand {
         return (this.flag & bits) == bits;
     }
 
+    /**
+     * @return the compact header version the sender of this command accepts, 0 if none
+     */
+    @JSONField(serialize = false)
+    public int getCompactHeaderVersion() {
+        return (this.flag >> RPC_COMPACT_HEADER) & RPC_COMPACT_HEADER_MASK;
+    }
+
     public int getCode() {
         return code;
     }
@@ -509,22 +607,73 @@ public class RemotingCommand {
     }
 
     public byte[] getBody() {
+        if (null == this.body && this.bodyBuffer != null) {
+            byte[] bodyData = new byte[this.bodyBuffer.readableBytes()];
+            this.bodyBuffer.getBytes(this.bodyBuffer.readerIndex(), bodyData);
+            this.body = bodyData;
+        }
         return body;
     }
 
     public void setBody(byte[] body) {
+        this.release();
         this.body = body;
     }
 
+    /**
+     * @return the body still held in the received frame, null if the body was decoded into an array or is absent
+     */
+    @JSONField(serialize = false)
+    public ByteBuf getBodyBuffer() {
+        return bodyBuffer;
+    }
+
+    @JSONField(serialize = false)
+    public int getBodyLength() {
+        if (this.bodyBuffer != null) {
+            return this.bodyBuffer.readableBytes();
+        }
+        return null == this.body ? 0 : this.body.length;
+    }
+
+    /**
+     * Give the body buffer back to the pool, the body must not be read from {@link #getBodyBuffer()} afterwards.
+     */
+    public void release() {
+        ByteBuf buffer = this.bodyBuffer;
+        if (buffer != null) {
+            this.bodyBuffer = null;
+            buffer.release();
+        }
+    }
+
     public HashMap<String, String> getExtFields() {
+        this.materializeCompactFields();
         return extFields;
     }
 
     public void setExtFields(HashMap<String, String> extFields) {
         this.extFields = extFields;
+        this.compactFields = null;
+    }
+
+    void setCompactFields(CompactFields compactFields) {
+        this.compactFields = compactFields;
+    }
+
+    private void materializeCompactFields() {
+        if (this.compactFields != null) {
+            if (null == this.extFields) {
+                this.extFields = new HashMap<String, String>();
+            }
+            this.compactFields.writeTo(this.extFields);
+            // from now on extFields may be changed by its readers and is the only copy
+            this.compactFields = null;
+        }
     }
 
     public void addExtField(String key, String value) {
+        this.materializeCompactFields();
         if (null == extFields) {
             extFields = new HashMap<String, String>();
         }
@@ -534,7 +683,7 @@ public class RemotingCommand {
     @Override
     public String toString() {
         return "RemotingCommand [code=" + code + ", language=" + language + ", version=" + version + ", opaque=" + opaque + ", flag(B)="
-            + Integer.toBinaryString(flag) + ", remark=" + remark + ", extFields=" + extFields + ", serializeTypeCurrentRPC="
+            + Integer.toBinaryString(flag) + ", remark=" + remark + ", extFields=" + getExtFields() + ", serializeTypeCurrentRPC="
             + serializeTypeCurrentRPC + "]";
     }
 
@@ -19,7 +19,11 @@ package org.apache.rocketmq.remoting.protocol;
 
 public enum SerializeType {
     JSON((byte) 0),
-    ROCKETMQ((byte) 1);
+    ROCKETMQ((byte) 1),
+    /**
+     * binary header with typed fields, only sent to peers which have announced it, see {@link CompactSerializable}
+     */
+    COMPACT((byte) 2);
 
     private byte code;
 
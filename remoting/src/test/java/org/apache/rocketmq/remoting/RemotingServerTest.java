@@ -18,6 +18,8 @@
 package org.apache.rocketmq.remoting;
 
 import io.netty.channel.ChannelHandlerContext;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executors;
 import org.apache.rocketmq.remoting.annotation.CFNullable;
@@ -33,7 +35,9 @@ import org.apache.rocketmq.remoting.netty.NettyRequestProcessor;
 import org.apache.rocketmq.remoting.netty.NettyServerConfig;
 import org.apache.rocketmq.remoting.netty.ResponseFuture;
 import org.apache.rocketmq.remoting.protocol.LanguageCode;
+import org.apache.rocketmq.remoting.protocol.QueueAffinityHeader;
 import org.apache.rocketmq.remoting.protocol.RemotingCommand;
+import org.apache.rocketmq.remoting.protocol.SerializeType;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -102,6 +106,19 @@ public class RemotingServerTest {
 
     }
 
+    @Test
+    public void testInvokeSync_CompactHeaderNegotiated() throws InterruptedException, RemotingConnectException,
+        RemotingSendRequestException, RemotingTimeoutException {
+        RequestHeader requestHeader = new RequestHeader();
+        requestHeader.setCount(1);
+        requestHeader.setMessageTitle("Welcome");
+        RemotingCommand request = RemotingCommand.createRequestCommand(0, requestHeader);
+        RemotingCommand response = remotingClient.invokeSync("localhost:8888", request, 1000 * 3);
+        // the server has learnt from the request that the client accepts compact headers
+        assertThat(response.getSerializeTypeCurrentRPC()).isEqualTo(SerializeType.COMPACT);
+        assertThat(response.getExtFields()).containsEntry("count", "1").containsEntry("messageTitle", "Welcome");
+    }
+
     @Test
     public void testInvokeOneway() throws InterruptedException, RemotingConnectException,
         RemotingTimeoutException, RemotingTooMuchRequestException, RemotingSendRequestException {
@@ -129,6 +146,114 @@ public class RemotingServerTest {
         });
         latch.await();
     }
+
+    @Test
+    public void testInvokeSync_ChannelPool() throws InterruptedException, RemotingConnectException,
+        RemotingSendRequestException, RemotingTimeoutException {
+        NettyClientConfig nettyClientConfig = new NettyClientConfig();
+        nettyClientConfig.setClientChannelPoolSize(2);
+        nettyClientConfig.setClientChannelQueueAffinityEnable(false);
+        RemotingClient client = createRemotingClient(nettyClientConfig);
+        try {
+            // queue requests are spread over the pooled connections
+            Set<String> queueRemarks = new HashSet<String>();
+            for (int i = 0; i < 4; i++) {
+                queueRemarks.add(client.invokeSync("localhost:8888", createQueueRequest(0), 1000 * 3).getRemark());
+            }
+            assertThat(queueRemarks).hasSize(2);
+
+            // other requests stay on the first connection
+            Set<String> otherRemarks = new HashSet<String>();
+            for (int i = 0; i < 4; i++) {
+                otherRemarks.add(client.invokeSync("localhost:8888", RemotingCommand.createRequestCommand(0, null), 1000 * 3).getRemark());
+            }
+            assertThat(otherRemarks).hasSize(1);
+        } finally {
+            client.shutdown();
+        }
+    }
+
+    @Test
+    public void testInvokeSync_ChannelPoolQueueAffinity() throws InterruptedException, RemotingConnectException,
+        RemotingSendRequestException, RemotingTimeoutException {
+        NettyClientConfig nettyClientConfig = new NettyClientConfig();
+        nettyClientConfig.setClientChannelPoolSize(2);
+        RemotingClient client = createRemotingClient(nettyClientConfig);
+        try {
+            Set<String> remarks = new HashSet<String>();
+            for (int i = 0; i < 4; i++) {
+                remarks.add(client.invokeSync("localhost:8888", createQueueRequest(1), 1000 * 3).getRemark());
+            }
+            assertThat(remarks).hasSize(1);
+        } finally {
+            client.shutdown();
+        }
+    }
+
+    @Test
+    public void testInvokeSync_EpollClient() throws InterruptedException, RemotingConnectException,
+        RemotingSendRequestException, RemotingTimeoutException {
+        NettyClientConfig nettyClientConfig = new NettyClientConfig();
+        // falls back to NIO where the native transport is not available
+        nettyClientConfig.setUseEpollNativeSelector(true);
+        RemotingClient client = createRemotingClient(nettyClientConfig);
+        try {
+            RemotingCommand response = client.invokeSync("localhost:8888", RemotingCommand.createRequestCommand(0, null), 1000 * 3);
+            assertThat(response.getLanguage()).isEqualTo(LanguageCode.JAVA);
+        } finally {
+            client.shutdown();
+        }
+    }
+
+    @Test
+    public void testInvokeSync_SharedTransportResources() throws InterruptedException, RemotingConnectException,
+        RemotingSendRequestException, RemotingTimeoutException {
+        NettyClientConfig nettyClientConfig = new NettyClientConfig();
+        nettyClientConfig.setClientShareTransportResources(true);
+        RemotingClient first = createRemotingClient(nettyClientConfig);
+        RemotingClient second = createRemotingClient(nettyClientConfig);
+        try {
+            assertThat(first.invokeSync("localhost:8888", RemotingCommand.createRequestCommand(0, null), 1000 * 3)).isNotNull();
+            assertThat(second.invokeSync("localhost:8888", RemotingCommand.createRequestCommand(0, null), 1000 * 3)).isNotNull();
+
+            // the shared loops survive until the last client is gone
+            first.shutdown();
+            first.shutdown();
+            RemotingCommand response = second.invokeSync("localhost:8888", RemotingCommand.createRequestCommand(0, null), 1000 * 3);
+            assertThat(response.getLanguage()).isEqualTo(LanguageCode.JAVA);
+        } finally {
+            first.shutdown();
+            second.shutdown();
+        }
+    }
+
+    private static RemotingCommand createQueueRequest(int queueId) {
+        QueueRequestHeader requestHeader = new QueueRequestHeader();
+        requestHeader.setQueueId(queueId);
+        return RemotingCommand.createRequestCommand(0, requestHeader);
+    }
+}
+
+class QueueRequestHeader implements QueueAffinityHeader {
+    @CFNullable
+    private Integer queueId;
+
+    @Override
+    public void checkFields() throws RemotingCommandException {
+    }
+
+    @Override
+    public int queueAffinityKey() {
+        return queueId;
+    }
+
+    public Integer getQueueId() {
+        return queueId;
+    }
+
+    public void setQueueId(Integer queueId) {
+        this.queueId = queueId;
+    }
 }
 
 class RequestHeader implements CommandCustomHeader {
@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.remoting.common;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LogLinearHistogramTest {
+
+    @Test
+    public void testBucketBounds() {
+        for (long v = 0; v < 100000; v++) {
+            int index = LogLinearHistogram.bucketIndex(v);
+            assertThat(LogLinearHistogram.bucketUpperBound(index)).isGreaterThanOrEqualTo(v);
+            assertThat(LogLinearHistogram.bucketUpperBound(index)).isLessThanOrEqualTo(v + v / 8);
+            if (index > 0) {
+                assertThat(LogLinearHistogram.bucketUpperBound(index - 1)).isLessThan(v);
+            }
+        }
+        assertThat(LogLinearHistogram.bucketUpperBound(LogLinearHistogram.bucketIndex(Long.MAX_VALUE)))
+            .isEqualTo(Long.MAX_VALUE);
+    }
+
+    @Test
+    public void testSnapshot() {
+        LogLinearHistogram histogram = new LogLinearHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i);
+        }
+
+        LogLinearHistogram.Snapshot snapshot = histogram.snapshot(false);
+        assertThat(snapshot.getCount()).isEqualTo(1000);
+        assertThat(snapshot.getMax()).isEqualTo(1000);
+        assertThat(snapshot.getAvg()).isEqualTo(500);
+        assertThat(snapshot.percentile(0.99)).isBetween(990L, 1000L);
+        assertThat(snapshot.percentile(0.5)).isBetween(500L, 500L + 500L / 8);
+
+        histogram.snapshot(true);
+        assertThat(histogram.snapshot(false).getCount()).isEqualTo(0);
+        assertThat(histogram.snapshot(false).percentile(0.99)).isEqualTo(0);
+    }
+
+    @Test
+    public void testMerge() {
+        LogLinearHistogram a = new LogLinearHistogram();
+        LogLinearHistogram b = new LogLinearHistogram();
+        a.record(3);
+        b.record(7000);
+        b.record(-1);
+
+        LogLinearHistogram.Snapshot merged = new LogLinearHistogram.Snapshot();
+        merged.merge(a.snapshot(false));
+        merged.merge(b.snapshot(false));
+        assertThat(merged.getCount()).isEqualTo(3);
+        assertThat(merged.getMax()).isEqualTo(7000);
+        assertThat(merged.getSum()).isEqualTo(7003);
+        assertThat(merged.percentile(0.1)).isEqualTo(0);
+        assertThat(merged.percentile(1)).isEqualTo(7000);
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.remoting.netty;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FlushConsolidationHandlerTest {
+
+    @Test
+    public void testFlushConsolidatedWhenNoReadInProgress() {
+        AtomicInteger flushCount = new AtomicInteger(0);
+        EmbeddedChannel channel = newChannel(flushCount, 256);
+
+        channel.writeAndFlush("a");
+        channel.writeAndFlush("b");
+        channel.writeAndFlush("c");
+        assertThat(flushCount.get()).isEqualTo(0);
+        assertThat(channel.readOutbound()).isNull();
+
+        channel.runPendingTasks();
+        assertThat(flushCount.get()).isEqualTo(1);
+        assertThat(channel.readOutbound()).isEqualTo("a");
+        assertThat(channel.readOutbound()).isEqualTo("b");
+        assertThat(channel.readOutbound()).isEqualTo("c");
+        assertThat(channel.finish()).isFalse();
+    }
+
+    @Test
+    public void testFlushDelayedUntilReadComplete() {
+        AtomicInteger flushCount = new AtomicInteger(0);
+        EmbeddedChannel channel = newChannel(flushCount, 256);
+
+        channel.pipeline().fireChannelRead("request");
+        channel.writeAndFlush("a");
+        channel.writeAndFlush("b");
+        channel.runPendingTasks();
+        assertThat(flushCount.get()).isEqualTo(0);
+
+        channel.pipeline().fireChannelReadComplete();
+        assertThat(flushCount.get()).isEqualTo(1);
+        assertThat(channel.readOutbound()).isEqualTo("a");
+        assertThat(channel.readOutbound()).isEqualTo("b");
+
+        channel.runPendingTasks();
+        assertThat(flushCount.get()).isEqualTo(1);
+        assertThat(channel.readInbound()).isEqualTo("request");
+        assertThat(channel.finish()).isFalse();
+    }
+
+    @Test
+    public void testExplicitFlushAfterFlushes() {
+        AtomicInteger flushCount = new AtomicInteger(0);
+        EmbeddedChannel channel = newChannel(flushCount, 2);
+
+        channel.writeAndFlush("a");
+        assertThat(flushCount.get()).isEqualTo(0);
+        channel.writeAndFlush("b");
+        assertThat(flushCount.get()).isEqualTo(1);
+        channel.writeAndFlush("c");
+        assertThat(flushCount.get()).isEqualTo(1);
+
+        channel.runPendingTasks();
+        assertThat(flushCount.get()).isEqualTo(2);
+        assertThat(channel.finish()).isTrue();
+    }
+
+    @Test
+    public void testFlushOnClose() {
+        AtomicInteger flushCount = new AtomicInteger(0);
+        EmbeddedChannel channel = newChannel(flushCount, 256);
+
+        channel.writeAndFlush("a");
+        channel.close();
+        assertThat(flushCount.get()).isEqualTo(1);
+    }
+
+    private static EmbeddedChannel newChannel(final AtomicInteger flushCount, int explicitFlushAfterFlushes) {
+        return new EmbeddedChannel(new ChannelOutboundHandlerAdapter() {
+            @Override
+            public void flush(ChannelHandlerContext ctx) throws Exception {
+                flushCount.incrementAndGet();
+                ctx.flush();
+            }
+        }, new FlushConsolidationHandler(explicitFlushAfterFlushes));
+    }
+}
@@ -16,7 +16,9 @@
  */
 package org.apache.rocketmq.remoting.netty;
 
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import org.apache.rocketmq.remoting.InvokeCallback;
 import org.apache.rocketmq.remoting.common.SemaphoreReleaseOnlyOnce;
 import org.apache.rocketmq.remoting.protocol.RemotingCommand;
@@ -107,4 +109,37 @@ public class NettyRemotingAbstractTest {
         remotingAbstract.scanResponseTable();
         assertNull(remotingAbstract.responseTable.get(dummyId));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testResponseTimeout() throws InterruptedException {
+        int dummyId = 2;
+        final CountDownLatch latch = new CountDownLatch(1);
+        ResponseFuture responseFuture = new ResponseFuture(null, dummyId, 50, new InvokeCallback() {
+            @Override
+            public void operationComplete(final ResponseFuture responseFuture) {
+                latch.countDown();
+            }
+        }, null);
+        remotingAbstract.responseTable.putIfAbsent(dummyId, responseFuture);
+        remotingAbstract.scheduleResponseTimeout(responseFuture);
+
+        assertTrue(latch.await(3, TimeUnit.SECONDS));
+        assertNull(remotingAbstract.responseTable.get(dummyId));
+        assertNull(responseFuture.getResponseCommand());
+    }
+
+    @Test
+    public void testResponseTimeoutCancelledByResponse() {
+        int dummyId = 3;
+        ResponseFuture responseFuture = new ResponseFuture(null, dummyId, 3000, null, null);
+        remotingAbstract.responseTable.putIfAbsent(dummyId, responseFuture);
+        remotingAbstract.scheduleResponseTimeout(responseFuture);
+
+        RemotingCommand response = RemotingCommand.createResponseCommand(0, "Foo");
+        response.setOpaque(dummyId);
+        remotingAbstract.processResponseCommand(null, response);
+
+        assertTrue(responseFuture.getTimeoutTask().isCancelled());
+        assertNull(remotingAbstract.responseTable.get(dummyId));
+    }
+}
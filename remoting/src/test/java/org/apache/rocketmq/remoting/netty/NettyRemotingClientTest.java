@@ -36,4 +36,16 @@ public class NettyRemotingClientTest {
 
         assertThat(remotingClient.getCallbackExecutor()).isEqualTo(customized);
     }
+
+    @Test
+    public void testWorkerThreads() {
+        NettyClientConfig nettyClientConfig = new NettyClientConfig();
+        assertThat(NettyRemotingClient.workerThreads(nettyClientConfig)).isEqualTo(1);
+
+        nettyClientConfig.setClientChannelPoolSize(4);
+        assertThat(NettyRemotingClient.workerThreads(nettyClientConfig)).isEqualTo(4);
+
+        nettyClientConfig.setClientWorkerThreads(8);
+        assertThat(NettyRemotingClient.workerThreads(nettyClientConfig)).isEqualTo(8);
+    }
 }
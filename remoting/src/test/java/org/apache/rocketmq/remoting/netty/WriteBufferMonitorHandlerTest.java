@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.remoting.netty;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.FileRegion;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class WriteBufferMonitorHandlerTest {
+
+    @Test
+    public void testPendingWriteBytes() {
+        WriteBufferMonitorHandler handler = new WriteBufferMonitorHandler();
+        EmbeddedChannel channel = new EmbeddedChannel(handler);
+        channel.config().setWriteBufferLowWaterMark(2048);
+        channel.config().setWriteBufferHighWaterMark(4096);
+
+        channel.write(Unpooled.wrappedBuffer(new byte[1000]));
+        channel.runPendingTasks();
+        assertThat(WriteBufferMonitorHandler.getPendingWriteBytes(channel)).isEqualTo(1000);
+        assertThat(handler.getTotalPendingWriteBytes()).isEqualTo(1000);
+        assertThat(channel.isWritable()).isTrue();
+        assertThat(handler.getUnwritableChannelCount()).isEqualTo(0);
+
+        channel.write(Unpooled.wrappedBuffer(new byte[4000]));
+        channel.runPendingTasks();
+        assertThat(WriteBufferMonitorHandler.getPendingWriteBytes(channel)).isEqualTo(5000);
+        assertThat(channel.isWritable()).isFalse();
+        assertThat(handler.getUnwritableChannelCount()).isEqualTo(1);
+
+        channel.flush();
+        channel.runPendingTasks();
+        assertThat(WriteBufferMonitorHandler.getPendingWriteBytes(channel)).isEqualTo(0);
+        assertThat(handler.getTotalPendingWriteBytes()).isEqualTo(0);
+        assertThat(channel.isWritable()).isTrue();
+        assertThat(handler.getUnwritableChannelCount()).isEqualTo(0);
+        assertThat(handler.getUnwritableTimes()).isEqualTo(1);
+
+        for (Object msg = channel.readOutbound(); msg != null; msg = channel.readOutbound()) {
+            ((ByteBuf) msg).release();
+        }
+        channel.finish();
+    }
+
+    @Test
+    public void testSizeEstimatorCountsFileRegion() {
+        FileRegion region = mock(FileRegion.class);
+        when(region.count()).thenReturn(100L);
+
+        assertThat(WriteBufferMonitorHandler.SIZE_ESTIMATOR.newHandle().size(region)).isEqualTo(100);
+        assertThat(WriteBufferMonitorHandler.SIZE_ESTIMATOR.newHandle().size(Unpooled.wrappedBuffer(new byte[10])))
+            .isEqualTo(10);
+    }
+}
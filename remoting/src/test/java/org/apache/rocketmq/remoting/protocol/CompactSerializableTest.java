@@ -0,0 +1,204 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.remoting.protocol;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.rocketmq.remoting.exception.RemotingCommandException;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+public class CompactSerializableTest {
+    @Test
+    public void testEncodeAndDecode_WithoutHeader() {
+        RemotingCommand cmd = RemotingCommand.createRequestCommand(34, null);
+        cmd.setRemark("remark");
+        cmd.addExtField("key", "value");
+        cmd.markOnewayRPC();
+
+        RemotingCommand decoded = CompactSerializable.compactProtocolDecode(CompactSerializable.compactProtocolEncode(cmd));
+        assertThat(decoded.getCode()).isEqualTo(34);
+        assertThat(decoded.getLanguage()).isEqualTo(LanguageCode.JAVA);
+        assertThat(decoded.getOpaque()).isEqualTo(cmd.getOpaque());
+        assertThat(decoded.getFlag()).isEqualTo(cmd.getFlag());
+        assertThat(decoded.getRemark()).isEqualTo("remark");
+        assertThat(decoded.getExtFields()).containsOnly(entry("key", "value"));
+    }
+
+    @Test
+    public void testEncodeAndDecode_WithSchema() throws RemotingCommandException {
+        CompactTestHeader header = new CompactTestHeader();
+        header.setNextBeginOffset(Long.MAX_VALUE);
+        header.setMinOffset(-1L);
+        RemotingCommand cmd = RemotingCommand.createResponseCommand(0, null);
+        cmd.writeCustomHeader(header);
+        cmd.makeCustomHeaderToNet();
+        // not part of the schema, e.g. added by an rpc hook
+        cmd.addExtField("AccessKey", "rocketmq");
+
+        byte[] compact = CompactSerializable.compactProtocolEncode(cmd);
+        assertThat(compact.length).isLessThan(RocketMQSerializable.rocketMQProtocolEncode(cmd).length);
+
+        RemotingCommand decoded = CompactSerializable.compactProtocolDecode(compact);
+        CompactTestHeader decodedHeader = (CompactTestHeader) decoded.decodeCommandCustomHeader(CompactTestHeader.class);
+        assertThat(decodedHeader.isDecodedFromCompactFields()).isTrue();
+        assertThat(decodedHeader.getSuggestWhichBrokerId()).isNull();
+        assertThat(decodedHeader.getNextBeginOffset()).isEqualTo(Long.MAX_VALUE);
+        assertThat(decodedHeader.getMinOffset()).isEqualTo(-1L);
+        // the typed fields are still there for the readers of the ext fields
+        assertThat(decoded.getExtFields()).isEqualTo(cmd.getExtFields());
+        decodedHeader = (CompactTestHeader) decoded.decodeCommandCustomHeader(CompactTestHeader.class);
+        assertThat(decodedHeader.getNextBeginOffset()).isEqualTo(Long.MAX_VALUE);
+    }
+
+    @Test
+    public void testDecodeCustomHeader_ExtFieldsReplaced() throws RemotingCommandException {
+        CompactTestHeader header = new CompactTestHeader();
+        header.setMinOffset(1L);
+        RemotingCommand cmd = RemotingCommand.createResponseCommand(0, null);
+        cmd.writeCustomHeader(header);
+        cmd.makeCustomHeaderToNet();
+
+        RemotingCommand decoded = CompactSerializable.compactProtocolDecode(CompactSerializable.compactProtocolEncode(cmd));
+        HashMap<String, String> extFields = new HashMap<String, String>();
+        extFields.put("minOffset", "2");
+        decoded.setExtFields(extFields);
+        CompactTestHeader decodedHeader = (CompactTestHeader) decoded.decodeCommandCustomHeader(CompactTestHeader.class);
+        assertThat(decodedHeader.isDecodedFromCompactFields()).isFalse();
+        assertThat(decodedHeader.getMinOffset()).isEqualTo(2L);
+    }
+
+    @Test
+    public void testEncodeAndDecode_MismatchedFieldType() {
+        RemotingCommand cmd = RemotingCommand.createResponseCommand(0, null);
+        cmd.writeCustomHeader(new CompactTestHeader());
+        cmd.addExtField("maxOffset", "not a number");
+
+        RemotingCommand decoded = CompactSerializable.compactProtocolDecode(CompactSerializable.compactProtocolEncode(cmd));
+        assertThat(decoded.getExtFields()).containsOnly(entry("maxOffset", "not a number"));
+    }
+
+    @Test
+    public void testDecodeCustomHeader_MismatchedFieldTypeFromExtFields() throws RemotingCommandException {
+        RemotingCommand cmd = RemotingCommand.createResponseCommand(0, null);
+        cmd.writeCustomHeader(new CompactTestHeader());
+        cmd.addExtField("minOffset", "1");
+        cmd.addExtField("maxOffset", "not a number");
+
+        RemotingCommand decoded = CompactSerializable.compactProtocolDecode(CompactSerializable.compactProtocolEncode(cmd));
+        CompactTestHeader decodedHeader = (CompactTestHeader) decoded.decodeCommandCustomHeader(CompactTestHeader.class);
+        assertThat(decodedHeader.isDecodedFromCompactFields()).isTrue();
+        assertThat(decodedHeader.getMinOffset()).isEqualTo(1L);
+        assertThat(decodedHeader.getMaxOffset()).isNull();
+    }
+
+    @Test
+    public void testEncodeHeader_SerializeType() {
+        RemotingCommand cmd = RemotingCommand.createRequestCommand(34, null);
+        cmd.setRemark("remark");
+        cmd.setBody(new byte[] {1, 2, 3});
+
+        RemotingCommand decoded = RemotingCommand.decode(withBody(cmd.encodeHeader(3, SerializeType.COMPACT), cmd.getBody()));
+        assertThat(decoded.getSerializeTypeCurrentRPC()).isEqualTo(SerializeType.COMPACT);
+        assertThat(decoded.getRemark()).isEqualTo("remark");
+        assertThat(decoded.getBody()).isEqualTo(new byte[] {1, 2, 3});
+        assertThat(decoded.getCompactHeaderVersion()).isEqualTo(CompactSerializable.VERSION);
+    }
+
+    private static ByteBuffer withBody(ByteBuffer header, byte[] body) {
+        // skip the total length, which is consumed by the frame decoder
+        header.getInt();
+        ByteBuffer frame = ByteBuffer.allocate(header.remaining() + body.length);
+        frame.put(header);
+        frame.put(body);
+        frame.flip();
+        return frame;
+    }
+}
+
+class CompactTestHeader implements CompactCodesHeader {
+    private Long suggestWhichBrokerId;
+    private Long nextBeginOffset;
+    private Long minOffset;
+    private Long maxOffset;
+    private boolean decodedFromCompactFields;
+
+    @Override
+    public void checkFields() throws RemotingCommandException {
+    }
+
+    @Override
+    public CompactHeaderSchema compactSchema() {
+        return CompactHeaderSchema.PULL_MESSAGE_RESPONSE;
+    }
+
+    @Override
+    public void encode(Map<String, String> extFields) {
+        FastCodesHelper.putIfNotNull(extFields, "suggestWhichBrokerId", this.suggestWhichBrokerId);
+        FastCodesHelper.putIfNotNull(extFields, "nextBeginOffset", this.nextBeginOffset);
+        FastCodesHelper.putIfNotNull(extFields, "minOffset", this.minOffset);
+        FastCodesHelper.putIfNotNull(extFields, "maxOffset", this.maxOffset);
+    }
+
+    @Override
+    public void decode(Map<String, String> extFields) {
+        this.suggestWhichBrokerId = FastCodesHelper.getLong(extFields, "suggestWhichBrokerId", false);
+        this.nextBeginOffset = FastCodesHelper.getLong(extFields, "nextBeginOffset", false);
+        this.minOffset = FastCodesHelper.getLong(extFields, "minOffset", false);
+        this.maxOffset = FastCodesHelper.getLong(extFields, "maxOffset", false);
+    }
+
+    @Override
+    public void decode(CompactFields fields) {
+        this.suggestWhichBrokerId = fields.getLong("suggestWhichBrokerId", false);
+        this.nextBeginOffset = fields.getLong("nextBeginOffset", false);
+        this.minOffset = fields.getLong("minOffset", false);
+        this.maxOffset = fields.getLong("maxOffset", false);
+        this.decodedFromCompactFields = true;
+    }
+
+    public boolean isDecodedFromCompactFields() {
+        return decodedFromCompactFields;
+    }
+
+    public Long getSuggestWhichBrokerId() {
+        return suggestWhichBrokerId;
+    }
+
+    public Long getNextBeginOffset() {
+        return nextBeginOffset;
+    }
+
+    public void setNextBeginOffset(Long nextBeginOffset) {
+        this.nextBeginOffset = nextBeginOffset;
+    }
+
+    public Long getMinOffset() {
+        return minOffset;
+    }
+
+    public void setMinOffset(Long minOffset) {
+        this.minOffset = minOffset;
+    }
+
+    public Long getMaxOffset() {
+        return maxOffset;
+    }
+}
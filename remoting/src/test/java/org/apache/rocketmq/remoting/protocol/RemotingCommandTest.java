@@ -16,9 +16,13 @@
  */
 package org.apache.rocketmq.remoting.protocol;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.nio.ByteBuffer;
+import java.util.Map;
 import org.apache.rocketmq.remoting.CommandCustomHeader;
 import org.apache.rocketmq.remoting.annotation.CFNotNull;
 import org.apache.rocketmq.remoting.exception.RemotingCommandException;
@@ -147,6 +151,51 @@ public class RemotingCommandTest {
         assertThat(decodedCommand.getBody()).isEqualTo(new byte[] {0, 1, 2, 3, 4});
     }
 
+    @Test
+    public void testDecode_RequestBodyRetainedInFrame() {
+        int code = 103; //org.apache.rocketmq.common.protocol.RequestCode.REGISTER_BROKER
+        RemotingCommand cmd = RemotingCommand.createRequestCommand(code, new SampleCommandCustomHeader());
+        cmd.setBody(new byte[] {0, 1, 2, 3, 4});
+
+        //Simulate the frame passed to NettyDecoder, without the length field
+        ByteBuffer buffer = cmd.encode();
+        buffer.getInt();
+        ByteBuf frame = PooledByteBufAllocator.DEFAULT.directBuffer(buffer.remaining());
+        frame.writeBytes(buffer);
+
+        RemotingCommand decodedCommand = RemotingCommand.decode(frame);
+        frame.release();
+
+        assertThat(decodedCommand.getBodyBuffer()).isNotNull();
+        assertThat(decodedCommand.getBodyLength()).isEqualTo(5);
+        assertThat(frame.refCnt()).isEqualTo(1);
+        assertThat(decodedCommand.getBody()).isEqualTo(new byte[] {0, 1, 2, 3, 4});
+
+        decodedCommand.release();
+        assertThat(frame.refCnt()).isEqualTo(0);
+        assertThat(decodedCommand.getBodyBuffer()).isNull();
+        // the materialized body outlives the frame
+        assertThat(decodedCommand.getBody()).isEqualTo(new byte[] {0, 1, 2, 3, 4});
+    }
+
+    @Test
+    public void testDecode_ResponseBodyCopied() {
+        RemotingCommand cmd = RemotingCommand.createResponseCommand(RemotingSysResponseCode.SUCCESS, null);
+        cmd.setBody(new byte[] {0, 1, 2, 3, 4});
+
+        ByteBuffer buffer = cmd.encode();
+        buffer.getInt();
+        ByteBuf frame = Unpooled.buffer(buffer.remaining());
+        frame.writeBytes(buffer);
+
+        RemotingCommand decodedCommand = RemotingCommand.decode(frame);
+        frame.release();
+
+        assertThat(frame.refCnt()).isEqualTo(0);
+        assertThat(decodedCommand.getBodyBuffer()).isNull();
+        assertThat(decodedCommand.getBody()).isEqualTo(new byte[] {0, 1, 2, 3, 4});
+    }
+
     @Test
     public void testEncodeAndDecode_FilledBodyWithExtFields() throws RemotingCommandException {
         System.setProperty(RemotingCommand.REMOTING_VERSION_KEY, "2333");
@@ -183,6 +232,27 @@ public class RemotingCommandTest {
         assertThat(((ExtFieldsHeader) decodedHeader).getDoubleValue()).isBetween(0.617, 0.619);
     }
 
+    @Test
+    public void testEncodeAndDecode_FastCodesHeader() throws RemotingCommandException {
+        FastCodesTestHeader header = new FastCodesTestHeader();
+        header.setValue("bilibili");
+        RemotingCommand cmd = RemotingCommand.createRequestCommand(0, header);
+        ByteBuffer buffer = cmd.encode();
+
+        //Simulate buffer being read in NettyDecoder
+        buffer.getInt();
+        byte[] bytes = new byte[buffer.limit() - 4];
+        buffer.get(bytes, 0, buffer.limit() - 4);
+        buffer = ByteBuffer.wrap(bytes);
+
+        RemotingCommand decodedCommand = RemotingCommand.decode(buffer);
+        // written by the header itself rather than by field name
+        assertThat(decodedCommand.getExtFields()).containsOnlyKeys("v");
+
+        CommandCustomHeader decodedHeader = decodedCommand.decodeCommandCustomHeader(FastCodesTestHeader.class);
+        assertThat(((FastCodesTestHeader) decodedHeader).getValue()).isEqualTo("bilibili");
+    }
+
     @Test
     public void testNotNullField() throws Exception {
         RemotingCommand remotingCommand = new RemotingCommand();
@@ -216,6 +286,32 @@ class SampleCommandCustomHeader implements CommandCustomHeader {
     }
 }
 
+class FastCodesTestHeader implements FastCodesHeader {
+    private String value;
+
+    @Override
+    public void checkFields() throws RemotingCommandException {
+    }
+
+    @Override
+    public void encode(Map<String, String> extFields) {
+        FastCodesHelper.putIfNotNull(extFields, "v", this.value);
+    }
+
+    @Override
+    public void decode(Map<String, String> extFields) {
+        this.value = FastCodesHelper.getString(extFields, "v", true);
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public void setValue(String value) {
+        this.value = value;
+    }
+}
+
 class ExtFieldsHeader implements CommandCustomHeader {
     private String stringValue = "bilibili";
     private int intValue = 2333;
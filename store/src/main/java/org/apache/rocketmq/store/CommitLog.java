@@ -56,7 +56,7 @@ public class CommitLog {
     private final FlushCommitLogService commitLogService;
 
     private final AppendMessageCallback appendMessageCallback;
-    private final ThreadLocal<MessageExtBatchEncoder> batchEncoderThreadLocal;
+    protected final ThreadLocal<MessageExtBatchEncoder> batchEncoderThreadLocal;
     protected HashMap<String/* topic-queueid */, Long/* offset */> topicQueueTable = new HashMap<String, Long>(1024);
     protected volatile long confirmOffset = -1L;
 
@@ -538,7 +538,7 @@ public class CommitLog {
         msg.setStoreTimestamp(System.currentTimeMillis());
         // Set the message body BODY CRC (consider the most appropriate setting
         // on the client)
-        msg.setBodyCRC(UtilAll.crc32(msg.getBody()));
+        msg.setBodyCRC(msg.getBodyBuffer() != null ? UtilAll.crc32(msg.getBodyBuffer()) : UtilAll.crc32(msg.getBody()));
         // Back to Results
         AppendMessageResult result = null;
 
@@ -626,7 +626,7 @@ public class CommitLog {
         }
 
         if (elapsedTimeInLock > 500) {
-            log.warn("[NOTIFYME]putMessage in lock cost time(ms)={}, bodyLength={} AppendMessageResult={}", elapsedTimeInLock, msg.getBody().length, result);
+            log.warn("[NOTIFYME]putMessage in lock cost time(ms)={}, bodyLength={} AppendMessageResult={}", elapsedTimeInLock, msg.getBodyLength(), result);
         }
 
         if (null != unlockMappedFile && this.defaultMessageStore.getMessageStoreConfig().isWarmMapedFileEnable()) {
@@ -1249,7 +1249,7 @@ public class CommitLog {
             final byte[] topicData = msgInner.getTopic().getBytes(MessageDecoder.CHARSET_UTF8);
             final int topicLength = topicData.length;
 
-            final int bodyLength = msgInner.getBody() == null ? 0 : msgInner.getBody().length;
+            final int bodyLength = msgInner.getBodyLength();
 
             final int msgLen = calMsgLength(bodyLength, topicLength, propertiesLength);
 
@@ -1308,10 +1308,9 @@ public class CommitLog {
             this.msgStoreItemMemory.putInt(msgInner.getReconsumeTimes());
             // 14 Prepared Transaction Offset
             this.msgStoreItemMemory.putLong(msgInner.getPreparedTransactionOffset());
-            // 15 BODY
+            // 15 BODY, copied into the queue buffer directly below
             this.msgStoreItemMemory.putInt(bodyLength);
-            if (bodyLength > 0)
-                this.msgStoreItemMemory.put(msgInner.getBody());
+            final int bodyPosition = this.msgStoreItemMemory.position();
             // 16 TOPIC
             this.msgStoreItemMemory.put((byte) topicLength);
             this.msgStoreItemMemory.put(topicData);
@@ -1322,7 +1321,13 @@ public class CommitLog {
 
             final long beginTimeMills = CommitLog.this.defaultMessageStore.now();
             // Write messages to the queue buffer
-            byteBuffer.put(this.msgStoreItemMemory.array(), 0, msgLen);
+            byteBuffer.put(this.msgStoreItemMemory.array(), 0, bodyPosition);
+            if (msgInner.getBodyBuffer() != null) {
+                byteBuffer.put(msgInner.getBodyBuffer().duplicate());
+            } else if (bodyLength > 0) {
+                byteBuffer.put(msgInner.getBody());
+            }
+            byteBuffer.put(this.msgStoreItemMemory.array(), bodyPosition, msgLen - bodyLength - bodyPosition);
 
             AppendMessageResult result = new AppendMessageResult(AppendMessageStatus.PUT_OK, wroteOffset, msgLen, msgId,
                 msgInner.getStoreTimestamp(), queueOffset, CommitLog.this.defaultMessageStore.now() - beginTimeMills);
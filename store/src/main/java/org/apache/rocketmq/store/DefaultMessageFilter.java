@@ -20,6 +20,7 @@ import org.apache.rocketmq.common.protocol.heartbeat.SubscriptionData;
 
 import java.nio.ByteBuffer;
 import java.util.Map;
+import java.util.Set;
 
 public class DefaultMessageFilter implements MessageFilter {
 
@@ -47,4 +48,14 @@ public class DefaultMessageFilter implements MessageFilter {
     public boolean isMatchedByCommitLog(ByteBuffer msgBuffer, Map<String, String> properties) {
         return true;
     }
+
+    @Override
+    public Set<Integer> getTagsCodeSet() {
+        if (null == subscriptionData || subscriptionData.isClassFilterMode()
+            || subscriptionData.getSubString().equals(SubscriptionData.SUB_ALL)) {
+            return null;
+        }
+
+        return subscriptionData.getCodeSet();
+    }
 }
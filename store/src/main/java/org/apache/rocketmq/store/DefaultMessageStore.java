@@ -105,6 +105,8 @@ public class DefaultMessageStore implements MessageStore {
 
     private final LinkedList<CommitLogDispatcher> dispatcherList;
 
+    private final TagPostingIndex tagPostingIndex;
+
     private RandomAccessFile lockFile;
 
     private FileLock lock;
@@ -152,6 +154,9 @@ public class DefaultMessageStore implements MessageStore {
         this.dispatcherList = new LinkedList<>();
         this.dispatcherList.addLast(new CommitLogDispatcherBuildConsumeQueue());
         this.dispatcherList.addLast(new CommitLogDispatcherBuildIndex());
+        this.tagPostingIndex = new TagPostingIndex(messageStoreConfig.getTagPostingIndexMaxTagsPerQueue(),
+            messageStoreConfig.getTagPostingIndexMaxOffsetsPerTag(), messageStoreConfig.getTagPostingIndexMaxBytes());
+        this.dispatcherList.addLast(new CommitLogDispatcherBuildTagPostingIndex());
 
         File file = new File(StorePathConfigHelper.getLockFile(messageStoreConfig.getStorePathRootDir()));
         MappedFile.ensureDirOK(file.getParent());
@@ -166,6 +171,7 @@ public class DefaultMessageStore implements MessageStore {
                 logic.truncateDirtyLogicFiles(phyOffset);
             }
         }
+        this.tagPostingIndex.clear();
     }
 
     /**
@@ -349,6 +355,7 @@ public class DefaultMessageStore implements MessageStore {
                 logic.destroy();
             }
         }
+        this.tagPostingIndex.clear();
     }
 
     public PutMessageResult putMessage(MessageExtBrokerInner msg) {
@@ -396,7 +403,7 @@ public class DefaultMessageStore implements MessageStore {
 
         long elapsedTime = this.getSystemClock().now() - beginTime;
         if (elapsedTime > 500) {
-            log.warn("putMessage not in lock elapsed time(ms)={}, bodyLength={}", elapsedTime, msg.getBody().length);
+            log.warn("putMessage not in lock elapsed time(ms)={}, bodyLength={}", elapsedTime, msg.getBodyLength());
         }
         this.storeStatsService.setPutMessageEntireTimeMax(elapsedTime);
 
@@ -509,10 +516,14 @@ public class DefaultMessageStore implements MessageStore {
 
         final long maxOffsetPy = this.commitLog.getMaxOffset();
 
+        final Set<Integer> tagsCodeSet = messageFilter != null && this.messageStoreConfig.isTagPostingIndexEnable()
+            ? messageFilter.getTagsCodeSet() : null;
+
         ConsumeQueue consumeQueue = findConsumeQueue(topic, queueId);
         if (consumeQueue != null) {
             minOffset = consumeQueue.getMinOffsetInQueue();
             maxOffset = consumeQueue.getMaxOffsetInQueue();
+            final long startOffset = Math.min(this.skipUnmatchedOffset(topic, queueId, tagsCodeSet, offset), maxOffset);
 
             if (maxOffset == 0) {
                 status = GetMessageStatus.NO_MESSAGE_IN_QUEUE;
@@ -530,8 +541,12 @@ public class DefaultMessageStore implements MessageStore {
                 } else {
                     nextBeginOffset = nextOffsetCorrection(offset, maxOffset);
                 }
+            } else if (startOffset == maxOffset) {
+                // no message of the subscribed tags up to the max offset
+                status = GetMessageStatus.NO_MATCHED_MESSAGE;
+                nextBeginOffset = startOffset;
             } else {
-                SelectMappedBufferResult bufferConsumeQueue = consumeQueue.getIndexBuffer(offset);
+                SelectMappedBufferResult bufferConsumeQueue = consumeQueue.getIndexBuffer(startOffset);
                 if (bufferConsumeQueue != null) {
                     try {
                         status = GetMessageStatus.NO_MATCHED_MESSAGE;
@@ -540,10 +555,11 @@ public class DefaultMessageStore implements MessageStore {
                         long maxPhyOffsetPulling = 0;
 
                         int i = 0;
+                        int skippedSize = 0;
                         final int maxFilterMessageCount = Math.max(16000, maxMsgNums * ConsumeQueue.CQ_STORE_UNIT_SIZE);
                         final boolean diskFallRecorded = this.messageStoreConfig.isDiskFallRecorded();
                         ConsumeQueueExt.CqExtUnit cqExtUnit = new ConsumeQueueExt.CqExtUnit();
-                        for (; i < bufferConsumeQueue.getSize() && i < maxFilterMessageCount; i += ConsumeQueue.CQ_STORE_UNIT_SIZE) {
+                        for (; i < bufferConsumeQueue.getSize() && i - skippedSize < maxFilterMessageCount; i += ConsumeQueue.CQ_STORE_UNIT_SIZE) {
                             long offsetPy = bufferConsumeQueue.getByteBuffer().getLong();
                             int sizePy = bufferConsumeQueue.getByteBuffer().getInt();
                             long tagsCode = bufferConsumeQueue.getByteBuffer().getLong();
@@ -581,6 +597,17 @@ public class DefaultMessageStore implements MessageStore {
                                     status = GetMessageStatus.NO_MATCHED_MESSAGE;
                                 }
 
+                                if (tagsCodeSet != null) {
+                                    long fromOffset = startOffset + i / ConsumeQueue.CQ_STORE_UNIT_SIZE + 1;
+                                    long matchedOffset = this.skipUnmatchedOffset(topic, queueId, tagsCodeSet, fromOffset);
+                                    if (matchedOffset > fromOffset) {
+                                        int position = (int) Math.min((matchedOffset - startOffset) * ConsumeQueue.CQ_STORE_UNIT_SIZE,
+                                            bufferConsumeQueue.getSize());
+                                        bufferConsumeQueue.getByteBuffer().position(position);
+                                        skippedSize += position - i - ConsumeQueue.CQ_STORE_UNIT_SIZE;
+                                        i = position - ConsumeQueue.CQ_STORE_UNIT_SIZE;
+                                    }
+                                }
                                 continue;
                             }
 
@@ -615,7 +642,7 @@ public class DefaultMessageStore implements MessageStore {
                             brokerStatsManager.recordDiskFallBehindSize(group, topic, queueId, fallBehind);
                         }
 
-                        nextBeginOffset = offset + (i / ConsumeQueue.CQ_STORE_UNIT_SIZE);
+                        nextBeginOffset = startOffset + (i / ConsumeQueue.CQ_STORE_UNIT_SIZE);
 
                         long diff = maxOffsetPy - maxPhyOffsetPulling;
                         long memory = (long) (StoreUtil.TOTAL_PHYSICAL_MEMORY_SIZE
@@ -627,7 +654,7 @@ public class DefaultMessageStore implements MessageStore {
                     }
                 } else {
                     status = GetMessageStatus.OFFSET_FOUND_NULL;
-                    nextBeginOffset = nextOffsetCorrection(offset, consumeQueue.rollNextFile(offset));
+                    nextBeginOffset = nextOffsetCorrection(offset, consumeQueue.rollNextFile(startOffset));
                     log.warn("consumer request topic: " + topic + "offset: " + offset + " minOffset: " + minOffset + " maxOffset: "
                         + maxOffset + ", but access logic queue failed.");
                 }
@@ -652,6 +679,19 @@ public class DefaultMessageStore implements MessageStore {
         return getResult;
     }
 
+    /**
+     * @return the first offset from fromOffset which may carry one of the tags codes according to the tag posting
+     * index, fromOffset itself if the index does not cover it.
+     */
+    private long skipUnmatchedOffset(final String topic, final int queueId, final Set<Integer> tagsCodeSet,
+        final long fromOffset) {
+        if (null == tagsCodeSet) {
+            return fromOffset;
+        }
+        long matchedOffset = this.tagPostingIndex.nextMatchedOffset(topic, queueId, tagsCodeSet, fromOffset);
+        return matchedOffset > fromOffset ? matchedOffset : fromOffset;
+    }
+
     public long getMaxOffsetInQueue(String topic, int queueId) {
         //根据topic与queue找到消费队列
         ConsumeQueue logic = this.findConsumeQueue(topic, queueId);
@@ -978,6 +1018,7 @@ public class DefaultMessageStore implements MessageStore {
                 }
                 //topic所在的消息队列删除完毕后消费队列所在的集合元素
                 it.remove();
+                this.tagPostingIndex.removeTopic(topic);
 
                 log.info("cleanUnusedTopic: {},topic destroyed", topic);
             }
@@ -1019,6 +1060,7 @@ public class DefaultMessageStore implements MessageStore {
 
                         nextQT.getValue().destroy();
                         itQT.remove();
+                        DefaultMessageStore.this.tagPostingIndex.removeQueue(topic, nextQT.getKey());
                     }
                 }
 
@@ -1519,6 +1561,29 @@ public class DefaultMessageStore implements MessageStore {
         }
     }
 
+    class CommitLogDispatcherBuildTagPostingIndex implements CommitLogDispatcher {
+
+        @Override
+        public void dispatch(DispatchRequest request) {
+            if (!DefaultMessageStore.this.messageStoreConfig.isTagPostingIndexEnable()
+                || ScheduleMessageService.SCHEDULE_TOPIC.equals(request.getTopic())) {
+                return;
+            }
+
+            final int tranType = MessageSysFlag.getTransactionValue(request.getSysFlag());
+            switch (tranType) {
+                case MessageSysFlag.TRANSACTION_NOT_TYPE:
+                case MessageSysFlag.TRANSACTION_COMMIT_TYPE:
+                    DefaultMessageStore.this.tagPostingIndex.putPosting(request.getTopic(), request.getQueueId(),
+                        request.getConsumeQueueOffset(), request.getTagsCode());
+                    break;
+                case MessageSysFlag.TRANSACTION_PREPARED_TYPE:
+                case MessageSysFlag.TRANSACTION_ROLLBACK_TYPE:
+                    break;
+            }
+        }
+    }
+
     class CleanCommitLogService {
 
         private final static int MAX_MANUAL_DELETE_FILE_TIMES = 20;
@@ -1892,6 +1957,9 @@ public class DefaultMessageStore implements MessageStore {
                             }
                         }
                     } finally {
+                        if (DefaultMessageStore.this.messageArrivingListener instanceof MessageArrivingBatchListener) {
+                            ((MessageArrivingBatchListener) DefaultMessageStore.this.messageArrivingListener).arrivingBatchEnd();
+                        }
                         result.release();
                     }
                 } else {
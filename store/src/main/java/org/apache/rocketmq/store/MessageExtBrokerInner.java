@@ -16,6 +16,7 @@
  */
 package org.apache.rocketmq.store;
 
+import java.nio.ByteBuffer;
 import org.apache.rocketmq.common.TopicFilterType;
 import org.apache.rocketmq.common.message.MessageExt;
 
@@ -23,6 +24,10 @@ public class MessageExtBrokerInner extends MessageExt {
     private static final long serialVersionUID = 7256001576878700634L;
     private String propertiesString;
     private long tagsCode;
+    /**
+     * Body still held in the buffer it was received in, appended to the commit log without an intermediate array.
+     */
+    private transient ByteBuffer bodyBuffer;
 
     public static long tagsString2tagsCode(final TopicFilterType filter, final String tags) {
         if (null == tags || tags.length() == 0) { return 0; }
@@ -49,4 +54,41 @@ public class MessageExtBrokerInner extends MessageExt {
     public void setTagsCode(long tagsCode) {
         this.tagsCode = tagsCode;
     }
+
+    @Override
+    public byte[] getBody() {
+        byte[] body = super.getBody();
+        if (null == body && this.bodyBuffer != null) {
+            body = new byte[this.bodyBuffer.remaining()];
+            this.bodyBuffer.duplicate().get(body);
+            super.setBody(body);
+        }
+        return body;
+    }
+
+    @Override
+    public void setBody(byte[] body) {
+        super.setBody(body);
+        this.bodyBuffer = null;
+    }
+
+    public ByteBuffer getBodyBuffer() {
+        return bodyBuffer;
+    }
+
+    /**
+     * The buffer must stay valid until the message is appended, its position and limit are left unchanged.
+     */
+    public void setBodyBuffer(ByteBuffer bodyBuffer) {
+        super.setBody(null);
+        this.bodyBuffer = bodyBuffer;
+    }
+
+    public int getBodyLength() {
+        if (this.bodyBuffer != null) {
+            return this.bodyBuffer.remaining();
+        }
+        byte[] body = super.getBody();
+        return null == body ? 0 : body.length;
+    }
 }
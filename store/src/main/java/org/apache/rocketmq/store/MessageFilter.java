@@ -18,6 +18,7 @@ package org.apache.rocketmq.store;
 
 import java.nio.ByteBuffer;
 import java.util.Map;
+import java.util.Set;
 
 public interface MessageFilter {
     /**
@@ -40,4 +41,12 @@ public interface MessageFilter {
      */
     boolean isMatchedByCommitLog(final ByteBuffer msgBuffer,
         final Map<String, String> properties);
+
+    /**
+     * tags codes accepted by {@link #isMatchedByConsumeQueue}, which allows the store to skip the consume queue
+     * entries carrying other tags codes without reading them.
+     *
+     * @return the accepted tags codes, null if entries are not filtered by tags code only.
+     */
+    Set<Integer> getTagsCodeSet();
 }
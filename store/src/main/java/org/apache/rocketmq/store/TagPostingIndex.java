@@ -0,0 +1,349 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.store;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory posting lists of the consume queues: tags code to the recent consume queue offsets carrying it.
+ * <p>
+ * Postings are appended by dispatch right after the consume queue is built, so for every queue the index covers a
+ * contiguous range of offsets. The range starts at the first offset dispatched, moves forward when a tags code is
+ * evicted by {@code maxTagsPerQueue} or its oldest offsets by {@code maxOffsetsPerTag}, and restarts on any gap.
+ * <p>
+ * The memory of all the queues is bounded by {@code maxBytes}: once it is exceeded, the queues written least
+ * recently are dropped until a quarter of the budget is free again. A dropped queue is rebuilt from its next posting.
+ */
+public class TagPostingIndex {
+    private static final int INITIAL_POSTING_CAPACITY = 16;
+    /**
+     * rough footprint of a tags code besides its offsets: the postings, the map entry and the boxed key
+     */
+    private static final int POSTINGS_OVERHEAD_BYTES = 96;
+
+    private final ConcurrentMap<String/* topic */, ConcurrentMap<Integer/* queueId */, QueuePostings>> postingTable =
+        new ConcurrentHashMap<String, ConcurrentMap<Integer, QueuePostings>>(32);
+    private final int maxTagsPerQueue;
+    private final int maxOffsetsPerTag;
+    private final long maxBytes;
+    private final AtomicLong usedBytes = new AtomicLong(0);
+    private final AtomicBoolean evicting = new AtomicBoolean(false);
+
+    public TagPostingIndex(final int maxTagsPerQueue, final int maxOffsetsPerTag) {
+        this(maxTagsPerQueue, maxOffsetsPerTag, Long.MAX_VALUE);
+    }
+
+    public TagPostingIndex(final int maxTagsPerQueue, final int maxOffsetsPerTag, final long maxBytes) {
+        this.maxTagsPerQueue = Math.max(1, maxTagsPerQueue);
+        this.maxOffsetsPerTag = Math.max(1, maxOffsetsPerTag);
+        this.maxBytes = Math.max(0, maxBytes);
+    }
+
+    public void putPosting(final String topic, final int queueId, final long consumeQueueOffset, final long tagsCode) {
+        ConcurrentMap<Integer, QueuePostings> queueTable = this.postingTable.get(topic);
+        if (null == queueTable) {
+            ConcurrentMap<Integer, QueuePostings> newQueueTable = new ConcurrentHashMap<Integer, QueuePostings>(16);
+            queueTable = this.postingTable.putIfAbsent(topic, newQueueTable);
+            if (null == queueTable) {
+                queueTable = newQueueTable;
+            }
+        }
+
+        QueuePostings queuePostings = queueTable.get(queueId);
+        if (null == queuePostings) {
+            QueuePostings newQueuePostings =
+                new QueuePostings(topic, queueId, this.maxTagsPerQueue, this.maxOffsetsPerTag);
+            queuePostings = queueTable.putIfAbsent(queueId, newQueuePostings);
+            if (null == queuePostings) {
+                queuePostings = newQueuePostings;
+            }
+        }
+
+        long grownBytes = queuePostings.put(consumeQueueOffset, (int) tagsCode);
+        if (grownBytes != 0 && this.usedBytes.addAndGet(grownBytes) > this.maxBytes) {
+            this.evict();
+        }
+    }
+
+    private void evict() {
+        if (!this.evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            List<QueuePostings> candidates = new ArrayList<QueuePostings>();
+            for (ConcurrentMap<Integer, QueuePostings> queueTable : this.postingTable.values()) {
+                candidates.addAll(queueTable.values());
+            }
+            Collections.sort(candidates, new Comparator<QueuePostings>() {
+                @Override
+                public int compare(QueuePostings o1, QueuePostings o2) {
+                    return Long.compare(o1.lastPutSequence, o2.lastPutSequence);
+                }
+            });
+
+            long lowWaterBytes = this.maxBytes - this.maxBytes / 4;
+            for (QueuePostings queuePostings : candidates) {
+                if (this.usedBytes.get() <= lowWaterBytes) {
+                    break;
+                }
+                ConcurrentMap<Integer, QueuePostings> queueTable = this.postingTable.get(queuePostings.topic);
+                if (queueTable != null && queueTable.remove(queuePostings.queueId, queuePostings)) {
+                    this.release(queuePostings);
+                }
+            }
+        } finally {
+            this.evicting.set(false);
+        }
+    }
+
+    private void release(final QueuePostings queuePostings) {
+        this.usedBytes.addAndGet(-queuePostings.discard());
+    }
+
+    public long getUsedBytes() {
+        return this.usedBytes.get();
+    }
+
+    /**
+     * @return the first offset not below fromOffset carrying one of the tags codes, the end of the indexed range if
+     * there is none, -1 if fromOffset is not covered by the index.
+     */
+    public long nextMatchedOffset(final String topic, final int queueId, final Set<Integer> tagsCodeSet,
+        final long fromOffset) {
+        ConcurrentMap<Integer, QueuePostings> queueTable = this.postingTable.get(topic);
+        if (null == queueTable) {
+            return -1;
+        }
+
+        QueuePostings queuePostings = queueTable.get(queueId);
+        if (null == queuePostings) {
+            return -1;
+        }
+
+        return queuePostings.nextMatchedOffset(tagsCodeSet, fromOffset);
+    }
+
+    public void removeQueue(final String topic, final int queueId) {
+        ConcurrentMap<Integer, QueuePostings> queueTable = this.postingTable.get(topic);
+        if (queueTable != null) {
+            QueuePostings queuePostings = queueTable.remove(queueId);
+            if (queuePostings != null) {
+                this.release(queuePostings);
+            }
+        }
+    }
+
+    public void removeTopic(final String topic) {
+        ConcurrentMap<Integer, QueuePostings> queueTable = this.postingTable.remove(topic);
+        if (queueTable != null) {
+            for (QueuePostings queuePostings : queueTable.values()) {
+                this.release(queuePostings);
+            }
+        }
+    }
+
+    public void clear() {
+        for (String topic : this.postingTable.keySet()) {
+            this.removeTopic(topic);
+        }
+    }
+
+    static class QueuePostings {
+        private static final AtomicLong PUT_SEQUENCE = new AtomicLong(0);
+
+        private final String topic;
+        private final int queueId;
+        private final int maxOffsetsPerTag;
+        private final LinkedHashMap<Integer/* tagsCode */, Postings> tagTable;
+        /**
+         * tags codes not in tagTable do not appear from this offset on
+         */
+        private long beginOffset = -1;
+        /**
+         * next offset to be indexed
+         */
+        private long endOffset = -1;
+        /**
+         * estimated bytes held by tagTable
+         */
+        private long bytes = 0;
+        /**
+         * set once the queue is dropped from the index, later postings are ignored
+         */
+        private boolean discarded = false;
+        /**
+         * orders the queues by their last posting for eviction
+         */
+        private volatile long lastPutSequence;
+
+        QueuePostings(final String topic, final int queueId, final int maxTagsPerQueue, final int maxOffsetsPerTag) {
+            this.topic = topic;
+            this.queueId = queueId;
+            this.maxOffsetsPerTag = maxOffsetsPerTag;
+            this.tagTable = new LinkedHashMap<Integer, Postings>(16, 0.75f, false) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, Postings> eldest) {
+                    if (size() <= maxTagsPerQueue) {
+                        return false;
+                    }
+                    QueuePostings.this.beginOffset =
+                        Math.max(QueuePostings.this.beginOffset, eldest.getValue().lastOffset() + 1);
+                    QueuePostings.this.bytes -= eldest.getValue().bytes();
+                    return true;
+                }
+            };
+        }
+
+        /**
+         * @return the change of the estimated bytes
+         */
+        synchronized long put(final long offset, final int tagsCode) {
+            if (this.discarded) {
+                return 0;
+            }
+            this.lastPutSequence = PUT_SEQUENCE.incrementAndGet();
+            long oldBytes = this.bytes;
+            if (offset != this.endOffset) {
+                this.tagTable.clear();
+                this.bytes = 0;
+                this.beginOffset = offset;
+            }
+            this.endOffset = offset + 1;
+
+            // re-insert to keep the most recently written tags codes at the tail
+            Postings postings = this.tagTable.remove(tagsCode);
+            if (null == postings) {
+                postings = new Postings(this.beginOffset);
+            } else {
+                this.bytes -= postings.bytes();
+            }
+            postings.add(offset, this.maxOffsetsPerTag);
+            this.bytes += postings.bytes();
+            this.tagTable.put(tagsCode, postings);
+            return this.bytes - oldBytes;
+        }
+
+        /**
+         * @return the estimated bytes given back
+         */
+        synchronized long discard() {
+            this.discarded = true;
+            this.tagTable.clear();
+            long discardedBytes = this.bytes;
+            this.bytes = 0;
+            return discardedBytes;
+        }
+
+        synchronized long nextMatchedOffset(final Set<Integer> tagsCodeSet, final long fromOffset) {
+            if (this.discarded || fromOffset < this.beginOffset || fromOffset >= this.endOffset) {
+                return -1;
+            }
+
+            long nextOffset = this.endOffset;
+            for (Integer tagsCode : tagsCodeSet) {
+                Postings postings = this.tagTable.get(tagsCode);
+                if (null == postings) {
+                    continue;
+                }
+                if (fromOffset < postings.beginOffset) {
+                    return -1;
+                }
+                long offset = postings.ceiling(fromOffset);
+                if (offset >= 0 && offset < nextOffset) {
+                    nextOffset = offset;
+                }
+            }
+            return nextOffset;
+        }
+    }
+
+    /**
+     * Ascending offsets of one tags code, complete from beginOffset on.
+     */
+    static class Postings {
+        private long beginOffset;
+        private long[] offsets;
+        private int head = 0;
+        private int size = 0;
+
+        Postings(final long beginOffset) {
+            this.beginOffset = beginOffset;
+        }
+
+        void add(final long offset, final int maxSize) {
+            if (null == this.offsets) {
+                this.offsets = new long[Math.min(INITIAL_POSTING_CAPACITY, maxSize)];
+            } else if (this.size == this.offsets.length) {
+                if (this.size < maxSize) {
+                    long[] newOffsets = new long[Math.min(this.size * 2, maxSize)];
+                    for (int i = 0; i < this.size; i++) {
+                        newOffsets[i] = get(i);
+                    }
+                    this.offsets = newOffsets;
+                    this.head = 0;
+                } else {
+                    this.beginOffset = this.offsets[this.head] + 1;
+                    this.head = (this.head + 1) % this.offsets.length;
+                    this.size--;
+                }
+            }
+            this.offsets[(this.head + this.size) % this.offsets.length] = offset;
+            this.size++;
+        }
+
+        long lastOffset() {
+            return get(this.size - 1);
+        }
+
+        long bytes() {
+            return POSTINGS_OVERHEAD_BYTES + (null == this.offsets ? 0 : 8L * this.offsets.length);
+        }
+
+        /**
+         * @return the least offset not below fromOffset, -1 if none
+         */
+        long ceiling(final long fromOffset) {
+            int low = 0;
+            int high = this.size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (get(mid) < fromOffset) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low < this.size ? get(low) : -1;
+        }
+
+        private long get(final int index) {
+            return this.offsets[(this.head + index) % this.offsets.length];
+        }
+    }
+}
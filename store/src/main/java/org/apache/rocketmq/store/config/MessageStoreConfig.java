@@ -114,10 +114,26 @@ public class MessageStoreConfig {
     private int maxMsgsNumBatch = 64;
     @ImportantField
     private boolean messageIndexSafe = false;
+    /**
+     * Keep the recent consume queue offsets of every tags code in memory, so that pulls subscribing rare tags
+     * jump to the matching offsets instead of scanning the consume queue entry by entry. A queue takes up to about
+     * maxTagsPerQueue * maxOffsetsPerTag * 8 bytes, 512 KB by default; all the queues together are kept within
+     * tagPostingIndexMaxBytes by dropping the queues written least recently.
+     */
+    private boolean tagPostingIndexEnable = false;
+    private int tagPostingIndexMaxTagsPerQueue = 64;
+    private int tagPostingIndexMaxOffsetsPerTag = 1024;
+    private long tagPostingIndexMaxBytes = 64 * 1024 * 1024;
     private int haListenPort = 10912;
     private int haSendHeartbeatInterval = 1000 * 5;
     private int haHousekeepingInterval = 1000 * 20;
     private int haTransferBatchSize = 1024 * 32;
+    /**
+     * When the slave is behind by whole sealed CommitLog files, ship them with FileChannel#transferTo
+     * in chunks of haBulkTransferBatchSize instead of copying haTransferBatchSize units from mmap.
+     */
+    private boolean haBulkTransferEnable = true;
+    private int haBulkTransferBatchSize = 1024 * 1024;
     @ImportantField
     private String haMasterAddress = null;
     private int haSlaveFallbehindMax = 1024 * 1024 * 256;
@@ -500,6 +516,22 @@ public class MessageStoreConfig {
         this.haTransferBatchSize = haTransferBatchSize;
     }
 
+    public boolean isHaBulkTransferEnable() {
+        return haBulkTransferEnable;
+    }
+
+    public void setHaBulkTransferEnable(boolean haBulkTransferEnable) {
+        this.haBulkTransferEnable = haBulkTransferEnable;
+    }
+
+    public int getHaBulkTransferBatchSize() {
+        return haBulkTransferBatchSize;
+    }
+
+    public void setHaBulkTransferBatchSize(int haBulkTransferBatchSize) {
+        this.haBulkTransferBatchSize = haBulkTransferBatchSize;
+    }
+
     public int getHaSlaveFallbehindMax() {
         return haSlaveFallbehindMax;
     }
@@ -702,4 +734,36 @@ public class MessageStoreConfig {
     public void setEnableDLegerCommitLog(boolean enableDLegerCommitLog) {
         this.enableDLegerCommitLog = enableDLegerCommitLog;
     }
+
+    public boolean isTagPostingIndexEnable() {
+        return tagPostingIndexEnable;
+    }
+
+    public void setTagPostingIndexEnable(boolean tagPostingIndexEnable) {
+        this.tagPostingIndexEnable = tagPostingIndexEnable;
+    }
+
+    public int getTagPostingIndexMaxTagsPerQueue() {
+        return tagPostingIndexMaxTagsPerQueue;
+    }
+
+    public void setTagPostingIndexMaxTagsPerQueue(int tagPostingIndexMaxTagsPerQueue) {
+        this.tagPostingIndexMaxTagsPerQueue = tagPostingIndexMaxTagsPerQueue;
+    }
+
+    public long getTagPostingIndexMaxBytes() {
+        return tagPostingIndexMaxBytes;
+    }
+
+    public void setTagPostingIndexMaxBytes(long tagPostingIndexMaxBytes) {
+        this.tagPostingIndexMaxBytes = tagPostingIndexMaxBytes;
+    }
+
+    public int getTagPostingIndexMaxOffsetsPerTag() {
+        return tagPostingIndexMaxOffsetsPerTag;
+    }
+
+    public void setTagPostingIndexMaxOffsetsPerTag(int tagPostingIndexMaxOffsetsPerTag) {
+        this.tagPostingIndexMaxOffsetsPerTag = tagPostingIndexMaxOffsetsPerTag;
+    }
 }
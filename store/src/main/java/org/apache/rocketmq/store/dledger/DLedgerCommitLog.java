@@ -29,8 +29,13 @@ import io.openmessaging.storage.dledger.store.file.MmapFileList;
 import io.openmessaging.storage.dledger.store.file.SelectMmapBufferResult;
 import io.openmessaging.storage.dledger.utils.DLedgerUtils;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
 import org.apache.rocketmq.common.UtilAll;
 import org.apache.rocketmq.common.message.MessageAccessor;
 import org.apache.rocketmq.common.message.MessageConst;
@@ -54,10 +59,15 @@ import org.apache.rocketmq.store.schedule.ScheduleMessageService;
  * Store all metadata downtime for recovery, data protection reliability
  */
 public class DLedgerCommitLog extends CommitLog {
+    private static final int MAPPED_FILE_SLOTS = 64;
+
     private final DLedgerServer dLedgerServer;
     private final DLedgerConfig dLedgerConfig;
     private final DLedgerMmapFileStore dLedgerFileStore;
     private final MmapFileList dLedgerFileList;
+    private final int mappedFileSize;
+    //Offset to file translation of the files read recently, slot by file index modulo MAPPED_FILE_SLOTS
+    private final AtomicReferenceArray<MmapFile> mappedFileSlots = new AtomicReferenceArray<>(MAPPED_FILE_SLOTS);
 
     //The id identifies the broker role, 0 means master, others means slave
     private final int id;
@@ -65,6 +75,11 @@ public class DLedgerCommitLog extends CommitLog {
     private final MessageSerializer messageSerializer;
     private volatile long beginTimeInDledgerLock = 0;
 
+    //The highest index acknowledged by the quorum in pendingTerm, the entries above it may still be pending in dledger
+    private final AtomicLong ackedIndex = new AtomicLong(-1);
+    //Guarded by the put message lock
+    private long pendingTerm = -1;
+
     //This offset separate the old commitlog from dledger commitlog
     private long dividedCommitlogOffset = -1;
 
@@ -93,6 +108,7 @@ public class DLedgerCommitLog extends CommitLog {
         };
         dLedgerFileStore.addAppendHook(appendHook);
         dLedgerFileList = dLedgerFileStore.getDataFileList();
+        mappedFileSize = dLedgerConfig.getMappedFileSizeForEntryData();
         this.messageSerializer = new MessageSerializer(defaultMessageStore.getMessageStoreConfig().getMaxMessageSize());
 
     }
@@ -241,8 +257,7 @@ public class DLedgerCommitLog extends CommitLog {
         if (offset >= dLedgerFileStore.getCommittedPos()) {
             return null;
         }
-        int mappedFileSize = this.dLedgerServer.getdLedgerConfig().getMappedFileSizeForEntryData();
-        MmapFile mappedFile = this.dLedgerFileList.findMappedFileByOffset(offset, returnFirstOnNotFound);
+        MmapFile mappedFile = this.findMappedFileByOffset(offset, returnFirstOnNotFound);
         if (mappedFile != null) {
             int pos = (int) (offset % mappedFileSize);
             SelectMmapBufferResult sbr = mappedFile.selectMappedBuffer(pos);
@@ -370,7 +385,7 @@ public class DLedgerCommitLog extends CommitLog {
         msg.setStoreTimestamp(System.currentTimeMillis());
         // Set the message body BODY CRC (consider the most appropriate setting
         // on the client)
-        msg.setBodyCRC(UtilAll.crc32(msg.getBody()));
+        msg.setBodyCRC(msg.getBodyBuffer() != null ? UtilAll.crc32(msg.getBodyBuffer()) : UtilAll.crc32(msg.getBody()));
 
         StoreStatsService storeStatsService = this.defaultMessageStore.getStoreStatsService();
 
@@ -415,11 +430,7 @@ public class DLedgerCommitLog extends CommitLog {
             if (encodeResult.status  != AppendMessageStatus.PUT_OK) {
                 return new PutMessageResult(PutMessageStatus.MESSAGE_ILLEGAL, new AppendMessageResult(encodeResult.status));
             }
-            AppendEntryRequest request = new AppendEntryRequest();
-            request.setGroup(dLedgerConfig.getGroup());
-            request.setRemoteId(dLedgerServer.getMemberState().getSelfId());
-            request.setBody(encodeResult.data);
-            dledgerFuture = (AppendFuture<AppendEntryResponse>) dLedgerServer.handleAppend(request);
+            dledgerFuture = appendEntry(encodeResult.data);
             if (dledgerFuture.getPos() == -1) {
                 return new PutMessageResult(PutMessageStatus.OS_PAGECACHE_BUSY, new AppendMessageResult(AppendMessageStatus.UNKNOWN_ERROR));
             }
@@ -449,30 +460,13 @@ public class DLedgerCommitLog extends CommitLog {
         }
 
         if (elapsedTimeInLock > 500) {
-            log.warn("[NOTIFYME]putMessage in lock cost time(ms)={}, bodyLength={} AppendMessageResult={}", elapsedTimeInLock, msg.getBody().length, appendResult);
+            log.warn("[NOTIFYME]putMessage in lock cost time(ms)={}, bodyLength={} AppendMessageResult={}", elapsedTimeInLock, msg.getBodyLength(), appendResult);
         }
 
         PutMessageStatus putMessageStatus = PutMessageStatus.UNKNOWN_ERROR;
         try {
             AppendEntryResponse appendEntryResponse = dledgerFuture.get(3, TimeUnit.SECONDS);
-            switch (DLedgerResponseCode.valueOf(appendEntryResponse.getCode())) {
-                case SUCCESS:
-                    putMessageStatus = PutMessageStatus.PUT_OK;
-                    break;
-                case INCONSISTENT_LEADER:
-                case NOT_LEADER:
-                case LEADER_NOT_READY:
-                case DISK_FULL:
-                    putMessageStatus = PutMessageStatus.SERVICE_NOT_AVAILABLE;
-                    break;
-                case WAIT_QUORUM_ACK_TIMEOUT:
-                    //Do not return flush_slave_timeout to the client, for the ons client will ignore it.
-                    putMessageStatus = PutMessageStatus.OS_PAGECACHE_BUSY;
-                    break;
-                case LEADER_PENDING_FULL:
-                    putMessageStatus = PutMessageStatus.OS_PAGECACHE_BUSY;
-                    break;
-            }
+            putMessageStatus = toPutMessageStatus(appendEntryResponse);
         } catch (Throwable t) {
             log.error("Failed to get dledger append result", t);
         }
@@ -486,9 +480,209 @@ public class DLedgerCommitLog extends CommitLog {
         return putMessageResult;
     }
 
+    /**
+     * Every message of the batch becomes its own DLedger entry, so the reput and the append hook keep working on
+     * CommitLog-compatible entries. All entries are handed to DLedger back-to-back in one lock hold and their
+     * replication overlaps; the caller only waits once, after the lock is released.
+     * <p>
+     * The batch is refused as a whole when dledger does not have pending room for all of its entries, so it is never
+     * cut short: a client would not learn which messages were stored.
+     */
     @Override
     public PutMessageResult putMessages(final MessageExtBatch messageExtBatch) {
-        return new PutMessageResult(PutMessageStatus.MESSAGE_ILLEGAL, null);
+        final int tranType = MessageSysFlag.getTransactionValue(messageExtBatch.getSysFlag());
+        if (tranType != MessageSysFlag.TRANSACTION_NOT_TYPE) {
+            return new PutMessageResult(PutMessageStatus.MESSAGE_ILLEGAL, null);
+        }
+        if (messageExtBatch.getDelayTimeLevel() > 0) {
+            return new PutMessageResult(PutMessageStatus.MESSAGE_ILLEGAL, null);
+        }
+
+        // Set the storage time
+        messageExtBatch.setStoreTimestamp(System.currentTimeMillis());
+
+        StoreStatsService storeStatsService = this.defaultMessageStore.getStoreStatsService();
+
+        String queueOffsetKey = messageExtBatch.getTopic() + "-" + messageExtBatch.getQueueId();
+        List<AppendFuture<AppendEntryResponse>> dledgerFutures = new ArrayList<AppendFuture<AppendEntryResponse>>();
+        AppendMessageResult appendResult;
+        PutMessageStatus putMessageStatus = PutMessageStatus.PUT_OK;
+
+        ByteBuffer messagesByteBuff;
+        try {
+            messagesByteBuff = batchEncoderThreadLocal.get().encode(messageExtBatch);
+        } catch (Exception e) {
+            log.warn("Encode batch message error", e);
+            return new PutMessageResult(PutMessageStatus.MESSAGE_ILLEGAL, new AppendMessageResult(AppendMessageStatus.MESSAGE_SIZE_EXCEEDED));
+        }
+
+        int msgNum = 0;
+        for (int pos = messagesByteBuff.position(); pos < messagesByteBuff.limit(); pos += messagesByteBuff.getInt(pos)) {
+            msgNum++;
+        }
+
+        putMessageLock.lock(); //spin or ReentrantLock ,depending on store config
+        long elapsedTimeInLock;
+        try {
+            beginTimeInDledgerLock = this.defaultMessageStore.getSystemClock().now();
+            if (!hasPendingRoom(msgNum)) {
+                return new PutMessageResult(PutMessageStatus.OS_PAGECACHE_BUSY, new AppendMessageResult(AppendMessageStatus.UNKNOWN_ERROR));
+            }
+            Long queueOffset = topicQueueTable.get(queueOffsetKey);
+            if (null == queueOffset) {
+                queueOffset = 0L;
+            }
+            long beginQueueOffset = queueOffset;
+            long wroteOffset = -1;
+            int totalMsgLen = 0;
+            ByteBuffer buffer = ByteBuffer.allocate(MessageDecoder.MSG_ID_LENGTH);
+            ByteBuffer storeHostBytes = messageExtBatch.getStoreHostBytes();
+            StringBuilder msgIdBuilder = new StringBuilder();
+            while (messagesByteBuff.hasRemaining()) {
+                final int msgPos = messagesByteBuff.position();
+                final int msgLen = messagesByteBuff.getInt(msgPos);
+                // QUEUEOFFSET, the PHYSICALOFFSET is filled by the append hook
+                messagesByteBuff.putLong(msgPos + 20, queueOffset);
+                byte[] data = new byte[msgLen];
+                messagesByteBuff.get(data);
+
+                AppendFuture<AppendEntryResponse> dledgerFuture = appendEntry(data);
+                if (dledgerFuture.getPos() == -1) {
+                    if (dledgerFutures.isEmpty()) {
+                        putMessageStatus = PutMessageStatus.OS_PAGECACHE_BUSY;
+                    } else {
+                        // Not expected as the room is checked above, fail the batch rather than report a partial one as sent
+                        log.error("[BATCHMESSAGE] dledger pending full, only {} of {} messages appended, topic={} queueId={}",
+                            dledgerFutures.size(), msgNum, messageExtBatch.getTopic(), messageExtBatch.getQueueId());
+                        putMessageStatus = PutMessageStatus.UNKNOWN_ERROR;
+                    }
+                    break;
+                }
+                dledgerFutures.add(dledgerFuture);
+
+                long msgWroteOffset = dledgerFuture.getPos() + DLedgerEntry.BODY_OFFSET;
+                if (wroteOffset < 0) {
+                    wroteOffset = msgWroteOffset;
+                }
+                storeHostBytes.rewind();
+                String msgId = MessageDecoder.createMessageId(buffer, storeHostBytes, msgWroteOffset);
+                if (msgIdBuilder.length() > 0) {
+                    msgIdBuilder.append(',');
+                }
+                msgIdBuilder.append(msgId);
+                totalMsgLen += msgLen;
+                queueOffset++;
+            }
+            // The entries handed to dledger are kept even when the batch is cut short, so their queue offsets are used up
+            topicQueueTable.put(queueOffsetKey, queueOffset);
+            if (dledgerFutures.isEmpty()) {
+                return new PutMessageResult(putMessageStatus, new AppendMessageResult(AppendMessageStatus.UNKNOWN_ERROR));
+            }
+            elapsedTimeInLock = this.defaultMessageStore.getSystemClock().now() - beginTimeInDledgerLock;
+            appendResult = new AppendMessageResult(AppendMessageStatus.PUT_OK, wroteOffset, totalMsgLen, msgIdBuilder.toString(),
+                System.currentTimeMillis(), beginQueueOffset, elapsedTimeInLock);
+            appendResult.setMsgNum(dledgerFutures.size());
+        } catch (Exception e) {
+            log.error("Put messages error", e);
+            return new PutMessageResult(PutMessageStatus.UNKNOWN_ERROR, new AppendMessageResult(AppendMessageStatus.UNKNOWN_ERROR));
+        } finally {
+            beginTimeInDledgerLock = 0;
+            putMessageLock.unlock();
+        }
+
+        if (elapsedTimeInLock > 500) {
+            log.warn("[NOTIFYME]putMessages in lock cost time(ms)={}, bodyLength={} AppendMessageResult={}", elapsedTimeInLock, messageExtBatch.getBody().length, appendResult);
+        }
+
+        long deadline = System.currentTimeMillis() + 3000;
+        for (AppendFuture<AppendEntryResponse> dledgerFuture : dledgerFutures) {
+            if (putMessageStatus != PutMessageStatus.PUT_OK) {
+                break;
+            }
+            try {
+                long waitTime = Math.max(deadline - System.currentTimeMillis(), 0);
+                putMessageStatus = toPutMessageStatus(dledgerFuture.get(waitTime, TimeUnit.MILLISECONDS));
+            } catch (Throwable t) {
+                log.error("Failed to get dledger append result", t);
+                putMessageStatus = PutMessageStatus.UNKNOWN_ERROR;
+            }
+        }
+
+        PutMessageResult putMessageResult = new PutMessageResult(putMessageStatus, appendResult);
+        if (putMessageStatus == PutMessageStatus.PUT_OK) {
+            // Statistics
+            storeStatsService.getSinglePutMessageTopicTimesTotal(messageExtBatch.getTopic()).addAndGet(appendResult.getMsgNum());
+            storeStatsService.getSinglePutMessageTopicSizeTotal(messageExtBatch.getTopic()).addAndGet(appendResult.getWroteBytes());
+        }
+        return putMessageResult;
+    }
+
+    /**
+     * Called with the put message lock held. Entries are only appended under the lock, so the entries above the acked
+     * index are an upper bound of the pending requests of dledger, which only go down while the lock is held.
+     */
+    private boolean hasPendingRoom(final int entries) {
+        syncPendingTerm();
+        long pending = dLedgerFileStore.getLedgerEndIndex() - ackedIndex.get();
+        return pending + entries <= dLedgerConfig.getMaxPendingRequestsNum();
+    }
+
+    private void syncPendingTerm() {
+        long term = dLedgerServer.getMemberState().currTerm();
+        if (term != pendingTerm) {
+            // The entries of an earlier term are not pending in this one
+            pendingTerm = term;
+            ackedIndex.set(dLedgerFileStore.getLedgerEndIndex());
+        }
+    }
+
+    /**
+     * Hand one entry to dledger, called with the put message lock held.
+     */
+    private AppendFuture<AppendEntryResponse> appendEntry(final byte[] body) {
+        syncPendingTerm();
+        AppendEntryRequest request = new AppendEntryRequest();
+        request.setGroup(dLedgerConfig.getGroup());
+        request.setRemoteId(dLedgerServer.getMemberState().getSelfId());
+        request.setBody(body);
+        AppendFuture<AppendEntryResponse> dledgerFuture = (AppendFuture<AppendEntryResponse>) dLedgerServer.handleAppend(request);
+        if (dledgerFuture.getPos() != -1) {
+            dledgerFuture.thenAccept(new Consumer<AppendEntryResponse>() {
+                @Override
+                public void accept(AppendEntryResponse response) {
+                    if (response.getCode() == DLedgerResponseCode.SUCCESS.getCode()) {
+                        long acked = ackedIndex.get();
+                        while (response.getIndex() > acked && !ackedIndex.compareAndSet(acked, response.getIndex())) {
+                            acked = ackedIndex.get();
+                        }
+                    }
+                }
+            });
+        }
+        return dledgerFuture;
+    }
+
+    private PutMessageStatus toPutMessageStatus(final AppendEntryResponse appendEntryResponse) {
+        PutMessageStatus putMessageStatus = PutMessageStatus.UNKNOWN_ERROR;
+        switch (DLedgerResponseCode.valueOf(appendEntryResponse.getCode())) {
+            case SUCCESS:
+                putMessageStatus = PutMessageStatus.PUT_OK;
+                break;
+            case INCONSISTENT_LEADER:
+            case NOT_LEADER:
+            case LEADER_NOT_READY:
+            case DISK_FULL:
+                putMessageStatus = PutMessageStatus.SERVICE_NOT_AVAILABLE;
+                break;
+            case WAIT_QUORUM_ACK_TIMEOUT:
+                //Do not return flush_slave_timeout to the client, for the ons client will ignore it.
+                putMessageStatus = PutMessageStatus.OS_PAGECACHE_BUSY;
+                break;
+            case LEADER_PENDING_FULL:
+                putMessageStatus = PutMessageStatus.OS_PAGECACHE_BUSY;
+                break;
+        }
+        return putMessageStatus;
     }
 
 
@@ -498,8 +692,7 @@ public class DLedgerCommitLog extends CommitLog {
         if (offset < dividedCommitlogOffset) {
             return super.getMessage(offset, size);
         }
-        int mappedFileSize = this.dLedgerServer.getdLedgerConfig().getMappedFileSizeForEntryData();
-        MmapFile mappedFile = this.dLedgerFileList.findMappedFileByOffset(offset, offset == 0);
+        MmapFile mappedFile = this.findMappedFileByOffset(offset, offset == 0);
         if (mappedFile != null) {
             int pos = (int) (offset % mappedFileSize);
             return  convertSbr(mappedFile.selectMappedBuffer(pos, size));
@@ -507,6 +700,29 @@ public class DLedgerCommitLog extends CommitLog {
         return null;
     }
 
+    /**
+     * Translate the offset through the slot of its file, and look up the file in the dledger file list only on a miss.
+     * The files are contiguous from offset 0, so the slot holds the right file when its from offset matches; a cached
+     * file that has been destroyed meanwhile, e.g. by truncation, is not available any more and falls back to the
+     * lookup.
+     */
+    private MmapFile findMappedFileByOffset(final long offset, final boolean returnFirstOnNotFound) {
+        long fileFromOffset = offset - offset % mappedFileSize;
+        MmapFile mappedFile = this.mappedFileSlots.get(slotOf(fileFromOffset));
+        if (mappedFile != null && mappedFile.getFileFromOffset() == fileFromOffset && mappedFile.isAvailable()) {
+            return mappedFile;
+        }
+        mappedFile = this.dLedgerFileList.findMappedFileByOffset(offset, returnFirstOnNotFound);
+        if (mappedFile != null) {
+            this.mappedFileSlots.set(slotOf(mappedFile.getFileFromOffset()), mappedFile);
+        }
+        return mappedFile;
+    }
+
+    private int slotOf(final long fileFromOffset) {
+        return (int) ((fileFromOffset / mappedFileSize) % MAPPED_FILE_SLOTS);
+    }
+
     @Override
     public long rollNextFile(final long offset) {
         int mappedFileSize = this.defaultMessageStore.getMessageStoreConfig().getMappedFileSizeCommitLog();
@@ -526,6 +742,9 @@ public class DLedgerCommitLog extends CommitLog {
     @Override
     public void destroy() {
         super.destroy();
+        for (int i = 0; i < MAPPED_FILE_SLOTS; i++) {
+            mappedFileSlots.set(i, null);
+        }
         dLedgerFileList.destroy();
     }
 
@@ -642,7 +861,7 @@ public class DLedgerCommitLog extends CommitLog {
             final byte[] topicData = msgInner.getTopic().getBytes(MessageDecoder.CHARSET_UTF8);
             final int topicLength = topicData.length;
 
-            final int bodyLength = msgInner.getBody() == null ? 0 : msgInner.getBody().length;
+            final int bodyLength = msgInner.getBodyLength();
 
             final int msgLen = calMsgLength(bodyLength, topicLength, propertiesLength);
 
@@ -687,7 +906,9 @@ public class DLedgerCommitLog extends CommitLog {
             this.msgStoreItemMemory.putLong(msgInner.getPreparedTransactionOffset());
             // 15 BODY
             this.msgStoreItemMemory.putInt(bodyLength);
-            if (bodyLength > 0) {
+            if (msgInner.getBodyBuffer() != null) {
+                this.msgStoreItemMemory.put(msgInner.getBodyBuffer().duplicate());
+            } else if (bodyLength > 0) {
                 this.msgStoreItemMemory.put(msgInner.getBody());
             }
             // 16 TOPIC
@@ -18,6 +18,7 @@ package org.apache.rocketmq.store.ha;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.SocketChannel;
@@ -26,7 +27,9 @@ import org.apache.rocketmq.common.constant.LoggerName;
 import org.apache.rocketmq.logging.InternalLogger;
 import org.apache.rocketmq.logging.InternalLoggerFactory;
 import org.apache.rocketmq.remoting.common.RemotingUtil;
+import org.apache.rocketmq.store.MappedFile;
 import org.apache.rocketmq.store.SelectMappedBufferResult;
+import org.apache.rocketmq.store.config.MessageStoreConfig;
 
 public class HAConnection {
     private static final InternalLogger log = InternalLoggerFactory.getLogger(LoggerName.STORE_LOGGER_NAME);
@@ -198,6 +201,13 @@ public class HAConnection {
         private final ByteBuffer byteBufferHeader = ByteBuffer.allocate(headerSize);
         private long nextTransferFromWhere = -1;
         private SelectMappedBufferResult selectMappedBufferResult;
+        /**
+         * Bulk catch-up state, only valid when selectMappedBufferResult points into a sealed file:
+         * the body is sent by FileChannel#transferTo instead of writing the mapped buffer.
+         */
+        private FileChannel bulkFileChannel;
+        private long bulkFilePosition;
+        private long bulkRemaining;
         private boolean lastWriteOver = true;
         private long lastWriteTimestamp = System.currentTimeMillis();
 
@@ -270,9 +280,12 @@ public class HAConnection {
                     SelectMappedBufferResult selectResult =
                         HAConnection.this.haService.getDefaultMessageStore().getCommitLogData(this.nextTransferFromWhere);
                     if (selectResult != null) {
+                        MessageStoreConfig messageStoreConfig = HAConnection.this.haService.getDefaultMessageStore().getMessageStoreConfig();
+                        boolean bulk = messageStoreConfig.isHaBulkTransferEnable() && this.isSealed(selectResult);
+                        int batchSize = bulk ? this.bulkTransferBatchSize(messageStoreConfig) : messageStoreConfig.getHaTransferBatchSize();
                         int size = selectResult.getSize();
-                        if (size > HAConnection.this.haService.getDefaultMessageStore().getMessageStoreConfig().getHaTransferBatchSize()) {
-                            size = HAConnection.this.haService.getDefaultMessageStore().getMessageStoreConfig().getHaTransferBatchSize();
+                        if (size > batchSize) {
+                            size = batchSize;
                         }
 
                         long thisOffset = this.nextTransferFromWhere;
@@ -280,6 +293,12 @@ public class HAConnection {
 
                         selectResult.getByteBuffer().limit(size);
                         this.selectMappedBufferResult = selectResult;
+                        if (bulk) {
+                            MappedFile mappedFile = selectResult.getMappedFile();
+                            this.bulkFileChannel = mappedFile.getFileChannel();
+                            this.bulkFilePosition = thisOffset - mappedFile.getFileFromOffset();
+                            this.bulkRemaining = size;
+                        }
 
                         // Build Header
                         this.byteBufferHeader.position(0);
@@ -350,6 +369,10 @@ public class HAConnection {
 
             writeSizeZeroTimes = 0;
 
+            if (this.bulkFileChannel != null) {
+                return this.transferBulkData();
+            }
+
             // Write Body
             if (!this.byteBufferHeader.hasRemaining()) {
                 while (this.selectMappedBufferResult.getByteBuffer().hasRemaining()) {
@@ -377,6 +400,54 @@ public class HAConnection {
             return result;
         }
 
+        private boolean transferBulkData() throws Exception {
+            int writeSizeZeroTimes = 0;
+
+            // Write Body, zero-copy from the page cache of the sealed file
+            if (!this.byteBufferHeader.hasRemaining()) {
+                while (this.bulkRemaining > 0) {
+                    long writeSize = this.bulkFileChannel.transferTo(this.bulkFilePosition, this.bulkRemaining, this.socketChannel);
+                    if (writeSize > 0) {
+                        writeSizeZeroTimes = 0;
+                        this.bulkFilePosition += writeSize;
+                        this.bulkRemaining -= writeSize;
+                        this.lastWriteTimestamp = HAConnection.this.haService.getDefaultMessageStore().getSystemClock().now();
+                    } else if (writeSize == 0) {
+                        if (++writeSizeZeroTimes >= 3) {
+                            break;
+                        }
+                    } else {
+                        throw new Exception("ha master transfer body error < 0");
+                    }
+                }
+            }
+
+            boolean result = !this.byteBufferHeader.hasRemaining() && this.bulkRemaining == 0;
+
+            if (this.bulkRemaining == 0) {
+                this.bulkFileChannel = null;
+                this.selectMappedBufferResult.release();
+                this.selectMappedBufferResult = null;
+            }
+
+            return result;
+        }
+
+        /**
+         * A file that is full will never be written again, so its bytes can be sent straight from the file channel.
+         * The active file keeps using the mapped buffer path.
+         */
+        private boolean isSealed(final SelectMappedBufferResult selectResult) {
+            MappedFile mappedFile = selectResult.getMappedFile();
+            return mappedFile != null && mappedFile.isFull();
+        }
+
+        private int bulkTransferBatchSize(final MessageStoreConfig messageStoreConfig) {
+            // the slave must be able to hold one whole transfer unit plus its header in its read buffer
+            int maxSize = HAService.HAClient.READ_MAX_BUFFER_SIZE / 2;
+            return Math.max(messageStoreConfig.getHaTransferBatchSize(), Math.min(messageStoreConfig.getHaBulkTransferBatchSize(), maxSize));
+        }
+
         @Override
         public String getServiceName() {
             return WriteSocketService.class.getSimpleName();
@@ -56,6 +56,9 @@ public class BrokerStatsManager {
     public static final String GROUP_GET_FALL_TIME = "GROUP_GET_FALL_TIME";
     // Pull Message Latency
     public static final String GROUP_GET_LATENCY = "GROUP_GET_LATENCY";
+    // Long polling
+    public static final String BROKER_PULL_HOLD_NUMS = "BROKER_PULL_HOLD_NUMS";
+    public static final String PULL_WAKEUP_LATENCY = "PULL_WAKEUP_LATENCY";
 
     /**
      * read disk follow stats
@@ -70,6 +73,7 @@ public class BrokerStatsManager {
     private final String clusterName;
     private final MomentStatsItemSet momentStatsItemSetFallSize = new MomentStatsItemSet(GROUP_GET_FALL_SIZE, scheduledExecutorService, log);
     private final MomentStatsItemSet momentStatsItemSetFallTime = new MomentStatsItemSet(GROUP_GET_FALL_TIME, scheduledExecutorService, log);
+    private final MomentStatsItemSet momentStatsItemSetPullHoldNums = new MomentStatsItemSet(BROKER_PULL_HOLD_NUMS, scheduledExecutorService, log);
 
     public BrokerStatsManager(String clusterName) {
         this.clusterName = clusterName;
@@ -79,6 +83,7 @@ public class BrokerStatsManager {
         this.statsTable.put(GROUP_GET_NUMS, new StatsItemSet(GROUP_GET_NUMS, this.scheduledExecutorService, log));
         this.statsTable.put(GROUP_GET_SIZE, new StatsItemSet(GROUP_GET_SIZE, this.scheduledExecutorService, log));
         this.statsTable.put(GROUP_GET_LATENCY, new StatsItemSet(GROUP_GET_LATENCY, this.scheduledExecutorService, log));
+        this.statsTable.put(PULL_WAKEUP_LATENCY, new StatsItemSet(PULL_WAKEUP_LATENCY, this.scheduledExecutorService, log));
         this.statsTable.put(SNDBCK_PUT_NUMS, new StatsItemSet(SNDBCK_PUT_NUMS, this.scheduledExecutorService, log));
         this.statsTable.put(BROKER_PUT_NUMS, new StatsItemSet(BROKER_PUT_NUMS, this.scheduledExecutorService, log));
         this.statsTable.put(BROKER_GET_NUMS, new StatsItemSet(BROKER_GET_NUMS, this.scheduledExecutorService, log));
@@ -156,6 +161,21 @@ public class BrokerStatsManager {
         this.statsTable.get(GROUP_GET_LATENCY).addValue(statsKey, incValue, 1);
     }
 
+    /**
+     * @param wakeupType why the held pull request was woken up, message arriving or timeout
+     */
+    public void incPullWakeupLatency(final String wakeupType, final int latency) {
+        this.statsTable.get(PULL_WAKEUP_LATENCY).addValue(wakeupType, latency, 1);
+    }
+
+    public void recordPullHoldNums(final long holdNums) {
+        this.momentStatsItemSetPullHoldNums.getAndCreateStatsItem(this.clusterName).getValue().set(holdNums);
+    }
+
+    public MomentStatsItemSet getMomentStatsItemSetPullHoldNums() {
+        return momentStatsItemSetPullHoldNums;
+    }
+
     public void incBrokerPutNums() {
         this.statsTable.get(BROKER_PUT_NUMS).getAndCreateStatsItem(this.clusterName).getValue().incrementAndGet();
     }
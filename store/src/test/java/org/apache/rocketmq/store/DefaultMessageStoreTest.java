@@ -33,7 +33,9 @@ import java.util.Random;
 import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.rocketmq.common.BrokerConfig;
 import org.apache.rocketmq.common.UtilAll;
+import org.apache.rocketmq.common.message.MessageDecoder;
 import org.apache.rocketmq.common.message.MessageExt;
+import org.apache.rocketmq.common.protocol.heartbeat.SubscriptionData;
 import org.apache.rocketmq.store.config.FlushDiskType;
 import org.apache.rocketmq.store.config.MessageStoreConfig;
 import org.apache.rocketmq.store.config.StorePathConfigHelper;
@@ -149,6 +151,28 @@ public class DefaultMessageStoreTest {
         assertThat(new String(messageExt1.getBody())).isEqualTo(buildMessageBodyByOffset(StoreMessage, firstOffset));
     }
 
+    @Test
+    public void should_look_message_successfully_when_body_is_put_from_buffer() {
+        MessageBody = StoreMessage.getBytes();
+        byte[] body = StoreMessage.getBytes();
+        ByteBuffer bodyBuffer = ByteBuffer.allocateDirect(body.length + 4);
+        bodyBuffer.putInt(0).put(body).flip();
+        bodyBuffer.position(4);
+
+        MessageExtBrokerInner msg = buildMessage();
+        msg.setBodyBuffer(bodyBuffer);
+        AppendMessageResult bufferResult = messageStore.putMessage(msg).getAppendMessageResult();
+        AppendMessageResult arrayResult = messageStore.putMessage(buildMessage()).getAppendMessageResult();
+
+        assertThat(bodyBuffer.position()).isEqualTo(4);
+        MessageExt messageExt = getDefaultMessageStore().lookMessageByOffset(bufferResult.getWroteOffset(), bufferResult.getWroteBytes());
+        assertThat(messageExt.getBody()).isEqualTo(body);
+        assertThat(messageExt.getBodyCRC()).isEqualTo(UtilAll.crc32(body));
+        assertThat(messageExt.getTopic()).isEqualTo("FooBar");
+        MessageExt nextMessageExt = getDefaultMessageStore().lookMessageByOffset(arrayResult.getWroteOffset(), arrayResult.getWroteBytes());
+        assertThat(nextMessageExt.getBody()).isEqualTo(MessageBody);
+    }
+
     @Test
     public void should_look_message_successfully_when_offset_is_last() {
         final int totalCount = 10;
@@ -353,6 +377,56 @@ public class DefaultMessageStoreTest {
         assertThat(storeTime).isEqualTo(-1);
     }
 
+    @Test
+    public void testGetMessage_withTagPostingIndex() {
+        getDefaultMessageStore().getMessageStoreConfig().setTagPostingIndexEnable(true);
+        String topic = "FooBar";
+        int queueId = 0;
+        for (int i = 0; i < 2000; i++) {
+            MessageExtBrokerInner msgInner = buildMessage(buildMessageBodyByOffset(StoreMessage, i).getBytes(), topic);
+            msgInner.setQueueId(queueId);
+            msgInner.setTags(i % 1000 == 999 ? "TAG2" : "TAG1");
+            msgInner.setPropertiesString(MessageDecoder.messageProperties2String(msgInner.getProperties()));
+            PutMessageResult result = messageStore.putMessage(msgInner);
+            assertThat(result.getPutMessageStatus()).isEqualTo(PutMessageStatus.PUT_OK);
+        }
+        StoreTestUtil.waitCommitLogReput(getDefaultMessageStore());
+
+        SubscriptionData subscriptionData = new SubscriptionData(topic, "TAG2");
+        subscriptionData.getTagsSet().add("TAG2");
+        subscriptionData.getCodeSet().add("TAG2".hashCode());
+        MessageFilter messageFilter = new DefaultMessageFilter(subscriptionData);
+
+        // scanning gives up before reaching the first TAG2 message
+        getDefaultMessageStore().getMessageStoreConfig().setTagPostingIndexEnable(false);
+        GetMessageResult result = messageStore.getMessage("GROUP_A", topic, queueId, 0, 32, messageFilter);
+        assertThat(result.getStatus()).isEqualTo(GetMessageStatus.NO_MATCHED_MESSAGE);
+        assertThat(result.getNextBeginOffset()).isEqualTo(800);
+        result.release();
+
+        getDefaultMessageStore().getMessageStoreConfig().setTagPostingIndexEnable(true);
+        result = messageStore.getMessage("GROUP_A", topic, queueId, 0, 32, messageFilter);
+        assertThat(result.getStatus()).isEqualTo(GetMessageStatus.FOUND);
+        assertThat(result.getMessageCount()).isEqualTo(2);
+        assertThat(result.getNextBeginOffset()).isEqualTo(2000);
+        result.release();
+
+        result = messageStore.getMessage("GROUP_A", topic, queueId, 1000, 32, messageFilter);
+        assertThat(result.getStatus()).isEqualTo(GetMessageStatus.FOUND);
+        assertThat(result.getMessageCount()).isEqualTo(1);
+        assertThat(result.getNextBeginOffset()).isEqualTo(2000);
+        result.release();
+
+        subscriptionData = new SubscriptionData(topic, "TAG3");
+        subscriptionData.getTagsSet().add("TAG3");
+        subscriptionData.getCodeSet().add("TAG3".hashCode());
+        result = messageStore.getMessage("GROUP_A", topic, queueId, 0, 32, new DefaultMessageFilter(subscriptionData));
+        assertThat(result.getStatus()).isEqualTo(GetMessageStatus.NO_MATCHED_MESSAGE);
+        assertThat(result.getMessageCount()).isEqualTo(0);
+        assertThat(result.getNextBeginOffset()).isEqualTo(2000);
+        result.release();
+    }
+
     private DefaultMessageStore getDefaultMessageStore() {
         return (DefaultMessageStore)this.messageStore;
     }
@@ -119,6 +119,38 @@ public class HATest {
         }
     }
 
+    @Test
+    public void testHandleHAWithSealedFiles() {
+        long totalMsgs = 25;
+        QUEUE_TOTAL = 1;
+        MessageBody = new byte[1024 * 1024];
+        for (long i = 0; i < totalMsgs; i++) {
+            messageStore.putMessage(buildMessage());
+        }
+
+        for (int i = 0; i < 100 && slaveMessageStore.getMaxPhyOffset() < messageStore.getMaxPhyOffset(); i++) {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException ignored) {
+            }
+        }
+        assertEquals(messageStore.getMaxPhyOffset(), slaveMessageStore.getMaxPhyOffset());
+
+        for (int i = 0; i < 100 && isCommitLogAvailable((DefaultMessageStore) slaveMessageStore); i++) {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException ignored) {
+            }
+        }
+
+        for (long i = 0; i < totalMsgs; i++) {
+            GetMessageResult result = slaveMessageStore.getMessage("GROUP_A", "FooBar", 0, i, 1024 * 1024, null);
+            assertThat(result).isNotNull();
+            assertTrue(GetMessageStatus.FOUND.equals(result.getStatus()));
+            result.release();
+        }
+    }
+
     @After
     public void destroy() throws Exception{
         Thread.sleep(5000L);
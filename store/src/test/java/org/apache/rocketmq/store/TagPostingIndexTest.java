@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.store;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TagPostingIndexTest {
+    private static final String TOPIC = "FooBar";
+
+    @Test
+    public void testNextMatchedOffset() {
+        TagPostingIndex index = new TagPostingIndex(16, 1024);
+        for (long offset = 100; offset < 200; offset++) {
+            index.putPosting(TOPIC, 0, offset, offset % 10 == 3 ? 2 : 1);
+        }
+
+        Set<Integer> tagsCodeSet = Collections.singleton(2);
+        assertThat(index.nextMatchedOffset(TOPIC, 0, tagsCodeSet, 100)).isEqualTo(103);
+        assertThat(index.nextMatchedOffset(TOPIC, 0, tagsCodeSet, 103)).isEqualTo(103);
+        assertThat(index.nextMatchedOffset(TOPIC, 0, tagsCodeSet, 104)).isEqualTo(113);
+        // no match up to the end of the indexed range
+        assertThat(index.nextMatchedOffset(TOPIC, 0, tagsCodeSet, 194)).isEqualTo(200);
+        // a tags code never seen
+        assertThat(index.nextMatchedOffset(TOPIC, 0, Collections.singleton(3), 150)).isEqualTo(200);
+
+        Set<Integer> bothTagsCodes = new HashSet<Integer>();
+        bothTagsCodes.add(1);
+        bothTagsCodes.add(2);
+        assertThat(index.nextMatchedOffset(TOPIC, 0, bothTagsCodes, 103)).isEqualTo(103);
+        assertThat(index.nextMatchedOffset(TOPIC, 0, bothTagsCodes, 104)).isEqualTo(104);
+
+        // not covered
+        assertThat(index.nextMatchedOffset(TOPIC, 0, tagsCodeSet, 99)).isEqualTo(-1);
+        assertThat(index.nextMatchedOffset(TOPIC, 0, tagsCodeSet, 200)).isEqualTo(-1);
+        assertThat(index.nextMatchedOffset(TOPIC, 1, tagsCodeSet, 100)).isEqualTo(-1);
+        assertThat(index.nextMatchedOffset("BarFoo", 0, tagsCodeSet, 100)).isEqualTo(-1);
+    }
+
+    @Test
+    public void testMaxOffsetsPerTag() {
+        TagPostingIndex index = new TagPostingIndex(16, 4);
+        for (long offset = 0; offset < 100; offset++) {
+            index.putPosting(TOPIC, 0, offset, offset % 10 == 0 ? 2 : 1);
+        }
+
+        Set<Integer> tagsCodeSet = Collections.singleton(2);
+        // only 60, 70, 80 and 90 are kept
+        assertThat(index.nextMatchedOffset(TOPIC, 0, tagsCodeSet, 50)).isEqualTo(-1);
+        assertThat(index.nextMatchedOffset(TOPIC, 0, tagsCodeSet, 51)).isEqualTo(60);
+        assertThat(index.nextMatchedOffset(TOPIC, 0, tagsCodeSet, 81)).isEqualTo(90);
+        // tags code 1 only keeps 96 to 99
+        assertThat(index.nextMatchedOffset(TOPIC, 0, Collections.singleton(1), 95)).isEqualTo(-1);
+        assertThat(index.nextMatchedOffset(TOPIC, 0, Collections.singleton(1), 96)).isEqualTo(96);
+    }
+
+    @Test
+    public void testMaxTagsPerQueue() {
+        TagPostingIndex index = new TagPostingIndex(2, 1024);
+        index.putPosting(TOPIC, 0, 0, 1);
+        index.putPosting(TOPIC, 0, 1, 2);
+        index.putPosting(TOPIC, 0, 2, 1);
+        // evicts tags code 2, absent tags codes are only covered after its last offset
+        index.putPosting(TOPIC, 0, 3, 3);
+        index.putPosting(TOPIC, 0, 4, 1);
+
+        assertThat(index.nextMatchedOffset(TOPIC, 0, Collections.singleton(2), 0)).isEqualTo(-1);
+        assertThat(index.nextMatchedOffset(TOPIC, 0, Collections.singleton(2), 2)).isEqualTo(5);
+        assertThat(index.nextMatchedOffset(TOPIC, 0, Collections.singleton(3), 0)).isEqualTo(-1);
+        assertThat(index.nextMatchedOffset(TOPIC, 0, Collections.singleton(3), 2)).isEqualTo(3);
+        assertThat(index.nextMatchedOffset(TOPIC, 0, Collections.singleton(1), 2)).isEqualTo(2);
+    }
+
+    @Test
+    public void testGapResetsQueue() {
+        TagPostingIndex index = new TagPostingIndex(16, 1024);
+        for (long offset = 0; offset < 10; offset++) {
+            index.putPosting(TOPIC, 0, offset, 1);
+        }
+        index.putPosting(TOPIC, 0, 5, 2);
+
+        assertThat(index.nextMatchedOffset(TOPIC, 0, Collections.singleton(1), 0)).isEqualTo(-1);
+        assertThat(index.nextMatchedOffset(TOPIC, 0, Collections.singleton(1), 5)).isEqualTo(6);
+        assertThat(index.nextMatchedOffset(TOPIC, 0, Collections.singleton(2), 5)).isEqualTo(5);
+
+        index.removeQueue(TOPIC, 0);
+        assertThat(index.nextMatchedOffset(TOPIC, 0, Collections.singleton(2), 5)).isEqualTo(-1);
+    }
+
+    @Test
+    public void testMaxBytes() {
+        // a queue with one tags code and a few offsets takes 96 + 16 * 8 bytes
+        TagPostingIndex index = new TagPostingIndex(16, 1024, 3 * 224);
+        for (int queueId = 0; queueId < 3; queueId++) {
+            index.putPosting(TOPIC, queueId, 0, 1);
+        }
+        assertThat(index.getUsedBytes()).isEqualTo(3 * 224);
+
+        // over the budget, the queues written least recently are dropped until a quarter is free
+        index.putPosting(TOPIC, 0, 1, 1);
+        index.putPosting(TOPIC, 3, 0, 1);
+        assertThat(index.getUsedBytes()).isEqualTo(2 * 224);
+        assertThat(index.nextMatchedOffset(TOPIC, 1, Collections.singleton(1), 0)).isEqualTo(-1);
+        assertThat(index.nextMatchedOffset(TOPIC, 2, Collections.singleton(1), 0)).isEqualTo(-1);
+        assertThat(index.nextMatchedOffset(TOPIC, 0, Collections.singleton(1), 1)).isEqualTo(1);
+        assertThat(index.nextMatchedOffset(TOPIC, 3, Collections.singleton(1), 0)).isEqualTo(0);
+
+        // a dropped queue is rebuilt from its next posting
+        index.putPosting(TOPIC, 1, 1, 1);
+        assertThat(index.nextMatchedOffset(TOPIC, 1, Collections.singleton(1), 1)).isEqualTo(1);
+
+        index.removeQueue(TOPIC, 0);
+        index.removeTopic(TOPIC);
+        assertThat(index.getUsedBytes()).isEqualTo(0);
+    }
+}
@@ -45,10 +45,12 @@ import org.apache.rocketmq.common.protocol.body.KVTable;
 import org.apache.rocketmq.common.protocol.body.ProducerConnection;
 import org.apache.rocketmq.common.protocol.body.QueryConsumeQueueResponseBody;
 import org.apache.rocketmq.common.protocol.body.QueueTimeSpan;
+import org.apache.rocketmq.common.protocol.body.RequestMetricsBody;
 import org.apache.rocketmq.common.protocol.body.SubscriptionGroupWrapper;
 import org.apache.rocketmq.common.protocol.body.TopicConfigSerializeWrapper;
 import org.apache.rocketmq.common.protocol.body.TopicList;
 import org.apache.rocketmq.common.protocol.route.TopicRouteData;
+import org.apache.rocketmq.common.quota.QuotaConfig;
 import org.apache.rocketmq.common.subscription.SubscriptionGroupConfig;
 import org.apache.rocketmq.remoting.RPCHook;
 import org.apache.rocketmq.remoting.exception.RemotingCommandException;
@@ -225,6 +227,13 @@ public class DefaultMQAdminExt extends ClientConfig implements MQAdminExt {
         return this.defaultMQAdminExtImpl.fetchBrokerRuntimeStats(brokerAddr);
     }
 
+    @Override
+    public RequestMetricsBody fetchRequestMetrics(final String brokerAddr, final boolean reset)
+        throws RemotingConnectException, RemotingSendRequestException, RemotingTimeoutException, InterruptedException,
+        MQBrokerException {
+        return this.defaultMQAdminExtImpl.fetchRequestMetrics(brokerAddr, reset);
+    }
+
     @Override
     public ConsumeStats examineConsumeStats(
         String consumerGroup) throws RemotingException, MQClientException, InterruptedException,
@@ -314,6 +323,18 @@ public class DefaultMQAdminExt extends ClientConfig implements MQAdminExt {
         defaultMQAdminExtImpl.deleteSubscriptionGroup(addr, groupName);
     }
 
+    @Override
+    public void createAndUpdateQuotaConfig(String addr, QuotaConfig config) throws RemotingException,
+        MQBrokerException, InterruptedException, MQClientException {
+        defaultMQAdminExtImpl.createAndUpdateQuotaConfig(addr, config);
+    }
+
+    @Override
+    public void deleteQuotaConfig(String addr, String type, String direction, String resource) throws RemotingException,
+        MQBrokerException, InterruptedException, MQClientException {
+        defaultMQAdminExtImpl.deleteQuotaConfig(addr, type, direction, resource);
+    }
+
     @Override
     public void createAndUpdateKvConfig(String namespace, String key,
         String value) throws RemotingException, MQBrokerException,
@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.tools.command.broker;
+
+import java.util.Set;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.rocketmq.common.quota.QuotaConfig;
+import org.apache.rocketmq.remoting.RPCHook;
+import org.apache.rocketmq.srvutil.ServerUtil;
+import org.apache.rocketmq.tools.admin.DefaultMQAdminExt;
+import org.apache.rocketmq.tools.command.CommandUtil;
+import org.apache.rocketmq.tools.command.SubCommand;
+import org.apache.rocketmq.tools.command.SubCommandException;
+
+public class DeleteQuotaSubCommand implements SubCommand {
+    @Override
+    public String commandName() {
+        return "deleteQuota";
+    }
+
+    @Override
+    public String commandDesc() {
+        return "Delete the quota of a topic or a client group from broker.";
+    }
+
+    @Override
+    public Options buildCommandlineOptions(Options options) {
+        Option opt = new Option("b", "brokerAddr", true, "delete quota from which broker");
+        opt.setRequired(false);
+        options.addOption(opt);
+
+        opt = new Option("c", "clusterName", true, "delete quota from which cluster");
+        opt.setRequired(false);
+        options.addOption(opt);
+
+        opt = new Option("y", "type", true, "quota type, TOPIC or GROUP, default TOPIC");
+        opt.setRequired(false);
+        options.addOption(opt);
+
+        opt = new Option("d", "direction", true, "quota direction, SEND or PULL, default SEND");
+        opt.setRequired(false);
+        options.addOption(opt);
+
+        opt = new Option("r", "resource", true, "topic or producer/consumer group name");
+        opt.setRequired(true);
+        options.addOption(opt);
+
+        return options;
+    }
+
+    @Override
+    public void execute(CommandLine commandLine, Options options, RPCHook rpcHook) throws SubCommandException {
+        DefaultMQAdminExt adminExt = new DefaultMQAdminExt(rpcHook);
+        adminExt.setInstanceName(Long.toString(System.currentTimeMillis()));
+        try {
+            String type = commandLine.hasOption('y') ? commandLine.getOptionValue('y').trim().toUpperCase() : QuotaConfig.TYPE_TOPIC;
+            String direction = commandLine.hasOption('d') ? commandLine.getOptionValue('d').trim().toUpperCase() : QuotaConfig.DIRECTION_SEND;
+            String resource = commandLine.getOptionValue('r').trim();
+
+            if (commandLine.hasOption('b')) {
+                String addr = commandLine.getOptionValue('b').trim();
+                adminExt.start();
+
+                adminExt.deleteQuotaConfig(addr, type, direction, resource);
+                System.out.printf("delete %s %s quota [%s] from broker [%s] success.%n", type, direction, resource, addr);
+                return;
+            } else if (commandLine.hasOption('c')) {
+                String clusterName = commandLine.getOptionValue('c').trim();
+                adminExt.start();
+
+                Set<String> masterSet = CommandUtil.fetchMasterAddrByClusterName(adminExt, clusterName);
+                for (String master : masterSet) {
+                    adminExt.deleteQuotaConfig(master, type, direction, resource);
+                    System.out.printf("delete %s %s quota [%s] from broker [%s] in cluster [%s] success.%n",
+                        type, direction, resource, master, clusterName);
+                }
+                return;
+            }
+
+            ServerUtil.printCommandLineHelp("mqadmin " + this.commandName(), options);
+        } catch (Exception e) {
+            throw new SubCommandException(this.getClass().getSimpleName() + " command failed", e);
+        } finally {
+            adminExt.shutdown();
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.tools.command.broker;
+
+import java.util.Set;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.rocketmq.client.exception.MQBrokerException;
+import org.apache.rocketmq.common.protocol.body.RequestMetricsBody;
+import org.apache.rocketmq.common.protocol.body.RequestMetricsItem;
+import org.apache.rocketmq.remoting.RPCHook;
+import org.apache.rocketmq.remoting.exception.RemotingConnectException;
+import org.apache.rocketmq.remoting.exception.RemotingSendRequestException;
+import org.apache.rocketmq.remoting.exception.RemotingTimeoutException;
+import org.apache.rocketmq.tools.admin.DefaultMQAdminExt;
+import org.apache.rocketmq.tools.command.CommandUtil;
+import org.apache.rocketmq.tools.command.SubCommand;
+import org.apache.rocketmq.tools.command.SubCommandException;
+
+public class RequestMetricsSubCommand implements SubCommand {
+
+    @Override
+    public String commandName() {
+        return "requestMetrics";
+    }
+
+    @Override
+    public String commandDesc() {
+        return "Fetch queue wait, process time(us) and response size of broker requests, per request code and pool";
+    }
+
+    @Override
+    public Options buildCommandlineOptions(Options options) {
+        Option opt = new Option("b", "brokerAddr", true, "Broker address");
+        opt.setRequired(false);
+        options.addOption(opt);
+
+        opt = new Option("c", "clusterName", true, "which cluster");
+        opt.setRequired(false);
+        options.addOption(opt);
+
+        opt = new Option("r", "reset", false, "start over the metrics after fetching them");
+        opt.setRequired(false);
+        options.addOption(opt);
+
+        return options;
+    }
+
+    @Override
+    public void execute(CommandLine commandLine, Options options, RPCHook rpcHook) throws SubCommandException {
+        DefaultMQAdminExt defaultMQAdminExt = new DefaultMQAdminExt(rpcHook);
+
+        defaultMQAdminExt.setInstanceName(Long.toString(System.currentTimeMillis()));
+
+        try {
+            defaultMQAdminExt.start();
+
+            boolean reset = commandLine.hasOption('r');
+            String brokerAddr = commandLine.hasOption('b') ? commandLine.getOptionValue('b').trim() : null;
+            String clusterName = commandLine.hasOption('c') ? commandLine.getOptionValue('c').trim() : null;
+            if (brokerAddr != null) {
+                printRequestMetrics(defaultMQAdminExt, brokerAddr, reset);
+            } else if (clusterName != null) {
+                Set<String> masterSet =
+                    CommandUtil.fetchMasterAndSlaveAddrByClusterName(defaultMQAdminExt, clusterName);
+                for (String ba : masterSet) {
+                    try {
+                        printRequestMetrics(defaultMQAdminExt, ba, reset);
+                    } catch (Exception e) {
+                        e.printStackTrace();
+                    }
+                }
+            }
+
+        } catch (Exception e) {
+            throw new SubCommandException(this.getClass().getSimpleName() + " command failed", e);
+        } finally {
+            defaultMQAdminExt.shutdown();
+        }
+    }
+
+    public void printRequestMetrics(final DefaultMQAdminExt defaultMQAdminExt, final String brokerAddr,
+        final boolean reset) throws InterruptedException, MQBrokerException, RemotingTimeoutException,
+        RemotingSendRequestException, RemotingConnectException {
+        RequestMetricsBody body = defaultMQAdminExt.fetchRequestMetrics(brokerAddr, reset);
+
+        System.out.printf("%s%n", brokerAddr);
+        System.out.printf("%-8s  %-16s  %-12s  %-10s  %-10s  %-10s  %-10s  %-10s  %-10s  %-10s  %-10s%n",
+            "#Code", "#Pool", "#Count", "#WaitAvg", "#WaitP99", "#WaitMax",
+            "#ProcAvg", "#ProcP99", "#ProcMax", "#SizeAvg", "#SizeMax");
+        for (RequestMetricsItem item : body.getRequestCodeList()) {
+            printItem(String.valueOf(item.getRequestCode()), item);
+        }
+        for (RequestMetricsItem item : body.getPoolList()) {
+            printItem("*", item);
+        }
+        System.out.printf("%n");
+    }
+
+    private static void printItem(final String code, final RequestMetricsItem item) {
+        System.out.printf("%-8s  %-16s  %-12d  %-10d  %-10d  %-10d  %-10d  %-10d  %-10d  %-10d  %-10d%n",
+            code,
+            item.getPoolName(),
+            item.getCount(),
+            item.getQueueWaitAvg(),
+            item.getQueueWaitP99(),
+            item.getQueueWaitMax(),
+            item.getProcessAvg(),
+            item.getProcessP99(),
+            item.getProcessMax(),
+            item.getResponseSizeAvg(),
+            item.getResponseSizeMax());
+    }
+}
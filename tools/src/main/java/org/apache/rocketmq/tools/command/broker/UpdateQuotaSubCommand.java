@@ -0,0 +1,145 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.tools.command.broker;
+
+import java.util.Set;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.OptionGroup;
+import org.apache.commons.cli.Options;
+import org.apache.rocketmq.common.quota.QuotaConfig;
+import org.apache.rocketmq.remoting.RPCHook;
+import org.apache.rocketmq.srvutil.ServerUtil;
+import org.apache.rocketmq.tools.admin.DefaultMQAdminExt;
+import org.apache.rocketmq.tools.command.CommandUtil;
+import org.apache.rocketmq.tools.command.SubCommand;
+import org.apache.rocketmq.tools.command.SubCommandException;
+
+public class UpdateQuotaSubCommand implements SubCommand {
+
+    @Override
+    public String commandName() {
+        return "updateQuota";
+    }
+
+    @Override
+    public String commandDesc() {
+        return "Update or create the send/pull quota of a topic or a client group.";
+    }
+
+    @Override
+    public Options buildCommandlineOptions(Options options) {
+        OptionGroup optionGroup = new OptionGroup();
+
+        Option opt = new Option("b", "brokerAddr", true, "create quota to which broker");
+        optionGroup.addOption(opt);
+
+        opt = new Option("c", "clusterName", true, "create quota to which cluster");
+        optionGroup.addOption(opt);
+
+        optionGroup.setRequired(true);
+        options.addOptionGroup(optionGroup);
+
+        opt = new Option("y", "type", true, "quota type, TOPIC or GROUP, default TOPIC");
+        opt.setRequired(false);
+        options.addOption(opt);
+
+        opt = new Option("d", "direction", true, "quota direction, SEND or PULL, default SEND");
+        opt.setRequired(false);
+        options.addOption(opt);
+
+        opt = new Option("r", "resource", true, "topic or producer/consumer group name");
+        opt.setRequired(true);
+        options.addOption(opt);
+
+        opt = new Option("m", "messagesPerSecond", true, "max messages per second, -1 means unlimited");
+        opt.setRequired(false);
+        options.addOption(opt);
+
+        opt = new Option("s", "bytesPerSecond", true, "max bytes per second, -1 means unlimited");
+        opt.setRequired(false);
+        options.addOption(opt);
+
+        return options;
+    }
+
+    @Override
+    public void execute(final CommandLine commandLine, final Options options,
+        RPCHook rpcHook) throws SubCommandException {
+        DefaultMQAdminExt defaultMQAdminExt = new DefaultMQAdminExt(rpcHook);
+        defaultMQAdminExt.setInstanceName(Long.toString(System.currentTimeMillis()));
+
+        try {
+            QuotaConfig quotaConfig = new QuotaConfig();
+            if (commandLine.hasOption('y')) {
+                quotaConfig.setType(commandLine.getOptionValue('y').trim().toUpperCase());
+            }
+            if (commandLine.hasOption('d')) {
+                quotaConfig.setDirection(commandLine.getOptionValue('d').trim().toUpperCase());
+            }
+            quotaConfig.setResource(commandLine.getOptionValue('r').trim());
+            if (commandLine.hasOption('m')) {
+                quotaConfig.setMessagesPerSecond(Long.parseLong(commandLine.getOptionValue('m').trim()));
+            }
+            if (commandLine.hasOption('s')) {
+                quotaConfig.setBytesPerSecond(Long.parseLong(commandLine.getOptionValue('s').trim()));
+            }
+            if (!QuotaConfig.isValidType(quotaConfig.getType())) {
+                System.out.printf("unknown quota type %s, should be TOPIC or GROUP%n", quotaConfig.getType());
+                return;
+            }
+            if (!QuotaConfig.isValidDirection(quotaConfig.getDirection())) {
+                System.out.printf("unknown quota direction %s, should be SEND or PULL%n", quotaConfig.getDirection());
+                return;
+            }
+
+            if (commandLine.hasOption('b')) {
+                String addr = commandLine.getOptionValue('b').trim();
+
+                defaultMQAdminExt.start();
+                defaultMQAdminExt.createAndUpdateQuotaConfig(addr, quotaConfig);
+                System.out.printf("create or update quota to %s success.%n", addr);
+                System.out.printf("%s", quotaConfig);
+                return;
+
+            } else if (commandLine.hasOption('c')) {
+                String clusterName = commandLine.getOptionValue('c').trim();
+
+                defaultMQAdminExt.start();
+                Set<String> masterSet =
+                    CommandUtil.fetchMasterAddrByClusterName(defaultMQAdminExt, clusterName);
+                for (String addr : masterSet) {
+                    try {
+                        defaultMQAdminExt.createAndUpdateQuotaConfig(addr, quotaConfig);
+                        System.out.printf("create or update quota to %s success.%n", addr);
+                    } catch (Exception e) {
+                        e.printStackTrace();
+                        Thread.sleep(1000 * 1);
+                    }
+                }
+                System.out.printf("%s", quotaConfig);
+                return;
+            }
+
+            ServerUtil.printCommandLineHelp("mqadmin " + this.commandName(), options);
+        } catch (Exception e) {
+            throw new SubCommandException(this.getClass().getSimpleName() + " command failed", e);
+        } finally {
+            defaultMQAdminExt.shutdown();
+        }
+    }
+}